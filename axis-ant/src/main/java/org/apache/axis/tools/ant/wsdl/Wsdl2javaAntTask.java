@@ -413,7 +413,7 @@ public class Wsdl2javaAntTask extends Task
     }
 
     /**
-     * add scope to deploy.xml: "Application", "Request", "Session"
+     * add scope to deploy.xml: "Application", "Request", "Session", "Pooled"
      * optional;
      */
     public void setDeployScope(String scope) {
@@ -489,7 +489,7 @@ public class Wsdl2javaAntTask extends Task
     /*
     public static class DeployScopeEnum extends EnumeratedAttribute {
         public String[] getValues() {
-            return new String[]{"Application", "Request", "Session","none"};
+            return new String[]{"Application", "Request", "Session", "Pooled", "none"};
         }
 
     }
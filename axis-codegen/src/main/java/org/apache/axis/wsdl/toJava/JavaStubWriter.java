@@ -158,15 +158,37 @@ public class JavaStubWriter extends JavaClassWriter {
         HashSet types = getTypesInPortType(portType);
         boolean hasMIME = Utils.hasMIME(bEntry);
 
-        if ((types.size() > 0) || hasMIME) {
-            pw.println(
-                    "    private java.util.Vector cachedSerClasses = new java.util.Vector();");
-            pw.println(
-                    "    private java.util.Vector cachedSerQNames = new java.util.Vector();");
+        // Collect the types to map, sorted by their qname.
+        List deferredBindings = new ArrayList();
+        for (Iterator it = types.iterator(); it.hasNext();) {
+            TypeEntry type = (TypeEntry) it.next();
+
+            if (Utils.shouldEmit(type)) {
+                deferredBindings.add(type);
+            }
+        }
+        Collections.sort(deferredBindings, new Comparator() {
+            public int compare(Object a, Object b) {
+                TypeEntry type1 = (TypeEntry)a;
+                TypeEntry type2 = (TypeEntry)b;
+                return type1.getQName().toString().compareToIgnoreCase(type2.getQName().toString());
+            }
+        });
+
+        // We need to write out the MIME mapping, even if we don't have
+        // any type mappings
+        int typeMappingCount = deferredBindings.size() + (hasMIME ? 1 : 0);
+
+        // The type mappings are built once for the stub class, and shared
+        // by all its instances.
+        if (typeMappingCount > 0) {
             pw.println(
-                    "    private java.util.Vector cachedSerFactories = new java.util.Vector();");
+                    "    private static final org.apache.axis.client.TypeMappingSnapshot _typeMappings =");
             pw.println(
-                    "    private java.util.Vector cachedDeserFactories = new java.util.Vector();");
+                    "            new org.apache.axis.client.TypeMappingSnapshot("
+                    + typeMappingCount + ");");
+            pw.println();
+            writeTypeMappingInit(pw, deferredBindings, hasMIME);
         }
 
         pw.println();
@@ -198,85 +220,9 @@ public class JavaStubWriter extends JavaClassWriter {
         pw.println("        }");
         pw.println("        ((org.apache.axis.client.Service)super.service).setTypeMappingVersion(\"" + emitter.getTypeMappingVersion() + "\");");
 
-        List deferredBindings = new ArrayList();
-
-        // keep track of how many type mappings we write out
-        int typeMappingCount = 0;
-
-        if (types.size() > 0) {
-            Iterator it = types.iterator();
-
-            while (it.hasNext()) {
-                TypeEntry type = (TypeEntry) it.next();
-
-                if (!Utils.shouldEmit(type)) {
-                    continue;
-                }
-
-                // Write out serializer declarations
-                if (typeMappingCount == 0) {
-                    writeSerializationDecls(
-                            pw, hasMIME, binding.getQName().getNamespaceURI());
-                }
-
-                // write the type mapping for this type
-                // writeSerializationInit(pw, type);
-                deferredBindings.add(type);
-
-                // increase the number of type mappings count
-                typeMappingCount++;
-            }
-        }
-
-        // Sort the TypeEntry's by their qname.
-        Collections.sort(deferredBindings, new Comparator() {
-            public int compare(Object a, Object b) {
-                TypeEntry type1 = (TypeEntry)a;
-                TypeEntry type2 = (TypeEntry)b;
-                return type1.getQName().toString().compareToIgnoreCase(type2.getQName().toString());
-            }
-        });
-
-        // We need to write out the MIME mapping, even if we don't have
-        // any type mappings
-        if ((typeMappingCount == 0) && hasMIME) {
-            writeSerializationDecls(pw, hasMIME,
-                    binding.getQName().getNamespaceURI());
-
-            typeMappingCount++;
-        }
-
-        // track whether the number of bindings exceeds the threshold
-        // that we allow per method.
-        boolean needsMultipleBindingMethods = false;
-
-        if (deferredBindings.size() < MAXIMUM_BINDINGS_PER_METHOD) {
-
-            // small number of bindings, just inline them:
-            for (Iterator it = deferredBindings.iterator(); it.hasNext();) {
-                writeSerializationInit(pw, (TypeEntry) it.next());
-            }
-        } else {
-            needsMultipleBindingMethods = true;
-
-            int methodCount = calculateBindingMethodCount(deferredBindings);
-
-            // invoke each of the soon-to-be generated addBindings methods
-            // from the constructor.
-            for (int i = 0; i < methodCount; i++) {
-                pw.println("        addBindings" + i + "();");
-            }
-        }
-
         pw.println("    }");
         pw.println();
 
-        // emit any necessary methods for assembling binding metadata.
-        if (needsMultipleBindingMethods) {
-            writeBindingMethods(pw, deferredBindings);
-            pw.println();
-        }
-
         pw.println(
                 "    protected org.apache.axis.client.Call createCall() throws java.rmi.RemoteException {");
         pw.println("        try {");
@@ -347,45 +293,7 @@ public class JavaStubWriter extends JavaClassWriter {
                 }
             }
 
-            pw.println(
-                    "                    for (int i = 0; i < cachedSerFactories.size(); ++i) {");
-            pw.println(
-                    "                        java.lang.Class cls = (java.lang.Class) cachedSerClasses.get(i);");
-            pw.println(
-                    "                        javax.xml.namespace.QName qName =");
-            pw.println(
-                    "                                (javax.xml.namespace.QName) cachedSerQNames.get(i);");
-            pw.println(
-                    "                        java.lang.Object x = cachedSerFactories.get(i);");
-            pw.println(
-                    "                        if (x instanceof Class) {");
-            pw.println(
-                    "                            java.lang.Class sf = (java.lang.Class)");
-            pw.println(
-                    "                                 cachedSerFactories.get(i);");
-            pw.println(
-                    "                            java.lang.Class df = (java.lang.Class)");
-            pw.println(
-                    "                                 cachedDeserFactories.get(i);");
-            pw.println(
-                    "                            _call.registerTypeMapping(cls, qName, sf, df, false);");
-
-            pw.println("                        }");
-            pw.println(
-                    "                        else if (x instanceof javax.xml.rpc.encoding.SerializerFactory) {");
-            pw.println(
-                    "                            org.apache.axis.encoding.SerializerFactory sf = (org.apache.axis.encoding.SerializerFactory)");
-            pw.println(
-                    "                                 cachedSerFactories.get(i);");
-            pw.println(
-                    "                            org.apache.axis.encoding.DeserializerFactory df = (org.apache.axis.encoding.DeserializerFactory)");
-            pw.println(
-                    "                                 cachedDeserFactories.get(i);");
-            pw.println(
-                    "                            _call.registerTypeMapping(cls, qName, sf, df, false);");
-
-            pw.println("                        }");
-            pw.println("                    }");
+            pw.println("                    _typeMappings.registerWith(_call);");
             pw.println("                }");
             pw.println("            }");
         }
@@ -444,6 +352,47 @@ public class JavaStubWriter extends JavaClassWriter {
         }
     }    // writeFileBody
 
+    /**
+     * Write the static initializer which adds the type mappings of the stub
+     * to its TypeMappingSnapshot.
+     * 
+     * @param pw               a <code>PrintWriter</code> value
+     * @param deferredBindings a <code>List</code> of TypeEntry objects
+     * @param hasMIME          whether to map DataHandler as well
+     */
+    protected void writeTypeMappingInit(PrintWriter pw, List deferredBindings,
+                                        boolean hasMIME) {
+
+        pw.println("    static {");
+        writeSerializationDecls(pw, hasMIME,
+                binding.getQName().getNamespaceURI());
+
+        // track whether the number of bindings exceeds the threshold
+        // that we allow per method.
+        if (deferredBindings.size() < MAXIMUM_BINDINGS_PER_METHOD) {
+
+            // small number of bindings, just inline them:
+            for (Iterator it = deferredBindings.iterator(); it.hasNext();) {
+                writeSerializationInit(pw, (TypeEntry) it.next());
+            }
+            pw.println("    }");
+        } else {
+            int methodCount = calculateBindingMethodCount(deferredBindings);
+
+            // invoke each of the soon-to-be generated addBindings methods
+            // from the static initializer.
+            for (int i = 0; i < methodCount; i++) {
+                pw.println("        addBindings" + i + "();");
+            }
+            pw.println("    }");
+            pw.println();
+
+            // emit the methods for assembling binding metadata.
+            writeBindingMethods(pw, deferredBindings);
+        }
+        pw.println();
+    }    // writeTypeMappingInit
+
     /**
      * Compute the number of addBindings methods we need to generate for the
      * set of TypeEntries used by the generated stub.
@@ -478,7 +427,7 @@ public class JavaStubWriter extends JavaClassWriter {
         int methodCount = calculateBindingMethodCount(deferredBindings);
 
         for (int i = 0; i < methodCount; i++) {
-            pw.println("    private void addBindings" + i + "() {");
+            pw.println("    private static void addBindings" + i + "() {");
 
             // each method gets its own local variables for use in generating
             // the binding code
@@ -858,7 +807,8 @@ public class JavaStubWriter extends JavaClassWriter {
     }
 
     /**
-     * In the stub constructor, write the serializer code for the complex types.
+     * In the stub's static initializer, write the serializer code for the
+     * complex types.
      * 
      * @param pw        
      * @param hasMIME   
@@ -903,11 +853,8 @@ public class JavaStubWriter extends JavaClassWriter {
             pw.println("            qName = new javax.xml.namespace.QName(\""
                     + qname.getNamespaceURI() + "\", \""
                     + qname.getLocalPart() + "\");");
-            pw.println("            cachedSerQNames.add(qName);");
             pw.println("            cls = jakarta.activation.DataHandler.class;");
-            pw.println("            cachedSerClasses.add(cls);");
-            pw.println("            cachedSerFactories.add(mimesf);");
-            pw.println("            cachedDeserFactories.add(mimedf);");
+            pw.println("            _typeMappings.add(cls, qName, mimesf, mimedf);");
             pw.println();
         }
     }    // writeSerializationDecls
@@ -922,64 +869,57 @@ public class JavaStubWriter extends JavaClassWriter {
 
         QName qname = type.getQName();
 
+        if (!type.getName().endsWith("[]")
+                && (type.getNode() == null || Utils.getEnumerationBaseAndValues(
+                        type.getNode(), symbolTable) == null)
+                && !type.isSimpleType() && (type.getBaseType() != null)) {
+
+            // serializers are not required for types derived from base types
+            // java type to qname mapping is anyway established by default
+            // if type mapping returns null for a serialization factory, it
+            // is assumed to be not-defined and the delegate will be checked,
+            // the end delegate is DefaultTypeMappingImpl that'll get it
+            // right with the base type name
+            return;
+        }
+
         pw.println("            qName = new javax.xml.namespace.QName(\""
                 + qname.getNamespaceURI() + "\", \"" + qname.getLocalPart()
                 + "\");");
-        pw.println("            cachedSerQNames.add(qName);");
         pw.println("            cls = " + type.getName() + ".class;");
-        pw.println("            cachedSerClasses.add(cls);");
 
         if (type.getName().endsWith("[]")) {
             if (SchemaUtils.isListWithItemType(type.getNode())) {
-                pw.println("            cachedSerFactories.add(simplelistsf);");
-                pw.println("            cachedDeserFactories.add(simplelistdf);");
+                pw.println("            _typeMappings.add(cls, qName, simplelistsf, simplelistdf);");
             } else {
                 // We use a custom serializer if WSDL told us the component type of the array.
                 // Both factories must be an instance, so we create a ArrayDeserializerFactory
                 if (type.getComponentType() != null) {
                     QName ct = type.getComponentType();
                     QName name = type.getItemQName();
-                    pw.println("            qName = new javax.xml.namespace.QName(\""
+                    pw.println("            qName2 = new javax.xml.namespace.QName(\""
                             + ct.getNamespaceURI() + "\", \"" + ct.getLocalPart()
                             + "\");");
+                    String itemQName = "null";
                     if(name != null) {
-                        pw.println("            qName2 = new javax.xml.namespace.QName(\""
+                        itemQName = "new javax.xml.namespace.QName(\""
                                 + name.getNamespaceURI() + "\", \"" + name.getLocalPart()
-                                + "\");");
-                    } else {
-                        pw.println("            qName2 = null;");
+                                + "\")";
                     }
-                    pw.println("            cachedSerFactories.add(new org.apache.axis.encoding.ser.ArraySerializerFactory(qName, qName2));");
-                    pw.println("            cachedDeserFactories.add(new org.apache.axis.encoding.ser.ArrayDeserializerFactory());");
+                    pw.println("            _typeMappings.add(cls, qName,");
+                    pw.println("                    new org.apache.axis.encoding.ser.ArraySerializerFactory(qName2, " + itemQName + "),");
+                    pw.println("                    new org.apache.axis.encoding.ser.ArrayDeserializerFactory());");
                 } else {
-                    pw.println("            cachedSerFactories.add(arraysf);");
-                    pw.println("            cachedDeserFactories.add(arraydf);");
+                    pw.println("            _typeMappings.add(cls, qName, arraysf, arraydf);");
                 }
             }
         } else if ((type.getNode() != null) && (Utils.getEnumerationBaseAndValues(
                 type.getNode(), symbolTable) != null)) {
-            pw.println("            cachedSerFactories.add(enumsf);");
-            pw.println("            cachedDeserFactories.add(enumdf);");
+            pw.println("            _typeMappings.add(cls, qName, enumsf, enumdf);");
         } else if (type.isSimpleType()) {
-            pw.println("            cachedSerFactories.add(org.apache.axis.encoding.ser.BaseSerializerFactory.createFactory(" +
-                    "org.apache.axis.encoding.ser.SimpleSerializerFactory.class, cls, qName));");
-            pw.println("            cachedDeserFactories.add(org.apache.axis.encoding.ser.BaseDeserializerFactory.createFactory(" +
-                    "org.apache.axis.encoding.ser.SimpleDeserializerFactory.class, cls, qName));");
-        } else if (type.getBaseType() != null) {
-
-            // serializers are not required for types derived from base types
-            // java type to qname mapping is anyway established by default
-            // note that we have to add null to the serfactories vector to
-            // keep the order of other entries, this is not going to screw
-            // up because if type mapping returns null for a serialization
-            // factory, it is assumed to be not-defined and the delegate
-            // will be checked, the end delegate is DefaultTypeMappingImpl
-            // that'll get it right with the base type name
-            pw.println("            cachedSerFactories.add(null);");
-            pw.println("            cachedDeserFactories.add(simpledf);");
+            pw.println("            _typeMappings.add(cls, qName, simplesf, simpledf);");
         } else {
-            pw.println("            cachedSerFactories.add(beansf);");
-            pw.println("            cachedDeserFactories.add(beandf);");
+            pw.println("            _typeMappings.add(cls, qName, beansf, beandf);");
         }
 
         pw.println();
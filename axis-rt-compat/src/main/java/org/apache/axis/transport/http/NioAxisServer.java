@@ -0,0 +1,1109 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.transport.http;
+
+import org.apache.axis.AxisFault;
+import org.apache.axis.ConfigurationException;
+import org.apache.axis.Constants;
+import org.apache.axis.EngineConfiguration;
+import org.apache.axis.Message;
+import org.apache.axis.MessageContext;
+import org.apache.axis.collections.LRUMap;
+import org.apache.axis.components.logger.LogFactory;
+import org.apache.axis.configuration.EngineConfigurationFactoryFinder;
+import org.apache.axis.description.OperationDesc;
+import org.apache.axis.description.ServiceDesc;
+import org.apache.axis.encoding.Base64;
+import org.apache.axis.management.ServiceAdmin;
+import org.apache.axis.message.SOAPEnvelope;
+import org.apache.axis.message.SOAPFault;
+import org.apache.axis.server.AxisServer;
+import org.apache.axis.session.Session;
+import org.apache.axis.session.SimpleSession;
+import org.apache.axis.utils.BoundedExecutor;
+import org.apache.axis.utils.Messages;
+import org.apache.axis.utils.NetworkUtils;
+import org.apache.axis.utils.Options;
+import org.apache.axis.utils.XMLUtils;
+import org.apache.commons.logging.Log;
+import org.w3c.dom.Document;
+
+import javax.xml.namespace.QName;
+import javax.xml.soap.MimeHeader;
+import javax.xml.soap.MimeHeaders;
+import javax.xml.soap.SOAPMessage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An HTTP/1.1 server for processing SOAP requests, built for many
+ * concurrent, long lived, connections.
+ * <p>
+ * Unlike {@link SimpleAxisServer}, which ties up a thread per connection,
+ * connections are multiplexed over a small number of I/O threads, each
+ * driving a {@link Selector}.  An I/O thread reads and parses requests
+ * without blocking, and hands complete requests over to a bounded pool of
+ * worker threads which run them through the {@link AxisServer}.  When the
+ * worker pool is saturated, requests are refused with a 503 status rather
+ * than queued without limit.
+ * <p>
+ * Connections are kept alive between requests, and pipelined requests are
+ * answered in order.  Requests with headers larger than
+ * <code>maxHeaderSize</code> or a body larger than
+ * <code>maxRequestSize</code> are refused before being read entirely.
+ * {@link #stop()} stops accepting connections and waits, up to
+ * <code>drainTimeout</code> milliseconds, for the requests in progress to
+ * be answered.
+ */
+public class NioAxisServer {
+    protected static Log log =
+            LogFactory.getLog(NioAxisServer.class.getName());
+
+    public static final int DEFAULT_WORKER_THREADS = 50;
+    public static final int DEFAULT_WORKER_QUEUE_SIZE = 200;
+    public static final int DEFAULT_MAX_HEADER_SIZE = 16 * 1024;
+    public static final long DEFAULT_MAX_REQUEST_SIZE = 16 * 1024 * 1024;
+    public static final long DEFAULT_KEEP_ALIVE_TIMEOUT = 30000;
+    public static final long DEFAULT_DRAIN_TIMEOUT = 10000;
+
+    // Axis specific constants
+    private static final String transportName = "SimpleHTTP";
+
+    /** how long to wait after accept() fails, in ms */
+    private static final long ACCEPT_BACKOFF = 100;
+
+    private static final byte[] CONTINUE =
+            "HTTP/1.1 100 Continue\r\n\r\n".getBytes();
+
+    private int ioThreads =
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private int workerThreads = DEFAULT_WORKER_THREADS;
+    private int workerQueueSize = DEFAULT_WORKER_QUEUE_SIZE;
+    private int maxHeaderSize = DEFAULT_MAX_HEADER_SIZE;
+    private long maxRequestSize = DEFAULT_MAX_REQUEST_SIZE;
+    private long keepAliveTimeout = DEFAULT_KEEP_ALIVE_TIMEOUT;
+    private long drainTimeout = DEFAULT_DRAIN_TIMEOUT;
+
+    private boolean doSessions = true;
+    private final Map sessions =
+            new LRUMap(SimpleAxisServer.MAX_SESSIONS_DEFAULT);
+    private final AtomicInteger sessionIndex = new AtomicInteger();
+
+    private EngineConfiguration myConfig = null;
+    private volatile AxisServer myAxisServer = null;
+
+    private ServerSocketChannel serverChannel;
+    private Thread acceptor;
+    private IoLoop[] loops;
+    private BoundedExecutor workers;
+    private volatile boolean running = false;
+    private volatile boolean draining = false;
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * Create a server using the default server configuration.
+     */
+    public NioAxisServer() {
+    }
+
+    /**
+     * Create a server sending requests through the given engine.
+     */
+    public NioAxisServer(AxisServer engine) {
+        this.myAxisServer = engine;
+    }
+
+    public EngineConfiguration getMyConfig() {
+        return myConfig;
+    }
+
+    public void setMyConfig(EngineConfiguration myConfig) {
+        this.myConfig = myConfig;
+    }
+
+    /**
+     * demand create an axis server; return an existing one if one exists.
+     * The configuration for the axis server is derived from #myConfig if not null,
+     * the default config otherwise.  Called by every worker, so it only
+     * locks until the engine exists.
+     */
+    public AxisServer getAxisServer() {
+        AxisServer engine = myAxisServer;
+        if (engine == null) {
+            synchronized (this) {
+                engine = myAxisServer;
+                if (engine == null) {
+                    if (myConfig == null) {
+                        myConfig = EngineConfigurationFactoryFinder.newFactory().getServerEngineConfig();
+                    }
+                    engine = new AxisServer(myConfig);
+                    ServiceAdmin.setEngine(engine, NetworkUtils.getLocalHostname() + "@" + getLocalPort());
+                    myAxisServer = engine;
+                }
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * Listen on the given port of all the local addresses.
+     */
+    public void start(int port) throws IOException {
+        start(new InetSocketAddress(port));
+    }
+
+    /**
+     * Listen on the given address, and start the I/O and worker threads.
+     * The threads are daemon threads.
+     */
+    public synchronized void start(SocketAddress address) throws IOException {
+        if (running) {
+            return;
+        }
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        try {
+            channel.socket().setReuseAddress(true);
+            channel.socket().bind(address);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        serverChannel = channel;
+        workers = new BoundedExecutor("axis-nio-worker", workerThreads,
+                                      workerQueueSize, false);
+        loops = new IoLoop[ioThreads];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new IoLoop(i);
+        }
+        running = true;
+        draining = false;
+        for (int i = 0; i < loops.length; i++) {
+            loops[i].thread.start();
+        }
+        acceptor = new Thread(new Runnable() {
+            public void run() {
+                accept();
+            }
+        }, "axis-nio-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        log.info(Messages.getMessage("start01", "NioAxisServer",
+                "" + getLocalPort(), System.getProperty("user.dir")));
+    }
+
+    /**
+     * @return the port the server listens on, -1 if it isn't started
+     */
+    public int getLocalPort() {
+        ServerSocketChannel channel = serverChannel;
+        return channel == null ? -1 : channel.socket().getLocalPort();
+    }
+
+    private void accept() {
+        int next = 0;
+        while (running) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (IOException e) {
+                if (!running) {
+                    break;
+                }
+                // e.g. out of file descriptors: back off rather than spin
+                log.error(Messages.getMessage("exception00"), e);
+                try {
+                    Thread.sleep(ACCEPT_BACKOFF);
+                } catch (InterruptedException ie) {
+                    if (!running) {
+                        break;
+                    }
+                }
+                continue;
+            }
+            openConnections.incrementAndGet();
+            final NioHttpConnection conn = new NioHttpConnection(channel);
+            final IoLoop loop = loops[next];
+            next = (next + 1) % loops.length;
+            loop.execute(new Runnable() {
+                public void run() {
+                    loop.register(conn);
+                }
+            });
+        }
+    }
+
+    /**
+     * Stop this server, giving the requests in progress up to
+     * <code>drainTimeout</code> milliseconds to complete.
+     */
+    public void stop() {
+        stop(drainTimeout);
+    }
+
+    /**
+     * Stop accepting connections and requests, wait up to the given time
+     * for the requests in progress to be answered, then close all the
+     * connections.  Can be called safely if the server is already stopped,
+     * is being stopped, or was never started.
+     *
+     * @param timeout how long to wait, in milliseconds
+     */
+    public void stop(long timeout) {
+        // The monitor isn't held while waiting: the requests in progress
+        // may need it to get the engine
+        synchronized (this) {
+            if (!running || draining) {
+                return;
+            }
+            draining = true;
+            try {
+                serverChannel.close();
+            } catch (IOException e) {
+                log.info(Messages.getMessage("exception00"), e);
+            }
+            wakeup();
+        }
+
+        long deadline = System.currentTimeMillis() + timeout;
+        int open;
+        while ((open = openConnections.get()) > 0) {
+            long wait = deadline - System.currentTimeMillis();
+            if (wait <= 0) {
+                break;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug(Messages.getMessage("draining00", "NioAxisServer",
+                                              "" + wait, "" + open));
+            }
+            try {
+                Thread.sleep(Math.min(wait, 50));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        synchronized (this) {
+            running = false;
+            wakeup();
+            for (int i = 0; i < loops.length; i++) {
+                try {
+                    loops[i].thread.join(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            workers.shutdown();
+            serverChannel = null;
+        }
+        log.info(Messages.getMessage("quit00", "NioAxisServer"));
+    }
+
+    private void wakeup() {
+        for (int i = 0; i < loops.length; i++) {
+            loops[i].selector.wakeup();
+        }
+    }
+
+    /**
+     * @return true between start() and stop()
+     */
+    public boolean isRunning() {
+        return running && !draining;
+    }
+
+    /**
+     * @return the number of connections currently open
+     */
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    /**
+     * @return the number of requests received
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @return the number of requests refused because the workers were busy
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return the number of requests being processed or waiting for a worker
+     */
+    public int getPendingCount() {
+        BoundedExecutor executor = workers;
+        return executor == null ? 0 : executor.getPendingCount();
+    }
+
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    /**
+     * Set the number of I/O threads; takes effect at the next start().
+     */
+    public void setIoThreads(int ioThreads) {
+        this.ioThreads = Math.max(1, ioThreads);
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    /**
+     * Set the number of requests processed at the same time; takes effect
+     * at the next start().
+     */
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = Math.max(1, workerThreads);
+    }
+
+    public int getWorkerQueueSize() {
+        return workerQueueSize;
+    }
+
+    /**
+     * Set the number of requests which may wait for a worker before
+     * requests get refused; takes effect at the next start().
+     */
+    public void setWorkerQueueSize(int workerQueueSize) {
+        this.workerQueueSize = Math.max(0, workerQueueSize);
+    }
+
+    public int getMaxHeaderSize() {
+        return maxHeaderSize;
+    }
+
+    public void setMaxHeaderSize(int maxHeaderSize) {
+        this.maxHeaderSize = maxHeaderSize;
+    }
+
+    public long getMaxRequestSize() {
+        return maxRequestSize;
+    }
+
+    /**
+     * Set the maximum size of a request body, in bytes.  The body of a
+     * request is held in memory until it has been entirely received.
+     */
+    public void setMaxRequestSize(long maxRequestSize) {
+        this.maxRequestSize = Math.min(maxRequestSize, Integer.MAX_VALUE);
+    }
+
+    public long getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    /**
+     * Set how long an idle connection is kept open, in milliseconds.
+     */
+    public void setKeepAliveTimeout(long keepAliveTimeout) {
+        this.keepAliveTimeout = keepAliveTimeout;
+    }
+
+    public long getDrainTimeout() {
+        return drainTimeout;
+    }
+
+    public void setDrainTimeout(long drainTimeout) {
+        this.drainTimeout = drainTimeout;
+    }
+
+    public int getMaxSessions() {
+        synchronized (sessions) {
+            return ((LRUMap) sessions).getMaximumSize();
+        }
+    }
+
+    public void setMaxSessions(int maxSessions) {
+        synchronized (sessions) {
+            ((LRUMap) sessions).setMaximumSize(maxSessions);
+        }
+    }
+
+    public boolean isSessionUsed() {
+        return doSessions;
+    }
+
+    /**
+     * Set this to false if you don't want any session overhead.
+     */
+    public void setSessionUsed(boolean doSessions) {
+        this.doSessions = doSessions;
+    }
+
+    /**
+     * demand create a session if there is not already one for the string
+     */
+    protected Session createSession(String cooky) {
+        synchronized (sessions) {
+            Session session = (Session) sessions.get(cooky);
+            if (session == null) {
+                session = new SimpleSession();
+                sessions.put(cooky, session);
+            }
+            return session;
+        }
+    }
+
+    /**
+     * An I/O thread, and the connections it owns.  Apart from
+     * {@link #execute(Runnable)}, only used by its own thread.
+     */
+    private class IoLoop implements Runnable {
+        final Selector selector;
+        final Thread thread;
+        private final ConcurrentLinkedQueue tasks = new ConcurrentLinkedQueue();
+        private long lastSweep = System.currentTimeMillis();
+
+        IoLoop(int index) throws IOException {
+            selector = Selector.open();
+            thread = new Thread(this, "axis-nio-io-" + index);
+            thread.setDaemon(true);
+        }
+
+        /**
+         * Run a task on this I/O thread.
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        public void run() {
+            while (running) {
+                try {
+                    selector.select(1000);
+                } catch (IOException e) {
+                    log.error(Messages.getMessage("exception00"), e);
+                    break;
+                }
+                Runnable task;
+                while ((task = (Runnable) tasks.poll()) != null) {
+                    task.run();
+                }
+                for (Iterator i = selector.selectedKeys().iterator(); i.hasNext();) {
+                    SelectionKey key = (SelectionKey) i.next();
+                    i.remove();
+                    NioHttpConnection conn = (NioHttpConnection) key.attachment();
+                    try {
+                        if (key.isValid() && key.isReadable()) {
+                            handleRead(conn);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            handleWrite(conn);
+                        }
+                    } catch (IOException e) {
+                        log.debug(Messages.getMessage("exception00"), e);
+                        close(conn);
+                    }
+                }
+                long now = System.currentTimeMillis();
+                if (draining || now - lastSweep >= 1000) {
+                    sweep(now);
+                    lastSweep = now;
+                }
+            }
+            // Whatever is still open past the drain timeout
+            Runnable task;
+            while ((task = (Runnable) tasks.poll()) != null) {
+                task.run();
+            }
+            for (Iterator i = selector.keys().iterator(); i.hasNext();) {
+                close((NioHttpConnection) ((SelectionKey) i.next()).attachment());
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.debug(Messages.getMessage("exception00"), e);
+            }
+        }
+
+        void register(NioHttpConnection conn) {
+            try {
+                conn.channel.configureBlocking(false);
+                conn.channel.socket().setTcpNoDelay(true);
+                conn.key = conn.channel.register(selector, SelectionKey.OP_READ, conn);
+            } catch (IOException e) {
+                log.debug(Messages.getMessage("exception00"), e);
+                close(conn);
+            }
+        }
+
+        /**
+         * Close the connections idle for too long, or idle at all while
+         * draining.
+         */
+        private void sweep(long now) {
+            Object[] keys = selector.keys().toArray();
+            for (int i = 0; i < keys.length; i++) {
+                NioHttpConnection conn =
+                        (NioHttpConnection) ((SelectionKey) keys[i]).attachment();
+                boolean idle = !conn.busy && conn.out == null;
+                if ((draining && idle && !conn.hasInput()) ||
+                    ((idle || conn.out != null) &&
+                     now - conn.lastActive > keepAliveTimeout)) {
+                    close(conn);
+                }
+            }
+        }
+
+        private void handleRead(NioHttpConnection conn) throws IOException {
+            int n = conn.read();
+            if (n < 0) {
+                close(conn);
+                return;
+            }
+            conn.lastActive = System.currentTimeMillis();
+            processInput(conn);
+        }
+
+        /**
+         * Dispatch the next request read on the connection, if it is
+         * complete and the previous one has been answered.
+         */
+        private void processInput(NioHttpConnection conn) throws IOException {
+            if (conn.busy || conn.out != null) {
+                return;
+            }
+            NioHttpRequest request;
+            try {
+                request = conn.parse(maxHeaderSize, maxRequestSize);
+            } catch (NioHttpException e) {
+                if (e.status == 413) {
+                    log.info(Messages.getMessage("requestTooLarge00",
+                            "" + conn.channel.socket().getRemoteSocketAddress(),
+                            "" + maxRequestSize));
+                } else {
+                    log.debug(Messages.getMessage("badRequest00"), e);
+                }
+                sendError(conn, e.status);
+                return;
+            }
+            if (request == null) {
+                if (conn.continueExpected) {
+                    conn.continueExpected = false;
+                    conn.out = ByteBuffer.wrap(CONTINUE);
+                    handleWrite(conn);
+                }
+                return;
+            }
+            if (draining) {
+                request.keepAlive = false;
+            }
+            requestCount.incrementAndGet();
+            conn.busy = true;
+            conn.key.interestOps(0);
+
+            boolean accepted;
+            try {
+                accepted = workers.tryExecute(new Worker(this, conn, request));
+            } catch (RejectedExecutionException e) {
+                accepted = false;
+            }
+            if (!accepted) {
+                rejectedCount.incrementAndGet();
+                log.warn(Messages.getMessage("serverBusy00", "NioAxisServer",
+                        "" + conn.channel.socket().getRemoteSocketAddress()));
+                conn.busy = false;
+                sendError(conn, 503);
+            }
+        }
+
+        /**
+         * Answer with an error status and close the connection.
+         */
+        private void sendError(NioHttpConnection conn, int status)
+                throws IOException {
+            conn.out = ByteBuffer.wrap(("HTTP/1.1 " + status + " " +
+                    reason(status) + "\r\n" +
+                    HTTPConstants.HEADER_CONTENT_LENGTH + ": 0\r\n" +
+                    HTTPConstants.HEADER_CONNECTION + ": " +
+                    HTTPConstants.HEADER_CONNECTION_CLOSE + "\r\n\r\n").getBytes());
+            conn.closeAfterWrite = true;
+            handleWrite(conn);
+        }
+
+        /**
+         * Called on this thread once a worker has built a response.
+         */
+        void respond(NioHttpConnection conn, byte[] response, boolean keepAlive) {
+            if (!conn.channel.isOpen()) {
+                return;
+            }
+            conn.out = ByteBuffer.wrap(response);
+            conn.responding = true;
+            conn.closeAfterWrite = !keepAlive;
+            try {
+                handleWrite(conn);
+            } catch (IOException e) {
+                log.debug(Messages.getMessage("exception00"), e);
+                close(conn);
+            }
+        }
+
+        private void handleWrite(NioHttpConnection conn) throws IOException {
+            conn.channel.write(conn.out);
+            conn.lastActive = System.currentTimeMillis();
+            if (conn.out.hasRemaining()) {
+                conn.key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+            conn.out = null;
+            if (conn.closeAfterWrite) {
+                close(conn);
+                return;
+            }
+            if (conn.responding) {
+                conn.responding = false;
+                conn.busy = false;
+            }
+            conn.key.interestOps(SelectionKey.OP_READ);
+            // Requests pipelined behind the one just answered
+            processInput(conn);
+        }
+
+        private void close(NioHttpConnection conn) {
+            if (!conn.channel.isOpen()) {
+                return;
+            }
+            if (conn.key != null) {
+                conn.key.cancel();
+            }
+            try {
+                conn.channel.close();
+            } catch (IOException e) {
+                log.debug(Messages.getMessage("exception00"), e);
+            }
+            openConnections.decrementAndGet();
+        }
+    }
+
+    private static String reason(int status) {
+        switch (status) {
+        case 200: return "OK";
+        case 202: return "Accepted";
+        case 301: return "Moved Permanently";
+        case 400: return "Bad Request";
+        case 401: return "Unauthorized";
+        case 411: return "Length Required";
+        case 413: return "Request Entity Too Large";
+        case 431: return "Request Header Fields Too Large";
+        case 500: return "Internal Server Error";
+        case 503: return "Service Unavailable";
+        case 505: return "HTTP Version Not Supported";
+        default: return "";
+        }
+    }
+
+    /**
+     * Processes a request on a worker thread, then hands the response over
+     * to the I/O thread of the connection.
+     */
+    private class Worker implements Runnable {
+        private final IoLoop loop;
+        private final NioHttpConnection conn;
+        private final NioHttpRequest request;
+
+        Worker(IoLoop loop, NioHttpConnection conn, NioHttpRequest request) {
+            this.loop = loop;
+            this.conn = conn;
+            this.request = request;
+        }
+
+        public void run() {
+            final boolean[] keepAlive = new boolean[] { request.keepAlive };
+            byte[] response;
+            MessageContext msgContext = null;
+            try {
+                msgContext = new MessageContext(getAxisServer());
+                response = service(msgContext, request, keepAlive);
+            } catch (Throwable e) {
+                log.info(Messages.getMessage("exception00"), e);
+                keepAlive[0] = false;
+                response = ("HTTP/1.1 500 " + reason(500) + "\r\n" +
+                        HTTPConstants.HEADER_CONTENT_LENGTH + ": 0\r\n" +
+                        HTTPConstants.HEADER_CONNECTION + ": " +
+                        HTTPConstants.HEADER_CONNECTION_CLOSE + "\r\n\r\n").getBytes();
+            }
+            final byte[] bytes = response;
+            loop.execute(new Runnable() {
+                public void run() {
+                    loop.respond(conn, bytes, keepAlive[0]);
+                }
+            });
+            if (msgContext != null &&
+                msgContext.getProperty(MessageContext.QUIT_REQUESTED) != null) {
+                // why then, quit!
+                new Thread(new Runnable() {
+                    public void run() {
+                        stop();
+                    }
+                }, "axis-nio-stop").start();
+            }
+        }
+    }
+
+    /**
+     * Run a request through the engine.
+     *
+     * @param keepAlive whether to keep the connection open; may be changed
+     * @return the whole HTTP response
+     */
+    private byte[] service(MessageContext msgContext, NioHttpRequest request,
+                           boolean[] keepAlive) throws Exception {
+        AxisServer engine = (AxisServer) msgContext.getAxisEngine();
+        msgContext.setTransportName(transportName);
+
+        int status = 200;
+        String contentType = null;
+        byte[] body = null;
+        Message responseMsg = null;
+        String cooky = null;
+
+        try {
+            String fileName = request.path;
+            String params = request.query;
+            boolean doWsdl = false;
+            String methodName = null;
+            if (params != null) {
+                if ("wsdl".equalsIgnoreCase(params))
+                    doWsdl = true;
+                if (params.startsWith("method=")) {
+                    methodName = params.substring(7);
+                }
+            }
+
+            // Real and relative paths are the same for this server
+            msgContext.setProperty(Constants.MC_REALPATH, fileName);
+            msgContext.setProperty(Constants.MC_RELATIVE_PATH, fileName);
+            msgContext.setProperty(Constants.MC_JWS_CLASSDIR, "jwsClasses");
+            msgContext.setProperty(Constants.MC_HOME_DIR, ".");
+            msgContext.setProperty(MessageContext.TRANS_URL,
+                    "http://" + NetworkUtils.getLocalHostname() + ":" +
+                    getLocalPort() + "/" + fileName);
+
+            if (fileName.startsWith("axis/services/")) {
+                String servicePart = fileName.substring(14);
+                int separator = servicePart.indexOf('/');
+                if (separator > -1) {
+                    msgContext.setProperty("objectID",
+                                   servicePart.substring(separator + 1));
+                    servicePart = servicePart.substring(0, separator);
+                }
+                msgContext.setTargetService(servicePart);
+            }
+
+            String authInfo = request.getHeader(HTTPConstants.HEADER_AUTHORIZATION);
+            if (authInfo != null &&
+                authInfo.regionMatches(true, 0, "basic ", 0, 6)) {
+                byte[] decoded = Base64.decode(authInfo.substring(6).trim());
+                StringBuffer userBuf = new StringBuffer();
+                StringBuffer pwBuf = new StringBuffer();
+                StringBuffer authBuf = userBuf;
+                for (int i = 0; i < decoded.length; i++) {
+                    if ((char) (decoded[i] & 0x7f) == ':' && authBuf == userBuf) {
+                        authBuf = pwBuf;
+                        continue;
+                    }
+                    authBuf.append((char) (decoded[i] & 0x7f));
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug(Messages.getMessage("user00", userBuf.toString()));
+                }
+                msgContext.setUsername(userBuf.toString());
+                msgContext.setPassword(pwBuf.toString());
+            }
+
+            Message requestMsg = null;
+            if ("GET".equals(request.method)) {
+                if (fileName.length() == 0) {
+                    return head(301, "Location: /axis/\r\n", 0, keepAlive);
+                }
+                if (methodName != null) {
+                    String msgtxt =
+                        "<SOAP-ENV:Envelope" +
+                        " xmlns:SOAP-ENV=\"" + Constants.URI_SOAP12_ENV + "\">" +
+                        "<SOAP-ENV:Body><" + methodName + "></" + methodName +
+                        "></SOAP-ENV:Body></SOAP-ENV:Envelope>";
+                    requestMsg = new Message(
+                            new ByteArrayInputStream(msgtxt.getBytes()));
+                } else if (doWsdl) {
+                    engine.generateWSDL(msgContext);
+                    Document doc = (Document) msgContext.getProperty("WSDL");
+                    if (doc != null) {
+                        XMLUtils.normalize(doc.getDocumentElement());
+                        body = XMLUtils.PrettyDocumentToString(doc).getBytes("UTF-8");
+                        contentType = "text/xml; charset=utf-8";
+                    }
+                } else {
+                    body = listServices(engine).getBytes("UTF-8");
+                    contentType = "text/html; charset=utf-8";
+                }
+            } else {
+                String soapAction = request.getHeader(HTTPConstants.HEADER_SOAP_ACTION);
+                soapAction = soapAction == null ? "" : soapAction.trim();
+                if (soapAction.length() >= 2 && soapAction.startsWith("\"") &&
+                    soapAction.endsWith("\"")) {
+                    soapAction = soapAction.substring(1, soapAction.length() - 1);
+                }
+                msgContext.setUseSOAPAction(true);
+                msgContext.setSOAPActionURI(soapAction);
+
+                String type = request.getHeader(HTTPConstants.HEADER_CONTENT_TYPE);
+                String location = request.getHeader(HTTPConstants.HEADER_CONTENT_LOCATION);
+                requestMsg = new Message(new ByteArrayInputStream(request.body),
+                        false,
+                        type == null ? "" : type,
+                        location == null ? "" : location);
+            }
+
+            if (requestMsg != null) {
+                // Transfer HTTP headers to MIME headers for request message.
+                MimeHeaders requestMimeHeaders = requestMsg.getMimeHeaders();
+                for (Iterator i = request.headers.getAllHeaders(); i.hasNext(); ) {
+                    MimeHeader requestHeader = (MimeHeader) i.next();
+                    requestMimeHeaders.addHeader(requestHeader.getName(), requestHeader.getValue());
+                }
+                msgContext.setRequestMessage(requestMsg);
+                // put character encoding of request to message context
+                // in order to reuse it during the whole process.
+                String requestEncoding = (String) requestMsg.getProperty(SOAPMessage.CHARACTER_SET_ENCODING);
+                if (requestEncoding != null) {
+                    msgContext.setProperty(SOAPMessage.CHARACTER_SET_ENCODING, requestEncoding);
+                }
+
+                // set up session, if any
+                if (doSessions) {
+                    cooky = request.getHeader(HTTPConstants.HEADER_COOKIE);
+                    if (cooky == null) {
+                        cooky = request.getHeader(HTTPConstants.HEADER_COOKIE2);
+                    }
+                    cooky = cooky == null ? null : cooky.trim();
+                    if (cooky == null || cooky.length() == 0) {
+                        cooky = "" + sessionIndex.getAndIncrement();
+                    }
+                    msgContext.setSession(createSession(cooky));
+                }
+
+                engine.invoke(msgContext);
+
+                responseMsg = msgContext.getResponseMessage();
+                if (responseMsg == null) {
+                    status = 202;
+                }
+            }
+        } catch (Exception e) {
+            AxisFault af;
+            if (e instanceof AxisFault) {
+                af = (AxisFault) e;
+                log.debug(Messages.getMessage("serverFault00"), af);
+                QName faultCode = af.getFaultCode();
+                if (Constants.FAULT_SOAP12_SENDER.equals(faultCode)) {
+                    status = 400;
+                } else if ("Server.Unauthorized".equals(faultCode.getLocalPart())) {
+                    status = 401;
+                } else {
+                    status = 500;
+                }
+            } else {
+                status = 500;
+                af = AxisFault.makeFault(e);
+            }
+
+            // There may be headers we want to preserve in the
+            // response message - so if it's there, just add the
+            // FaultElement to it.  Otherwise, make a new one.
+            responseMsg = msgContext.getResponseMessage();
+            if (responseMsg == null) {
+                responseMsg = new Message(af);
+                responseMsg.setMessageContext(msgContext);
+            } else {
+                try {
+                    SOAPEnvelope env = responseMsg.getSOAPEnvelope();
+                    env.clearBody();
+                    env.addBodyElement(new SOAPFault(af));
+                } catch (AxisFault fault) {
+                    // Should never reach here!
+                }
+            }
+        }
+
+        StringBuffer headers = new StringBuffer();
+        if (responseMsg != null) {
+            // synchronize the character encoding of request and response
+            String responseEncoding = (String) msgContext.getProperty(SOAPMessage.CHARACTER_SET_ENCODING);
+            if (responseEncoding != null) {
+                responseMsg.setProperty(SOAPMessage.CHARACTER_SET_ENCODING, responseEncoding);
+            }
+            if (cooky != null) {
+                headers.append(HTTPConstants.HEADER_SET_COOKIE).append(": ")
+                       .append(cooky).append("\r\n")
+                       .append(HTTPConstants.HEADER_SET_COOKIE2).append(": ")
+                       .append(cooky).append("\r\n");
+            }
+            contentType = responseMsg.getContentType(msgContext.getSOAPConstants());
+            // Transfer MIME headers to HTTP headers for response message.
+            for (Iterator i = responseMsg.getMimeHeaders().getAllHeaders(); i.hasNext(); ) {
+                MimeHeader responseHeader = (MimeHeader) i.next();
+                headers.append(responseHeader.getName()).append(": ")
+                       .append(responseHeader.getValue()).append("\r\n");
+            }
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            responseMsg.writeTo(buf);
+            body = buf.toByteArray();
+        }
+        if (body == null) {
+            body = new byte[0];
+        }
+        if (contentType != null) {
+            headers.append(HTTPConstants.HEADER_CONTENT_TYPE).append(": ")
+                   .append(contentType).append("\r\n");
+        }
+
+        byte[] head = head(status, headers.toString(), body.length, keepAlive);
+        byte[] response = new byte[head.length + body.length];
+        System.arraycopy(head, 0, response, 0, head.length);
+        System.arraycopy(body, 0, response, head.length, body.length);
+        return response;
+    }
+
+    private byte[] head(int status, String headers, int length,
+                        boolean[] keepAlive) {
+        if (draining) {
+            keepAlive[0] = false;
+        }
+        StringBuffer sb = new StringBuffer(256);
+        sb.append("HTTP/1.1 ").append(status).append(' ')
+          .append(reason(status)).append("\r\n")
+          .append(headers)
+          .append(HTTPConstants.HEADER_CONTENT_LENGTH).append(": ")
+          .append(length).append("\r\n");
+        if (!keepAlive[0]) {
+            sb.append(HTTPConstants.HEADER_CONNECTION).append(": ")
+              .append(HTTPConstants.HEADER_CONNECTION_CLOSE).append("\r\n");
+        }
+        sb.append("\r\n");
+        return sb.toString().getBytes();
+    }
+
+    private static String listServices(AxisServer engine)
+            throws ConfigurationException {
+        StringBuffer sb = new StringBuffer();
+        sb.append("<h2>And now... Some Services</h2>\n");
+        Iterator i = engine.getConfig().getDeployedServices();
+        sb.append("<ul>\n");
+        while (i.hasNext()) {
+            ServiceDesc sd = (ServiceDesc)i.next();
+            sb.append("<li>\n");
+            sb.append(sd.getName());
+            sb.append(" <a href=\"services/");
+            sb.append(sd.getName());
+            sb.append("?wsdl\"><i>(wsdl)</i></a></li>\n");
+            ArrayList operations = sd.getOperations();
+            if (!operations.isEmpty()) {
+                sb.append("<ul>\n");
+                for (Iterator it = operations.iterator(); it.hasNext();) {
+                    OperationDesc desc = (OperationDesc) it.next();
+                    sb.append("<li>" + desc.getName());
+                }
+                sb.append("</ul>\n");
+            }
+        }
+        sb.append("</ul>\n");
+        return sb.toString();
+    }
+
+    /**
+     * Server process.
+     * <pre>
+     * -p port, -t worker threads, -m maximum sessions
+     * </pre>
+     */
+    public static void main(String args[]) {
+        Options opts = null;
+        try {
+            opts = new Options(args);
+        } catch (MalformedURLException e) {
+            log.error(Messages.getMessage("malformedURLException00"), e);
+            return;
+        }
+
+        final NioAxisServer server = new NioAxisServer();
+        String threads = opts.isValueSet('t');
+        if (threads != null) {
+            server.setWorkerThreads(Integer.parseInt(threads));
+        }
+        String maxSessions = opts.isValueSet('m');
+        if (maxSessions != null) {
+            server.setMaxSessions(Integer.parseInt(maxSessions));
+        }
+
+        int port = 0;
+        try {
+            port = opts.getPort();
+            server.start(port);
+        } catch (Exception e) {
+            log.error(Messages.getMessage("unableToStartServer00",
+                                          Integer.toString(port)), e);
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                server.stop();
+            }
+        });
+        // The I/O threads are daemons
+        while (server.isRunning()) {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+}
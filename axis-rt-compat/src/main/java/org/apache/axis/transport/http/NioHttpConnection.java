@@ -0,0 +1,326 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.transport.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+
+/**
+ * The state of a connection accepted by {@link NioAxisServer}: the bytes
+ * read but not consumed yet, the request being parsed and the response
+ * being written.  Only used by the I/O thread owning the connection.
+ */
+class NioHttpConnection {
+    private static final int HEADERS = 0;
+    private static final int BODY = 1;
+    private static final int CHUNK_SIZE = 2;
+    private static final int CHUNK_DATA = 3;
+    private static final int CHUNK_TRAILER = 4;
+
+    /** the longest chunk size or trailer line accepted */
+    private static final int MAX_LINE = 8192;
+
+    private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+
+    final SocketChannel channel;
+    SelectionKey key;
+
+    /** bytes read and not consumed yet are buf[start, end) */
+    private byte[] buf = new byte[4096];
+    private int start = 0;
+    private int end = 0;
+    /** where to resume looking for the end of the headers */
+    private int scan = 0;
+
+    private int state = HEADERS;
+    private NioHttpRequest request;
+    private long remaining;
+    private ByteArrayOutputStream chunks;
+    /** set while the client waits for a "100 Continue" to send the body */
+    boolean continueExpected = false;
+
+    /** a request is being processed or its response written */
+    boolean busy = false;
+    /** the bytes being written, or null */
+    ByteBuffer out;
+    /** the bytes being written are the response to the busy request */
+    boolean responding = false;
+    boolean closeAfterWrite = false;
+    long lastActive;
+
+    NioHttpConnection(SocketChannel channel) {
+        this.channel = channel;
+        this.lastActive = System.currentTimeMillis();
+    }
+
+    /**
+     * Read what is available.
+     *
+     * @return the number of bytes read, -1 at end of stream
+     */
+    int read() throws IOException {
+        if (start == end) {
+            start = end = scan = 0;
+        } else if (end == buf.length) {
+            if (start > 0) {
+                System.arraycopy(buf, start, buf, 0, end - start);
+                scan -= start;
+                end -= start;
+                start = 0;
+            } else {
+                byte[] bigger = new byte[buf.length * 2];
+                System.arraycopy(buf, 0, bigger, 0, end);
+                buf = bigger;
+            }
+        }
+        int n = channel.read(ByteBuffer.wrap(buf, end, buf.length - end));
+        if (n > 0) {
+            end += n;
+        }
+        return n;
+    }
+
+    /**
+     * @return true if bytes have been read but not consumed yet
+     */
+    boolean hasInput() {
+        return start < end;
+    }
+
+    /**
+     * Parse as much as possible of the bytes read.
+     *
+     * @param maxHeaderSize the maximum size of the request line and headers
+     * @param maxRequestSize the maximum size of the body
+     * @return the next complete request, or null if more bytes are needed
+     * @throws NioHttpException if the request is malformed or too large
+     */
+    NioHttpRequest parse(int maxHeaderSize, long maxRequestSize)
+            throws NioHttpException {
+        while (true) {
+            switch (state) {
+            case HEADERS:
+                if (!parseHeaders(maxHeaderSize, maxRequestSize)) {
+                    return null;
+                }
+                break;
+            case BODY:
+                if (end - start < remaining) {
+                    return null;
+                }
+                request.body = new byte[(int) remaining];
+                System.arraycopy(buf, start, request.body, 0, (int) remaining);
+                start += (int) remaining;
+                return complete();
+            case CHUNK_SIZE: {
+                int eol = findLineEnd();
+                if (eol < 0) {
+                    return null;
+                }
+                String line = new String(buf, start, eol - start, LATIN1).trim();
+                start = eol + 2;
+                int semi = line.indexOf(';');
+                if (semi >= 0) {
+                    line = line.substring(0, semi).trim();
+                }
+                long size;
+                try {
+                    size = Long.parseLong(line, 16);
+                } catch (NumberFormatException e) {
+                    throw new NioHttpException(400, "Bad chunk size");
+                }
+                if (size < 0 || chunks.size() + size > maxRequestSize) {
+                    throw new NioHttpException(413, null);
+                }
+                remaining = size;
+                state = size == 0 ? CHUNK_TRAILER : CHUNK_DATA;
+                break;
+            }
+            case CHUNK_DATA:
+                if (end - start < remaining + 2) {
+                    return null;
+                }
+                int crlf = start + (int) remaining;
+                if (buf[crlf] != '\r' || buf[crlf + 1] != '\n') {
+                    throw new NioHttpException(400, "Bad chunk");
+                }
+                chunks.write(buf, start, (int) remaining);
+                start = crlf + 2;
+                state = CHUNK_SIZE;
+                break;
+            case CHUNK_TRAILER: {
+                int eol = findLineEnd();
+                if (eol < 0) {
+                    return null;
+                }
+                boolean empty = eol == start;
+                start = eol + 2;
+                if (empty) {
+                    request.body = chunks.toByteArray();
+                    chunks = null;
+                    return complete();
+                }
+                break;
+            }
+            }
+        }
+    }
+
+    private NioHttpRequest complete() {
+        NioHttpRequest done = request;
+        request = null;
+        state = HEADERS;
+        scan = start;
+        continueExpected = false;
+        return done;
+    }
+
+    /**
+     * @return the index of the CR of the next CRLF, or -1
+     */
+    private int findLineEnd() throws NioHttpException {
+        for (int i = start; i + 1 < end; i++) {
+            if (buf[i] == '\r' && buf[i + 1] == '\n') {
+                return i;
+            }
+        }
+        if (end - start > MAX_LINE) {
+            throw new NioHttpException(400, "Line too long");
+        }
+        return -1;
+    }
+
+    /**
+     * @return true once the request line and headers have been parsed
+     */
+    private boolean parseHeaders(int maxHeaderSize, long maxRequestSize)
+            throws NioHttpException {
+        // Tolerate empty lines between pipelined requests
+        while (end - start >= 2 && buf[start] == '\r' && buf[start + 1] == '\n') {
+            start += 2;
+        }
+        int from = Math.max(scan, start);
+        int headerEnd = -1;
+        for (int i = from; i + 3 < end; i++) {
+            if (buf[i] == '\r' && buf[i + 1] == '\n' &&
+                buf[i + 2] == '\r' && buf[i + 3] == '\n') {
+                headerEnd = i;
+                break;
+            }
+        }
+        if (headerEnd < 0) {
+            scan = Math.max(start, end - 3);
+            if (end - start > maxHeaderSize) {
+                throw new NioHttpException(431, null);
+            }
+            return false;
+        }
+        if (headerEnd - start > maxHeaderSize) {
+            throw new NioHttpException(431, null);
+        }
+
+        String head = new String(buf, start, headerEnd - start, LATIN1);
+        start = headerEnd + 4;
+        scan = start;
+
+        NioHttpRequest req = new NioHttpRequest();
+        int lineEnd = head.indexOf("\r\n");
+        String requestLine = lineEnd < 0 ? head : head.substring(0, lineEnd);
+        int sp1 = requestLine.indexOf(' ');
+        int sp2 = requestLine.lastIndexOf(' ');
+        if (sp1 <= 0 || sp2 <= sp1) {
+            throw new NioHttpException(400, "Bad request line");
+        }
+        req.method = requestLine.substring(0, sp1);
+        req.version = requestLine.substring(sp2 + 1);
+        if (!req.version.startsWith("HTTP/1.")) {
+            throw new NioHttpException(505, null);
+        }
+        setTarget(req, requestLine.substring(sp1 + 1, sp2).trim());
+
+        while (lineEnd >= 0) {
+            int next = head.indexOf("\r\n", lineEnd + 2);
+            String line = head.substring(lineEnd + 2,
+                                         next < 0 ? head.length() : next);
+            lineEnd = next;
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new NioHttpException(400, "Bad header");
+            }
+            req.headers.addHeader(line.substring(0, colon).trim(),
+                                  line.substring(colon + 1).trim());
+        }
+
+        String connection = req.getHeader(HTTPConstants.HEADER_CONNECTION);
+        if ("HTTP/1.0".equals(req.version)) {
+            req.keepAlive = connection != null &&
+                connection.equalsIgnoreCase(HTTPConstants.HEADER_CONNECTION_KEEPALIVE);
+        } else {
+            req.keepAlive = connection == null ||
+                !connection.equalsIgnoreCase(HTTPConstants.HEADER_CONNECTION_CLOSE);
+        }
+
+        request = req;
+        String encoding = req.getHeader(HTTPConstants.HEADER_TRANSFER_ENCODING);
+        String length = req.getHeader(HTTPConstants.HEADER_CONTENT_LENGTH);
+        if (encoding != null &&
+            encoding.equalsIgnoreCase(HTTPConstants.HEADER_TRANSFER_ENCODING_CHUNKED)) {
+            chunks = new ByteArrayOutputStream();
+            state = CHUNK_SIZE;
+        } else if (length != null) {
+            try {
+                remaining = Long.parseLong(length.trim());
+            } catch (NumberFormatException e) {
+                throw new NioHttpException(400, "Bad Content-Length");
+            }
+            if (remaining < 0) {
+                throw new NioHttpException(400, "Bad Content-Length");
+            }
+            if (remaining > maxRequestSize) {
+                throw new NioHttpException(413, null);
+            }
+            state = BODY;
+        } else {
+            remaining = 0;
+            state = BODY;
+        }
+        String expect = req.getHeader(HTTPConstants.HEADER_EXPECT);
+        continueExpected = (state != BODY || remaining > 0) &&
+            expect != null &&
+            expect.equalsIgnoreCase(HTTPConstants.HEADER_EXPECT_100_Continue);
+        return true;
+    }
+
+    private static void setTarget(NioHttpRequest req, String target) {
+        // Absolute URIs are allowed too
+        int scheme = target.indexOf("://");
+        if (scheme >= 0) {
+            int slash = target.indexOf('/', scheme + 3);
+            target = slash < 0 ? "/" : target.substring(slash);
+        }
+        int q = target.indexOf('?');
+        if (q >= 0) {
+            req.query = target.substring(q + 1);
+            target = target.substring(0, q);
+        }
+        req.path = target.startsWith("/") ? target.substring(1) : target;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.transport.http;
+
+import javax.xml.soap.MimeHeaders;
+
+/**
+ * An HTTP request read by {@link NioAxisServer}.
+ */
+class NioHttpRequest {
+    String method;
+    /** the path, without the leading '/' and the query */
+    String path;
+    /** the query, or null */
+    String query;
+    String version;
+    final MimeHeaders headers = new MimeHeaders();
+    byte[] body = new byte[0];
+    boolean keepAlive;
+
+    /**
+     * @return the first value of a header, or null
+     */
+    String getHeader(String name) {
+        String[] values = headers.getHeader(name);
+        return values == null ? null : values[0];
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.transport.http;
+
+import junit.framework.TestCase;
+import org.apache.axis.AxisFault;
+import org.apache.axis.Message;
+import org.apache.axis.MessageContext;
+import org.apache.axis.configuration.SimpleProvider;
+import org.apache.axis.handlers.BasicHandler;
+import org.apache.axis.handlers.soap.SOAPService;
+import org.apache.axis.server.AxisServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test reading requests on kept alive connections, and letting the
+ * requests in progress complete when the server is stopped.
+ */
+public class TestNioAxisServer extends TestCase {
+    private static final String ENVELOPE =
+        "<soapenv:Envelope xmlns:soapenv=" +
+        "\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+        "<soapenv:Body><ping/></soapenv:Body></soapenv:Envelope>";
+
+    private GateHandler gate;
+    private NioAxisServer server;
+
+    public TestNioAxisServer(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+        gate = new GateHandler();
+        SimpleProvider provider = new SimpleProvider();
+        provider.deployService("Gate", new SOAPService(gate));
+        server = new NioAxisServer(new AxisServer(provider));
+        server.setWorkerThreads(1);
+        server.setWorkerQueueSize(4);
+        server.start(new InetSocketAddress("127.0.0.1", 0));
+    }
+
+    protected void tearDown() throws Exception {
+        gate.open.countDown();
+        server.stop(0);
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket("127.0.0.1", server.getLocalPort());
+        socket.setSoTimeout(10000);
+        return socket;
+    }
+
+    private static String post(String body) {
+        return "POST /axis/services/Gate HTTP/1.1\r\n" +
+               "Host: localhost\r\n" +
+               "Content-Type: text/xml; charset=utf-8\r\n" +
+               "SOAPAction: \"\"\r\n" +
+               "Content-Length: " + body.length() + "\r\n\r\n" + body;
+    }
+
+    private static String postChunked(String body) {
+        int half = body.length() / 2;
+        return "POST /axis/services/Gate HTTP/1.1\r\n" +
+               "Host: localhost\r\n" +
+               "Content-Type: text/xml; charset=utf-8\r\n" +
+               "Transfer-Encoding: chunked\r\n\r\n" +
+               Integer.toHexString(half) + "\r\n" + body.substring(0, half) + "\r\n" +
+               Integer.toHexString(body.length() - half) + ";ext=1\r\n" +
+               body.substring(half) + "\r\n" +
+               "0\r\n\r\n";
+    }
+
+    /**
+     * Read a response: the status line and headers, then the body.
+     *
+     * @return the status line and headers
+     */
+    private static String readResponse(InputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        int matched = 0;
+        while (matched < 4) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("connection closed in the headers");
+            }
+            head.write(b);
+            matched = (b == (matched % 2 == 0 ? '\r' : '\n')) ? matched + 1 :
+                      (b == '\r' ? 1 : 0);
+        }
+        String headers = head.toString("ISO-8859-1");
+        int index = headers.toLowerCase().indexOf("content-length:");
+        assertTrue(headers, index >= 0);
+        int length = Integer.parseInt(headers.substring(index + 15,
+                headers.indexOf('\r', index)).trim());
+        for (int i = 0; i < length; i++) {
+            assertTrue(in.read() >= 0);
+        }
+        return headers;
+    }
+
+    public void testKeepAlive() throws Exception {
+        gate.open.countDown();
+        Socket socket = connect();
+        try {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+            // pipelined, and the second one split across writes
+            out.write((post(ENVELOPE) + postChunked(ENVELOPE)).getBytes("UTF-8"));
+            String third = post(ENVELOPE);
+            out.write(third.substring(0, 40).getBytes("UTF-8"));
+            out.flush();
+            assertTrue(readResponse(in).startsWith("HTTP/1.1 200 "));
+            assertTrue(readResponse(in).startsWith("HTTP/1.1 200 "));
+            Thread.sleep(50);
+            out.write(third.substring(40).getBytes("UTF-8"));
+            out.flush();
+            String headers = readResponse(in);
+            assertTrue(headers, headers.startsWith("HTTP/1.1 200 "));
+            assertTrue(headers, headers.indexOf("Connection: close") < 0);
+            assertEquals(3, server.getRequestCount());
+            assertEquals(1, server.getOpenConnections());
+        } finally {
+            socket.close();
+        }
+    }
+
+    public void testMalformedChunkIsRejected() throws Exception {
+        gate.open.countDown();
+        Socket socket = connect();
+        try {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /axis/services/Gate HTTP/1.1\r\n" +
+                       "Host: localhost\r\n" +
+                       "Transfer-Encoding: chunked\r\n\r\n" +
+                       "4\r\nabcdXX5\r\nefghi\r\n0\r\n\r\n")
+                      .getBytes("ISO-8859-1"));
+            out.flush();
+            String headers = readResponse(socket.getInputStream());
+            assertTrue(headers, headers.startsWith("HTTP/1.1 400 "));
+            assertEquals(0, server.getRequestCount());
+        } finally {
+            socket.close();
+        }
+    }
+
+    public void testDrain() throws Exception {
+        Socket first = connect();
+        Socket second = connect();
+        try {
+            first.getOutputStream().write(post(ENVELOPE).getBytes("UTF-8"));
+            assertTrue(gate.entered.await(10, TimeUnit.SECONDS));
+            // waits for the only worker thread
+            second.getOutputStream().write(post(ENVELOPE).getBytes("UTF-8"));
+            while (server.getPendingCount() < 2) {
+                Thread.sleep(10);
+            }
+
+            Thread stopper = new Thread(new Runnable() {
+                public void run() {
+                    server.stop(10000);
+                }
+            });
+            long started = System.currentTimeMillis();
+            stopper.start();
+            while (server.isRunning()) {
+                Thread.sleep(10);
+            }
+            gate.open.countDown();
+
+            String headers = readResponse(first.getInputStream());
+            assertTrue(headers, headers.startsWith("HTTP/1.1 200 "));
+            assertTrue(headers, headers.indexOf("Connection: close") >= 0);
+            headers = readResponse(second.getInputStream());
+            assertTrue(headers, headers.startsWith("HTTP/1.1 200 "));
+            stopper.join(10000);
+            assertFalse(stopper.isAlive());
+            assertTrue(System.currentTimeMillis() - started < 5000);
+            assertEquals(0, server.getOpenConnections());
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    /**
+     * Answers once it is let through.
+     */
+    static class GateHandler extends BasicHandler {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch open = new CountDownLatch(1);
+
+        public void invoke(MessageContext msgContext) throws AxisFault {
+            entered.countDown();
+            try {
+                open.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw AxisFault.makeFault(e);
+            }
+            msgContext.setResponseMessage(new Message(ENVELOPE));
+        }
+    }
+}
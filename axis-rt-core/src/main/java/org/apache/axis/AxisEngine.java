@@ -70,6 +70,7 @@ public abstract class AxisEngine extends BasicHandler
     public static final String PROP_TWOD_ARRAY_ENCODING = "enable2DArrayEncoding";
     public static final String PROP_XML_ENCODING = "axis.xmlEncoding";
     public static final String PROP_XML_REUSE_SAX_PARSERS = "axis.xml.reuseParsers";
+    public static final String PROP_XML_PARSER_POOL_SIZE = "axis.xml.parserPoolSize";
     public static final String PROP_BYTE_BUFFER_BACKING = "axis.byteBuffer.backing";
     public static final String PROP_BYTE_BUFFER_CACHE_INCREMENT = "axis.byteBuffer.cacheIncrement";
     public static final String PROP_BYTE_BUFFER_RESIDENT_MAX_SIZE = "axis.byteBuffer.residentMaxSize";
@@ -206,6 +207,8 @@ public abstract class AxisEngine extends BasicHandler
     public void cleanup() {
         super.cleanup();
 
+        classCache.clear();
+
         // Let any application-scoped service objects know that we're going
         // away...
         Enumeration keys = session.getKeys();
@@ -21,8 +21,10 @@ import org.apache.axis.components.logger.LogFactory;
 import org.apache.axis.message.SOAPEnvelope;
 import org.apache.axis.message.MimeHeaders;
 import org.apache.axis.soap.SOAPConstants;
+import org.apache.axis.stats.InvocationRecord;
 import org.apache.axis.transport.http.HTTPConstants;
 import org.apache.axis.utils.ClassUtils;
+import org.apache.axis.utils.CountingOutputStream;
 import org.apache.axis.utils.Messages;
 import org.apache.axis.utils.XMLUtils;
 import org.apache.commons.logging.Log;
@@ -531,6 +533,21 @@ public class Message extends javax.xml.soap.SOAPMessage
      *     occurs
      */
     public void writeTo(java.io.OutputStream os) throws SOAPException, IOException {
+        InvocationRecord record = msgContext == null ||
+                msgContext.getResponseMessage() != this ?
+                null : msgContext.getInvocationRecord();
+        if (record == null || !record.hasService()) {
+            writeContentTo(os);
+            return;
+        }
+        long start = System.nanoTime();
+        CountingOutputStream counter = new CountingOutputStream(os);
+        writeContentTo(counter);
+        record.recordResponse(counter.getCount(), System.nanoTime() - start);
+    }
+
+    private void writeContentTo(java.io.OutputStream os)
+            throws SOAPException, IOException {
          //Do it the old fashion way.
         if (getSendType() == Attachments.SEND_TYPE_NONE || mAttachments == null || 0 == mAttachments.getAttachmentCount()) {
             try {
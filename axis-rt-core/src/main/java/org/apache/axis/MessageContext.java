@@ -19,6 +19,7 @@ package org.apache.axis ;
 import org.apache.axis.attachments.Attachments;
 import org.apache.axis.client.AxisClient;
 import org.apache.axis.components.logger.LogFactory;
+import org.apache.axis.description.JavaServiceDesc;
 import org.apache.axis.description.OperationDesc;
 import org.apache.axis.description.ServiceDesc;
 import org.apache.axis.encoding.TypeMapping;
@@ -29,6 +30,7 @@ import org.apache.axis.handlers.soap.SOAPService;
 import org.apache.axis.schema.SchemaVersion;
 import org.apache.axis.session.Session;
 import org.apache.axis.soap.SOAPConstants;
+import org.apache.axis.stats.InvocationRecord;
 import org.apache.axis.utils.JavaUtils;
 import org.apache.axis.utils.LockableHashtable;
 import org.apache.axis.utils.Messages;
@@ -39,7 +41,11 @@ import javax.xml.rpc.Call;
 import javax.xml.rpc.handler.soap.SOAPMessageContext;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.Map;
+import java.util.Set;
 
 // fixme: fields are declared throughout this class, some at the top, and some
 //  near to where they are used. We should move all field declarations into a
@@ -147,18 +153,56 @@ public class MessageContext implements SOAPMessageContext {
 
     /**
      * Storage for an arbitrary bag of properties associated with this
-     * MessageContext.
+     * MessageContext.  A MessageContext is used by one thread at a time,
+     * so this isn't synchronized.
      */
-    private LockableHashtable bag = new LockableHashtable();
+    private HashMap bag = new HashMap();
+
+    /**
+     * Where to look for properties which aren't in the bag: usually the
+     * options of the service, which defer to the engine's.
+     */
+    private Hashtable bagParent = null;
+
+    /*
+     * Codes of the properties which are kept in fields rather than in the
+     * bag, so that getProperty() and setProperty() recognize them with a
+     * single lookup.
+     */
+    private static final int PROP_USERNAME = 1;
+    private static final int PROP_PASSWORD = 2;
+    private static final int PROP_SESSION_MAINTAIN = 3;
+    private static final int PROP_OPERATION_STYLE = 4;
+    private static final int PROP_SOAPACTION_USE = 5;
+    private static final int PROP_SOAPACTION_URI = 6;
+    private static final int PROP_ENCODINGSTYLE_URI = 7;
+
+    private static final Map wellKnownProperties = new HashMap();
+    static {
+        wellKnownProperties.put(Call.USERNAME_PROPERTY,
+                                Integer.valueOf(PROP_USERNAME));
+        wellKnownProperties.put(Call.PASSWORD_PROPERTY,
+                                Integer.valueOf(PROP_PASSWORD));
+        wellKnownProperties.put(Call.SESSION_MAINTAIN_PROPERTY,
+                                Integer.valueOf(PROP_SESSION_MAINTAIN));
+        wellKnownProperties.put(Call.OPERATION_STYLE_PROPERTY,
+                                Integer.valueOf(PROP_OPERATION_STYLE));
+        wellKnownProperties.put(Call.SOAPACTION_USE_PROPERTY,
+                                Integer.valueOf(PROP_SOAPACTION_USE));
+        wellKnownProperties.put(Call.SOAPACTION_URI_PROPERTY,
+                                Integer.valueOf(PROP_SOAPACTION_URI));
+        wellKnownProperties.put(Call.ENCODINGSTYLE_URI_PROPERTY,
+                                Integer.valueOf(PROP_ENCODINGSTYLE_URI));
+    }
+
+    private static int getWellKnownProperty(String name) {
+        Integer code = (Integer) wellKnownProperties.get(name);
+        return code == null ? 0 : code.intValue();
+    }
 
     /*
      * These variables are logically part of the bag, but are separated
-     * because they are used often and the Hashtable is more expensive.
-     *
-     * fixme: this may be fixed by moving to a plain Map impl like HashMap.
-     *  Alternatively, we could hide all this magic behind a custom Map impl -
-     *  is synchronization on the map needed? these properties aren't
-     *  synchronized so I'm guessing not.
+     * because they are used often and are typed.
      */
     private String  username       = null;
     private String  password       = null;
@@ -180,6 +224,9 @@ public class MessageContext implements SOAPMessageContext {
     /** Our current operation. */
     private OperationDesc currentOperation = null;
 
+    /** The measurements of this invocation, if statistics are kept. */
+    private InvocationRecord invocationRecord = null;
+
     /**
      * The current operation.
      *
@@ -198,6 +245,31 @@ public class MessageContext implements SOAPMessageContext {
     public void setOperation(OperationDesc operation)
     {
         currentOperation = operation;
+        if (invocationRecord != null) {
+            // counts as in flight from dispatch on
+            invocationRecord.setOperation(operation);
+        }
+    }
+
+    /**
+     * Get the measurements taken during this invocation.
+     *
+     * @return the measurements, or <code>null</code> if no invocation
+     *         statistics are kept
+     */
+    public InvocationRecord getInvocationRecord()
+    {
+        return invocationRecord;
+    }
+
+    /**
+     * Set the object collecting the measurements of this invocation.
+     *
+     * @param record  the <code>InvocationRecord</code>, or <code>null</code>
+     */
+    public void setInvocationRecord(InvocationRecord record)
+    {
+        invocationRecord = record;
     }
 
     /**
@@ -241,6 +313,12 @@ public class MessageContext implements SOAPMessageContext {
             if (desc != null) {
                 if (desc.getStyle() != Style.DOCUMENT) {
                     possibleOperations = desc.getOperationsByQName(qname);
+                } else if (desc instanceof JavaServiceDesc) {
+                    // DOCUMENT Style
+                    // Get all of the operations that have qname as
+                    // a possible parameter QName
+                    possibleOperations = ((JavaServiceDesc)desc).
+                            getOperationsByParamQName(qname);
                 } else {
                     // DOCUMENT Style
                     // Get all of the operations that have qname as
@@ -260,11 +338,43 @@ public class MessageContext implements SOAPMessageContext {
                                               OperationDesc[].class);
                     }
                 }
+
+                // If several operations match, prefer those deployed with
+                // the request's SOAPAction
+                if (possibleOperations != null &&
+                        possibleOperations.length > 1 &&
+                        desc instanceof JavaServiceDesc) {
+                    possibleOperations = narrowBySoapAction(
+                            (JavaServiceDesc)desc, possibleOperations);
+                }
             }
         }
         return possibleOperations;
     }
 
+    private OperationDesc [] narrowBySoapAction(JavaServiceDesc desc,
+                                                OperationDesc [] operations)
+    {
+        OperationDesc [] byAction =
+                desc.getOperationsBySoapAction(getSOAPActionURI());
+        if (byAction == null) {
+            return operations;
+        }
+        ArrayList found = new ArrayList();
+        for (int i = 0; i < operations.length; i++) {
+            for (int j = 0; j < byAction.length; j++) {
+                if (operations[i] == byAction[j]) {
+                    found.add(operations[i]);
+                    break;
+                }
+            }
+        }
+        if (found.isEmpty()) {
+            return operations;
+        }
+        return (OperationDesc[]) found.toArray(new OperationDesc[found.size()]);
+    }
+
     /**
      * get the first possible operation that could match a
      * body containing an element of the given QName. Sets the currentOperation
@@ -279,7 +389,7 @@ public class MessageContext implements SOAPMessageContext {
         if (currentOperation == null) {
             OperationDesc [] possibleOperations = getPossibleOperationsByQName(qname);
             if (possibleOperations != null && possibleOperations.length > 0) {
-                currentOperation = possibleOperations[0];
+                setOperation(possibleOperations[0]);
             }
         }
 
@@ -806,7 +916,7 @@ public class MessageContext implements SOAPMessageContext {
 
             // This MessageContext should now defer properties it can't find
             // to the Service's options.
-            bag.setParent(sh.getOptions());
+            bagParent = sh.getOptions();
 
             // Note that we need (or don't need) high-fidelity SAX recording
             // of deserialized messages according to the setting on the
@@ -963,67 +1073,45 @@ public class MessageContext implements SOAPMessageContext {
             // Is this right?  Shouldn't we throw an exception like:
             // throw new IllegalArgumentException(msg);
         }
-        else if (name.equals(Call.USERNAME_PROPERTY)) {
-            if (!(value instanceof String)) {
-                throw new IllegalArgumentException(
-                        Messages.getMessage("badProp00", new String[] {
-                        name, "java.lang.String", value.getClass().getName()}));
-            }
+        switch (getWellKnownProperty(name)) {
+        case PROP_USERNAME:
+            checkPropertyType(name, value, String.class);
             setUsername((String) value);
-        }
-        else if (name.equals(Call.PASSWORD_PROPERTY)) {
-            if (!(value instanceof String)) {
-                throw new IllegalArgumentException(
-                        Messages.getMessage("badProp00", new String[] {
-                        name, "java.lang.String", value.getClass().getName()}));
-            }
+            break;
+        case PROP_PASSWORD:
+            checkPropertyType(name, value, String.class);
             setPassword((String) value);
-        }
-        else if (name.equals(Call.SESSION_MAINTAIN_PROPERTY)) {
-            if (!(value instanceof Boolean)) {
-                throw new IllegalArgumentException(
-                        Messages.getMessage("badProp00", new String[]
-                        {name,
-                        "java.lang.Boolean",
-                        value.getClass().getName()}));
-            }
+            break;
+        case PROP_SESSION_MAINTAIN:
+            checkPropertyType(name, value, Boolean.class);
             setMaintainSession(((Boolean) value).booleanValue());
-        }
-        else if (name.equals(Call.SOAPACTION_USE_PROPERTY)) {
-            if (!(value instanceof Boolean)) {
-                throw new IllegalArgumentException(
-                        Messages.getMessage("badProp00", new String[]
-                        {name,
-                        "java.lang.Boolean",
-                        value.getClass().getName()}));
-            }
+            break;
+        case PROP_SOAPACTION_USE:
+            checkPropertyType(name, value, Boolean.class);
             setUseSOAPAction(((Boolean) value).booleanValue());
-        }
-        else if (name.equals(Call.SOAPACTION_URI_PROPERTY)) {
-            if (!(value instanceof String)) {
-                throw new IllegalArgumentException(
-                        Messages.getMessage("badProp00", new String[]
-                        {name,
-                        "java.lang.String",
-                        value.getClass().getName()}));
-            }
+            break;
+        case PROP_SOAPACTION_URI:
+            checkPropertyType(name, value, String.class);
             setSOAPActionURI((String) value);
-        }
-        else if (name.equals(Call.ENCODINGSTYLE_URI_PROPERTY)) {
-            if (!(value instanceof String)) {
-                throw new IllegalArgumentException(
-                        Messages.getMessage("badProp00", new String[]
-                        {name,
-                        "java.lang.String",
-                        value.getClass().getName()}));
-            }
+            break;
+        case PROP_ENCODINGSTYLE_URI:
+            checkPropertyType(name, value, String.class);
             setEncodingStyle((String) value);
-        }
-        else {
+            break;
+        default:
             bag.put(name, value);
         }
     } // setProperty
 
+    private static void checkPropertyType(String name, Object value,
+                                          Class type) {
+        if (!type.isInstance(value)) {
+            throw new IllegalArgumentException(
+                    Messages.getMessage("badProp00", new String[] {
+                    name, type.getName(), value.getClass().getName()}));
+        }
+    }
+
     /**
      *  Returns true if the MessageContext contains a property with the specified name.
      *  @param   name Name of the property whose presense is to be tested
@@ -1054,7 +1142,14 @@ public class MessageContext implements SOAPMessageContext {
      *  @return Iterator for the property names
      */
     public java.util.Iterator getAllPropertyNames() {
-        return bag.getAllKeys().iterator();
+        Set set = new HashSet(bag.keySet());
+        Hashtable parent = bagParent;
+        if (parent instanceof LockableHashtable) {
+            set.addAll(((LockableHashtable) parent).getSnapshot().keySet());
+        } else if (parent != null) {
+            set.addAll(parent.keySet());
+        }
+        return set.iterator();
     }
 
     /**
@@ -1065,38 +1160,37 @@ public class MessageContext implements SOAPMessageContext {
      * @return Object value of the property - or null
      */
     public Object getProperty(String name) {
-        if (name != null) {
-            if (name.equals(Call.USERNAME_PROPERTY)) {
-                return getUsername();
-            }
-            else if (name.equals(Call.PASSWORD_PROPERTY)) {
-                return getPassword();
-            }
-            else if (name.equals(Call.SESSION_MAINTAIN_PROPERTY)) {
-                return getMaintainSession() ? Boolean.TRUE : Boolean.FALSE;
-            }
-            else if (name.equals(Call.OPERATION_STYLE_PROPERTY)) {
-                return (getOperationStyle() == null) ? null : getOperationStyle().getName();
-            }
-            else if (name.equals(Call.SOAPACTION_USE_PROPERTY)) {
-                return useSOAPAction() ? Boolean.TRUE : Boolean.FALSE;
-            }
-            else if (name.equals(Call.SOAPACTION_URI_PROPERTY)) {
-                return getSOAPActionURI();
-            }
-            else if (name.equals(Call.ENCODINGSTYLE_URI_PROPERTY)) {
-                return getEncodingStyle();
-            }
-            else if (bag == null) {
-                return null;
-            }
-            else {
-                return bag.get(name);
-            }
-        }
-        else {
+        if (name == null) {
             return null;
         }
+        switch (getWellKnownProperty(name)) {
+        case PROP_USERNAME:
+            return getUsername();
+        case PROP_PASSWORD:
+            return getPassword();
+        case PROP_SESSION_MAINTAIN:
+            return getMaintainSession() ? Boolean.TRUE : Boolean.FALSE;
+        case PROP_OPERATION_STYLE:
+            return (getOperationStyle() == null) ? null : getOperationStyle().getName();
+        case PROP_SOAPACTION_USE:
+            return useSOAPAction() ? Boolean.TRUE : Boolean.FALSE;
+        case PROP_SOAPACTION_URI:
+            return getSOAPActionURI();
+        case PROP_ENCODINGSTYLE_URI:
+            return getEncodingStyle();
+        }
+        Object ret = bag.get(name);
+        if (ret == null) {
+            Hashtable parent = bagParent;
+            if (parent instanceof LockableHashtable) {
+                // the snapshot spares taking the lock of every table
+                // in the parent chain
+                ret = ((LockableHashtable) parent).getSnapshot().get(name);
+            } else if (parent != null) {
+                ret = parent.get(name);
+            }
+        }
+        return ret;
     }
 
     // fixme: this makes no copy of parent, so later modifications to parent
@@ -1110,7 +1204,7 @@ public class MessageContext implements SOAPMessageContext {
      */
     public void setPropertyParent(Hashtable parent)
     {
-        bag.setParent(parent);
+        bagParent = parent;
     }
 
     /**
@@ -1262,9 +1356,7 @@ public class MessageContext implements SOAPMessageContext {
 
     public void removeProperty(String propName)
     {
-        if (bag != null) {
-            bag.remove(propName);
-        }
+        bag.remove(propName);
     }
 
     /**
@@ -1272,12 +1364,11 @@ public class MessageContext implements SOAPMessageContext {
      */
     public void reset()
     {
-        if (bag != null) {
-            bag.clear();
-        }
+        bag.clear();
         serviceHandler = null;
         havePassedPivot = false;
         currentOperation = null;
+        invocationRecord = null;
     }
 
     /**
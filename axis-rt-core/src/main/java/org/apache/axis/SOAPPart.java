@@ -16,6 +16,7 @@
 
 package org.apache.axis ;
 
+import org.apache.axis.components.encoding.XMLEncoderFactory;
 import org.apache.axis.components.logger.LogFactory;
 import org.apache.axis.encoding.DeserializationContext;
 import org.apache.axis.encoding.SerializationContext;
@@ -24,8 +25,10 @@ import org.apache.axis.message.MimeHeaders;
 import org.apache.axis.message.SOAPDocumentImpl;
 import org.apache.axis.message.SOAPEnvelope;
 import org.apache.axis.message.SOAPHeaderElement;
+import org.apache.axis.stats.InvocationRecord;
 import org.apache.axis.transport.http.HTTPConstants;
 import org.apache.axis.utils.ByteArray;
+import org.apache.axis.utils.CountingInputStream;
 import org.apache.axis.utils.Messages;
 import org.apache.axis.utils.SessionUtils;
 import org.apache.axis.utils.XMLUtils;
@@ -58,13 +61,10 @@ import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamSource;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
@@ -266,8 +266,7 @@ public class SOAPPart extends javax.xml.soap.SOAPPart implements Part
         } else if ( currentForm == FORM_OPTIMIZED ) {
             ((ByteArray) currentMessage).writeTo(os);
         } else {
-            Writer writer = new OutputStreamWriter(os, currentEncoding);
-            writer = new BufferedWriter(new PrintWriter(writer));
+            Writer writer = XMLEncoderFactory.getWriter(os, currentEncoding);
             writeTo(writer);
             writer.flush();
         }
@@ -678,16 +677,31 @@ public class SOAPPart extends javax.xml.soap.SOAPPart implements Part
         }
 
         InputSource is;
+        InvocationRecord record = getInvocationRecord();
+        long parseStart = record == null ? 0 : System.nanoTime();
+        CountingInputStream counter = null;
+        long size = 0;
 
         if ( currentForm == FORM_INPUTSTREAM ) {
-            is = new InputSource( (InputStream) currentMessage );
+            InputStream in = (InputStream) currentMessage;
+            if (record != null) {
+                in = counter = new CountingInputStream(in);
+            }
+            is = new InputSource( in );
             String encoding = XMLUtils.getEncoding(msgObject, null, null);
             if (encoding != null) {
                 currentEncoding = encoding;
                 is.setEncoding(currentEncoding);
             }
         } else {
-            is = new InputSource(new StringReader(getAsString()));
+            if (record != null && currentForm == FORM_BYTES) {
+                size = ((byte[]) currentMessage).length;
+            }
+            String str = getAsString();
+            if (record != null && size == 0) {
+                size = str.length();
+            }
+            is = new InputSource(new StringReader(str));
         }
         DeserializationContext dser = new DeserializationContext(is,
                                            getMessage().getMessageContext(),
@@ -701,6 +715,11 @@ public class SOAPPart extends javax.xml.soap.SOAPPart implements Part
             if (real == null)
                 real = e;
             throw AxisFault.makeFault(real);
+        } finally {
+            if (record != null) {
+                record.addParseTime(System.nanoTime() - parseStart,
+                        counter != null ? counter.getCount() : size);
+            }
         }
 
         SOAPEnvelope nse= dser.getEnvelope();
@@ -729,6 +748,19 @@ public class SOAPPart extends javax.xml.soap.SOAPPart implements Part
         return env;
     }
 
+    /**
+     * Get the object collecting the measurements of the invocation, if this
+     * is the request being processed by a server which keeps statistics.
+     */
+    private InvocationRecord getInvocationRecord() {
+        MessageContext mc = msgObject == null ?
+                null : msgObject.getMessageContext();
+        if (mc == null || mc.getRequestMessage() != msgObject) {
+            return null;
+        }
+        return mc.getInvocationRecord();
+    }
+
     /**
      * Add the specified MIME header, as per JAXM.
      *
@@ -379,9 +379,9 @@ public class AttachmentPart extends javax.xml.soap.AttachmentPart
                 String s = (String) object;
                 java.io.ByteArrayInputStream bais =
                         new java.io.ByteArrayInputStream(s.getBytes());
-                source = new ManagedMemoryDataSource(bais,
+                source = AttachmentUtils.newDataSource(bais,
                         ManagedMemoryDataSource.MAX_MEMORY_DISK_CACHED,
-                        contentType, true);
+                        contentType);
                 extractFilename(source);
                 datahandler = new DataHandler(source);
                 contentObject = object;
@@ -393,9 +393,9 @@ public class AttachmentPart extends javax.xml.soap.AttachmentPart
             }
         } else if (object instanceof java.io.InputStream) {
             try {
-                source = new ManagedMemoryDataSource((java.io.InputStream) object,
+                source = AttachmentUtils.newDataSource((java.io.InputStream) object,
                         ManagedMemoryDataSource.MAX_MEMORY_DISK_CACHED,
-                        contentType, true);
+                        contentType);
                 extractFilename(source);
                 datahandler = new DataHandler(source);
                 contentObject = null; // the stream has been consumed
@@ -407,9 +407,9 @@ public class AttachmentPart extends javax.xml.soap.AttachmentPart
             }
         } else if (object instanceof StreamSource) {
             try {
-                source = new ManagedMemoryDataSource(((StreamSource)object).getInputStream(),
+                source = AttachmentUtils.newDataSource(((StreamSource)object).getInputStream(),
                         ManagedMemoryDataSource.MAX_MEMORY_DISK_CACHED,
-                        contentType, true);
+                        contentType);
                 extractFilename(source);
                 datahandler = new DataHandler(source);
                 contentObject = null; // the stream has been consumed
@@ -56,6 +56,27 @@ public class AttachmentUtils {
         return ((AttachmentPart) part).getActivationDataHandler();
     }
 
+    /**
+     * Create the data source holding an attachment read from a stream: a
+     * {@link MappedFileDataSource} if the "axis.attachments.mapped"
+     * property is true, a ManagedMemoryDataSource otherwise.  The stream
+     * is read completely.
+     *
+     * @param ss the stream to read
+     * @param maxCached the number of bytes kept in memory
+     * @param contentType the mime type of the attachment
+     * @return the new data source
+     * @throws java.io.IOException if the stream can't be read
+     */
+    public static ManagedMemoryDataSource newDataSource(
+            java.io.InputStream ss, int maxCached, String contentType)
+            throws java.io.IOException {
+        if (MappedFileDataSource.isEnabled()) {
+            return new MappedFileDataSource(ss, maxCached, contentType);
+        }
+        return new ManagedMemoryDataSource(ss, maxCached, contentType, true);
+    }
+
     /**
      * Determine if an object is to be treated as an attchment.
      *
@@ -78,9 +78,8 @@ public class DimeBodyPart {
     static final byte POSITION_FIRST = (byte) 0x04;
     static final  byte POSITION_LAST = (byte) 0x02;
     private static final byte CHUNK = 0x01; //Means set the chunk bit
-    private static final byte CHUNK_NEXT = 0x2; //Means this was part of a CHUNK
+    private static final byte CHUNK_NEXT = 0x2; //Means this follows a chunk
     private static final byte ONLY_CHUNK = -1;//Means only one chunk was sent
-    private static final byte LAST_CHUNK = (byte)0;//Means many chunks were sent    
     private static int MAX_TYPE_LENGTH = (1 << 16) - 1;
     private static int MAX_ID_LENGTH = (1 << 16) - 1;
 
@@ -229,6 +228,10 @@ public class DimeBodyPart {
             send(os, position, (DynamicContentDataHandler) data, maxchunk);
         } else if (data instanceof DataHandler) {
             DataSource source = ((DataHandler)data).getDataSource();
+            if (source instanceof MappedFileDataSource) {
+                send(os, position, (DataHandler) data, maxchunk);
+                return;
+            }
             DynamicContentDataHandler dh2 = new DynamicContentDataHandler(source);
             send(os, position, dh2, maxchunk);
         }
@@ -273,6 +276,19 @@ public class DimeBodyPart {
 
     void send(java.io.OutputStream os, byte position, DataHandler dh,
         final long maxchunk) throws java.io.IOException {
+        if (dh.getDataSource() instanceof MappedFileDataSource) {
+            MappedFileDataSource source =
+                (MappedFileDataSource) dh.getDataSource();
+            long size = source.getSize();
+            if (size <= maxchunk) {
+                sendHeader(os, position, size, (byte) 0);
+                source.writeTo(os);
+                os.write(pad, 0, dimePadding(size));
+            } else {
+                send(os, position, source.getInputStream(), size, maxchunk);
+            }
+            return;
+        }
         java.io.InputStream in = null;
         try {
             long dataSize = getDataSize();
@@ -305,6 +321,49 @@ public class DimeBodyPart {
         }
     }
     
+    /**
+     * Send <code>length</code> bytes read from a stream, in chunks of at
+     * most maxchunk bytes.  The stream is closed.
+     */
+    private void send(java.io.OutputStream os, byte position,
+        java.io.InputStream in, final long length, final long maxchunk)
+        throws java.io.IOException {
+        try {
+            byte[] readbuf = new byte[(int) Math.min(64 * 1024, maxchunk)];
+            long offset = 0;
+            byte chunknext = 0;
+
+            do {
+                long sendlength = Math.min(maxchunk, length - offset);
+
+                sendHeader(os, position, sendlength, (byte)
+                    ((sendlength < (length - offset) ? CHUNK : 0)
+                     | chunknext));
+                for (long left = sendlength; left > 0;) {
+                    int bytesread = in.read(readbuf, 0,
+                            (int) Math.min(readbuf.length, left));
+                    if (bytesread < 0) {
+                        throw new java.io.EOFException();
+                    }
+                    os.write(readbuf, 0, bytesread);
+                    left -= bytesread;
+                }
+                os.write(pad, 0, dimePadding(sendlength));
+                offset += sendlength;
+                chunknext = CHUNK_NEXT;
+            }
+            while (offset < length);
+        }
+        finally {
+            try {
+                in.close();
+            }
+            catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
     /**
      * Special case for dynamically generated content. 
      * maxchunk is currently ignored since the default is 2GB.
@@ -350,7 +409,7 @@ public class DimeBodyPart {
                     if ( chunkbyte == CHUNK ){
                         chunkbyte = ONLY_CHUNK;
                     } else {
-                        chunkbyte = LAST_CHUNK;
+                        chunkbyte = CHUNK_NEXT;
                     }
                     sendChunk(os, position, buffer1, 0, bytesRead1, chunkbyte);
                     break;
@@ -359,7 +418,7 @@ public class DimeBodyPart {
                 sendChunk(os, position, buffer1, 0, bytesRead1, chunkbyte);
                 //set chunk byte to next chunk flag to avoid
                 //sending TYPE and ID on subsequent chunks
-                chunkbyte = CHUNK_NEXT;
+                chunkbyte = CHUNK | CHUNK_NEXT;
                 //now that we have written out buffer1, copy buffer2 into to buffer1
                 System.arraycopy(buffer2,0,buffer1,0,myChunkSize);
                 bytesRead1 = bytesRead2;
@@ -398,17 +457,14 @@ public class DimeBodyPart {
         long length, byte chunk) throws java.io.IOException {
         byte[] fixedHeader = new byte[12];
         
-        //If first chunk then send TYPE and ID 
-        boolean isFirstChunk = ((chunk == CHUNK) || (chunk == ONLY_CHUNK));
-        //If chunk is ONLY_NEXT then 
-        //reset to CHUNK so CF is set.
         //If chunk is ONLY_CHUNK (first and last chunk)  
         //then do not set CF since this is the only chunk
-        if ( chunk == CHUNK_NEXT ){
-            chunk = CHUNK;
-        } else if ( chunk  == ONLY_CHUNK ){
-            chunk = LAST_CHUNK;
+        if ( chunk  == ONLY_CHUNK ){
+            chunk = 0;
         }
+        //CHUNK sets CF; unless CHUNK_NEXT says a chunk was sent before,
+        //this is the first chunk, which sends TYPE and ID
+        boolean isFirstChunk = (chunk & CHUNK_NEXT) == 0;
                 
         //VERSION
         fixedHeader[0] = (byte)((DimeMultiPart.CURRENT_VERSION << 3) & 0xf8);
@@ -524,7 +580,9 @@ public class DimeBodyPart {
 
             //Do files our selfs since this is costly to read in. Ask the file system.
             // This is 90% of the use of attachments.
-            if (ds instanceof jakarta.activation.FileDataSource) {
+            if (ds instanceof MappedFileDataSource) {
+                dataSize = ((MappedFileDataSource) ds).getSize();
+            } else if (ds instanceof jakarta.activation.FileDataSource) {
                 jakarta.activation.FileDataSource fdh =
                     (jakarta.activation.FileDataSource) ds;
                 java.io.File df = fdh.getFile();
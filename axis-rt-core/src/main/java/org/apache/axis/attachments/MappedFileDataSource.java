@@ -0,0 +1,547 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.attachments;
+
+import org.apache.axis.AxisProperties;
+import org.apache.axis.MessageContext;
+import org.apache.axis.components.logger.LogFactory;
+import org.apache.axis.utils.Messages;
+import org.apache.axis.utils.StripedPool;
+import org.apache.commons.logging.Log;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A ManagedMemoryDataSource which caches large attachments in a file
+ * written through a FileChannel, and serves them from memory-mapped
+ * regions of that file.
+ * <p>
+ * The source stream is always read completely by the constructor.  Up to
+ * <code>maxCached</code> bytes are read straight into a byte array, which
+ * is where small attachments stay.  Past that, the content is written to
+ * the cache file, and the rest of the stream is staged in direct buffers
+ * taken from a shared pool, which go back to the pool when the source
+ * stream has been read.
+ * <p>
+ * Readers don't lock the data source: each gets its own view of the
+ * mapped file, or of the byte array.  {@link #writeTo(WritableByteChannel)}
+ * lets the file be sent with <code>FileChannel.transferTo()</code>.
+ * <p>
+ * This data source is used for incoming and new attachments when the
+ * "axis.attachments.mapped" property is true.
+ *
+ * @see AttachmentUtils#newDataSource(InputStream, int, String)
+ */
+public class MappedFileDataSource extends ManagedMemoryDataSource {
+    protected static Log log =
+        LogFactory.getLog(MappedFileDataSource.class.getName());
+
+    /**
+     * AxisProperties key which enables this data source.  Defaults to
+     * false.
+     */
+    public static final String ENABLED_PROPERTY_KEY = "axis.attachments.mapped";
+
+    /** Mapped regions are at most this large. */
+    private static final int REGION_SIZE = 1 << 30;
+
+    private static final StripedPool bufferPool =
+        new StripedPool(2 * Runtime.getRuntime().availableProcessors()) {
+            protected Object create() {
+                return ByteBuffer.allocateDirect(READ_CHUNK_SZ);
+            }
+        };
+
+    /** Chunks staging the content written to the cache file. */
+    private List chunks = new ArrayList();
+
+    /**
+     * The content, if it was not written to disk; only the first
+     * <code>totalsz</code> bytes are used.
+     */
+    private byte[] content;
+
+    /** The cache file, while it is being written. */
+    private FileChannel channel;
+
+    /** The regions of the cache file, mapped by the first reader. */
+    private ByteBuffer[] regions;
+
+    private volatile boolean released = false;
+
+    /**
+     * Read a stream into a new data source.
+     *
+     * @param ss the source input stream; it is read but not closed
+     * @param maxCached the number of bytes kept in memory before the
+     *                  content is written to a file
+     * @param contentType the mime type of the content
+     */
+    public MappedFileDataSource(InputStream ss, int maxCached,
+                                String contentType) throws IOException {
+        if (maxCached < MIN_MEMORY_DISK_CACHED) {
+            throw new IllegalArgumentException(
+                    Messages.getMessage("badMaxCached", "" + maxCached));
+        }
+        this.maxCached = maxCached;
+        if ((null != contentType) && (contentType.length() != 0)) {
+            this.contentType = contentType;
+        }
+        memorybuflist = null;
+
+        byte[] readbuffer = null;
+        try {
+            while (true) {
+                int read;
+                if (channel == null && totalsz < maxCached) {
+                    // read straight into the content
+                    reserve(Math.min(totalsz + READ_CHUNK_SZ, maxCached));
+                    read = ss.read(content, (int) totalsz,
+                                   content.length - (int) totalsz);
+                    if (read < 0) {
+                        break;
+                    }
+                    totalsz += read;
+                    continue;
+                }
+                if (readbuffer == null) {
+                    readbuffer = new byte[READ_CHUNK_SZ];
+                }
+                read = ss.read(readbuffer);
+                if (read < 0) {
+                    break;
+                }
+                if (read > 0) {
+                    write(readbuffer, read);
+                }
+            }
+            close();
+        } catch (IOException e) {
+            delete();
+            throw e;
+        }
+    }
+
+    /**
+     * Is this data source enabled by the "axis.attachments.mapped"
+     * property?
+     */
+    public static boolean isEnabled() {
+        return Boolean.valueOf(AxisProperties.getProperty(
+                ENABLED_PROPERTY_KEY, "false")).booleanValue();
+    }
+
+    protected synchronized void write(byte[] data, int length)
+            throws IOException {
+        if (closed) {
+            throw new IOException(Messages.getMessage("streamClosed"));
+        }
+        if (channel == null && totalsz + length > maxCached) {
+            flushToDisk();
+        }
+        if (channel == null) {
+            // still in memory
+            reserve(totalsz + length);
+            System.arraycopy(data, 0, content, (int) totalsz, length);
+            totalsz += length;
+            return;
+        }
+        int off = 0;
+        while (off < length) {
+            ByteBuffer buf = chunks.isEmpty() ? null :
+                    (ByteBuffer) chunks.get(chunks.size() - 1);
+            if (buf == null || !buf.hasRemaining()) {
+                if (buf != null) {
+                    drain(buf);
+                } else {
+                    buf = (ByteBuffer) bufferPool.borrow();
+                    chunks.add(buf);
+                }
+            }
+            int n = Math.min(buf.remaining(), length - off);
+            buf.put(data, off, n);
+            off += n;
+        }
+        totalsz += length;
+    }
+
+    /**
+     * Make room for <code>size</code> bytes of content in memory.
+     */
+    private void reserve(long size) {
+        int length = content == null ? 0 : content.length;
+        if (size <= length) {
+            return;
+        }
+        long grown = Math.max(size, Math.min(2L * length, maxCached));
+        byte[] bigger = new byte[(int) Math.min(grown, Integer.MAX_VALUE - 8)];
+        if (content != null) {
+            System.arraycopy(content, 0, bigger, 0, (int) totalsz);
+        }
+        content = bigger;
+    }
+
+    /**
+     * Write a staged chunk to the cache file, and clear it.
+     */
+    private void drain(ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+
+    protected synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (channel != null) {
+                if (!chunks.isEmpty()) {
+                    drain((ByteBuffer) chunks.get(0));
+                }
+                channel.close();
+                channel = null;
+            }
+        } finally {
+            releaseChunks();
+        }
+    }
+
+    private void releaseChunks() {
+        for (int i = 0; i < chunks.size(); i++) {
+            ByteBuffer buf = (ByteBuffer) chunks.get(i);
+            buf.clear();
+            bufferPool.release(buf);
+        }
+        chunks.clear();
+    }
+
+    /**
+     * Move the content to the cache file, unless already done.
+     */
+    protected synchronized void flushToDisk() throws IOException {
+        if (channel != null || diskCacheFile != null || released) {
+            return;
+        }
+        log.debug(Messages.getMessage("maxCached", "" + maxCached,
+                "" + totalsz));
+        try {
+            MessageContext mc = MessageContext.getCurrentContext();
+            String attdir = (mc == null)
+                    ? null
+                    : mc.getStrProp(MessageContext.ATTACHMENTS_DIR);
+            diskCacheFile = File.createTempFile("Axis", ".att",
+                    (attdir == null) ? null : new File(attdir));
+        } catch (SecurityException se) {
+            diskCacheFile = null;
+            maxCached = Integer.MAX_VALUE;
+            log.info(Messages.getMessage("nodisk00"), se);
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(Messages.getMessage("diskCache",
+                    diskCacheFile.getAbsolutePath()));
+        }
+        FileChannel fc = new RandomAccessFile(diskCacheFile, "rw").getChannel();
+        if (closed) {
+            // Spilled on request, e.g. by getName()
+            try {
+                writeContent(fc);
+            } finally {
+                fc.close();
+            }
+            content = null;
+            return;
+        }
+        try {
+            writeContent(fc);
+        } catch (IOException e) {
+            fc.close();
+            throw e;
+        }
+        channel = fc;
+        content = null;
+    }
+
+    private void writeContent(FileChannel fc) throws IOException {
+        if (content == null) {
+            return;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(content, 0, (int) totalsz);
+        while (buf.hasRemaining()) {
+            fc.write(buf);
+        }
+    }
+
+    /**
+     * @return the views of the content readers start from
+     */
+    private synchronized ByteBuffer[] getBuffers() throws IOException {
+        if (released) {
+            throw new IOException(Messages.getMessage("resourceDeleted"));
+        }
+        if (content != null) {
+            return new ByteBuffer[] {ByteBuffer.wrap(content, 0, (int) totalsz)};
+        }
+        if (regions == null) {
+            if (diskCacheFile == null) {
+                return new ByteBuffer[0];
+            }
+            FileChannel fc = new FileInputStream(diskCacheFile).getChannel();
+            try {
+                int count = (int) ((totalsz + REGION_SIZE - 1) / REGION_SIZE);
+                ByteBuffer[] mapped = new ByteBuffer[count];
+                for (int i = 0; i < count; i++) {
+                    long pos = (long) i * REGION_SIZE;
+                    mapped[i] = fc.map(FileChannel.MapMode.READ_ONLY, pos,
+                                       Math.min(REGION_SIZE, totalsz - pos));
+                }
+                regions = mapped;
+            } finally {
+                fc.close();
+            }
+        }
+        ByteBuffer[] views = new ByteBuffer[regions.length];
+        for (int i = 0; i < regions.length; i++) {
+            views[i] = regions[i].duplicate();
+        }
+        return views;
+    }
+
+    public synchronized InputStream getInputStream() throws IOException {
+        if (deleted) {
+            throw new IOException(Messages.getMessage("resourceDeleted"));
+        }
+        return new BufferInputStream(getBuffers());
+    }
+
+    /**
+     * @return the size of the content in bytes
+     */
+    public long getSize() {
+        return totalsz;
+    }
+
+    /**
+     * Write the content to a channel.  The cache file is transferred
+     * with <code>FileChannel.transferTo()</code>, unless the channel is
+     * in non-blocking mode or stops accepting transfers, in which case
+     * the rest is copied through a buffer.
+     */
+    public void writeTo(WritableByteChannel target) throws IOException {
+        File file;
+        synchronized (this) {
+            if (released) {
+                throw new IOException(Messages.getMessage("resourceDeleted"));
+            }
+            file = content == null ? diskCacheFile : null;
+        }
+        if (file == null) {
+            ByteBuffer[] buffers = getBuffers();
+            for (int i = 0; i < buffers.length; i++) {
+                while (buffers[i].hasRemaining()) {
+                    target.write(buffers[i]);
+                }
+            }
+            return;
+        }
+        FileChannel fc = new FileInputStream(file).getChannel();
+        try {
+            long pos = 0;
+            if (!(target instanceof SelectableChannel)
+                    || ((SelectableChannel) target).isBlocking()) {
+                while (pos < totalsz) {
+                    long n = fc.transferTo(pos, totalsz - pos, target);
+                    if (n <= 0) {
+                        if (fc.size() < totalsz) {
+                            throw new EOFException(Messages.getMessage(
+                                    "cacheFileTruncated00", file.getPath()));
+                        }
+                        break;
+                    }
+                    pos += n;
+                }
+            }
+            if (pos < totalsz) {
+                ByteBuffer buf = (ByteBuffer) bufferPool.borrow();
+                try {
+                    while (pos < totalsz) {
+                        buf.clear();
+                        if (totalsz - pos < buf.capacity()) {
+                            buf.limit((int) (totalsz - pos));
+                        }
+                        int n = fc.read(buf, pos);
+                        if (n < 0) {
+                            throw new EOFException(Messages.getMessage(
+                                    "cacheFileTruncated00", file.getPath()));
+                        }
+                        buf.flip();
+                        while (buf.hasRemaining()) {
+                            target.write(buf);
+                        }
+                        pos += n;
+                    }
+                } finally {
+                    buf.clear();
+                    bufferPool.release(buf);
+                }
+            }
+        } finally {
+            fc.close();
+        }
+    }
+
+    /**
+     * Write the content to a stream, through its channel if it is a file.
+     */
+    public void writeTo(OutputStream os) throws IOException {
+        if (os instanceof FileOutputStream) {
+            writeTo(((FileOutputStream) os).getChannel());
+            return;
+        }
+        ByteBuffer[] buffers = getBuffers();
+        byte[] buf = null;
+        for (int i = 0; i < buffers.length; i++) {
+            if (buffers[i].hasArray()) {
+                os.write(buffers[i].array(), buffers[i].arrayOffset(),
+                         buffers[i].remaining());
+                continue;
+            }
+            if (buf == null) {
+                buf = new byte[READ_CHUNK_SZ];
+            }
+            while (buffers[i].hasRemaining()) {
+                int n = Math.min(buf.length, buffers[i].remaining());
+                buffers[i].get(buf, 0, n);
+                os.write(buf, 0, n);
+            }
+        }
+    }
+
+    public synchronized boolean delete() {
+        deleted = true;
+        released = true;
+        content = null;
+        regions = null;
+        releaseChunks();
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+            }
+            channel = null;
+        }
+        if (diskCacheFile == null) {
+            return false;
+        }
+        if (!diskCacheFile.delete()) {
+            // Give it our best shot, e.g. the file is still mapped.
+            diskCacheFile.deleteOnExit();
+        }
+        return true;
+    }
+
+    /**
+     * Reads a sequence of buffers, and stops working once the data source
+     * has been deleted.
+     */
+    private class BufferInputStream extends InputStream {
+        private final ByteBuffer[] buffers;
+        private int index = 0;
+        private boolean readClosed = false;
+
+        BufferInputStream(ByteBuffer[] buffers) {
+            this.buffers = buffers;
+        }
+
+        private ByteBuffer current() throws IOException {
+            if (released) {
+                throw new IOException(Messages.getMessage("resourceDeleted"));
+            }
+            if (readClosed) {
+                throw new IOException(Messages.getMessage("streamClosed"));
+            }
+            while (index < buffers.length && !buffers[index].hasRemaining()) {
+                index++;
+            }
+            return index < buffers.length ? buffers[index] : null;
+        }
+
+        public int read() throws IOException {
+            ByteBuffer buf = current();
+            return buf == null ? -1 : buf.get() & 0xFF;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException(
+                        Messages.getMessage("writeBeyond"));
+            }
+            if (len == 0) {
+                return 0;
+            }
+            int total = 0;
+            ByteBuffer buf;
+            while (total < len && (buf = current()) != null) {
+                int n = Math.min(buf.remaining(), len - total);
+                buf.get(b, off + total, n);
+                total += n;
+            }
+            return total == 0 ? -1 : total;
+        }
+
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            ByteBuffer buf;
+            while (skipped < n && (buf = current()) != null) {
+                int step = (int) Math.min(buf.remaining(), n - skipped);
+                buf.position(buf.position() + step);
+                skipped += step;
+            }
+            return skipped;
+        }
+
+        public int available() throws IOException {
+            current();
+            long left = 0;
+            for (int i = index; i < buffers.length; i++) {
+                left += buffers[i].remaining();
+            }
+            return (int) Math.min(Integer.MAX_VALUE, left);
+        }
+
+        public void close() {
+            readClosed = true;
+        }
+    }
+}
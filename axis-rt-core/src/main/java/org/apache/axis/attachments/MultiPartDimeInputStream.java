@@ -160,8 +160,8 @@ public class MultiPartDimeInputStream extends  MultiPartInputStream {
                     }
 
 
-                    ManagedMemoryDataSource source = new ManagedMemoryDataSource(dimeDelimitedStream,
-                                          ManagedMemoryDataSource.MAX_MEMORY_DISK_CACHED, type, true);
+                    ManagedMemoryDataSource source = AttachmentUtils.newDataSource(dimeDelimitedStream,
+                                          ManagedMemoryDataSource.MAX_MEMORY_DISK_CACHED, type);
                     DataHandler dh = new DataHandler(source);
 
                     AttachmentPart ap = new AttachmentPart(dh);
@@ -273,8 +273,8 @@ public class MultiPartRelatedInputStream extends MultiPartInputStream{
                         contentId)) {    // This is a part that has come in prior to the root part. Need to buffer it up.
                     jakarta.activation.DataHandler dh =
                             new jakarta.activation.DataHandler(
-                                    new org.apache.axis.attachments.ManagedMemoryDataSource(
-                                            decodedStream, MAX_CACHED, contentType, true));
+                                    AttachmentUtils.newDataSource(
+                                            decodedStream, MAX_CACHED, contentType));
                     AttachmentPart ap = new AttachmentPart(dh);
 
                     if (contentId != null) {
@@ -554,8 +554,8 @@ public class MultiPartRelatedInputStream extends MultiPartInputStream{
                                         contentTransferEncoding);
                     }
 
-                    ManagedMemoryDataSource source = new ManagedMemoryDataSource(
-                                                        decodedStream, ManagedMemoryDataSource.MAX_MEMORY_DISK_CACHED, contentType, true);
+                    ManagedMemoryDataSource source = AttachmentUtils.newDataSource(
+                                                        decodedStream, ManagedMemoryDataSource.MAX_MEMORY_DISK_CACHED, contentType);
                     DataHandler dh = new DataHandler(source);
                     AttachmentPart ap = new AttachmentPart(dh);
 
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.client;
+
+import org.apache.axis.AxisProperties;
+import org.apache.axis.EngineConfiguration;
+import org.apache.axis.EngineConfigurationFactory;
+import org.apache.axis.configuration.EngineConfigurationFactoryDefault;
+import org.apache.axis.configuration.EngineConfigurationFactoryFinder;
+
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A process wide cache of client engines built from the default client
+ * configuration, normally client-config.wsdd.
+ * <p>
+ * Without it, every {@link Service} created without an explicit
+ * EngineConfiguration - and so every generated stub created with its
+ * default constructor - looks up the configuration factory, parses the
+ * client configuration and builds a new {@link AxisClient}.  With it, they
+ * share one AxisClient per configuration source, that is per context
+ * class loader, configuration factory and client configuration file.
+ * <p>
+ * Since engine options and type mappings registered through a Service or
+ * Call then affect every Service sharing the engine, the cache has to be
+ * enabled with the <code>axis.ClientEngineCache</code> property, or with
+ * {@link #setEnabled(boolean)}.  {@link #refresh()} makes Services created
+ * afterwards read the configuration again, e.g. after client-config.wsdd
+ * has changed; existing Services keep their engine.
+ * <p>
+ * The engines are only softly referenced: an engine refers to classes of
+ * its class loader, and must not keep the loader of an undeployed web
+ * application from being collected.
+ */
+public class ClientEngineCache {
+    /** the key for the Axis Property that enables the cache */
+    public static final String ENABLED_PROPERTY_KEY = "axis.ClientEngineCache";
+
+    private static volatile boolean enabled = Boolean.valueOf(
+            AxisProperties.getProperty(ENABLED_PROPERTY_KEY, "false"))
+            .booleanValue();
+
+    /** ClassLoader -> (source key -> Entry) */
+    private static final Map engines = new WeakHashMap();
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The engine of a configuration source, built under the lock of the
+     * entry.
+     */
+    private static class Entry {
+        SoftReference client = null;
+    }
+
+    private ClientEngineCache() {
+    }
+
+    /**
+     * @return true if Services share cached engines
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enable or disable the cache, overriding the axis.ClientEngineCache
+     * property.  Disabling it also empties it.
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+        if (!enable) {
+            refresh();
+        }
+    }
+
+    /**
+     * Get the shared engine for the default client configuration of the
+     * current context class loader, building it if need be.
+     */
+    public static AxisClient getClient() {
+        ClassLoader cl = Thread.currentThread().getContextClassLoader();
+        String key = getSourceKey();
+        Entry entry;
+        synchronized (engines) {
+            Map byKey = (Map) engines.get(cl);
+            if (byKey == null) {
+                byKey = new HashMap();
+                engines.put(cl, byKey);
+            }
+            entry = (Entry) byKey.get(key);
+            if (entry == null) {
+                entry = new Entry();
+                byKey.put(key, entry);
+            }
+        }
+        // Build the engine under the lock of its entry, so that it is only
+        // done once even if many threads create their first Service at
+        // once, without holding up other configuration sources.
+        synchronized (entry) {
+            AxisClient client = entry.client == null
+                    ? null : (AxisClient) entry.client.get();
+            if (client != null) {
+                hits.incrementAndGet();
+                return client;
+            }
+            misses.incrementAndGet();
+            EngineConfiguration config = EngineConfigurationFactoryFinder
+                    .newFactory().getClientEngineConfig();
+            client = new AxisClient(config);
+            entry.client = new SoftReference(client);
+            return client;
+        }
+    }
+
+    /**
+     * Forget all the cached engines.
+     */
+    public static void refresh() {
+        synchronized (engines) {
+            engines.clear();
+        }
+    }
+
+    /**
+     * @return the number of Services which were given a cached engine
+     */
+    public static long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of engines built
+     */
+    public static long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * The properties which decide where the client configuration comes
+     * from.
+     */
+    private static String getSourceKey() {
+        return AxisProperties.getProperty(
+                    EngineConfigurationFactory.SYSTEM_PROPERTY_NAME, "") +
+               "|" +
+               AxisProperties.getProperty(
+                    EngineConfigurationFactoryDefault.OPTION_CLIENT_CONFIG_FILE,
+                    "");
+    }
+}
@@ -98,6 +98,11 @@ public class Service implements javax.xml.rpc.Service, Serializable, Referenceab
     }
 
     protected AxisClient getAxisClient() {
+        if (config == null && ClientEngineCache.isEnabled()) {
+            AxisClient client = ClientEngineCache.getClient();
+            config = client.getConfig();
+            return client;
+        }
         return new AxisClient(getEngineConfiguration());
     }
 
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.client;
+
+import org.apache.axis.encoding.DeserializerFactory;
+import org.apache.axis.encoding.SerializerFactory;
+import org.apache.axis.encoding.TypeMapping;
+import org.apache.axis.encoding.ser.BaseDeserializerFactory;
+import org.apache.axis.encoding.ser.BaseSerializerFactory;
+
+import javax.xml.namespace.QName;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The type mappings of a generated stub class, built once by its static
+ * initializer and then shared, read only, by all its instances.
+ * <p>
+ * Stubs used to collect their type mappings into Vectors in every
+ * constructor, and to instantiate the serializer and deserializer
+ * factories through reflection on the first call of every instance.  A
+ * snapshot instantiates the factories once, when the mapping is added, and
+ * {@link #registerWith(Call)} hands them to a Call's TypeMapping, skipping
+ * the TypeMappings it has already been registered with, as when the stubs
+ * share an engine.
+ * <p>
+ * As before, a mapping is not registered over one the TypeMapping already
+ * has.
+ */
+public class TypeMappingSnapshot {
+    private Class[] classes;
+    private QName[] qNames;
+    private SerializerFactory[] serFactories;
+    private DeserializerFactory[] deserFactories;
+    private int size = 0;
+
+    /** the TypeMappings registered with, weakly */
+    private final Map registered = new WeakHashMap();
+
+    /**
+     * @param capacity the number of mappings the stub adds
+     */
+    public TypeMappingSnapshot(int capacity) {
+        capacity = Math.max(capacity, 1);
+        classes = new Class[capacity];
+        qNames = new QName[capacity];
+        serFactories = new SerializerFactory[capacity];
+        deserFactories = new DeserializerFactory[capacity];
+    }
+
+    /**
+     * Add a mapping, instantiating the factories from their classes.  The
+     * mapping is dropped if neither factory can be instantiated, like
+     * {@link Call#registerTypeMapping(Class, QName, Class, Class, boolean)}
+     * does.
+     */
+    public void add(Class cls, QName qName, Class sfClass, Class dfClass) {
+        SerializerFactory sf =
+                BaseSerializerFactory.createFactory(sfClass, cls, qName);
+        DeserializerFactory df =
+                BaseDeserializerFactory.createFactory(dfClass, cls, qName);
+        if (sf != null || df != null) {
+            add(cls, qName, sf, df);
+        }
+    }
+
+    /**
+     * Add a mapping with its factories.
+     */
+    public synchronized void add(Class cls, QName qName,
+                                 SerializerFactory sf,
+                                 DeserializerFactory df) {
+        if (size == classes.length) {
+            int capacity = size * 2;
+            classes = (Class[]) grow(classes, new Class[capacity]);
+            qNames = (QName[]) grow(qNames, new QName[capacity]);
+            serFactories = (SerializerFactory[])
+                    grow(serFactories, new SerializerFactory[capacity]);
+            deserFactories = (DeserializerFactory[])
+                    grow(deserFactories, new DeserializerFactory[capacity]);
+        }
+        classes[size] = cls;
+        qNames[size] = qName;
+        serFactories[size] = sf;
+        deserFactories[size] = df;
+        size++;
+        registered.clear();
+    }
+
+    private static Object[] grow(Object[] from, Object[] to) {
+        System.arraycopy(from, 0, to, 0, from.length);
+        return to;
+    }
+
+    /**
+     * @return the number of mappings
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Register the mappings with the TypeMapping of a Call, which must have
+     * its encoding style set, unless they already have been.
+     */
+    public void registerWith(Call call) {
+        TypeMapping tm = call.getTypeMapping();
+        synchronized (this) {
+            if (registered.containsKey(tm)) {
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                if (!tm.isRegistered(classes[i], qNames[i])) {
+                    tm.register(classes[i], qNames[i],
+                                serFactories[i], deserFactories[i]);
+                }
+            }
+            registered.put(tm, null);
+        }
+    }
+}
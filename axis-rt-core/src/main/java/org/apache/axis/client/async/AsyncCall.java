@@ -16,17 +16,46 @@
 
 package org.apache.axis.client.async;
 
+import org.apache.axis.AxisProperties;
 import org.apache.axis.client.Call;
+import org.apache.axis.utils.BoundedExecutor;
 
 import javax.xml.namespace.QName;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Support for Asynchronous call
+ * <p>
+ * Calls run on an {@link Executor}.  Unless one is given, a shared
+ * executor is used, which runs at most <tt>axis.client.async.threads</tt>
+ * (default 20) calls at a time with at most
+ * <tt>axis.client.async.queue.size</tt> (default 1000) calls waiting;
+ * beyond that <tt>invoke</tt> blocks until a call completes.  Setting
+ * <tt>axis.client.async.virtual.threads</tt> to true runs each call on a
+ * virtual thread when the JVM supports them.
  * 
  * @author Davanum Srinivas (dims@yahoo.com)
  */
 public class AsyncCall {
 
+    /** the key for the Axis Property that sets the number of calls of the
+        shared executor running at the same time */
+    public static final String THREADS_PROPERTY_KEY =
+        "axis.client.async.threads";
+
+    /** the key for the Axis Property that sets the number of calls waiting
+        for the shared executor */
+    public static final String QUEUE_SIZE_PROPERTY_KEY =
+        "axis.client.async.queue.size";
+
+    /** the key for the Axis Property that makes the shared executor use
+        virtual threads */
+    public static final String VIRTUAL_THREADS_PROPERTY_KEY =
+        "axis.client.async.virtual.threads";
+
+    private static Executor defaultExecutor = null;
+
     /**
      * Field call
      */
@@ -37,6 +66,11 @@ public class AsyncCall {
      */
     private IAsyncCallback callback = null;
 
+    /**
+     * Field executor
+     */
+    private Executor executor = null;
+
     /**
      * Constructor AsyncCall
      * 
@@ -53,8 +87,20 @@ public class AsyncCall {
      * @param callback 
      */
     public AsyncCall(Call call, IAsyncCallback callback) {
+        this(call, callback, null);
+    }
+
+    /**
+     * Constructor AsyncCall
+     * 
+     * @param call     
+     * @param callback 
+     * @param executor the executor running the calls, null for the shared one
+     */
+    public AsyncCall(Call call, IAsyncCallback callback, Executor executor) {
         this.call = call;
         this.callback = callback;
+        this.executor = executor;
     }
 
     /**
@@ -75,6 +121,49 @@ public class AsyncCall {
         this.callback = callback;
     }
 
+    /**
+     * Method getExecutor
+     * 
+     * @return the executor running the calls
+     */
+    public Executor getExecutor() {
+        return executor != null ? executor : getDefaultExecutor();
+    }
+
+    /**
+     * Method setExecutor
+     * 
+     * @param executor the executor running the calls, null for the shared one
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Get the executor shared by the AsyncCalls that weren't given one.
+     * 
+     * @return 
+     */
+    public static synchronized Executor getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            defaultExecutor = new BoundedExecutor("AsyncCall",
+                    Integer.parseInt(AxisProperties.getProperty(THREADS_PROPERTY_KEY, "20")),
+                    Integer.parseInt(AxisProperties.getProperty(QUEUE_SIZE_PROPERTY_KEY, "1000")),
+                    Boolean.valueOf(AxisProperties.getProperty(VIRTUAL_THREADS_PROPERTY_KEY,
+                                                               "false")).booleanValue());
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Replace the executor shared by the AsyncCalls that weren't given one.
+     * 
+     * @param executor 
+     */
+    public static synchronized void setDefaultExecutor(Executor executor) {
+        defaultExecutor = executor;
+    }
+
     /**
      * Method invoke
      * 
@@ -96,6 +185,27 @@ public class AsyncCall {
         return new AsyncResult(this, qName, inputParams);
     }
 
+    /**
+     * Method invokeAsync
+     * 
+     * @param inputParams 
+     * @return a future completed with the response of the call
+     */
+    public CompletableFuture<Object> invokeAsync(Object[] inputParams) {
+        return new AsyncResult(this, null, inputParams).toCompletableFuture();
+    }
+
+    /**
+     * Method invokeAsync
+     * 
+     * @param qName       
+     * @param inputParams 
+     * @return a future completed with the response of the call
+     */
+    public CompletableFuture<Object> invokeAsync(QName qName, Object[] inputParams) {
+        return new AsyncResult(this, qName, inputParams).toCompletableFuture();
+    }
+
     /**
      * Method getCall
      * 
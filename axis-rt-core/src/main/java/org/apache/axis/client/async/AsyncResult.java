@@ -17,6 +17,8 @@
 package org.apache.axis.client.async;
 
 import javax.xml.namespace.QName;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Access the results of the Async call
@@ -26,19 +28,19 @@ import javax.xml.namespace.QName;
 public class AsyncResult implements IAsyncResult, Runnable {
 
     /**
-     * Field thread
+     * Field thread, the thread running the call while it runs
      */
     private Thread thread = null;
 
     /**
      * Field response
      */
-    private Object response = null;
+    private volatile Object response = null;
 
     /**
      * Field exception
      */
-    private Throwable exception = null;
+    private volatile Throwable exception = null;
 
     /**
      * Field ac
@@ -58,7 +60,22 @@ public class AsyncResult implements IAsyncResult, Runnable {
     /**
      * Field status
      */
-    private Status status = Status.NONE;
+    private volatile Status status = Status.NONE;
+
+    /**
+     * Field future
+     */
+    private final CompletableFuture<Object> future = new CompletableFuture<Object>();
+
+    /**
+     * Field done, set once the call completed or was aborted
+     */
+    private boolean done = false;
+
+    /**
+     * Field finished, set once the callback has been notified
+     */
+    private boolean finished = false;
 
     /**
      * Constructor AsyncResult
@@ -76,17 +93,30 @@ public class AsyncResult implements IAsyncResult, Runnable {
             this.opName = ac.getCall().getOperationName();
         }
 
-        thread = new Thread(this);
-        thread.setDaemon(true);
-        thread.start();
+        try {
+            ac.getExecutor().execute(this);
+        } catch (RejectedExecutionException e) {
+            complete(null, e);
+        }
     }
 
     /**
      * Method abort
      */
     public void abort() {
-        thread.interrupt();
-        status = Status.INTERRUPTED;
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+            done = true;
+            finished = true;
+            status = Status.INTERRUPTED;
+            if (thread != null) {
+                thread.interrupt();
+            }
+            notifyAll();
+        }
+        future.cancel(true);
     }
 
     /**
@@ -101,11 +131,22 @@ public class AsyncResult implements IAsyncResult, Runnable {
     /**
      * Method waitFor
      * 
-     * @param timeout 
+     * @param timeout the maximum time to wait in milliseconds, 0 to wait
+     *                until the call completes
      * @throws InterruptedException 
      */
-    public void waitFor(long timeout) throws InterruptedException {
-        thread.wait(timeout);
+    public synchronized void waitFor(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (!finished) {
+            long wait = 0;
+            if (timeout > 0) {
+                wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    return;
+                }
+            }
+            wait(wait);
+        }
     }
 
     /**
@@ -126,21 +167,78 @@ public class AsyncResult implements IAsyncResult, Runnable {
         return exception;
     }
 
+    /**
+     * Get a future completed with the response of the call, or completed
+     * exceptionally with the exception it raised.
+     * 
+     * @return 
+     */
+    public CompletableFuture<Object> toCompletableFuture() {
+        return future;
+    }
+
     /**
      * Method run
      */
     public void run() {
+        synchronized (this) {
+            if (done) {
+                // aborted before it got to run
+                return;
+            }
+            thread = Thread.currentThread();
+        }
+        Object result = null;
+        Throwable fault = null;
         try {
-            response = ac.getCall().invoke(opName, params);
-            status = Status.COMPLETED;
+            result = ac.getCall().invoke(opName, params);
         } catch (Throwable e) {
-            exception = e;
-            status = Status.EXCEPTION;
+            fault = e;
         } finally {
+            synchronized (this) {
+                thread = null;
+                // don't leak an abort() to the next task run by this thread
+                Thread.interrupted();
+            }
+            complete(result, fault);
+        }
+    }
+
+    /**
+     * Record the outcome of the call and notify the callback, then the waiters.
+     */
+    private void complete(Object result, Throwable fault) {
+        boolean aborted;
+        synchronized (this) {
+            aborted = done;
+            if (!aborted) {
+                done = true;
+                if (fault == null) {
+                    response = result;
+                    status = Status.COMPLETED;
+                } else {
+                    exception = fault;
+                    status = Status.EXCEPTION;
+                }
+            }
+        }
+        try {
             IAsyncCallback callback = ac.getCallback();
             if (callback != null) {
                 callback.onCompletion(this);
             }
+        } finally {
+            if (!aborted) {
+                synchronized (this) {
+                    finished = true;
+                    notifyAll();
+                }
+                if (fault == null) {
+                    future.complete(result);
+                } else {
+                    future.completeExceptionally(fault);
+                }
+            }
         }
     }
 }
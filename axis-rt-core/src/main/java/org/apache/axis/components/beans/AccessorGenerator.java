@@ -0,0 +1,41 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.components.beans;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+
+/**
+ * Creates the {@link PropertyAccessor}s used by bean serializers and
+ * deserializers to read and write bean properties.
+ *
+ * @see AccessorGeneratorFactory
+ */
+public interface AccessorGenerator {
+    /**
+     * @return an accessor calling the read and write methods of a bean
+     *         property, including the indexed ones of an
+     *         IndexedPropertyDescriptor
+     */
+    public PropertyAccessor createAccessor(PropertyDescriptor pd);
+
+    /**
+     * @return an accessor reading and writing a public field; it has no
+     *         indexed accessors
+     */
+    public PropertyAccessor createAccessor(Field field);
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.components.beans;
+
+import org.apache.axis.AxisProperties;
+import org.apache.axis.components.logger.LogFactory;
+import org.apache.commons.logging.Log;
+
+/**
+ * Returns the {@link AccessorGenerator} to use, which can be chosen with
+ * the "axis.AccessorGenerator" property.  The default generates accessors
+ * from method handles; set it to
+ * org.apache.axis.components.beans.ReflectionAccessorGenerator to use
+ * plain reflection.
+ */
+public abstract class AccessorGeneratorFactory {
+    protected static Log log =
+        LogFactory.getLog(AccessorGeneratorFactory.class.getName());
+
+    static {
+        AxisProperties.setClassOverrideProperty(AccessorGenerator.class,
+                "axis.AccessorGenerator");
+        AxisProperties.setClassDefault(AccessorGenerator.class,
+                "org.apache.axis.components.beans.MethodHandleAccessorGenerator");
+    }
+
+    /**
+     * Returns an instance of AccessorGenerator
+     */
+    public static AccessorGenerator getAccessorGenerator() {
+        AccessorGenerator generator = (AccessorGenerator)
+                AxisProperties.newInstance(AccessorGenerator.class);
+        log.debug("axis.AccessorGenerator:" + generator.getClass().getName());
+        return generator;
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.components.beans;
+
+import org.apache.axis.components.logger.LogFactory;
+import org.apache.commons.logging.Log;
+
+import java.beans.IndexedPropertyDescriptor;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Creates accessors which call bean methods and fields directly, without
+ * the argument array and the access checks of <code>Method.invoke()</code>.
+ * <p>
+ * Accessor methods are bound with the LambdaMetafactory to small classes
+ * defined next to the bean class, which the JIT can inline like ordinary
+ * calls.  When that isn't possible, e.g. because the bean class is in a
+ * named module, and for public fields, method handles adapted to take and
+ * return Objects are used instead.  The classes are defined once per
+ * accessor method, however many descriptors of the property are created,
+ * and indexes are passed as ints, so no call allocates.
+ * <p>
+ * Only members which are accessible through the public lookup, i.e.
+ * public members of public classes, get these fast accessors.  Whenever
+ * one can't be used - the member isn't accessible, or the bean or the
+ * value is not of the expected type - the accessor falls back to
+ * reflection, which also yields the same exceptions as before.
+ */
+public class MethodHandleAccessorGenerator implements AccessorGenerator {
+    protected static Log log =
+        LogFactory.getLog(MethodHandleAccessorGenerator.class.getName());
+
+    private static final MethodType GETTER =
+        MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER =
+        MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType INDEXED_GETTER =
+        MethodType.methodType(Object.class, Object.class, int.class);
+    private static final MethodType INDEXED_SETTER =
+        MethodType.methodType(void.class, Object.class, int.class, Object.class);
+
+    /** the spun functions by accessor method, kept with the bean class */
+    private static final ClassValue SPUN = new ClassValue() {
+        protected Object computeValue(Class type) {
+            return new ConcurrentHashMap();
+        }
+    };
+
+    /** marks the methods no function can be spun for */
+    private static final Object NONE = new Object();
+
+    /**
+     * An indexed getter, taking its index unboxed.
+     */
+    public interface IndexedGetter {
+        Object get(Object bean, int i);
+    }
+
+    /**
+     * An indexed setter, taking its index unboxed.
+     */
+    public interface IndexedSetter {
+        void set(Object bean, int i, Object value);
+    }
+
+    private final ReflectionAccessorGenerator reflection =
+        new ReflectionAccessorGenerator();
+
+    public PropertyAccessor createAccessor(PropertyDescriptor pd) {
+        HandleAccessor accessor =
+            new HandleAccessor(reflection.createAccessor(pd));
+        Method read = pd.getReadMethod();
+        accessor.read = unreflect(read, GETTER);
+        if (accessor.read != null) {
+            accessor.readClass = read.getDeclaringClass();
+            accessor.readFunction = (Function)
+                    spin(read, Function.class, "apply", GETTER);
+        }
+        Method write = pd.getWriteMethod();
+        accessor.write = unreflect(write, SETTER);
+        if (accessor.write != null) {
+            accessor.writeClass = write.getDeclaringClass();
+            accessor.setWriteType(write.getParameterTypes()[0]);
+            accessor.writeFunction = (BiConsumer)
+                    spin(write, BiConsumer.class, "accept", SETTER);
+        }
+        if (pd instanceof IndexedPropertyDescriptor) {
+            IndexedPropertyDescriptor ipd = (IndexedPropertyDescriptor)pd;
+            Method indexedRead = ipd.getIndexedReadMethod();
+            accessor.indexedRead = unreflect(indexedRead, INDEXED_GETTER);
+            if (accessor.indexedRead != null) {
+                accessor.indexedReadClass = indexedRead.getDeclaringClass();
+                accessor.indexedReadFunction = (IndexedGetter)
+                        spin(indexedRead, IndexedGetter.class, "get",
+                             INDEXED_GETTER);
+            }
+            Method indexedWrite = ipd.getIndexedWriteMethod();
+            accessor.indexedWrite = unreflect(indexedWrite, INDEXED_SETTER);
+            if (accessor.indexedWrite != null) {
+                accessor.indexedWriteClass = indexedWrite.getDeclaringClass();
+                accessor.setIndexedWriteType(
+                        indexedWrite.getParameterTypes()[1]);
+                accessor.indexedWriteFunction = (IndexedSetter)
+                        spin(indexedWrite, IndexedSetter.class, "set",
+                             INDEXED_SETTER);
+            }
+        }
+        return accessor;
+    }
+
+    public PropertyAccessor createAccessor(Field field) {
+        HandleAccessor accessor =
+            new HandleAccessor(reflection.createAccessor(field));
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        try {
+            accessor.read = lookup.unreflectGetter(field).asType(GETTER);
+            accessor.readClass = field.getDeclaringClass();
+            accessor.write = lookup.unreflectSetter(field).asType(SETTER);
+            accessor.writeClass = field.getDeclaringClass();
+            accessor.setWriteType(field.getType());
+        } catch (IllegalAccessException e) {
+            // The reflective accessor reports the problem
+            log.debug(field, e);
+        }
+        return accessor;
+    }
+
+    /**
+     * @return a handle on a method accessible through the public lookup,
+     *         adapted to the given type, or null
+     */
+    private static MethodHandle unreflect(Method method, MethodType type) {
+        if (method == null) {
+            return null;
+        }
+        try {
+            return MethodHandles.publicLookup().unreflect(method).asType(type);
+        } catch (IllegalAccessException e) {
+            // The reflective accessor reports the problem
+            log.debug(method, e);
+            return null;
+        } catch (RuntimeException e) {
+            // e.g. an indexed accessor not taking an int
+            log.debug(method, e);
+            return null;
+        }
+    }
+
+    /**
+     * Implement a functional interface by calling the given method, or get
+     * the implementation made already.  An accessor method always gets the
+     * same functional interface.
+     *
+     * @return the implementation, or null if it can't be generated
+     */
+    private static Object spin(Method method, Class functionalInterface,
+                               String name, MethodType erasedType) {
+        Map spun = (Map) SPUN.get(method.getDeclaringClass());
+        Object function = spun.get(method);
+        if (function == null) {
+            function = metafactory(method, functionalInterface, name,
+                                   erasedType);
+            Object previous = spun.putIfAbsent(method,
+                    function == null ? NONE : function);
+            if (previous != null) {
+                function = previous;
+            }
+        }
+        return function == NONE ? null : function;
+    }
+
+    private static Object metafactory(Method method,
+                                      Class functionalInterface,
+                                      String name, MethodType erasedType) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(
+                    method.getDeclaringClass(), MethodHandles.lookup());
+            if (!lookup.hasFullPrivilegeAccess()) {
+                return null;
+            }
+            MethodHandle impl = lookup.unreflect(method);
+            MethodType instantiatedType = impl.type().wrap();
+            if (impl.type().returnType() == void.class) {
+                instantiatedType = instantiatedType.changeReturnType(void.class);
+            }
+            // indexes stay ints
+            for (int i = 0; i < erasedType.parameterCount(); i++) {
+                if (erasedType.parameterType(i) == int.class) {
+                    instantiatedType =
+                        instantiatedType.changeParameterType(i, int.class);
+                }
+            }
+            return LambdaMetafactory.metafactory(lookup, name,
+                    MethodType.methodType(functionalInterface), erasedType,
+                    impl, instantiatedType).getTarget().invoke();
+        } catch (Throwable t) {
+            // Use the method handle
+            log.debug(method, t);
+            return null;
+        }
+    }
+
+    private static Class wrap(Class type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+    /**
+     * Values which need a widening conversion, or a null for a primitive,
+     * are left to reflection.
+     *
+     * @param type the parameter type, wrapped if it is a primitive
+     */
+    private static boolean isAssignable(Class type, boolean primitive,
+                                        Object value) {
+        if (value == null) {
+            return !primitive;
+        }
+        return primitive ? type == value.getClass() : type.isInstance(value);
+    }
+
+    /**
+     * Calls a bean through generated functions or method handles, and
+     * through reflection when they can't be used.  A class field is only
+     * set if the matching function or handle is.
+     */
+    static class HandleAccessor implements PropertyAccessor {
+        private final PropertyAccessor fallback;
+
+        Class readClass;
+        Function readFunction;
+        MethodHandle read;
+
+        Class writeClass;
+        Class writeType;
+        boolean writePrimitive;
+        BiConsumer writeFunction;
+        MethodHandle write;
+
+        Class indexedReadClass;
+        IndexedGetter indexedReadFunction;
+        MethodHandle indexedRead;
+
+        Class indexedWriteClass;
+        Class indexedWriteType;
+        boolean indexedWritePrimitive;
+        IndexedSetter indexedWriteFunction;
+        MethodHandle indexedWrite;
+
+        HandleAccessor(PropertyAccessor fallback) {
+            this.fallback = fallback;
+        }
+
+        void setWriteType(Class type) {
+            writeType = wrap(type);
+            writePrimitive = type.isPrimitive();
+        }
+
+        void setIndexedWriteType(Class type) {
+            indexedWriteType = wrap(type);
+            indexedWritePrimitive = type.isPrimitive();
+        }
+
+        public Object get(Object bean)
+                throws InvocationTargetException, IllegalAccessException {
+            if (readClass == null || !readClass.isInstance(bean)) {
+                return fallback.get(bean);
+            }
+            try {
+                if (readFunction != null) {
+                    return readFunction.apply(bean);
+                }
+                return (Object) read.invokeExact(bean);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+
+        public void set(Object bean, Object value)
+                throws InvocationTargetException, IllegalAccessException {
+            if (writeClass == null || !writeClass.isInstance(bean) ||
+                    !isAssignable(writeType, writePrimitive, value)) {
+                fallback.set(bean, value);
+                return;
+            }
+            try {
+                if (writeFunction != null) {
+                    writeFunction.accept(bean, value);
+                } else {
+                    write.invokeExact(bean, value);
+                }
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+
+        public Object get(Object bean, int i)
+                throws InvocationTargetException, IllegalAccessException {
+            if (indexedReadClass == null ||
+                    !indexedReadClass.isInstance(bean)) {
+                return fallback.get(bean, i);
+            }
+            try {
+                if (indexedReadFunction != null) {
+                    return indexedReadFunction.get(bean, i);
+                }
+                return (Object) indexedRead.invokeExact(bean, i);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+
+        public void set(Object bean, int i, Object value)
+                throws InvocationTargetException, IllegalAccessException {
+            if (indexedWriteClass == null ||
+                    !indexedWriteClass.isInstance(bean) ||
+                    !isAssignable(indexedWriteType, indexedWritePrimitive,
+                                  value)) {
+                fallback.set(bean, i, value);
+                return;
+            }
+            try {
+                if (indexedWriteFunction != null) {
+                    indexedWriteFunction.set(bean, i, value);
+                } else {
+                    indexedWrite.invokeExact(bean, i, value);
+                }
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+    }
+}
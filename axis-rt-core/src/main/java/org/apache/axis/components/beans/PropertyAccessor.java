@@ -0,0 +1,53 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.components.beans;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Reads and writes one property of a bean class.  Accessors are created
+ * once per property by an {@link AccessorGenerator} and are thread-safe.
+ * <p>
+ * The methods behave like <code>Method.invoke()</code>: an exception thrown
+ * by the bean is wrapped in an InvocationTargetException, and an
+ * IllegalAccessException is thrown if the property has no such accessor.
+ */
+public interface PropertyAccessor {
+    /**
+     * @return the value of the property of <code>bean</code>
+     */
+    public Object get(Object bean)
+            throws InvocationTargetException, IllegalAccessException;
+
+    /**
+     * Set the value of the property of <code>bean</code>.
+     */
+    public void set(Object bean, Object value)
+            throws InvocationTargetException, IllegalAccessException;
+
+    /**
+     * @return the value at index <code>i</code> of an indexed property
+     */
+    public Object get(Object bean, int i)
+            throws InvocationTargetException, IllegalAccessException;
+
+    /**
+     * Set the value at index <code>i</code> of an indexed property.
+     */
+    public void set(Object bean, int i, Object value)
+            throws InvocationTargetException, IllegalAccessException;
+}
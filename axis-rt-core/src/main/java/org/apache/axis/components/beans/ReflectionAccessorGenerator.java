@@ -0,0 +1,133 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.components.beans;
+
+import org.apache.axis.utils.Messages;
+
+import java.beans.IndexedPropertyDescriptor;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Creates accessors which use <code>Method.invoke()</code> and
+ * <code>Field.get()/set()</code>.
+ */
+public class ReflectionAccessorGenerator implements AccessorGenerator {
+    private static final Object[] noArgs = new Object[] {};
+
+    public PropertyAccessor createAccessor(PropertyDescriptor pd) {
+        Method indexedRead = null;
+        Method indexedWrite = null;
+        if (pd instanceof IndexedPropertyDescriptor) {
+            indexedRead = ((IndexedPropertyDescriptor)pd).getIndexedReadMethod();
+            indexedWrite = ((IndexedPropertyDescriptor)pd).getIndexedWriteMethod();
+        }
+        return new MethodAccessor(pd.getReadMethod(), pd.getWriteMethod(),
+                                  indexedRead, indexedWrite);
+    }
+
+    public PropertyAccessor createAccessor(Field field) {
+        return new FieldAccessor(field);
+    }
+
+    /**
+     * Calls the accessor methods of a bean property.
+     */
+    static class MethodAccessor implements PropertyAccessor {
+        private final Method read;
+        private final Method write;
+        private final Method indexedRead;
+        private final Method indexedWrite;
+
+        MethodAccessor(Method read, Method write,
+                       Method indexedRead, Method indexedWrite) {
+            this.read = read;
+            this.write = write;
+            this.indexedRead = indexedRead;
+            this.indexedWrite = indexedWrite;
+        }
+
+        public Object get(Object bean)
+                throws InvocationTargetException, IllegalAccessException {
+            if (read == null) {
+                throw new IllegalAccessException(
+                        Messages.getMessage("badGetter00"));
+            }
+            return read.invoke(bean, noArgs);
+        }
+
+        public void set(Object bean, Object value)
+                throws InvocationTargetException, IllegalAccessException {
+            if (write == null) {
+                throw new IllegalAccessException(
+                        Messages.getMessage("badSetter00"));
+            }
+            write.invoke(bean, new Object[] {value});
+        }
+
+        public Object get(Object bean, int i)
+                throws InvocationTargetException, IllegalAccessException {
+            if (indexedRead == null) {
+                throw new IllegalAccessException(
+                        Messages.getMessage("badGetter00"));
+            }
+            return indexedRead.invoke(bean, new Object[] {Integer.valueOf(i)});
+        }
+
+        public void set(Object bean, int i, Object value)
+                throws InvocationTargetException, IllegalAccessException {
+            if (indexedWrite == null) {
+                throw new IllegalAccessException(
+                        Messages.getMessage("badSetter00"));
+            }
+            indexedWrite.invoke(bean, new Object[] {Integer.valueOf(i), value});
+        }
+    }
+
+    /**
+     * Reads and writes a public field.
+     */
+    static class FieldAccessor implements PropertyAccessor {
+        private final Field field;
+
+        FieldAccessor(Field field) {
+            this.field = field;
+        }
+
+        public Object get(Object bean) throws IllegalAccessException {
+            return field.get(bean);
+        }
+
+        public void set(Object bean, Object value)
+                throws IllegalAccessException {
+            field.set(bean, value);
+        }
+
+        public Object get(Object bean, int i) throws IllegalAccessException {
+            throw new IllegalAccessException(
+                    Messages.getMessage("badGetter00"));
+        }
+
+        public void set(Object bean, int i, Object value)
+                throws IllegalAccessException {
+            throw new IllegalAccessException(
+                    Messages.getMessage("badSetter00"));
+        }
+    }
+}
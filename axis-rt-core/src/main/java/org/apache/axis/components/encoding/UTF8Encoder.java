@@ -18,6 +18,7 @@ package org.apache.axis.components.encoding;
 import org.apache.axis.i18n.Messages;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 
 /**
@@ -27,7 +28,7 @@ import java.io.Writer;
  * @see <a href="http://encoding.org">encoding.org</a>
  * @see <a href="http://czyborra.com/utf/#UTF-8">UTF 8 explained</a>
  */
-class UTF8Encoder extends AbstractXMLEncoder {
+class UTF8Encoder extends AbstractXMLEncoder implements XMLByteEncoder {
     /**
      * gets the encoding supported by this encoder
      * 
@@ -48,6 +49,10 @@ class UTF8Encoder extends AbstractXMLEncoder {
         if (xmlString == null) {
             return;
         }
+        if (writer instanceof UTF8Writer) {
+            ((UTF8Writer) writer).writeEncoded(xmlString);
+            return;
+        }
         int length = xmlString.length();
         char character;
         for (int i = 0; i < length; i++) {
@@ -93,4 +98,13 @@ class UTF8Encoder extends AbstractXMLEncoder {
             }
         }
     }
+
+    /**
+     * get a writer encoding straight into a stream
+     *
+     * @param os stream to write to
+     */
+    public Writer getWriter(OutputStream os) {
+        return new UTF8Writer(os);
+    }
 }
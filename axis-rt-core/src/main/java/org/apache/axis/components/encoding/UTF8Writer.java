@@ -0,0 +1,274 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.axis.components.encoding;
+
+import org.apache.axis.i18n.Messages;
+import org.apache.axis.utils.StripedPool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * A Writer encoding characters into UTF-8 bytes itself, in a buffer which
+ * is written to the underlying stream when it is full or flushed.  The
+ * buffers are pooled: a writer only holds one while it has unflushed data.
+ * <p>
+ * {@link #writeEncoded(String)} escapes XML text as it copies it into the
+ * buffer, so that text nodes are written without building escaped
+ * strings.  Strings of ASCII characters, the common case, are copied a
+ * char to a byte.
+ */
+public class UTF8Writer extends Writer {
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final StripedPool bufferPool =
+        new StripedPool(2 * Runtime.getRuntime().availableProcessors()) {
+            protected Object create() {
+                return new byte[BUFFER_SIZE];
+            }
+        };
+
+    private static final byte[] AMP = bytes(AbstractXMLEncoder.AMP);
+    private static final byte[] QUOTE = bytes(AbstractXMLEncoder.QUOTE);
+    private static final byte[] LESS = bytes(AbstractXMLEncoder.LESS);
+    private static final byte[] GREATER = bytes(AbstractXMLEncoder.GREATER);
+    private static final byte[] HEX = bytes("0123456789ABCDEF");
+
+    private final OutputStream os;
+    private byte[] buf;
+    private int count = 0;
+    /** a high surrogate waiting for the rest of its pair, or 0 */
+    private char highSurrogate = 0;
+
+    /**
+     * @param os the stream to write to
+     */
+    public UTF8Writer(OutputStream os) {
+        super(os);
+        this.os = os;
+    }
+
+    private static byte[] bytes(String ascii) {
+        byte[] b = new byte[ascii.length()];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = (byte) ascii.charAt(i);
+        }
+        return b;
+    }
+
+    /**
+     * Make room for at least <code>n</code> more bytes.
+     */
+    private void ensure(int n) throws IOException {
+        if (buf == null) {
+            buf = (byte[]) bufferPool.borrow();
+        } else if (count + n > buf.length) {
+            os.write(buf, 0, count);
+            count = 0;
+        }
+    }
+
+    public void write(int c) throws IOException {
+        ensure(4);
+        if (c < 0x80 && highSurrogate == 0) {
+            buf[count++] = (byte) c;
+        } else {
+            encode((char) c);
+        }
+    }
+
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        int end = off + len;
+        while (off < end) {
+            ensure(4);
+            int n = Math.min(end - off, (buf.length - count) >> 2);
+            for (int stop = off + n; off < stop; off++) {
+                char c = cbuf[off];
+                if (c < 0x80 && highSurrogate == 0) {
+                    buf[count++] = (byte) c;
+                } else {
+                    encode(c);
+                }
+            }
+        }
+    }
+
+    public void write(String str, int off, int len) throws IOException {
+        int end = off + len;
+        while (off < end) {
+            ensure(4);
+            int n = Math.min(end - off, (buf.length - count) >> 2);
+            for (int stop = off + n; off < stop; off++) {
+                char c = str.charAt(off);
+                if (c < 0x80 && highSurrogate == 0) {
+                    buf[count++] = (byte) c;
+                } else {
+                    encode(c);
+                }
+            }
+        }
+    }
+
+    public void write(String str) throws IOException {
+        write(str, 0, str.length());
+    }
+
+    /**
+     * Encode a char which isn't plain ASCII, or which follows a high
+     * surrogate.  There must be room for 4 bytes in the buffer.  Unpaired
+     * surrogates are written as '?', as an OutputStreamWriter would.
+     */
+    private void encode(char c) {
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int cp = Character.toCodePoint(high, c);
+                buf[count++] = (byte) (0xF0 | (cp >> 18));
+                buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[count++] = (byte) (0x80 | (cp & 0x3F));
+                return;
+            }
+            buf[count++] = '?';
+        }
+        if (c < 0x80) {
+            buf[count++] = (byte) c;
+        } else if (c < 0x800) {
+            buf[count++] = (byte) (0xC0 | (c >> 6));
+            buf[count++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buf[count++] = '?';
+        } else {
+            buf[count++] = (byte) (0xE0 | (c >> 12));
+            buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buf[count++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    /**
+     * Write a string escaped for use as XML text or as an attribute value,
+     * the way {@link UTF8Encoder} does: markup characters are replaced by
+     * entity references, and non-ASCII characters by character references.
+     *
+     * @param xmlString the string to write, nothing is written if null
+     * @throws IllegalArgumentException if the string contains a control
+     *         character not allowed in XML
+     */
+    public void writeEncoded(String xmlString) throws IOException {
+        if (xmlString == null) {
+            return;
+        }
+        int length = xmlString.length();
+        int i = 0;
+        while (i < length) {
+            // room for the longest escape, "&#xFFFF;"
+            ensure(8);
+            int stop = Math.min(length, i + ((buf.length - count) >> 3));
+            for (; i < stop; i++) {
+                char c = xmlString.charAt(i);
+                if (c >= 0x20 && c <= 0x7F) {
+                    switch (c) {
+                        case '&':
+                            count = append(AMP, count);
+                            break;
+                        case '"':
+                            count = append(QUOTE, count);
+                            break;
+                        case '<':
+                            count = append(LESS, count);
+                            break;
+                        case '>':
+                            count = append(GREATER, count);
+                            break;
+                        default:
+                            buf[count++] = (byte) c;
+                    }
+                } else if (c == '\n' || c == '\r' || c == '\t') {
+                    buf[count++] = (byte) c;
+                } else if (c < 0x20) {
+                    throw new IllegalArgumentException(Messages.getMessage(
+                            "invalidXmlCharacter00",
+                            Integer.toHexString(c),
+                            xmlString.substring(0, i)));
+                } else {
+                    count = appendCharRef(c, count);
+                }
+            }
+        }
+    }
+
+    private int append(byte[] bytes, int pos) {
+        System.arraycopy(bytes, 0, buf, pos, bytes.length);
+        return pos + bytes.length;
+    }
+
+    private int appendCharRef(char c, int pos) {
+        byte[] b = buf;
+        b[pos++] = '&';
+        b[pos++] = '#';
+        b[pos++] = 'x';
+        int shift = 12;
+        while (shift > 0 && (c >> shift) == 0) {
+            shift -= 4;
+        }
+        for (; shift >= 0; shift -= 4) {
+            b[pos++] = HEX[(c >> shift) & 0xF];
+        }
+        b[pos++] = ';';
+        return pos;
+    }
+
+    /**
+     * Write the buffered bytes to the stream and flush it.  The buffer goes
+     * back to the pool until more is written.
+     */
+    public void flush() throws IOException {
+        flushBuffer();
+        os.flush();
+    }
+
+    private void flushBuffer() throws IOException {
+        if (buf != null) {
+            byte[] b = buf;
+            int n = count;
+            buf = null;
+            count = 0;
+            try {
+                if (n > 0) {
+                    os.write(b, 0, n);
+                }
+            } finally {
+                bufferPool.release(b);
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            write('?');
+        }
+        try {
+            flushBuffer();
+        } finally {
+            os.close();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.axis.components.encoding;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * An {@link XMLEncoder} which can write straight to a byte stream, rather
+ * than through an <code>OutputStreamWriter</code>.  Pluggable encoders may
+ * implement it to serialize messages without converting them to chars and
+ * back.
+ *
+ * @see XMLEncoderFactory#getWriter(OutputStream, String)
+ */
+public interface XMLByteEncoder extends XMLEncoder {
+    /**
+     * Get a writer encoding characters into a stream.  Flushing the writer
+     * flushes the stream, closing it closes the stream.
+     *
+     * @param os the stream to write to
+     * @return the writer
+     */
+    public Writer getWriter(OutputStream os) throws IOException;
+}
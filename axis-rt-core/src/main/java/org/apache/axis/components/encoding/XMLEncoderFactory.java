@@ -23,7 +23,12 @@ import org.apache.commons.discovery.resource.ClassLoaders;
 import org.apache.commons.discovery.resource.names.DiscoverServiceNames;
 import org.apache.commons.logging.Log;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -84,6 +89,24 @@ public class XMLEncoderFactory {
         return encoder;
     }
 
+    /**
+     * Get a writer encoding characters into a stream.  Encoders which
+     * implement {@link XMLByteEncoder} provide their own writer, others
+     * are written through a buffered <code>OutputStreamWriter</code>.
+     *
+     * @param os the stream to write to
+     * @param encoding the encoding to use
+     * @return a writer which must be flushed once done
+     */
+    public static Writer getWriter(OutputStream os, String encoding)
+            throws IOException {
+        XMLEncoder encoder = getEncoder(encoding);
+        if (encoder instanceof XMLByteEncoder) {
+            return ((XMLByteEncoder) encoder).getWriter(os);
+        }
+        return new BufferedWriter(new OutputStreamWriter(os, encoding));
+    }
+
     /**
      Look for file META-INF/services/org.apache.axis.components.encoding.XMLEncoder
      in all the JARS, get the classes listed in those files and add them to 
@@ -29,11 +29,13 @@ public class Scope extends Enum {
     public static final String APPLICATION_STR = "Application";
     public static final String SESSION_STR = "Session";
     public static final String FACTORY_STR = "Factory";
+    public static final String POOLED_STR = "Pooled";
 
     public static final Scope REQUEST = type.getScope(REQUEST_STR);
     public static final Scope APPLICATION = type.getScope(APPLICATION_STR);
     public static final Scope SESSION = type.getScope(SESSION_STR);
     public static final Scope FACTORY = type.getScope(FACTORY_STR);
+    public static final Scope POOLED = type.getScope(POOLED_STR);
 
     public static final Scope DEFAULT = REQUEST;
 
@@ -78,7 +80,8 @@ public class Scope extends Enum {
                 new Scope(0, REQUEST_STR),
                 new Scope(1, APPLICATION_STR),
                 new Scope(2, SESSION_STR),
-                new Scope(3, FACTORY_STR)
+                new Scope(3, FACTORY_STR),
+                new Scope(4, POOLED_STR)
             });
         }
 
@@ -70,6 +70,8 @@ public class WSDDDeployment
         WSDDService oldService = (WSDDService) services.get(service.getQName());
         if (oldService != null) {
             oldService.removeNamespaceMappings(this);
+            oldService.clearWSDLCache();
+            oldService.closeServiceObjectPool();
         }
         services.put(service.getQName(), service);
     }
@@ -126,6 +128,8 @@ public class WSDDDeployment
         WSDDService service = (WSDDService) services.get(qname);
         if (service != null) {
             service.removeNamespaceMappings(this);
+            service.clearWSDLCache();
+            service.closeServiceObjectPool();
             services.remove(qname);
         }
     }
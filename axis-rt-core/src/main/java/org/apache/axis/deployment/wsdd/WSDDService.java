@@ -491,6 +491,8 @@ public class WSDDService
             }
         }
 
+        // Fill in the service description and build its dispatch tables
+        // now, so that a service which can't be dispatched to fails to deploy
         try {
             service.getInitializedServiceDesc(MessageContext.getCurrentContext());
         } catch (AxisFault axisFault) {
@@ -634,6 +636,30 @@ public class WSDDService
         super.deployToRegistry(registry);
     }
 
+    /**
+     * Drop any WSDL cached by the service created from this deployment
+     * item, so that the next request regenerates it.
+     */
+    public void clearWSDLCache()
+    {
+        SOAPService service = cachedService;
+        if (service != null) {
+            service.clearWSDLCache();
+        }
+    }
+
+    /**
+     * Destroy the pooled service objects of the service created from this
+     * deployment item.
+     */
+    public void closeServiceObjectPool()
+    {
+        SOAPService service = cachedService;
+        if (service != null) {
+            service.closeServiceObjectPool();
+        }
+    }
+
     public void removeNamespaceMappings(WSDDDeployment registry)
     {
         for (int i = 0; i < namespaces.size(); i++) {
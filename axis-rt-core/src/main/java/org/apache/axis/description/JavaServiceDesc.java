@@ -47,6 +47,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
 
 
@@ -106,6 +107,12 @@ public class JavaServiceDesc implements ServiceDesc {
     private HashMap name2OperationsMap = null;
     private HashMap qname2OperationsMap = null;
     private transient HashMap method2OperationMap = new HashMap();
+
+    /**
+     * Read-only lookup tables built by {@link #buildDispatchIndex()}, and
+     * dropped whenever the operations change.
+     */
+    private transient volatile DispatchIndex dispatchIndex = null;
     
     // THE FOLLOWING STUFF IS ALL JAVA-SPECIFIC, AND WILL BE FACTORED INTO
     // A JAVA-SPECIFIC SUBCLASS.  --Glen
@@ -163,6 +170,7 @@ public class JavaServiceDesc implements ServiceDesc {
     }
 
     public void setStyle(Style style) {
+        dispatchIndex = null;
         this.style = style;
         if (!useSet) {
             // Use hasn't been explicitly set, so track style
@@ -245,6 +253,7 @@ public class JavaServiceDesc implements ServiceDesc {
             throw new IllegalArgumentException(
                     Messages.getMessage("implAlreadySet"));
 
+        dispatchIndex = null;
         this.implClass = implClass;
         if (Skeleton.class.isAssignableFrom(implClass)) {
             isSkeletonClass = true;
@@ -348,6 +357,7 @@ public class JavaServiceDesc implements ServiceDesc {
     }
 
     public void removeOperationDesc(OperationDesc operation) {
+        dispatchIndex = null;
         operations.remove(operation);
         operation.setParent(null);
 
@@ -380,6 +390,7 @@ public class JavaServiceDesc implements ServiceDesc {
     
     public void addOperationDesc(OperationDesc operation)
     {
+        dispatchIndex = null;
         operations.add(operation);
         operation.setParent(this);
         if (name2OperationsMap == null) {
@@ -419,6 +430,11 @@ public class JavaServiceDesc implements ServiceDesc {
      */
     public OperationDesc [] getOperationsByName(String methodName)
     {
+        DispatchIndex index = dispatchIndex;
+        if (index != null) {
+            return copy((OperationDesc[]) index.byName.get(methodName));
+        }
+
         getSyncedOperationsForName(implClass, methodName);
 
         if (name2OperationsMap == null)
@@ -440,6 +456,13 @@ public class JavaServiceDesc implements ServiceDesc {
      */
     public OperationDesc getOperationByName(String methodName)
     {
+        DispatchIndex index = dispatchIndex;
+        if (index != null) {
+            OperationDesc[] overloads =
+                    (OperationDesc[]) index.byName.get(methodName);
+            return overloads == null ? null : overloads[0];
+        }
+
         // If we need to load up operations from introspection data, do it.
         // This returns fast if we don't need to do anything, so it's not very
         // expensive.
@@ -479,45 +502,81 @@ public class JavaServiceDesc implements ServiceDesc {
      */
     public OperationDesc [] getOperationsByQName(QName qname)
     {
+        DispatchIndex index = dispatchIndex;
+        if (index != null) {
+            OperationDesc[] overloads =
+                    (OperationDesc[]) index.byQName.get(qname);
+            if (overloads == null) {
+                // Handle the case where a single Message-style operation
+                // wants to accept anything.
+                if (index.defaultOp != null)
+                    return new OperationDesc [] { index.defaultOp };
+                overloads = (OperationDesc[])
+                        index.byLocalName.get(qname.getLocalPart());
+            }
+            return copy(overloads);
+        }
+
         // Look in our mapping of QNames -> operations.
 
         // But first, let's make sure we've initialized said mapping....
         initQNameMap();
 
         ArrayList overloads = (ArrayList)qname2OperationsMap.get(qname);
-        if (overloads == null) {
+        if (overloads == null || overloads.isEmpty()) {
             // Nothing specifically matching this QName.
-            if (name2OperationsMap != null) {
-                if ((isWrapped() ||
-                     ((style == Style.MESSAGE) &&
-                      (getDefaultNamespace() == null)))) {
-                    // Try ignoring the namespace....?
-                    overloads = (ArrayList) name2OperationsMap.get(qname.getLocalPart());
-                } else {
-                    // TODO the above code is weird: a JavaServiceDesc can  be document or rpc and
-                    // still define a WSDL operation using a wrapper style  mapping.
-                    // The following code handles this case.
-                    Object ops = name2OperationsMap.get(qname.getLocalPart());
-                    if (ops != null) {
-                        overloads = new ArrayList((Collection) ops);
-                        for (Iterator iter = overloads.iterator(); iter.hasNext();) {
-                            OperationDesc operationDesc = (OperationDesc) iter.next();
-                            if (Style.WRAPPED != operationDesc.getStyle()) {
-                                iter.remove();
-                            }
-                        }
-                    }
-                }
-            }
+            overloads = getOperationsByLocalName(qname.getLocalPart());
+
             // Handle the case where a single Message-style operation wants
             // to accept anything.
             if ((style == Style.MESSAGE) && (messageServiceDefaultOp != null))
                 return new OperationDesc [] { messageServiceDefaultOp };
 
-            if (overloads == null)
+            if (overloads == null || overloads.isEmpty())
                 return null;
         }
 
+        return sortOverloads(overloads);
+    }
+
+    /**
+     * Find the operations matching a body element whose QName isn't the
+     * element QName of any operation.
+     */
+    private ArrayList getOperationsByLocalName(String localPart)
+    {
+        ArrayList overloads = null;
+        if (name2OperationsMap != null) {
+            if ((isWrapped() ||
+                 ((style == Style.MESSAGE) &&
+                  (getDefaultNamespace() == null)))) {
+                // Try ignoring the namespace....?
+                overloads = (ArrayList) name2OperationsMap.get(localPart);
+            } else {
+                // TODO the above code is weird: a JavaServiceDesc can  be document or rpc and
+                // still define a WSDL operation using a wrapper style  mapping.
+                // The following code handles this case.
+                Object ops = name2OperationsMap.get(localPart);
+                if (ops != null) {
+                    overloads = new ArrayList((Collection) ops);
+                    for (Iterator iter = overloads.iterator(); iter.hasNext();) {
+                        OperationDesc operationDesc = (OperationDesc) iter.next();
+                        if (Style.WRAPPED != operationDesc.getStyle()) {
+                            iter.remove();
+                        }
+                    }
+                }
+            }
+        }
+        return overloads;
+    }
+
+    /**
+     * @return the overloads of an operation, synchronized with the
+     *         implementation class, fewest parameters first
+     */
+    private OperationDesc [] sortOverloads(ArrayList overloads)
+    {
         getSyncedOperationsForName(implClass,
                                    ((OperationDesc)overloads.get(0)).getName());
 
@@ -543,6 +602,120 @@ public class JavaServiceDesc implements ServiceDesc {
         return array;
     }
 
+    /**
+     * Return all operations which have a parameter with this QName, which
+     * is how bodies of DOCUMENT style services are dispatched.
+     * @return null for no match
+     */
+    public OperationDesc [] getOperationsByParamQName(QName qname)
+    {
+        DispatchIndex index = dispatchIndex;
+        if (index != null) {
+            return copy((OperationDesc[]) index.byParamQName.get(qname));
+        }
+
+        ArrayList allOperations = getOperations();
+        ArrayList foundOperations = new ArrayList();
+        for (int i=0; i < allOperations.size(); i++ ) {
+            OperationDesc tryOp =
+                (OperationDesc) allOperations.get(i);
+            if (tryOp.getParamByQName(qname) != null) {
+                foundOperations.add(tryOp);
+            }
+        }
+        if (foundOperations.size() == 0) {
+            return null;
+        }
+        return (OperationDesc[]) foundOperations.toArray(
+                new OperationDesc[foundOperations.size()]);
+    }
+
+    /**
+     * Return all operations deployed with this SOAPAction.
+     * @return null for no match
+     */
+    public OperationDesc [] getOperationsBySoapAction(String soapAction)
+    {
+        if (soapAction == null || soapAction.length() == 0) {
+            return null;
+        }
+        DispatchIndex index = dispatchIndex;
+        if (index != null) {
+            return copy((OperationDesc[]) index.bySoapAction.get(soapAction));
+        }
+
+        ArrayList found = new ArrayList();
+        for (Iterator i = getOperations().iterator(); i.hasNext();) {
+            OperationDesc operation = (OperationDesc) i.next();
+            if (soapAction.equals(operation.getSoapAction())) {
+                found.add(operation);
+            }
+        }
+        if (found.isEmpty()) {
+            return null;
+        }
+        return (OperationDesc[]) found.toArray(new OperationDesc[found.size()]);
+    }
+
+    private static OperationDesc [] copy(OperationDesc [] operations) {
+        return operations == null ? null :
+                (OperationDesc[]) operations.clone();
+    }
+
+    /**
+     * Introspect the implementation class, if that hasn't been done yet,
+     * and build the tables used to find the operation a request is for.
+     * From then on, until the operations change, looking operations up by
+     * element QName, name, parameter QName or SOAPAction neither locks nor
+     * introspects.
+     *
+     * @throws InternalException if a deployed operation doesn't match a
+     *         method of the implementation class
+     */
+    public synchronized void buildDispatchIndex() {
+        if (dispatchIndex != null || implClass == null) {
+            return;
+        }
+        loadServiceDescByIntrospection();
+        initQNameMap();
+        dispatchIndex = new DispatchIndex();
+    }
+
+    /**
+     * Called by an operation of this service when its element QName or
+     * SOAPAction changes, so that it is looked up by the new ones.
+     *
+     * @param oldElementQName the element QName the operation had before
+     */
+    synchronized void operationChanged(OperationDesc operation,
+                                       QName oldElementQName) {
+        dispatchIndex = null;
+        QName qname = operation.getElementQName();
+        if (qname2OperationsMap == null
+                || (qname == null ? oldElementQName == null
+                                  : qname.equals(oldElementQName))) {
+            return;
+        }
+        ArrayList list = (ArrayList)qname2OperationsMap.get(oldElementQName);
+        if (list == null || !list.remove(operation)) {
+            return;
+        }
+        list = (ArrayList)qname2OperationsMap.get(qname);
+        if (list == null) {
+            list = new ArrayList();
+            qname2OperationsMap.put(qname, list);
+        }
+        list.add(operation);
+    }
+
+    /**
+     * @return true if operations are looked up in the tables built by
+     *         {@link #buildDispatchIndex()}
+     */
+    public boolean hasDispatchIndex() {
+        return dispatchIndex != null;
+    }
+
     private synchronized void initQNameMap() {
         if (qname2OperationsMap == null) {
             loadServiceDescByIntrospection();
@@ -1433,6 +1606,7 @@ public class JavaServiceDesc implements ServiceDesc {
     }
 
     public void setNamespaceMappings(List namespaces) {
+        dispatchIndex = null;
         namespaceMappings = namespaces;
     }
 
@@ -1443,6 +1617,7 @@ public class JavaServiceDesc implements ServiceDesc {
     }
 
     public void setDefaultNamespace(String namespace) {
+        dispatchIndex = null;
         if (namespaceMappings == null)
             namespaceMappings = new ArrayList();
         namespaceMappings.add(0, namespace);
@@ -1484,4 +1659,73 @@ public class JavaServiceDesc implements ServiceDesc {
     public boolean isInitialized() {
         return implClass != null;
     }
+
+    /**
+     * Operations by the keys requests are dispatched on.  The tables are
+     * filled in once and only read afterwards.
+     */
+    private class DispatchIndex {
+        final HashMap byQName = new HashMap();
+        final HashMap byLocalName = new HashMap();
+        final HashMap byName = new HashMap();
+        final HashMap byParamQName = new HashMap();
+        final HashMap bySoapAction = new HashMap();
+        final OperationDesc defaultOp;
+
+        DispatchIndex() {
+            for (Iterator i = qname2OperationsMap.entrySet().iterator();
+                 i.hasNext();) {
+                Map.Entry entry = (Map.Entry) i.next();
+                ArrayList overloads = (ArrayList) entry.getValue();
+                if (!overloads.isEmpty()) {
+                    byQName.put(entry.getKey(), sortOverloads(overloads));
+                }
+            }
+            if (name2OperationsMap != null) {
+                for (Iterator i = name2OperationsMap.entrySet().iterator();
+                     i.hasNext();) {
+                    Map.Entry entry = (Map.Entry) i.next();
+                    ArrayList overloads = (ArrayList) entry.getValue();
+                    byName.put(entry.getKey(), overloads.toArray(
+                            new OperationDesc[overloads.size()]));
+                    overloads = getOperationsByLocalName(
+                            (String) entry.getKey());
+                    if (overloads != null && !overloads.isEmpty()) {
+                        byLocalName.put(entry.getKey(),
+                                        sortOverloads(overloads));
+                    }
+                }
+            }
+            for (Iterator i = operations.iterator(); i.hasNext();) {
+                OperationDesc operation = (OperationDesc) i.next();
+                for (Iterator p = operation.getParameters().iterator();
+                     p.hasNext();) {
+                    add(byParamQName, ((ParameterDesc) p.next()).getQName(),
+                        operation);
+                }
+                String soapAction = operation.getSoapAction();
+                if (soapAction != null && soapAction.length() > 0) {
+                    add(bySoapAction, soapAction, operation);
+                }
+            }
+            defaultOp = style == Style.MESSAGE ? messageServiceDefaultOp : null;
+        }
+
+        private void add(HashMap map, Object key, OperationDesc operation) {
+            OperationDesc[] ops = (OperationDesc[]) map.get(key);
+            if (ops == null) {
+                map.put(key, new OperationDesc[] { operation });
+            } else {
+                for (int i = 0; i < ops.length; i++) {
+                    if (ops[i] == operation) {
+                        return;
+                    }
+                }
+                OperationDesc[] more = new OperationDesc[ops.length + 1];
+                System.arraycopy(ops, 0, more, 0, ops.length);
+                more[ops.length] = operation;
+                map.put(key, more);
+            }
+        }
+    }
 }
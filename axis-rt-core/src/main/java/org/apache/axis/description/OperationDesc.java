@@ -193,7 +193,11 @@ public class OperationDesc implements Serializable {
     }
 
     public void setElementQName(QName elementQName) {
+        QName oldElementQName = this.elementQName;
         this.elementQName = elementQName;
+        if (parent instanceof JavaServiceDesc) {
+            ((JavaServiceDesc) parent).operationChanged(this, oldElementQName);
+        }
     }
 
     public ServiceDesc getParent() {
@@ -210,6 +214,9 @@ public class OperationDesc implements Serializable {
 
     public void setSoapAction(String soapAction) {
         this.soapAction = soapAction;
+        if (parent instanceof JavaServiceDesc) {
+            ((JavaServiceDesc) parent).operationChanged(this, elementQName);
+        }
     }
 
     public void setStyle(Style style)
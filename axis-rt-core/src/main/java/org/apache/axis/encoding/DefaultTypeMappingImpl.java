@@ -34,6 +34,8 @@ import org.apache.axis.encoding.ser.HexDeserializerFactory;
 import org.apache.axis.encoding.ser.HexSerializerFactory;
 import org.apache.axis.encoding.ser.JAFDataHandlerDeserializerFactory;
 import org.apache.axis.encoding.ser.JAFDataHandlerSerializerFactory;
+import org.apache.axis.encoding.ser.JavaTimeDeserializerFactory;
+import org.apache.axis.encoding.ser.JavaTimeSerializerFactory;
 import org.apache.axis.encoding.ser.MapDeserializerFactory;
 import org.apache.axis.encoding.ser.MapSerializerFactory;
 import org.apache.axis.encoding.ser.QNameDeserializerFactory;
@@ -201,6 +203,15 @@ public class DefaultTypeMappingImpl extends TypeMappingImpl {
         myRegister(Constants.XSD_ANYTYPE,    java.lang.Object.class,
                    null, null);
 
+        // LocalDate goes first, so that dates still deserialize to
+        // java.util.Date unless a LocalDate is asked for.
+        myRegister(Constants.XSD_DATE,       java.time.LocalDate.class,
+                   new JavaTimeSerializerFactory(java.time.LocalDate.class,
+                                                 Constants.XSD_DATE),
+                   new JavaTimeDeserializerFactory(java.time.LocalDate.class,
+                                                   Constants.XSD_DATE)
+        );
+
         // See the SchemaVersion classes for where the registration of
         // dateTime (for 2001) and timeInstant (for 1999 & 2000) happen.
         myRegister(Constants.XSD_DATE,       java.sql.Date.class,
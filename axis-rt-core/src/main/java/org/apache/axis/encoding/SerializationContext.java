@@ -1275,6 +1275,28 @@ public class SerializationContext implements javax.xml.rpc.encoding.Serializatio
         onlyXML=false;
     }
 
+    /**
+     * Write out characters which need no escaping, such as the digits of a
+     * number, without making a String of them.
+     * @param chars character array to write
+     * @param start starting index in array
+     * @param length length to write
+     */
+    public void writeUnescapedChars(char [] chars, int start, int length)
+        throws IOException
+    {
+        if (startOfDocument && sendXMLDecl) {
+            writeXMLDeclaration();
+        }
+
+        if (writingStartTag) {
+            writer.write('>');
+            writingStartTag = false;
+        }
+        writer.write(chars, start, length);
+        onlyXML=false;
+    }
+
     /**
      * Convenience operation to write out (to Writer) the String
      * properly encoded with xml entities (like &amp)
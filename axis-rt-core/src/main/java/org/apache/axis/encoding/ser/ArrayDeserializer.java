@@ -64,6 +64,17 @@ public class ArrayDeserializer extends DeserializerImpl
     ArrayList mDimFactor = null;  // If set, array of factors for multi-dim []
     SOAPConstants soapConstants = SOAPConstants.SOAP11_CONSTANTS;
 
+    /**
+     * The items of a one dimensional array of a primitive type, as long as
+     * they can all be parsed as they arrive; null otherwise.
+     */
+    PrimitiveArrayBuffer primitives = null;
+    /** the last xsi:type of an item found to match the primitive type */
+    private QName primitiveItemType = null;
+    /** the characters of the current primitive item */
+    private char[] itemChars = null;
+    private int itemLength = 0;
+
     /**
      * This method is invoked after startElement when the element requires
      * deserialization (i.e. the element is not an href & the value is not nil)
@@ -327,6 +338,16 @@ public class ArrayDeserializer extends DeserializerImpl
             }
         }
 
+        // Items of primitive types are parsed straight into a primitive
+        // array, unless one of them needs the general machinery.
+        if (mDimLength == null && arrayClass.isArray() &&
+                arrayClass.getComponentType().isPrimitive() &&
+                (defaultItemType == null ||
+                 isPrimitiveItemType(defaultItemType, context))) {
+            primitives = PrimitiveArrayBuffer.newInstance(
+                    arrayClass.getComponentType(), length);
+        }
+
         // If soapenc:offset specified, set the current index accordingly
         String offset = Constants.getValue(attributes,
                                          Constants.URIS_SOAP_ENC,
@@ -423,6 +444,17 @@ public class ArrayDeserializer extends DeserializerImpl
                                                        localName,
                                                        attributes);
 
+        if (primitives != null) {
+            if (context.getCurElement().getHref() == null &&
+                    (attributes == null ||
+                     attributes.getValue(Constants.ATTR_ID) == null) &&
+                    (itemType == null ||
+                     isPrimitiveItemType(itemType, context))) {
+                return new PrimitiveItemHandler(curIndex++);
+            }
+            inflatePrimitives();
+        }
+
         // Get the deserializer for the type. 
         Deserializer dSer = null;
         if (itemType != null && (context.getCurElement().getHref() == null)) {
@@ -523,6 +555,7 @@ public class ArrayDeserializer extends DeserializerImpl
         if (log.isDebugEnabled()) {
             log.debug("Enter: ArrayDeserializer::setValue(" + value + ", " + hint + ")");
         }
+        inflatePrimitives();
         ArrayList list = (ArrayList)this.value;
         int offset = ((Integer)hint).intValue();
 
@@ -570,7 +603,10 @@ public class ArrayDeserializer extends DeserializerImpl
      **/
     public void valueComplete() throws SAXException
     { 
-        if (componentsReady()) {
+        if (primitives != null) {
+            value = primitives.toArray();
+            primitives = null;
+        } else if (componentsReady()) {
            try {
                 if (arrayClass != null) {
                     value = JavaUtils.convert(value, arrayClass);
@@ -583,6 +619,80 @@ public class ArrayDeserializer extends DeserializerImpl
         super.valueComplete();
     }
 
+    /**
+     * Does an item type stand for the primitive component type of the
+     * array, or its wrapper?
+     */
+    private boolean isPrimitiveItemType(QName itemType,
+                                        DeserializationContext context) {
+        if (itemType.equals(primitiveItemType)) {
+            return true;
+        }
+        Class componentType = arrayClass.getComponentType();
+        Class cls = context.getTypeMapping().getClassForQName(itemType);
+        if (cls != null && (cls == componentType ||
+                cls == JavaUtils.getWrapperClass(componentType))) {
+            primitiveItemType = itemType;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Stop parsing items into a primitive array, and move those parsed so
+     * far into the list of items.
+     */
+    private void inflatePrimitives() {
+        if (primitives != null) {
+            primitives.addTo((ArrayList) value);
+            primitives = null;
+        }
+    }
+
+    /**
+     * Handles an item of an array of a primitive type.  The characters are
+     * kept in a buffer shared by all the items, and parsed into the
+     * primitive array at the end of the element.
+     */
+    class PrimitiveItemHandler extends SOAPHandler {
+        private final int index;
+
+        PrimitiveItemHandler(int index) {
+            this.index = index;
+            itemLength = 0;
+        }
+
+        public void characters(char[] chars, int start, int length) {
+            if (itemChars == null) {
+                itemChars = new char[Math.max(32, length)];
+            } else if (itemLength + length > itemChars.length) {
+                char[] newChars = new char[Math.max(itemChars.length * 2,
+                                                    itemLength + length)];
+                System.arraycopy(itemChars, 0, newChars, 0, itemLength);
+                itemChars = newChars;
+            }
+            System.arraycopy(chars, start, itemChars, itemLength, length);
+            itemLength += length;
+        }
+
+        public void endElement(String namespace, String localName,
+                               DeserializationContext context)
+            throws SAXException
+        {
+            super.endElement(namespace, localName, context);
+            try {
+                if (primitives != null &&
+                        primitives.parse(index, itemChars, 0, itemLength)) {
+                    return;
+                }
+            } catch (NumberFormatException e) {
+                throw new SAXException(e);
+            }
+            // an empty item deserializes to null, as with SimpleDeserializer
+            setChildValue(null, Integer.valueOf(index));
+        }
+    }
+
     /**
      * Converts the given string to an index.
      * Assumes the string consists of a brackets surrounding comma 
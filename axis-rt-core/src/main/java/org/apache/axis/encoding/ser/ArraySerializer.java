@@ -404,7 +404,12 @@ public class ArraySerializer implements Serializer
         }
 
 
-        if (dim2Len < 0) {
+        if (dim2Len < 0 && list == null &&
+                isPrimitiveArray(cls, componentTypeQName, context)) {
+            // Write the items straight from the primitive array
+            serializePrimitives(elementName, serializeAttr, value,
+                                componentTypeQName, context);
+        } else if (dim2Len < 0) {
             // Normal case, serialize each array element
             if (list == null) {
                 for (int index = 0; index < len; index++) {
@@ -443,6 +448,72 @@ public class ArraySerializer implements Serializer
             context.endElement();
     }
 
+    /**
+     * Can the items of an array be written without boxing them?  This is
+     * the case for one dimensional arrays of primitives with a plain
+     * schema type, which context.serialize() would write as simple values.
+     */
+    private static boolean isPrimitiveArray(Class cls, QName itemType,
+                                            SerializationContext context) {
+        Class componentClass = cls.getComponentType();
+        if (!componentClass.isPrimitive() || componentClass == char.class ||
+                Constants.equals(Constants.XSD_ANYTYPE, itemType)) {
+            return false;
+        }
+        Object factory = context.getTypeMapping().getSerializer(componentClass,
+                                                                itemType);
+        if (!(factory instanceof SimpleSerializerFactory) ||
+                !itemType.equals(((SimpleSerializerFactory) factory).getXMLType())) {
+            return false;
+        }
+        // Wrappers of soap encoded types may be multi-ref'd
+        return !context.getDoMultiRefs() || !context.isEncoded() ||
+               context.isPrimitive(Array.get(Array.newInstance(componentClass, 1), 0));
+    }
+
+    /**
+     * Write each item of a primitive array as an element, as
+     * context.serialize() would, without boxing.
+     */
+    private void serializePrimitives(QName elementName, Attributes itemAttrs,
+                                     Object value, QName itemType,
+                                     SerializationContext context)
+        throws IOException
+    {
+        Class componentClass = value.getClass().getComponentType();
+        boolean sendType = context.shouldSendXSIType();
+        int len = Array.getLength(value);
+        char[] buf = new char[32];
+        for (int index = 0; index < len; index++) {
+            Attributes attrs = itemAttrs == null ?
+                    null : new AttributesImpl(itemAttrs);
+            if (sendType) {
+                attrs = context.setTypeAttribute(attrs, itemType);
+            }
+            int n;
+            if (componentClass == int.class) {
+                n = PrimitiveArrayBuffer.format(((int[]) value)[index], buf);
+            } else if (componentClass == double.class) {
+                n = PrimitiveArrayBuffer.format(((double[]) value)[index], buf);
+            } else if (componentClass == long.class) {
+                n = PrimitiveArrayBuffer.format(((long[]) value)[index], buf);
+            } else if (componentClass == float.class) {
+                n = PrimitiveArrayBuffer.format(((float[]) value)[index], buf);
+            } else if (componentClass == short.class) {
+                n = PrimitiveArrayBuffer.format(((short[]) value)[index], buf);
+            } else if (componentClass == byte.class) {
+                n = PrimitiveArrayBuffer.format(((byte[]) value)[index], buf);
+            } else {
+                String s = ((boolean[]) value)[index] ? "true" : "false";
+                n = s.length();
+                s.getChars(0, n, buf, 0);
+            }
+            context.startElement(elementName, attrs);
+            context.writeUnescapedChars(buf, 0, n);
+            context.endElement();
+        }
+    }
+
     public String getMechanismType() { return Constants.AXIS_SAX; }
 
     private static boolean isArray(Class clazz)
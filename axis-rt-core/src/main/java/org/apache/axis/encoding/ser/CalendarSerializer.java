@@ -19,16 +19,15 @@ package org.apache.axis.encoding.ser;
 import org.apache.axis.Constants;
 import org.apache.axis.encoding.SerializationContext;
 import org.apache.axis.encoding.SimpleValueSerializer;
+import org.apache.axis.utils.DateTimeCodec;
 import org.apache.axis.wsdl.fromJava.Types;
 import org.w3c.dom.Element;
 import org.xml.sax.Attributes;
 
 import javax.xml.namespace.QName;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.TimeZone;
 
 /**
  * Serializer for dateTime (Calendar).
@@ -39,14 +38,6 @@ import java.util.TimeZone;
  */
 public class CalendarSerializer implements SimpleValueSerializer {
 
-    private static SimpleDateFormat zulu =
-       new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
-                         //  0123456789 0 123456789
-
-    static {
-        zulu.setTimeZone(TimeZone.getTimeZone("GMT"));
-    }
-
     /**
      * Serialize a Date.
      */
@@ -54,20 +45,25 @@ public class CalendarSerializer implements SimpleValueSerializer {
                           Object value, SerializationContext context)
         throws IOException
     {
+        char[] buf = new char[DateTimeCodec.MAX_LENGTH];
+        int length = DateTimeCodec.formatDateTime(getTime(value), buf, 0);
         context.startElement(name, attributes);
-        context.writeString(getValueAsString(value, context));
+        context.writeUnescapedChars(buf, 0, length);
         context.endElement();
     }
 
     public String getValueAsString(Object value, SerializationContext context) {
-        Date date = value instanceof Date ? (Date) value :
-                ((Calendar) value).getTime();
+        char[] buf = new char[DateTimeCodec.MAX_LENGTH];
+        int length = DateTimeCodec.formatDateTime(getTime(value), buf, 0);
+        return new String(buf, 0, length);
+    }
 
-        // Serialize including convert to GMT
-        synchronized (zulu) {
-            // Sun JDK bug http://developer.java.sun.com/developer/bugParade/bugs/4229798.html
-            return zulu.format(date);
-        }
+    /**
+     * Serialize including convert to GMT
+     */
+    private static long getTime(Object value) {
+        return value instanceof Date ? ((Date) value).getTime() :
+                ((Calendar) value).getTimeInMillis();
     }
 
     public String getMechanismType() { return Constants.AXIS_SAX; }
@@ -16,13 +16,13 @@
 
 package org.apache.axis.encoding.ser;
 
-import org.apache.axis.utils.Messages;
+import org.apache.axis.utils.DateTimeCodec;
 
 import javax.xml.namespace.QName;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.TimeZone;
 /**
  * The DateSerializer deserializes a Date.  Much of the work is done in the 
  * base class.                                               
@@ -32,11 +32,8 @@ import java.util.GregorianCalendar;
  */
 public class DateDeserializer extends SimpleDeserializer {
 
-    private static SimpleDateFormat zulu = 
-        new SimpleDateFormat("yyyy-MM-dd");
-                          //  0123456789 0 123456789
-
-    private static Calendar calendar = Calendar.getInstance();
+    /** dates are midnight in the time zone the JVM started in */
+    private static final TimeZone zone = TimeZone.getDefault();
 
     /**
      * The Deserializer is constructed with the xmlType and 
@@ -51,53 +48,43 @@ public class DateDeserializer extends SimpleDeserializer {
      * We just need to override makeValue().
      */
     public Object makeValue(String source) { 
-        Object result;
-        boolean bc = false;
-        
-        // validate fixed portion of format
-        if ( source != null ) {
-            if (source.length() < 10)
-                throw new NumberFormatException(
-                           Messages.getMessage("badDate00"));
-    
-            if (source.charAt(0) == '+')
-                source = source.substring(1);
+        char[] chars = source == null ? new char[0] : source.toCharArray();
+        return makeValue(chars, 0, chars.length);
+    }
 
-            if (source.charAt(0) == '-') {
-                source = source.substring(1);
-                bc = true;
-            }
+    /**
+     * Parse the date where the parser left it.
+     */
+    protected Object makeValue(char[] chars, int start, int length) {
+        // trim whitespace
+        while (length > 0 && Character.isWhitespace(chars[start])) {
+            start++;
+            length--;
+        }
+        while (length > 0 && Character.isWhitespace(chars[start + length - 1])) {
+            length--;
+        }
+
+        long time = DateTimeCodec.parseDate(chars, start, length, zone);
+
+        // support dates before the Christian era
+        Calendar calendar = null;
+        if (chars[start] == '-') {
+            calendar = new GregorianCalendar(zone);
+            calendar.setTimeInMillis(time);
+            calendar.set(Calendar.ERA, GregorianCalendar.BC);
+            time = calendar.getTimeInMillis();
+        }
 
-            if (source.charAt(4) != '-' || source.charAt(7) != '-')
-                throw new NumberFormatException(
-                                                Messages.getMessage("badDate00"));
-            
+        if (javaType == java.util.Date.class) {
+            return new Date(time);
+        } else if (javaType == java.sql.Date.class) {
+            return new java.sql.Date(time);
         }
-        
-        synchronized (calendar) {
-            // convert what we have validated so far
-            try {
-                result = zulu.parse(source == null ? null :
-                                    (source.substring(0,10)) );
-            } catch (Exception e) {
-                throw new NumberFormatException(e.toString());
-            }
-            
-            // support dates before the Christian era
-            if (bc) {
-                calendar.setTime((Date)result);
-                calendar.set(Calendar.ERA, GregorianCalendar.BC);
-                result = calendar.getTime();
-            }
-            if (javaType == java.util.Date.class) {
-                return result;
-            } else if (javaType == java.sql.Date.class) {
-               	result = new java.sql.Date(((Date)result).getTime());
-            } else {
-                calendar.setTime((Date)result);
-                result = calendar;
-            }
+        if (calendar == null) {
+            calendar = Calendar.getInstance(zone);
+            calendar.setTimeInMillis(time);
         }
-        return result;
+        return calendar;
     }
-}
\ No newline at end of file
+}
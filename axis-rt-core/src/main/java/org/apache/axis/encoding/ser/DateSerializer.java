@@ -19,16 +19,16 @@ package org.apache.axis.encoding.ser;
 import org.apache.axis.Constants;
 import org.apache.axis.encoding.SerializationContext;
 import org.apache.axis.encoding.SimpleValueSerializer;
+import org.apache.axis.utils.DateTimeCodec;
 import org.apache.axis.wsdl.fromJava.Types;
 import org.w3c.dom.Element;
 import org.xml.sax.Attributes;
 
 import javax.xml.namespace.QName;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.GregorianCalendar;
+import java.util.TimeZone;
 
 /**
  * Serializer for Dates.
@@ -39,10 +39,8 @@ import java.util.GregorianCalendar;
  */
 public class DateSerializer implements SimpleValueSerializer {
 
-    private static SimpleDateFormat zulu =
-       new SimpleDateFormat("yyyy-MM-dd");
-
-    private static Calendar calendar = Calendar.getInstance();
+    /** dates are written in the time zone the JVM started in */
+    private static final TimeZone zone = TimeZone.getDefault();
 
     /**
      * Serialize a Date.
@@ -51,26 +49,22 @@ public class DateSerializer implements SimpleValueSerializer {
                           Object value, SerializationContext context)
         throws IOException
     {
+        char[] buf = new char[DateTimeCodec.MAX_LENGTH];
+        int length = DateTimeCodec.formatDate(getTime(value), zone, buf, 0);
         context.startElement(name, attributes);
-        context.writeString(getValueAsString(value, context));
+        context.writeUnescapedChars(buf, 0, length);
         context.endElement();
     }
 
     public String getValueAsString(Object value, SerializationContext context) {
-        StringBuffer buf = new StringBuffer();
-        synchronized (calendar) {
-            if(value instanceof Calendar) {
-                value = ((Calendar)value).getTime();
-            } 
-            if (calendar.get(Calendar.ERA) == GregorianCalendar.BC) {
-                buf.append("-");
-                calendar.setTime((Date)value);
-                calendar.set(Calendar.ERA, GregorianCalendar.AD);
-                value = calendar.getTime();
-            }
-            buf.append(zulu.format((Date)value));
-        }
-        return buf.toString();
+        char[] buf = new char[DateTimeCodec.MAX_LENGTH];
+        int length = DateTimeCodec.formatDate(getTime(value), zone, buf, 0);
+        return new String(buf, 0, length);
+    }
+
+    private static long getTime(Object value) {
+        return value instanceof Calendar ?
+                ((Calendar) value).getTimeInMillis() : ((Date) value).getTime();
     }
 
     public String getMechanismType() { return Constants.AXIS_SAX; }
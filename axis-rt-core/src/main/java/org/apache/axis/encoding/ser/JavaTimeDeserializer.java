@@ -0,0 +1,74 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.encoding.ser;
+
+import org.apache.axis.utils.DateTimeCodec;
+
+import javax.xml.namespace.QName;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+/**
+ * The JavaTimeDeserializer deserializes a dateTime into an Instant or an
+ * OffsetDateTime, and a date into a LocalDate.
+ *
+ * @see DateTimeCodec
+ */
+public class JavaTimeDeserializer extends SimpleDeserializer {
+
+    /**
+     * The Deserializer is constructed with the xmlType and
+     * javaType
+     */
+    public JavaTimeDeserializer(Class javaType, QName xmlType) {
+        super(javaType, xmlType);
+    }
+
+    /**
+     * The simple deserializer provides most of the stuff.
+     * We just need to override makeValue().
+     */
+    public Object makeValue(String source) {
+        char[] chars = source == null ? new char[0] : source.toCharArray();
+        return makeValue(chars, 0, chars.length);
+    }
+
+    /**
+     * Parse the value where the parser left it.
+     */
+    protected Object makeValue(char[] chars, int start, int length) {
+        // trim whitespace
+        while (length > 0 && Character.isWhitespace(chars[start])) {
+            start++;
+            length--;
+        }
+        while (length > 0 && Character.isWhitespace(chars[start + length - 1])) {
+            length--;
+        }
+
+        if (javaType == LocalDate.class) {
+            return DateTimeCodec.parseLocalDate(chars, start, length);
+        }
+        OffsetDateTime value =
+                DateTimeCodec.parseOffsetDateTime(chars, start, length);
+        if (javaType == Instant.class) {
+            return value.toInstant();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.encoding.ser;
+
+import org.apache.axis.Constants;
+import org.apache.axis.encoding.SerializationContext;
+import org.apache.axis.encoding.SimpleValueSerializer;
+import org.apache.axis.utils.DateTimeCodec;
+import org.apache.axis.wsdl.fromJava.Types;
+import org.w3c.dom.Element;
+import org.xml.sax.Attributes;
+
+import javax.xml.namespace.QName;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+/**
+ * Serializer for the java.time types: Instant and OffsetDateTime as
+ * dateTime, LocalDate as date.
+ *
+ * @see DateTimeCodec
+ */
+public class JavaTimeSerializer implements SimpleValueSerializer {
+
+    /**
+     * Serialize a java.time value.
+     */
+    public void serialize(QName name, Attributes attributes,
+                          Object value, SerializationContext context)
+        throws IOException
+    {
+        char[] buf = new char[DateTimeCodec.MAX_LENGTH];
+        int length = format(value, buf);
+        context.startElement(name, attributes);
+        context.writeUnescapedChars(buf, 0, length);
+        context.endElement();
+    }
+
+    public String getValueAsString(Object value, SerializationContext context) {
+        char[] buf = new char[DateTimeCodec.MAX_LENGTH];
+        int length = format(value, buf);
+        return new String(buf, 0, length);
+    }
+
+    private static int format(Object value, char[] buf) {
+        if (value instanceof Instant) {
+            return DateTimeCodec.formatDateTime((Instant) value, buf, 0);
+        } else if (value instanceof OffsetDateTime) {
+            return DateTimeCodec.formatDateTime((OffsetDateTime) value, buf, 0);
+        }
+        return DateTimeCodec.formatDate((LocalDate) value, buf, 0);
+    }
+
+    public String getMechanismType() { return Constants.AXIS_SAX; }
+
+    /**
+     * Return XML schema for the specified type, suitable for insertion into
+     * the &lt;types&gt; element of a WSDL document, or underneath an
+     * &lt;element&gt; or &lt;attribute&gt; declaration.
+     *
+     * @param javaType the Java Class we're writing out schema for
+     * @param types the Java2WSDL Types object which holds the context
+     *              for the WSDL being generated.
+     * @return a type element containing a schema simpleType/complexType
+     * @see org.apache.axis.wsdl.fromJava.Types
+     */
+    public Element writeSchema(Class javaType, Types types) throws Exception {
+        return null;
+    }
+}
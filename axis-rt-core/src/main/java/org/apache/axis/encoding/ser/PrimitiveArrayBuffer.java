@@ -0,0 +1,611 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.encoding.ser;
+
+import org.apache.axis.utils.Messages;
+
+import java.lang.reflect.Array;
+import java.util.List;
+
+/**
+ * A growable array of a primitive type, used by {@link ArrayDeserializer}
+ * to collect the items of an array such as <code>int[]</code> or
+ * <code>double[]</code> without boxing each of them.
+ * <p>
+ * The items are parsed straight from the characters received from the
+ * parser, with the same rules as {@link SimpleDeserializer}: leading and
+ * trailing whitespace is ignored, and NaN, INF and -INF are accepted for
+ * floats and doubles.  Numbers in a form the fast parsers don't handle are
+ * handed to the usual <code>parseXxx(String)</code> methods.
+ * <p>
+ * The static <code>format</code> methods write numbers to a char array in
+ * the form {@link SimpleSerializer} uses, for {@link ArraySerializer}.
+ */
+public abstract class PrimitiveArrayBuffer {
+    /** the largest array preallocated, whatever the XML claims */
+    private static final int MAX_INITIAL_CAPACITY = 50000;
+
+    /** the number of items, including unset ones before the last one set */
+    protected int size = 0;
+
+    /**
+     * Get a buffer for a primitive type.
+     *
+     * @param componentType the primitive type of the items
+     * @param capacity the expected number of items
+     * @return a buffer, or null if the type is not supported
+     */
+    public static PrimitiveArrayBuffer newInstance(Class componentType,
+                                                   int capacity) {
+        capacity = Math.max(0, Math.min(capacity, MAX_INITIAL_CAPACITY));
+        if (componentType == int.class) {
+            return new IntBuffer(capacity);
+        } else if (componentType == double.class) {
+            return new DoubleBuffer(capacity);
+        } else if (componentType == long.class) {
+            return new LongBuffer(capacity);
+        } else if (componentType == float.class) {
+            return new FloatBuffer(capacity);
+        } else if (componentType == short.class) {
+            return new ShortBuffer(capacity);
+        } else if (componentType == byte.class) {
+            return new ByteBuffer(capacity);
+        } else if (componentType == boolean.class) {
+            return new BooleanBuffer(capacity);
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of items
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Parse an item and store it at the given index, growing the buffer
+     * if necessary.
+     *
+     * @param index the index of the item
+     * @param chars the characters of the item
+     * @param start the first character
+     * @param length the number of characters
+     * @return false if the characters are all whitespace, in which case
+     *         nothing is stored
+     * @throws NumberFormatException if the item is not valid
+     */
+    public boolean parse(int index, char[] chars, int start, int length) {
+        int end = start + length;
+        while (start < end && chars[start] <= ' ') {
+            start++;
+        }
+        while (end > start && chars[end - 1] <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return false;
+        }
+        if (index >= capacity()) {
+            grow(Math.max(index + 1, capacity() * 2));
+        }
+        set(index, chars, start, end - start);
+        if (index >= size) {
+            size = index + 1;
+        }
+        return true;
+    }
+
+    /**
+     * Append the items, boxed, to a list, e.g. because an item can't be
+     * stored in this buffer.
+     */
+    public void addTo(List list) {
+        Object array = toArray();
+        for (int i = 0; i < size; i++) {
+            list.add(Array.get(array, i));
+        }
+    }
+
+    /**
+     * @return a primitive array of <code>size()</code> items
+     */
+    public abstract Object toArray();
+
+    protected abstract int capacity();
+
+    protected abstract void grow(int capacity);
+
+    /**
+     * Parse the trimmed characters of an item into the given slot.
+     */
+    protected abstract void set(int index, char[] chars, int start,
+                                int length);
+
+    static final class IntBuffer extends PrimitiveArrayBuffer {
+        private int[] items;
+
+        IntBuffer(int capacity) {
+            items = new int[capacity];
+        }
+
+        protected int capacity() {
+            return items.length;
+        }
+
+        protected void grow(int capacity) {
+            int[] a = new int[capacity];
+            System.arraycopy(items, 0, a, 0, size);
+            items = a;
+        }
+
+        protected void set(int index, char[] chars, int start, int length) {
+            long v = parseLong(chars, start, length);
+            if (v < Integer.MIN_VALUE || v > Integer.MAX_VALUE || v == NOT_PARSED) {
+                items[index] = Integer.parseInt(new String(chars, start, length));
+            } else {
+                items[index] = (int) v;
+            }
+        }
+
+        public Object toArray() {
+            int[] a = new int[size];
+            System.arraycopy(items, 0, a, 0, size);
+            return a;
+        }
+    }
+
+    static final class LongBuffer extends PrimitiveArrayBuffer {
+        private long[] items;
+
+        LongBuffer(int capacity) {
+            items = new long[capacity];
+        }
+
+        protected int capacity() {
+            return items.length;
+        }
+
+        protected void grow(int capacity) {
+            long[] a = new long[capacity];
+            System.arraycopy(items, 0, a, 0, size);
+            items = a;
+        }
+
+        protected void set(int index, char[] chars, int start, int length) {
+            long v = parseLong(chars, start, length);
+            if (v == NOT_PARSED) {
+                v = Long.parseLong(new String(chars, start, length));
+            }
+            items[index] = v;
+        }
+
+        public Object toArray() {
+            long[] a = new long[size];
+            System.arraycopy(items, 0, a, 0, size);
+            return a;
+        }
+    }
+
+    static final class ShortBuffer extends PrimitiveArrayBuffer {
+        private short[] items;
+
+        ShortBuffer(int capacity) {
+            items = new short[capacity];
+        }
+
+        protected int capacity() {
+            return items.length;
+        }
+
+        protected void grow(int capacity) {
+            short[] a = new short[capacity];
+            System.arraycopy(items, 0, a, 0, size);
+            items = a;
+        }
+
+        protected void set(int index, char[] chars, int start, int length) {
+            long v = parseLong(chars, start, length);
+            if (v < Short.MIN_VALUE || v > Short.MAX_VALUE || v == NOT_PARSED) {
+                items[index] = Short.parseShort(new String(chars, start, length));
+            } else {
+                items[index] = (short) v;
+            }
+        }
+
+        public Object toArray() {
+            short[] a = new short[size];
+            System.arraycopy(items, 0, a, 0, size);
+            return a;
+        }
+    }
+
+    static final class ByteBuffer extends PrimitiveArrayBuffer {
+        private byte[] items;
+
+        ByteBuffer(int capacity) {
+            items = new byte[capacity];
+        }
+
+        protected int capacity() {
+            return items.length;
+        }
+
+        protected void grow(int capacity) {
+            byte[] a = new byte[capacity];
+            System.arraycopy(items, 0, a, 0, size);
+            items = a;
+        }
+
+        protected void set(int index, char[] chars, int start, int length) {
+            long v = parseLong(chars, start, length);
+            if (v < Byte.MIN_VALUE || v > Byte.MAX_VALUE || v == NOT_PARSED) {
+                items[index] = Byte.parseByte(new String(chars, start, length));
+            } else {
+                items[index] = (byte) v;
+            }
+        }
+
+        public Object toArray() {
+            byte[] a = new byte[size];
+            System.arraycopy(items, 0, a, 0, size);
+            return a;
+        }
+    }
+
+    static final class DoubleBuffer extends PrimitiveArrayBuffer {
+        private double[] items;
+
+        DoubleBuffer(int capacity) {
+            items = new double[capacity];
+        }
+
+        protected int capacity() {
+            return items.length;
+        }
+
+        protected void grow(int capacity) {
+            double[] a = new double[capacity];
+            System.arraycopy(items, 0, a, 0, size);
+            items = a;
+        }
+
+        protected void set(int index, char[] chars, int start, int length) {
+            items[index] = parseDouble(chars, start, length);
+        }
+
+        public Object toArray() {
+            double[] a = new double[size];
+            System.arraycopy(items, 0, a, 0, size);
+            return a;
+        }
+    }
+
+    static final class FloatBuffer extends PrimitiveArrayBuffer {
+        private float[] items;
+
+        FloatBuffer(int capacity) {
+            items = new float[capacity];
+        }
+
+        protected int capacity() {
+            return items.length;
+        }
+
+        protected void grow(int capacity) {
+            float[] a = new float[capacity];
+            System.arraycopy(items, 0, a, 0, size);
+            items = a;
+        }
+
+        protected void set(int index, char[] chars, int start, int length) {
+            items[index] = parseFloat(chars, start, length);
+        }
+
+        public Object toArray() {
+            float[] a = new float[size];
+            System.arraycopy(items, 0, a, 0, size);
+            return a;
+        }
+    }
+
+    static final class BooleanBuffer extends PrimitiveArrayBuffer {
+        private boolean[] items;
+
+        BooleanBuffer(int capacity) {
+            items = new boolean[capacity];
+        }
+
+        protected int capacity() {
+            return items.length;
+        }
+
+        protected void grow(int capacity) {
+            boolean[] a = new boolean[capacity];
+            System.arraycopy(items, 0, a, 0, size);
+            items = a;
+        }
+
+        protected void set(int index, char[] chars, int start, int length) {
+            // the same lame test as SimpleDeserializer
+            switch (chars[start]) {
+                case '0': case 'f': case 'F':
+                    items[index] = false;
+                    break;
+                case '1': case 't': case 'T':
+                    items[index] = true;
+                    break;
+                default:
+                    throw new NumberFormatException(
+                            Messages.getMessage("badBool00"));
+            }
+        }
+
+        public Object toArray() {
+            boolean[] a = new boolean[size];
+            System.arraycopy(items, 0, a, 0, size);
+            return a;
+        }
+    }
+
+    /** returned by parseLong for what it doesn't handle */
+    static final long NOT_PARSED = Long.MIN_VALUE;
+
+    /**
+     * Parse an optionally signed decimal integer of at most 18 digits.
+     *
+     * @return the value, or NOT_PARSED if the characters are not such an
+     *         integer
+     */
+    static long parseLong(char[] chars, int start, int length) {
+        int i = start;
+        int end = start + length;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        if (i == end || end - i > 18) {
+            return NOT_PARSED;
+        }
+        long v = 0;
+        for (; i < end; i++) {
+            int d = chars[i] - '0';
+            if (d < 0 || d > 9) {
+                return NOT_PARSED;
+            }
+            v = v * 10 + d;
+        }
+        return negative ? -v : v;
+    }
+
+    private static final double[] DOUBLE_POWERS = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final float[] FLOAT_POWERS = {
+        1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    /**
+     * Parse a double, as SimpleDeserializer does.
+     */
+    static double parseDouble(char[] chars, int start, int length) {
+        Decimal d = Decimal.parse(chars, start, length);
+        if (d != null) {
+            // both the digits and the power of ten are exact doubles, so
+            // there is a single, correct, rounding
+            if (d.mantissa == 0) {
+                return d.negative ? -0.0 : 0.0;
+            }
+            if (d.mantissa < (1L << 53) && d.exponent >= -22 && d.exponent <= 22) {
+                double v = d.exponent < 0
+                    ? d.mantissa / DOUBLE_POWERS[-d.exponent]
+                    : d.mantissa * DOUBLE_POWERS[d.exponent];
+                return d.negative ? -v : v;
+            }
+        }
+        String source = new String(chars, start, length);
+        if (source.equals("NaN")) {
+            return Double.NaN;
+        } else if (source.equals("INF")) {
+            return Double.POSITIVE_INFINITY;
+        } else if (source.equals("-INF")) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return Double.parseDouble(source);
+    }
+
+    /**
+     * Parse a float, as SimpleDeserializer does.
+     */
+    static float parseFloat(char[] chars, int start, int length) {
+        Decimal d = Decimal.parse(chars, start, length);
+        if (d != null) {
+            if (d.mantissa == 0) {
+                return d.negative ? -0.0f : 0.0f;
+            }
+            if (d.mantissa < (1L << 24) && d.exponent >= -10 && d.exponent <= 10) {
+                float m = d.mantissa;
+                float v = d.exponent < 0
+                    ? m / FLOAT_POWERS[-d.exponent]
+                    : m * FLOAT_POWERS[d.exponent];
+                return d.negative ? -v : v;
+            }
+        }
+        String source = new String(chars, start, length);
+        if (source.equals("NaN")) {
+            return Float.NaN;
+        } else if (source.equals("INF")) {
+            return Float.POSITIVE_INFINITY;
+        } else if (source.equals("-INF")) {
+            return Float.NEGATIVE_INFINITY;
+        }
+        return Float.parseFloat(source);
+    }
+
+    /**
+     * The digits and the power of ten of a decimal number.
+     */
+    private static final class Decimal {
+        boolean negative;
+        long mantissa;
+        int exponent;
+
+        /**
+         * Parse [+-]digits[.digits][(e|E)[+-]digits] with at most 18
+         * significant digits.
+         *
+         * @return the number, or null if not in that form
+         */
+        static Decimal parse(char[] chars, int start, int length) {
+            int i = start;
+            int end = start + length;
+            Decimal d = new Decimal();
+            if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+                d.negative = chars[i] == '-';
+                i++;
+            }
+            int digits = 0;
+            int significant = 0;
+            boolean point = false;
+            for (; i < end; i++) {
+                char c = chars[i];
+                if (c >= '0' && c <= '9') {
+                    digits++;
+                    if (d.mantissa == 0 && c == '0') {
+                        // leading zero
+                    } else if (++significant > 18) {
+                        return null;
+                    } else {
+                        d.mantissa = d.mantissa * 10 + (c - '0');
+                    }
+                    if (point) {
+                        d.exponent--;
+                    }
+                } else if (c == '.' && !point) {
+                    point = true;
+                } else {
+                    break;
+                }
+            }
+            if (digits == 0) {
+                return null;
+            }
+            if (i < end && (chars[i] == 'e' || chars[i] == 'E')) {
+                i++;
+                boolean negativeExp = false;
+                if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+                    negativeExp = chars[i] == '-';
+                    i++;
+                }
+                if (i == end || end - i > 4) {
+                    return null;
+                }
+                int exp = 0;
+                for (; i < end; i++) {
+                    int c = chars[i] - '0';
+                    if (c < 0 || c > 9) {
+                        return null;
+                    }
+                    exp = exp * 10 + c;
+                }
+                d.exponent += negativeExp ? -exp : exp;
+            }
+            return i == end ? d : null;
+        }
+    }
+
+    /**
+     * Write a long in decimal.
+     *
+     * @param buf a buffer of at least 20 chars
+     * @return the number of chars written
+     */
+    static int format(long v, char[] buf) {
+        if (v == Long.MIN_VALUE) {
+            String s = Long.toString(v);
+            s.getChars(0, s.length(), buf, 0);
+            return s.length();
+        }
+        int pos = buf.length;
+        boolean negative = v < 0;
+        if (negative) {
+            v = -v;
+        }
+        do {
+            buf[--pos] = (char) ('0' + (int) (v % 10));
+            v /= 10;
+        } while (v != 0);
+        if (negative) {
+            buf[--pos] = '-';
+        }
+        int n = buf.length - pos;
+        System.arraycopy(buf, pos, buf, 0, n);
+        return n;
+    }
+
+    /**
+     * Write a double as SimpleSerializer does.
+     *
+     * @param buf a buffer of at least 32 chars
+     * @return the number of chars written
+     */
+    static int format(double v, char[] buf) {
+        String s;
+        if (Double.isNaN(v)) {
+            s = "NaN";
+        } else if (v == Double.POSITIVE_INFINITY) {
+            s = "INF";
+        } else if (v == Double.NEGATIVE_INFINITY) {
+            s = "-INF";
+        } else if (v == (long) v && Math.abs(v) < 1e7 &&
+                   (v != 0 || 1 / v > 0)) {
+            // what Double.toString() gives for whole numbers in this range
+            int n = format((long) v, buf);
+            buf[n++] = '.';
+            buf[n++] = '0';
+            return n;
+        } else {
+            s = Double.toString(v);
+        }
+        s.getChars(0, s.length(), buf, 0);
+        return s.length();
+    }
+
+    /**
+     * Write a float as SimpleSerializer does.
+     *
+     * @param buf a buffer of at least 32 chars
+     * @return the number of chars written
+     */
+    static int format(float v, char[] buf) {
+        if (Float.isNaN(v) || Float.isInfinite(v)) {
+            return format((double) v, buf);
+        }
+        if (v == (long) v && Math.abs(v) < 1e7f && (v != 0 || 1 / v > 0)) {
+            int n = format((long) v, buf);
+            buf[n++] = '.';
+            buf[n++] = '0';
+            return n;
+        }
+        String s = Float.toString(v);
+        s.getChars(0, s.length(), buf, 0);
+        return s.length();
+    }
+}
@@ -55,7 +55,7 @@ public class SimpleDeserializer extends DeserializerImpl {
     public static final Class[] STRING_CLASS = 
         new Class [] {String.class};
 
-    private final CharArrayWriter val = new CharArrayWriter();
+    private final ValueWriter val = new ValueWriter();
     private Constructor constructor = null;
     private Map propertyMap = null;
     private HashMap attributeMap = null;
@@ -169,7 +169,7 @@ public class SimpleDeserializer extends DeserializerImpl {
             return;
         }
         try {
-            value = makeValue(val.toString());
+            value = makeValue(val.getChars(), 0, val.size());
         } catch (InvocationTargetException ite) {
             Throwable realException = ite.getTargetException();
             if (realException instanceof Exception)
@@ -184,6 +184,22 @@ public class SimpleDeserializer extends DeserializerImpl {
         setSimpleTypeAttributes();
     }
     
+    /**
+     * Convert the characters that have been accumulated into an Object.  This
+     * hands a String to {@link #makeValue(String)}; subclasses which can
+     * parse the characters where they are may override it as well.
+     * @param chars the buffer holding the serialized value, which is only
+     *              valid for the duration of the call
+     * @param start the offset of the value in the buffer
+     * @param length the length of the value
+     * @throws Exception any exception thrown by this method will be wrapped
+     */
+    protected Object makeValue(char[] chars, int start, int length)
+        throws Exception
+    {
+        return makeValue(new String(chars, start, length));
+    }
+
     /**
      * Convert the string that has been accumulated into an Object.  Subclasses
      * may override this.  Note that if the javaType is a primitive, the returned
@@ -428,5 +444,14 @@ public class SimpleDeserializer extends DeserializerImpl {
             }
         }
     }
-    
+
+    /**
+     * A CharArrayWriter which lets the accumulated characters be read
+     * without copying them.
+     */
+    private static class ValueWriter extends CharArrayWriter {
+        char[] getChars() {
+            return buf;
+        }
+    }
 }
@@ -16,9 +16,13 @@
 
 package org.apache.axis.encoding.ser;
 
+import java.util.Calendar;
+import java.util.TimeZone;
+
 import javax.xml.namespace.QName;
 
 import org.apache.axis.types.Time;
+import org.apache.axis.utils.DateTimeCodec;
 /**
  * The TimeSerializer deserializes a time. 
  * Rely on Time of types package
@@ -43,4 +47,27 @@ public class TimeDeserializer extends SimpleDeserializer {
         Time t = new Time(source);
         return t.getAsCalendar();
     }
+
+    /**
+     * Parse the time where the parser left it.
+     */
+    protected Object makeValue(char[] chars, int start, int length) {
+        // trim whitespace
+        while (length > 0 && Character.isWhitespace(chars[start])) {
+            start++;
+            length--;
+        }
+        while (length > 0 && Character.isWhitespace(chars[start + length - 1])) {
+            length--;
+        }
+
+        long time = DateTimeCodec.parseTime(chars, start, length);
+        Calendar calendar = Calendar.getInstance();
+        if (chars[start + length - 1] == 'Z') {
+            calendar.setTimeZone(TimeZone.getTimeZone("GMT"));
+        }
+        calendar.setTimeInMillis(time);
+        calendar.set(0,0,0);    // ignore year, month, date
+        return calendar;
+    }
 }
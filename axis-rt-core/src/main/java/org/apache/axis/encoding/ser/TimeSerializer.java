@@ -16,9 +16,7 @@
 package org.apache.axis.encoding.ser;
 
 import java.io.IOException;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
-import java.util.TimeZone;
 
 import javax.xml.namespace.QName;
 
@@ -28,6 +26,7 @@ import org.xml.sax.Attributes;
 import org.apache.axis.Constants;
 import org.apache.axis.encoding.SerializationContext;
 import org.apache.axis.encoding.SimpleValueSerializer;
+import org.apache.axis.utils.DateTimeCodec;
 import org.apache.axis.wsdl.fromJava.Types;
 
 /**
@@ -36,17 +35,6 @@ import org.apache.axis.wsdl.fromJava.Types;
 */
 public class TimeSerializer implements SimpleValueSerializer {
 
-    /**
-     * Parser
-     */
-    private static SimpleDateFormat zulu = new SimpleDateFormat("HH:mm:ss.SSS'Z'");
-
-    // We should always format dates in the GMT timezone
-    static {
-        zulu.setTimeZone(TimeZone.getTimeZone("GMT"));
-    }
-
-    
     /**
      * Serialize a Time.
      */
@@ -54,17 +42,23 @@ public class TimeSerializer implements SimpleValueSerializer {
                           Object value, SerializationContext context)
         throws IOException
     {
+        char[] buf = new char[DateTimeCodec.MAX_LENGTH];
+        int length = DateTimeCodec.formatTime(getTime(value), buf, 0);
         context.startElement(name, attributes);
-        context.writeString(getValueAsString(value, context));
+        context.writeUnescapedChars(buf, 0, length);
         context.endElement();
     }
 
     public String getValueAsString(Object value, SerializationContext context) {
-        StringBuffer buf = new StringBuffer();
+        char[] buf = new char[DateTimeCodec.MAX_LENGTH];
+        int length = DateTimeCodec.formatTime(getTime(value), buf, 0);
+        return new String(buf, 0, length);
+    }
+
+    private static long getTime(Object value) {
         // Reset year, month, day
         ((Calendar) value).set(0,0,0);
-        buf.append(zulu.format(((Calendar)value).getTime()));
-        return buf.toString();
+        return ((Calendar) value).getTimeInMillis();
     }
 
     public String getMechanismType() { return Constants.AXIS_SAX; }
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.handlers;
+
+import org.apache.axis.AxisFault;
+import org.apache.axis.Message;
+import org.apache.axis.MessageContext;
+import org.apache.axis.components.logger.LogFactory;
+import org.apache.axis.utils.Messages;
+import org.apache.commons.logging.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A Handler which logs the request and response messages to a file, like
+ * {@link LogHandler}, without making requests wait for the disk: records
+ * are written by a background thread through an {@link AsyncLogWriter}.
+ * <p>
+ * Deploy it like LogHandler, in both the request and response flows or in
+ * just the response flow.  The options, all prefixed with
+ * "AsyncLogHandler.", are:
+ * <ul>
+ * <li>fileName - the file to append to, "axis.log" by default</li>
+ * <li>format - "text", the LogHandler format and the default, or
+ *     "binary", see {@link Record}</li>
+ * <li>queueSize - records which may wait to be written, 8192 by default</li>
+ * <li>dropPolicy - "dropNewest" (the default), "dropOldest" or "block",
+ *     what to do when the queue is full</li>
+ * <li>maxFileSize - roll the file over at this size in bytes</li>
+ * <li>rollInterval - roll the file over this often, in milliseconds</li>
+ * <li>maxBackups - how many rolled files to keep, all by default</li>
+ * <li>syncInterval - force the file to disk at most this often, in
+ *     milliseconds, 1000 by default; 0 after every batch, -1 never</li>
+ * </ul>
+ * Handlers logging to the same file share one writer, configured by the
+ * first of them to be used.
+ */
+public class AsyncLogHandler extends BasicHandler {
+    protected static Log log =
+        LogFactory.getLog(AsyncLogHandler.class.getName());
+
+    public static final String OPTION_FILE_NAME = "AsyncLogHandler.fileName";
+    public static final String OPTION_FORMAT = "AsyncLogHandler.format";
+    public static final String OPTION_QUEUE_SIZE = "AsyncLogHandler.queueSize";
+    public static final String OPTION_DROP_POLICY = "AsyncLogHandler.dropPolicy";
+    public static final String OPTION_MAX_FILE_SIZE = "AsyncLogHandler.maxFileSize";
+    public static final String OPTION_ROLL_INTERVAL = "AsyncLogHandler.rollInterval";
+    public static final String OPTION_MAX_BACKUPS = "AsyncLogHandler.maxBackups";
+    public static final String OPTION_SYNC_INTERVAL = "AsyncLogHandler.syncInterval";
+
+    /** The first bytes of a binary log file: "AXLG" and the version. */
+    public static final byte[] BINARY_HEADER = { 'A', 'X', 'L', 'G', 0, 0, 0, 1 };
+
+    /** MessageContext property holding when the request was received. */
+    private static final String START_TIME = "AsyncLogHandler.startTime";
+
+    /** writers by canonical file name */
+    private static final Map writers = new HashMap();
+
+    private String filename = "axis.log";
+    private boolean binary = false;
+    private volatile AsyncLogWriter writer;
+
+    public void init() {
+        super.init();
+
+        Object opt = this.getOption(OPTION_FILE_NAME);
+        if (opt != null && opt instanceof String)
+            filename = (String)opt;
+
+        opt = this.getOption(OPTION_FORMAT);
+        binary = opt != null && "binary".equalsIgnoreCase(opt.toString().trim());
+    }
+
+    public void invoke(MessageContext msgContext) throws AxisFault {
+        if (msgContext.getPastPivot() == false) {
+            msgContext.setProperty(START_TIME, new long[] {
+                System.currentTimeMillis(), System.nanoTime() });
+        } else {
+            logMessages(msgContext, false);
+        }
+    }
+
+    public void onFault(MessageContext msgContext) {
+        try {
+            logMessages(msgContext, true);
+        } catch (AxisFault axisFault) {
+            log.error(Messages.getMessage("exception00"), axisFault);
+        }
+    }
+
+    private void logMessages(MessageContext msgContext, boolean fault)
+            throws AxisFault {
+        try {
+            long[] start = (long[]) msgContext.getProperty(START_TIME);
+            Message inMsg = msgContext.getRequestMessage();
+            Message outMsg = msgContext.getResponseMessage();
+            byte[] record;
+            if (binary) {
+                Record r = new Record();
+                if (start != null) {
+                    r.timestamp = start[0];
+                    r.elapsed = System.nanoTime() - start[1];
+                } else {
+                    r.timestamp = System.currentTimeMillis();
+                    r.elapsed = -1;
+                }
+                r.service = msgContext.getTargetService();
+                r.fault = fault;
+                r.request = inMsg == null ? null : inMsg.getSOAPPartAsBytes();
+                r.response = outMsg == null ? null : outMsg.getSOAPPartAsBytes();
+                record = r.toBytes();
+            } else {
+                String nl = System.getProperty("line.separator");
+                StringBuffer sb = new StringBuffer();
+                sb.append("=======================================================").append(nl);
+                if (start != null) {
+                    sb.append("= ").append(Messages.getMessage("elapsed00",
+                           "" + (System.currentTimeMillis() - start[0]))).append(nl);
+                }
+                sb.append("= ").append(Messages.getMessage("inMsg00",
+                       (inMsg == null ? "null" : inMsg.getSOAPPartAsString()))).append(nl);
+                sb.append("= ").append(Messages.getMessage("outMsg00",
+                       (outMsg == null ? "null" : outMsg.getSOAPPartAsString()))).append(nl);
+                sb.append("=======================================================").append(nl);
+                record = sb.toString().getBytes();
+            }
+            getWriter().write(record);
+        } catch (AxisFault e) {
+            throw e;
+        } catch (Exception e) {
+            log.error(Messages.getMessage("exception00"), e);
+            throw AxisFault.makeFault(e);
+        }
+    }
+
+    /**
+     * @return the writer appending to the log file
+     */
+    public AsyncLogWriter getWriter() throws IOException {
+        AsyncLogWriter w = writer;
+        if (w != null && w.isRunning()) {
+            return w;
+        }
+        // first use, or the writer was closed since
+        File file = new File(filename).getCanonicalFile();
+        synchronized (writers) {
+            w = (AsyncLogWriter) writers.get(file.getPath());
+            if (w == null || !w.isRunning()) {
+                w = new AsyncLogWriter(file);
+                w.setQueueSize((int) getLongOption(OPTION_QUEUE_SIZE, 8192));
+                Object policy = getOption(OPTION_DROP_POLICY);
+                if (policy != null) {
+                    String p = policy.toString().trim();
+                    if ("block".equalsIgnoreCase(p)) {
+                        w.setDropPolicy(AsyncLogWriter.BLOCK);
+                    } else if ("dropOldest".equalsIgnoreCase(p)) {
+                        w.setDropPolicy(AsyncLogWriter.DROP_OLDEST);
+                    }
+                }
+                w.setMaxFileSize(getLongOption(OPTION_MAX_FILE_SIZE, 0));
+                w.setRollInterval(getLongOption(OPTION_ROLL_INTERVAL, 0));
+                w.setMaxBackups((int) getLongOption(OPTION_MAX_BACKUPS, 0));
+                w.setSyncInterval(getLongOption(OPTION_SYNC_INTERVAL, 1000));
+                if (binary) {
+                    w.setFileHeader(BINARY_HEADER);
+                }
+                w.start();
+                writers.put(file.getPath(), w);
+            }
+        }
+        writer = w;
+        return w;
+    }
+
+    private long getLongOption(String option, long dephault) {
+        Object value = getOption(option);
+        if (value == null) {
+            return dephault;
+        }
+        try {
+            return Long.parseLong(value.toString().trim());
+        } catch (NumberFormatException e) {
+            log.warn(Messages.getMessage("badIntegerOption00", option,
+                                         value.toString()));
+            return dephault;
+        }
+    }
+
+    /**
+     * Write the queued records and close all the log files.  Handlers
+     * used afterwards open their files again.
+     */
+    public static void closeAll() {
+        AsyncLogWriter[] all;
+        synchronized (writers) {
+            all = (AsyncLogWriter[]) writers.values().toArray(
+                    new AsyncLogWriter[writers.size()]);
+            writers.clear();
+        }
+        for (int i = 0; i < all.length; i++) {
+            all[i].close();
+        }
+    }
+
+    /**
+     * A message exchange in the binary format.  A binary log file starts
+     * with {@link #BINARY_HEADER}, followed by records made of, in network
+     * byte order:
+     * <pre>
+     * int     length of the rest of the record
+     * long    time the request was received, in ms since the epoch
+     * long    time taken to process the request, in ns, or -1
+     * boolean whether processing failed
+     * UTF     the target service, "" if unknown
+     * int     length of the request envelope, or -1 if there was none
+     * byte[]  the request envelope
+     * int     length of the response envelope, or -1 if there was none
+     * byte[]  the response envelope
+     * </pre>
+     */
+    public static class Record {
+        public long timestamp;
+        public long elapsed;
+        public boolean fault;
+        public String service;
+        public byte[] request;
+        public byte[] response;
+
+        byte[] toBytes() throws IOException {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream(
+                    64 + (request == null ? 0 : request.length) +
+                    (response == null ? 0 : response.length));
+            DataOutputStream out = new DataOutputStream(buf);
+            out.writeInt(0);
+            out.writeLong(timestamp);
+            out.writeLong(elapsed);
+            out.writeBoolean(fault);
+            out.writeUTF(service == null ? "" : service);
+            writeBytes(out, request);
+            writeBytes(out, response);
+            out.flush();
+            byte[] bytes = buf.toByteArray();
+            int length = bytes.length - 4;
+            bytes[0] = (byte) (length >>> 24);
+            bytes[1] = (byte) (length >>> 16);
+            bytes[2] = (byte) (length >>> 8);
+            bytes[3] = (byte) length;
+            return bytes;
+        }
+
+        private static void writeBytes(DataOutputStream out, byte[] bytes)
+                throws IOException {
+            if (bytes == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        /**
+         * Read the header of a binary log file.
+         *
+         * @throws IOException if it isn't a binary log file
+         */
+        public static void readHeader(DataInputStream in) throws IOException {
+            byte[] header = new byte[BINARY_HEADER.length];
+            in.readFully(header);
+            for (int i = 0; i < header.length; i++) {
+                if (header[i] != BINARY_HEADER[i]) {
+                    throw new IOException(Messages.getMessage("badLogFile00"));
+                }
+            }
+        }
+
+        /**
+         * Read the next record of a binary log file.
+         *
+         * @return the record, or null at the end of the file
+         */
+        public static Record read(DataInputStream in) throws IOException {
+            try {
+                in.readInt();
+            } catch (EOFException e) {
+                return null;
+            }
+            Record r = new Record();
+            r.timestamp = in.readLong();
+            r.elapsed = in.readLong();
+            r.fault = in.readBoolean();
+            r.service = in.readUTF();
+            r.request = readBytes(in);
+            r.response = readBytes(in);
+            return r;
+        }
+
+        private static byte[] readBytes(DataInputStream in) throws IOException {
+            int length = in.readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return bytes;
+        }
+    }
+}
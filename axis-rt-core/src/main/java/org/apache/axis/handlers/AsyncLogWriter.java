@@ -0,0 +1,486 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.handlers;
+
+import org.apache.axis.components.logger.LogFactory;
+import org.apache.axis.utils.Messages;
+import org.apache.commons.logging.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Appends records to a file from a background thread, so that the threads
+ * producing them never wait for the disk.
+ * <p>
+ * Records are handed over through a bounded queue; what happens when it is
+ * full is decided by the drop policy.  The writer thread appends them in
+ * batches to a file channel opened once, and forces them to disk at most
+ * every <code>syncInterval</code> milliseconds.  The file is rolled over,
+ * i.e. renamed with a timestamp suffix and started anew, when it reaches
+ * <code>maxFileSize</code> bytes or every <code>rollInterval</code>
+ * milliseconds; only the <code>maxBackups</code> most recent rolled files
+ * are kept.  A running writer is closed at the latest when the JVM shuts
+ * down.
+ */
+public class AsyncLogWriter {
+    protected static Log log =
+        LogFactory.getLog(AsyncLogWriter.class.getName());
+
+    /** When the queue is full, drop the record being written. */
+    public static final int DROP_NEWEST = 0;
+    /** When the queue is full, drop the oldest queued record. */
+    public static final int DROP_OLDEST = 1;
+    /** When the queue is full, wait for room. */
+    public static final int BLOCK = 2;
+
+    private static final int MAX_BATCH = 256;
+
+    private final File file;
+    private int queueSize = 8192;
+    private int dropPolicy = DROP_NEWEST;
+    private long maxFileSize = 0;
+    private long rollInterval = 0;
+    private int maxBackups = 0;
+    private long syncInterval = 1000;
+    private byte[] fileHeader = null;
+
+    private ArrayBlockingQueue queue;
+    private Thread thread;
+    private Thread shutdownHook;
+    private volatile boolean running = false;
+
+    /* Only used by the writer thread; channel is null if opening failed */
+    private FileChannel channel;
+    private long size;
+    private long nextRoll;
+    private long lastSync;
+    private boolean unsynced = false;
+    private long reportedDrops = 0;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rolls = new AtomicLong();
+
+    /**
+     * @param file the file to append to
+     */
+    public AsyncLogWriter(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Set the number of records which may wait to be written.
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = Math.max(1, queueSize);
+    }
+
+    /**
+     * Set what to do when the queue is full: {@link #DROP_NEWEST},
+     * {@link #DROP_OLDEST} or {@link #BLOCK}.
+     */
+    public void setDropPolicy(int dropPolicy) {
+        this.dropPolicy = dropPolicy;
+    }
+
+    /**
+     * Roll the file over once it reaches this size, in bytes; 0 for no limit.
+     */
+    public void setMaxFileSize(long maxFileSize) {
+        this.maxFileSize = Math.max(0, maxFileSize);
+    }
+
+    /**
+     * Roll the file over this often, in milliseconds; 0 to never do so.
+     */
+    public void setRollInterval(long rollInterval) {
+        this.rollInterval = Math.max(0, rollInterval);
+    }
+
+    /**
+     * Keep only this many rolled files; 0 keeps them all.
+     */
+    public void setMaxBackups(int maxBackups) {
+        this.maxBackups = Math.max(0, maxBackups);
+    }
+
+    /**
+     * Force written records to disk at most this often, in milliseconds;
+     * 0 does so after every batch, a negative value leaves it to the
+     * operating system.
+     */
+    public void setSyncInterval(long syncInterval) {
+        this.syncInterval = syncInterval;
+    }
+
+    /**
+     * Set bytes written at the start of every new file.
+     */
+    public void setFileHeader(byte[] fileHeader) {
+        this.fileHeader = fileHeader;
+    }
+
+    /**
+     * Open the file and start the writer thread.
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        queue = new ArrayBlockingQueue(queueSize);
+        open();
+        long now = System.currentTimeMillis();
+        lastSync = now;
+        nextRoll = rollInterval > 0 ? now + rollInterval : Long.MAX_VALUE;
+        running = true;
+        thread = new Thread(new Runnable() {
+            public void run() {
+                writeLoop();
+            }
+        }, "axis-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+        shutdownHook = new Thread(new Runnable() {
+            public void run() {
+                close();
+            }
+        }, "axis-log-writer-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Write the queued records, then stop the writer thread and close the
+     * file.  Records written afterwards are dropped, and so are those of
+     * threads waiting for room in the queue.
+     */
+    public void close() {
+        Thread t;
+        Thread hook;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            t = thread;
+            hook = shutdownHook;
+            shutdownHook = null;
+        }
+        if (hook != Thread.currentThread()) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(hook);
+            } catch (IllegalStateException e) {
+                // the JVM is shutting down
+            }
+        }
+        try {
+            t.join(10000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // queued by writers which saw the writer running, too late
+        for (Object record = queue.poll(); record != null; record = queue.poll()) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return true between start() and close()
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Queue a record.
+     *
+     * @return false if the record, or an older one, was dropped
+     */
+    public boolean write(byte[] record) {
+        if (!running) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        switch (dropPolicy) {
+        case BLOCK:
+            try {
+                // wait for room, but not past close()
+                while (running) {
+                    if (queue.offer(record, 100, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            dropped.incrementAndGet();
+            return false;
+        case DROP_OLDEST:
+            if (queue.offer(record)) {
+                return true;
+            }
+            do {
+                if (queue.poll() != null) {
+                    dropped.incrementAndGet();
+                }
+            } while (!queue.offer(record));
+            return false;
+        default:
+            if (queue.offer(record)) {
+                return true;
+            }
+            dropped.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * @return the number of records written to the file
+     */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /**
+     * @return the number of records dropped
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the number of times the file was rolled over
+     */
+    public long getRollCount() {
+        return rolls.get();
+    }
+
+    /**
+     * @return the number of records waiting to be written
+     */
+    public int getQueuedCount() {
+        ArrayBlockingQueue q = queue;
+        return q == null ? 0 : q.size();
+    }
+
+    private void writeLoop() {
+        List batch = new ArrayList(MAX_BATCH);
+        while (true) {
+            boolean stopping = !running;
+            try {
+                long wait = Math.min(1000, nextRoll - System.currentTimeMillis());
+                if (unsynced && syncInterval > 0) {
+                    wait = Math.min(wait, lastSync + syncInterval -
+                                          System.currentTimeMillis());
+                }
+                Object first = stopping ? queue.poll() :
+                    queue.poll(Math.max(wait, 1), TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    writeBatch(batch);
+                    batch.clear();
+                } else if (stopping) {
+                    break;
+                }
+
+                long now = System.currentTimeMillis();
+                if (now >= nextRoll) {
+                    roll(now);
+                }
+                if (unsynced && channel != null && syncInterval >= 0 &&
+                    now - lastSync >= syncInterval) {
+                    channel.force(false);
+                    unsynced = false;
+                    lastSync = now;
+                }
+                long drops = dropped.get();
+                if (drops != reportedDrops) {
+                    log.warn(Messages.getMessage("logRecordsDropped00",
+                            "" + (drops - reportedDrops), file.getPath()));
+                    reportedDrops = drops;
+                }
+            } catch (InterruptedException e) {
+                // only stop once the queue is empty
+            } catch (IOException e) {
+                log.error(Messages.getMessage("exception00"), e);
+                // writeBatch counted the records it couldn't write
+                batch.clear();
+                // Don't spin on a broken disk
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ie) {
+                }
+            }
+        }
+        try {
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+            }
+        } catch (IOException e) {
+            log.error(Messages.getMessage("exception00"), e);
+        }
+    }
+
+    /**
+     * Write a batch of records; those that can't be written are counted
+     * as dropped.
+     */
+    private void writeBatch(List batch) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+        int count = 0;
+        int done = 0;
+        long pending = 0;
+        try {
+            if (channel == null) {
+                // opening the file failed when it was last rolled over
+                open();
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                byte[] record = (byte[]) batch.get(i);
+                if (maxFileSize > 0 && size + pending > headerLength() &&
+                    size + pending + record.length > maxFileSize) {
+                    write(buffers, count);
+                    done += count;
+                    count = 0;
+                    pending = 0;
+                    roll(System.currentTimeMillis());
+                }
+                buffers[count++] = ByteBuffer.wrap(record);
+                pending += record.length;
+            }
+            write(buffers, count);
+        } catch (IOException e) {
+            dropped.addAndGet(batch.size() - done);
+            throw e;
+        }
+    }
+
+    private void write(ByteBuffer[] buffers, int count) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        int offset = 0;
+        while (offset < count) {
+            size += channel.write(buffers, offset, count - offset);
+            while (offset < count && !buffers[offset].hasRemaining()) {
+                offset++;
+            }
+        }
+        written.addAndGet(count);
+        unsynced = true;
+    }
+
+    private int headerLength() {
+        return fileHeader == null ? 0 : fileHeader.length;
+    }
+
+    private void open() throws IOException {
+        FileChannel fc = new FileOutputStream(file, true).getChannel();
+        try {
+            long n = fc.size();
+            if (n == 0 && fileHeader != null) {
+                n += fc.write(ByteBuffer.wrap(fileHeader));
+            }
+            size = n;
+        } catch (IOException e) {
+            fc.close();
+            throw e;
+        }
+        channel = fc;
+    }
+
+    /**
+     * Rename the current file and start a new one.  If the new file can't
+     * be opened, the next batch tries again.
+     */
+    private void roll(long now) throws IOException {
+        if (rollInterval > 0) {
+            nextRoll = now + rollInterval;
+        }
+        if (channel == null || size <= headerLength()) {
+            return;
+        }
+        FileChannel old = channel;
+        channel = null;
+        size = 0;
+        unsynced = false;
+        lastSync = now;
+        try {
+            old.force(false);
+        } finally {
+            old.close();
+        }
+
+        String base = file.getName() + "." +
+            new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(now));
+        File rolled = new File(file.getAbsoluteFile().getParentFile(), base);
+        for (int n = 1; rolled.exists(); n++) {
+            rolled = new File(file.getAbsoluteFile().getParentFile(), base + "-" + n);
+        }
+        if (!file.renameTo(rolled)) {
+            log.warn(Messages.getMessage("cantRename00", file.getPath(),
+                                         rolled.getPath()));
+        }
+        rolls.incrementAndGet();
+        open();
+        pruneBackups();
+    }
+
+    private void pruneBackups() {
+        if (maxBackups <= 0) {
+            return;
+        }
+        // only the names roll() gives, not those of other files
+        Pattern rolled = Pattern.compile(Pattern.quote(file.getName()) +
+                                         "\\.\\d{8}-\\d{6}(-\\d+)?");
+        File dir = file.getAbsoluteFile().getParentFile();
+        String[] names = dir.list();
+        if (names == null) {
+            return;
+        }
+        List backups = new ArrayList();
+        for (int i = 0; i < names.length; i++) {
+            if (rolled.matcher(names[i]).matches()) {
+                backups.add(names[i]);
+            }
+        }
+        String[] sorted = (String[]) backups.toArray(new String[backups.size()]);
+        // The timestamp suffixes sort in chronological order
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length - maxBackups; i++) {
+            new File(dir, sorted[i]).delete();
+        }
+    }
+}
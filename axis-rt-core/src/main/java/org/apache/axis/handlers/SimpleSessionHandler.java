@@ -24,19 +24,13 @@ import org.apache.axis.MessageContext;
 import org.apache.axis.components.logger.LogFactory;
 import org.apache.axis.message.SOAPEnvelope;
 import org.apache.axis.message.SOAPHeaderElement;
+import org.apache.axis.session.SessionRegistry;
 import org.apache.axis.session.SimpleSession;
 import org.apache.axis.utils.Messages;
 import org.apache.axis.utils.SessionUtils;
 import org.apache.commons.logging.Log;
 
 import javax.xml.namespace.QName;
-import javax.xml.rpc.server.ServiceLifecycle;
-import java.util.Enumeration;
-import java.util.HashSet;
-import java.util.Hashtable;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
 
 /** This handler uses SOAP headers to do simple session management.
  *
@@ -66,12 +60,19 @@ import java.util.Set;
  *     insert a session ID header with the appropriate ID.
  * </ul>
  *
- * <p>SimpleSessions are "reaped" periodically via a very simplistic
- * mechanism.  Each time the handler is invoke()d we check to see if more
- * than <b>reapPeriodicity</b> milliseconds have elapsed since the last
- * reap.  If so, we walk the collection of active Sessions, and for each
- * one, if it hasn't been "touched" (i.e. had a getProperty() or setProperty()
- * performed) in longer than its timeout, we remove it from the collection.</p>
+ * <p>SimpleSessions are kept in a {@link SessionRegistry}, which "reaps"
+ * them in the background: a session which hasn't been "touched" (i.e. had
+ * a getProperty() or setProperty() performed) in longer than its timeout
+ * is removed, at most a tenth of <b>reapPeriodicity</b> after it timed
+ * out, and is never handed out again.</p>
+ *
+ * <p>The handler takes the following options:</p>
+ * <ul>
+ * <li><b>maxSessions</b> - the maximum number of sessions kept; past it
+ *     the least recently used sessions are evicted (default: no limit)
+ * <li><b>reapPeriodicity</b> - see above, in seconds (default 30)
+ * <li><b>defaultSessionTimeout</b> - in seconds (default 60)
+ * </ul>
  *
  * @author Glen Daniels (gdaniels@apache.org)
  */
@@ -86,73 +87,81 @@ public class SimpleSessionHandler extends BasicHandler
     public static final QName sessionHeaderName = new QName(SESSION_NS,
                                                             SESSION_LOCALPART);
 
-    private Hashtable activeSessions = new Hashtable();
+    public static final String OPTION_MAX_SESSIONS = "maxSessions";
+    public static final String OPTION_REAP_PERIODICITY = "reapPeriodicity";
+    public static final String OPTION_DEFAULT_SESSION_TIMEOUT =
+            "defaultSessionTimeout";
+
+    private volatile SessionRegistry activeSessions = null;
 
-    // Reap timed-out sessions on the first request after this many
-    // seconds.
+    // Reap timed-out sessions within a tenth of this many seconds.
     private long reapPeriodicity = 30;
-    private long lastReapTime = 0;
 
     // By default, sessions time out after 1 minute of inactivity (60 sec)
     private int defaultSessionTimeout = 60;
 
+    // By default, there is no limit on the number of sessions
+    private int maxSessions = 0;
+
     /**
-     * Process a MessageContext.
+     * Get the registry of active sessions, creating it on first use from
+     * the options of this handler.
      */
-    public void invoke(MessageContext context) throws AxisFault
+    public SessionRegistry getSessionRegistry()
     {
-        // Should we reap timed out sessions?
-        long curTime = System.currentTimeMillis();
-        boolean reap = false;
-        
-        // Minimize synchronicity, just check in here, do reap later.
-        synchronized (this) {
-            if (curTime > lastReapTime + (reapPeriodicity * 1000)) {
-                reap = true;
-                lastReapTime = curTime;
-            }
-        }
-        
-        if (reap) {
-            Set entries = activeSessions.entrySet();
-            Set victims = new HashSet();
-            Object key;
-            Iterator i;
-            for (i = entries.iterator(); i.hasNext();) {
-                Map.Entry entry = (Map.Entry) i.next();
-                key = entry.getKey();
-                SimpleSession session = (SimpleSession) entry.getValue();
-                if ((curTime - session.getLastAccessTime()) >
-                     (session.getTimeout() * 1000)) {
-                    log.debug(Messages.getMessage("timeout00",
-                                                        key.toString()));
-
-                    // Don't modify the hashtable while we're iterating.
-                    victims.add(key);
+        SessionRegistry registry = activeSessions;
+        if (registry == null) {
+            synchronized (this) {
+                registry = activeSessions;
+                if (registry == null) {
+                    maxSessions = getIntOption(OPTION_MAX_SESSIONS,
+                                               maxSessions);
+                    reapPeriodicity = getIntOption(OPTION_REAP_PERIODICITY,
+                                                   (int) reapPeriodicity);
+                    defaultSessionTimeout = getIntOption(
+                            OPTION_DEFAULT_SESSION_TIMEOUT,
+                            defaultSessionTimeout);
+                    registry = new SessionRegistry(maxSessions,
+                                                   reapPeriodicity * 100);
+                    registry.start();
+                    activeSessions = registry;
                 }
             }
+        }
+        return registry;
+    }
 
-            // Now go remove all the victims we found during the iteration.
-            for (i = victims.iterator(); i.hasNext();) {
-                key = i.next();
-                SimpleSession session = (SimpleSession)activeSessions.get(key);
-                activeSessions.remove(key);
+    private int getIntOption(String name, int dephault)
+    {
+        Object value = getOption(name);
+        if (value == null) {
+            return dephault;
+        }
+        try {
+            return Integer.parseInt(value.toString());
+        } catch (NumberFormatException e) {
+            log.warn(Messages.getMessage("badSessionOption00", name,
+                                         value.toString()));
+            return dephault;
+        }
+    }
 
-                // For each victim, swing through the data looking for
-                // ServiceLifecycle objects, and calling destroy() on them.
-                // FIXME : This cleanup should probably happen on another
-                //         thread, as it might take a little while.
-                Enumeration keys = session.getKeys();
-                while (keys != null && keys.hasMoreElements()) {
-                    String keystr = (String)keys.nextElement();
-                    Object obj = session.get(keystr);
-                    if (obj != null && obj instanceof ServiceLifecycle) {
-                        ((ServiceLifecycle)obj).destroy();
-                    }
-                }
-            }
+    /**
+     * Stop reaping sessions.
+     */
+    public void cleanup()
+    {
+        SessionRegistry registry = activeSessions;
+        if (registry != null) {
+            registry.stop();
         }
-        
+    }
+
+    /**
+     * Process a MessageContext.
+     */
+    public void invoke(MessageContext context) throws AxisFault
+    {
         if (context.isClient()) {
             doClient(context);
         } else {
@@ -250,11 +259,12 @@ public class SimpleSessionHandler extends BasicHandler
                 id = getNewSession();
             }
             
-            SimpleSession session = (SimpleSession)activeSessions.get(id);
+            SessionRegistry registry = getSessionRegistry();
+            SimpleSession session = registry.get(id);
             if (session == null) {
                 // Must have timed out, get a new one.
                 id = getNewSession();
-                session = (SimpleSession)activeSessions.get(id);
+                session = registry.get(id);
             }
 
             // This session is still active...
@@ -271,17 +281,18 @@ public class SimpleSessionHandler extends BasicHandler
      *
      * @return the new session's ID for later lookup.
      */
-    private synchronized Long getNewSession()
+    private Long getNewSession()
     {
         Long id = SessionUtils.generateSession();
         SimpleSession session = new SimpleSession();
         session.setTimeout(defaultSessionTimeout);
-        activeSessions.put(id, session);
+        getSessionRegistry().put(id, session);
         return id;
     }
 
     /**
-     * Set the reaper periodicity in SECONDS
+     * Set the reaper periodicity in SECONDS.  This has no effect once the
+     * handler has processed a request.
      *
      * Convenience method for testing.
      *
@@ -301,4 +312,12 @@ public class SimpleSessionHandler extends BasicHandler
     public void setDefaultSessionTimeout(int defaultSessionTimeout) {
         this.defaultSessionTimeout = defaultSessionTimeout;
     }
+
+    /**
+     * Set the maximum number of sessions, 0 for no limit.  This has no
+     * effect once the handler has processed a request.
+     */
+    public void setMaxSessions(int maxSessions) {
+        this.maxSessions = maxSessions;
+    }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.handlers.soap;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * A WSDL document generated for a service, kept in serialized form so that
+ * it can be sent again without running the emitter or the serializer.
+ * Instances are immutable.
+ *
+ * @see SOAPService#getCachedWSDL(String)
+ */
+public class CachedWSDL {
+    /**
+     * MessageContext property which, when set to Boolean.TRUE before calling
+     * generateWSDL(), lets a {@link SOAPService} answer with a cached
+     * document instead of generating a new one.
+     */
+    public static final String USE_CACHE = "axis.wsdl.cache.use";
+
+    /**
+     * MessageContext property set by a {@link SOAPService} to the cached
+     * document it found, in which case the "WSDL" property is not set.
+     */
+    public static final String CACHED_WSDL = "axis.wsdl.cached";
+
+    /**
+     * MessageContext property set by a {@link SOAPService} to the key under
+     * which the generated document should be cached.
+     */
+    public static final String CACHE_KEY = "axis.wsdl.cache.key";
+
+    private final byte[] content;
+    private final String encoding;
+    private final String etag;
+    private final long lastModified;
+
+    /**
+     * @param content the serialized document
+     * @param encoding the character encoding of <code>content</code>
+     */
+    public CachedWSDL(byte[] content, String encoding) {
+        this.content = content;
+        this.encoding = encoding;
+        this.etag = computeETag(content);
+        // HTTP dates have a resolution of one second
+        this.lastModified = (System.currentTimeMillis() / 1000) * 1000;
+    }
+
+    /**
+     * Serialize the given document text.
+     */
+    public CachedWSDL(String content, String encoding)
+            throws UnsupportedEncodingException {
+        this(content.getBytes(encoding), encoding);
+    }
+
+    /**
+     * @return the serialized document; callers must not modify it
+     */
+    public byte[] getContent() {
+        return content;
+    }
+
+    public String getContentAsString() throws UnsupportedEncodingException {
+        return new String(content, encoding);
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * @return a quoted entity tag derived from the content
+     */
+    public String getETag() {
+        return etag;
+    }
+
+    /**
+     * @return the time the document was generated, in milliseconds
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    private static String computeETag(byte[] content) {
+        StringBuffer buf = new StringBuffer("\"");
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(content);
+            for (int i = 0; i < digest.length; i++) {
+                int b = digest[i] & 0xff;
+                if (b < 0x10) {
+                    buf.append('0');
+                }
+                buf.append(Integer.toHexString(b));
+            }
+        } catch (NoSuchAlgorithmException e) {
+            buf.append(Integer.toHexString(Arrays.hashCode(content)));
+            buf.append('-').append(Integer.toHexString(content.length));
+        }
+        return buf.append('"').toString();
+    }
+}
@@ -17,9 +17,11 @@
 package org.apache.axis.handlers.soap;
 
 import org.apache.axis.AxisEngine;
+import org.apache.axis.AxisProperties;
 import org.apache.axis.AxisFault;
 import org.apache.axis.Constants;
 import org.apache.axis.Handler;
+import org.apache.axis.InternalException;
 import org.apache.axis.Message;
 import org.apache.axis.MessageContext;
 import org.apache.axis.SimpleTargetedChain;
@@ -35,6 +37,9 @@ import org.apache.axis.handlers.HandlerInfoChainFactory;
 import org.apache.axis.message.SOAPEnvelope;
 import org.apache.axis.message.SOAPFault;
 import org.apache.axis.providers.BasicProvider;
+import org.apache.axis.providers.java.ServiceObjectPool;
+import org.apache.axis.stats.InvocationRecord;
+import org.apache.axis.stats.ServiceStats;
 import org.apache.axis.utils.LockableHashtable;
 import org.apache.axis.utils.Messages;
 import org.apache.axis.utils.XMLUtils;
@@ -52,7 +57,9 @@ import java.util.Hashtable;
 import java.util.Vector;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 /** A <code>SOAPService</code> is a Handler which encapsulates a SOAP
  * invocation.  It has an request chain, an response chain, and a pivot-point,
@@ -66,6 +73,21 @@ public class SOAPService extends SimpleTargetedChain
     private static Log log =
         LogFactory.getLog(SOAPService.class.getName());
 
+    /** the key for the Axis Property that enables caching of generated WSDL */
+    public static final String WSDL_CACHE_ENABLED_PROPERTY_KEY =
+        "axis.wsdl.cache.enabled";
+
+    /** the key for the Axis Property that sets how many WSDL documents
+        (one per endpoint URL) each service keeps */
+    public static final String WSDL_CACHE_SIZE_PROPERTY_KEY =
+        "axis.wsdl.cache.size";
+
+    private static final boolean wsdlCacheEnabled = Boolean.valueOf(
+            AxisProperties.getProperty(WSDL_CACHE_ENABLED_PROPERTY_KEY,
+                                       "true")).booleanValue();
+    private static final int wsdlCacheSize = Integer.parseInt(
+            AxisProperties.getProperty(WSDL_CACHE_SIZE_PROPERTY_KEY, "16"));
+
     /** Valid transports for this service
      * (server side only!)
      *
@@ -93,6 +115,8 @@ public class SOAPService extends SimpleTargetedChain
      * metadata about this service.
      */
     private ServiceDesc serviceDescription = new JavaServiceDesc();
+    /** serviceDescription, once it has been filled in */
+    private volatile ServiceDesc initializedServiceDesc = null;
     private AxisEngine engine;
 
     /**
@@ -102,7 +126,29 @@ public class SOAPService extends SimpleTargetedChain
     public Map serviceObjects = new HashMap();
     public int nextObjectID = 1;
 
+    /**
+     * The service objects of a service with "Pooled" scope, created on
+     * first use.
+     */
+    private volatile ServiceObjectPool serviceObjectPool;
+
+    /** guards the creation of the service object pool */
+    private final ReentrantLock serviceObjectLock = new ReentrantLock();
+
+    /** invocation statistics, created on first use */
+    private volatile ServiceStats stats;
+
     private boolean isRunning = true;
+
+    /**
+     * Generated WSDL documents, keyed by endpoint URL, least recently used
+     * first.  Guarded by itself.
+     */
+    private final Map wsdlCache = new LinkedHashMap(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > wsdlCacheSize;
+        }
+    };
     
     /**
      * Actor list - these are just the service-specific ones
@@ -236,25 +282,45 @@ public class SOAPService extends SimpleTargetedChain
     /**
      * Returns a service description with the implementation class filled in.
      * Syncronized to prevent simutaneous modification of serviceDescription.
+     * Once a Java service description has been filled in, the tables used
+     * to dispatch requests to its operations are built, and later calls
+     * return without locking.
      */
-    public synchronized ServiceDesc getInitializedServiceDesc(
-                                                     MessageContext msgContext)
+    public ServiceDesc getInitializedServiceDesc(MessageContext msgContext)
             throws AxisFault {
+        ServiceDesc desc = initializedServiceDesc;
+        if (desc != null && (!(desc instanceof JavaServiceDesc) ||
+                             ((JavaServiceDesc)desc).hasDispatchIndex())) {
+            return desc;
+        }
+        synchronized (this) {
+            try {
+                if (!serviceDescription.isInitialized()) {
+
+                    // Let the provider do the work of filling in the service
+                    // descriptor.  This is so that it can decide itself how best
+                    // to map the Operations.  In the future, we may want to support
+                    // providers which don't strictly map to Java class backends
+                    // (BSFProvider, etc.), and as such we hand off here.
+                    if (pivotHandler instanceof BasicProvider) {
+                        ((BasicProvider)pivotHandler).initServiceDesc(this, msgContext);
+                    }
 
-        if (!serviceDescription.isInitialized()) {
+                }
 
-            // Let the provider do the work of filling in the service
-            // descriptor.  This is so that it can decide itself how best
-            // to map the Operations.  In the future, we may want to support
-            // providers which don't strictly map to Java class backends
-            // (BSFProvider, etc.), and as such we hand off here.
-            if (pivotHandler instanceof BasicProvider) {
-                ((BasicProvider)pivotHandler).initServiceDesc(this, msgContext);
+                if (serviceDescription.isInitialized()) {
+                    if (serviceDescription instanceof JavaServiceDesc) {
+                        ((JavaServiceDesc)serviceDescription).buildDispatchIndex();
+                    }
+                    initializedServiceDesc = serviceDescription;
+                }
+            } catch (InternalException e) {
+                // an operation deployed for a method which doesn't exist
+                throw AxisFault.makeFault(e);
             }
 
+            return serviceDescription;
         }
-
-        return serviceDescription;
     }
 
     public void setServiceDescription(ServiceDesc serviceDescription) {
@@ -263,6 +329,7 @@ public class SOAPService extends SimpleTargetedChain
             return;
         }
         this.serviceDescription = serviceDescription;
+        initializedServiceDesc = null;
         //serviceDescription.setTypeMapping((TypeMapping)this.getTypeMappingRegistry().getDefaultTypeMapping());
     }
 
@@ -281,6 +348,17 @@ public class SOAPService extends SimpleTargetedChain
      * parent's implementation.
      */
     public void generateWSDL(MessageContext msgContext) throws AxisFault {
+        if (wsdlCacheEnabled && msgContext.isPropertyTrue(CachedWSDL.USE_CACHE)) {
+            String key = getWSDLCacheKey(msgContext);
+            if (key != null) {
+                CachedWSDL cached = getCachedWSDL(key);
+                if (cached != null) {
+                    msgContext.setProperty(CachedWSDL.CACHED_WSDL, cached);
+                    return;
+                }
+                msgContext.setProperty(CachedWSDL.CACHE_KEY, key);
+            }
+        }
         if (serviceDescription == null ||
                 serviceDescription.getWSDLFile() == null) {
             super.generateWSDL(msgContext);
@@ -324,6 +402,102 @@ public class SOAPService extends SimpleTargetedChain
             }
         }
     }
+    /**
+     * Compute the key under which the WSDL generated for the current
+     * request is cached: the URL of the endpoint it advertises.
+     *
+     * @return the key, or null if the request can't be cached
+     */
+    protected String getWSDLCacheKey(MessageContext msgContext) {
+        String url = msgContext.getStrProp(MessageContext.WSDLGEN_SERV_LOC_URL);
+        if (url == null && serviceDescription != null) {
+            url = serviceDescription.getEndpointURL();
+        }
+        if (url == null) {
+            url = msgContext.getStrProp(MessageContext.TRANS_URL);
+        }
+        return url;
+    }
+
+    /**
+     * Get the WSDL cached for the given endpoint URL.
+     *
+     * @return the cached document, or null
+     */
+    public CachedWSDL getCachedWSDL(String key) {
+        synchronized (wsdlCache) {
+            return (CachedWSDL) wsdlCache.get(key);
+        }
+    }
+
+    /**
+     * Cache the WSDL generated for the given endpoint URL.
+     */
+    public void cacheWSDL(String key, CachedWSDL wsdl) {
+        if (!wsdlCacheEnabled || key == null) {
+            return;
+        }
+        synchronized (wsdlCache) {
+            wsdlCache.put(key, wsdl);
+        }
+    }
+
+    /**
+     * Forget all cached WSDL, e.g. because the service has been redeployed.
+     */
+    public void clearWSDLCache() {
+        synchronized (wsdlCache) {
+            wsdlCache.clear();
+        }
+    }
+
+    /**
+     * @return the pool of service objects of a service with "Pooled"
+     *         scope, or null if it hasn't been created yet
+     */
+    public ServiceObjectPool getServiceObjectPool() {
+        return serviceObjectPool;
+    }
+
+    public void setServiceObjectPool(ServiceObjectPool pool) {
+        serviceObjectPool = pool;
+    }
+
+    /**
+     * @return the lock held while creating the pool of service objects
+     */
+    public ReentrantLock getServiceObjectLock() {
+        return serviceObjectLock;
+    }
+
+    /**
+     * Destroy the pooled service objects, e.g. because the service has
+     * been redeployed.  A new pool is created on the next request.
+     */
+    public void closeServiceObjectPool() {
+        ServiceObjectPool pool = serviceObjectPool;
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    /**
+     * @return the invocation statistics of this service, or null if
+     *         statistics have been disabled
+     */
+    public ServiceStats getStats() {
+        ServiceStats s = stats;
+        if (s == null && ServiceStats.isEnabled()) {
+            synchronized (this) {
+                s = stats;
+                if (s == null) {
+                    s = stats = ServiceStats.create(getName());
+                }
+            }
+        }
+        return s;
+    }
+
     /*********************************************************************
      * Administration and management APIs
      *
@@ -398,6 +572,21 @@ public class SOAPService extends SimpleTargetedChain
     }
 
     public void invoke(MessageContext msgContext) throws AxisFault {
+        InvocationRecord record = msgContext.getInvocationRecord();
+        if (record == null || !record.begin(getStats())) {
+            invokeChains(msgContext);
+            return;
+        }
+        boolean fault = true;
+        try {
+            invokeChains(msgContext);
+            fault = false;
+        } finally {
+            record.end(fault);
+        }
+    }
+
+    private void invokeChains(MessageContext msgContext) throws AxisFault {
         HandlerInfoChainFactory handlerFactory = (HandlerInfoChainFactory) this.getOption(Constants.ATTR_HANDLERINFOCHAIN);
         HandlerChainImpl handlerImpl = null;
         if (handlerFactory != null) handlerImpl = (HandlerChainImpl) handlerFactory.createHandlerChain();
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.message;
+
+import org.apache.axis.InternalException;
+import org.apache.axis.utils.XMLUtils;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.UserDataHandler;
+
+/**
+ * The DOM text behind a {@link Text} node built while parsing, which only
+ * holds where its characters are in the {@link SAX2EventRecorder}.  Its
+ * value is read from the recorder when asked for, and a real DOM text
+ * node is only created if it is changed or navigated.
+ */
+class RecordedText implements org.w3c.dom.Text {
+    private final SAX2EventRecorder recorder;
+    private final int offset;
+    private final int length;
+
+    /** the DOM node standing in for this one once created */
+    private org.w3c.dom.Text text;
+
+    /**
+     * @param recorder the recorder holding the characters
+     * @param offset where they start in the recorder
+     * @param length how many there are
+     */
+    RecordedText(SAX2EventRecorder recorder, int offset, int length) {
+        this.recorder = recorder;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    private org.w3c.dom.Text text() {
+        if (text == null) {
+            try {
+                text = XMLUtils.newDocument().createTextNode(
+                        recorder.getString(offset, length));
+            } catch (javax.xml.parsers.ParserConfigurationException e) {
+                throw new InternalException(e);
+            }
+        }
+        return text;
+    }
+
+    public String getData() throws DOMException {
+        if (text == null) {
+            return recorder.getString(offset, length);
+        }
+        return text.getData();
+    }
+
+    public String getNodeValue() throws DOMException {
+        return getData();
+    }
+
+    public String getTextContent() throws DOMException {
+        return getData();
+    }
+
+    public String getWholeText() {
+        return getData();
+    }
+
+    public int getLength() {
+        if (text == null) {
+            return length;
+        }
+        return text.getLength();
+    }
+
+    public String substringData(int offset, int count) throws DOMException {
+        if (text == null && offset >= 0 && count >= 0 && offset <= length) {
+            return recorder.getString(this.offset + offset,
+                                      Math.min(count, length - offset));
+        }
+        return text().substringData(offset, count);
+    }
+
+    public short getNodeType() {
+        return Node.TEXT_NODE;
+    }
+
+    public String getNodeName() {
+        return "#text";
+    }
+
+    public boolean isElementContentWhitespace() {
+        return text().isElementContentWhitespace();
+    }
+
+    public org.w3c.dom.Text splitText(int offset) throws DOMException {
+        return text().splitText(offset);
+    }
+
+    public org.w3c.dom.Text replaceWholeText(String content)
+            throws DOMException {
+        return text().replaceWholeText(content);
+    }
+
+    public void setData(String data) throws DOMException {
+        text().setData(data);
+    }
+
+    public void appendData(String arg) throws DOMException {
+        text().appendData(arg);
+    }
+
+    public void insertData(int offset, String arg) throws DOMException {
+        text().insertData(offset, arg);
+    }
+
+    public void deleteData(int offset, int count) throws DOMException {
+        text().deleteData(offset, count);
+    }
+
+    public void replaceData(int offset, int count, String arg)
+            throws DOMException {
+        text().replaceData(offset, count, arg);
+    }
+
+    public void setNodeValue(String nodeValue) throws DOMException {
+        text().setNodeValue(nodeValue);
+    }
+
+    public void setTextContent(String textContent) throws DOMException {
+        text().setTextContent(textContent);
+    }
+
+    public Node getParentNode() {
+        return text().getParentNode();
+    }
+
+    public NodeList getChildNodes() {
+        return text().getChildNodes();
+    }
+
+    public Node getFirstChild() {
+        return null;
+    }
+
+    public Node getLastChild() {
+        return null;
+    }
+
+    public Node getPreviousSibling() {
+        return text().getPreviousSibling();
+    }
+
+    public Node getNextSibling() {
+        return text().getNextSibling();
+    }
+
+    public NamedNodeMap getAttributes() {
+        return null;
+    }
+
+    public Document getOwnerDocument() {
+        return text().getOwnerDocument();
+    }
+
+    public Node insertBefore(Node newChild, Node refChild)
+            throws DOMException {
+        return text().insertBefore(newChild, refChild);
+    }
+
+    public Node replaceChild(Node newChild, Node oldChild)
+            throws DOMException {
+        return text().replaceChild(newChild, oldChild);
+    }
+
+    public Node removeChild(Node oldChild) throws DOMException {
+        return text().removeChild(oldChild);
+    }
+
+    public Node appendChild(Node newChild) throws DOMException {
+        return text().appendChild(newChild);
+    }
+
+    public boolean hasChildNodes() {
+        return false;
+    }
+
+    public Node cloneNode(boolean deep) {
+        return text().cloneNode(deep);
+    }
+
+    public void normalize() {
+    }
+
+    public boolean isSupported(String feature, String version) {
+        return text().isSupported(feature, version);
+    }
+
+    public String getNamespaceURI() {
+        return null;
+    }
+
+    public String getPrefix() {
+        return null;
+    }
+
+    public void setPrefix(String prefix) throws DOMException {
+        text().setPrefix(prefix);
+    }
+
+    public String getLocalName() {
+        return null;
+    }
+
+    public boolean hasAttributes() {
+        return false;
+    }
+
+    public String getBaseURI() {
+        return text().getBaseURI();
+    }
+
+    public short compareDocumentPosition(Node other) throws DOMException {
+        return text().compareDocumentPosition(other);
+    }
+
+    public boolean isSameNode(Node other) {
+        return other == this || (text != null && text.isSameNode(other));
+    }
+
+    public String lookupPrefix(String namespaceURI) {
+        return text().lookupPrefix(namespaceURI);
+    }
+
+    public boolean isDefaultNamespace(String namespaceURI) {
+        return text().isDefaultNamespace(namespaceURI);
+    }
+
+    public String lookupNamespaceURI(String prefix) {
+        return text().lookupNamespaceURI(prefix);
+    }
+
+    public boolean isEqualNode(Node arg) {
+        return text().isEqualNode(arg);
+    }
+
+    public Object getFeature(String feature, String version) {
+        return text().getFeature(feature, version);
+    }
+
+    public Object setUserData(String key, Object data,
+                              UserDataHandler handler) {
+        return text().setUserData(key, data, handler);
+    }
+
+    public Object getUserData(String key) {
+        return text == null ? null : text.getUserData(key);
+    }
+}
@@ -15,123 +15,292 @@
  */
 package org.apache.axis.message;
 
+import org.apache.axis.AxisProperties;
 import org.apache.axis.encoding.DeserializationContext;
+import org.apache.axis.utils.StripedPool;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
 import org.xml.sax.ext.LexicalHandler;
 
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * This class records SAX2 Events and allows
- * the events to be replayed by start and stop index
+ * the events to be replayed by start and stop index.
+ * <p>
+ * Events are kept in an <code>int[]</code>, five slots per event: the event
+ * type and up to four operands.  Character data from all the events shares
+ * one growable <code>char[]</code>, strings (names, prefixes, URIs...) are
+ * interned in a per-recorder table, and only attributes and elements are
+ * kept as objects, so recording a large message creates very little garbage.
+ * <p>
+ * When an off-heap threshold is set, character data beyond that many chars
+ * is kept in direct buffers outside the Java heap, so that the text of
+ * large messages, typically most of their size, doesn't count against the
+ * heap.  It is copied back a piece at a time when replayed.  The threshold
+ * defaults to the "axis.recorder.offHeapThreshold" property, and to 0,
+ * keeping everything on the heap, if that isn't set.  The direct buffers
+ * are shared by all the recorders and reused once the recorder holding
+ * them is garbage collected; at most "axis.recorder.offHeapLimit" chars
+ * are kept in them at any time, and heap buffers are used past that.
  */
 public class SAX2EventRecorder { 
+    /**
+     * AxisProperties key giving the number of chars of character data a
+     * recorder keeps on the heap before moving the rest off the heap.
+     */
+    public static final String OFF_HEAP_THRESHOLD_PROPERTY_KEY =
+        "axis.recorder.offHeapThreshold";
+
+    /**
+     * AxisProperties key giving the number of chars all the recorders
+     * together may keep in direct buffers.
+     */
+    public static final String OFF_HEAP_LIMIT_PROPERTY_KEY =
+        "axis.recorder.offHeapLimit";
+
+    private static volatile int defaultOffHeapThreshold = 0;
+
+    /** chars per off-heap chunk */
+    private static final int CHUNK_SIZE = 32 * 1024;
+
+    private static volatile int offHeapLimit = 16 * 1024 * 1024;
+
+    static {
+        String value = AxisProperties.getProperty(OFF_HEAP_THRESHOLD_PROPERTY_KEY);
+        if (value != null) {
+            try {
+                defaultOffHeapThreshold = Math.max(0, Integer.parseInt(value.trim()));
+            } catch (NumberFormatException e) {
+                // keep everything on the heap
+            }
+        }
+        value = AxisProperties.getProperty(OFF_HEAP_LIMIT_PROPERTY_KEY);
+        if (value != null) {
+            try {
+                offHeapLimit = Math.max(0, Integer.parseInt(value.trim()));
+            } catch (NumberFormatException e) {
+                // keep the default
+            }
+        }
+    }
+
+    /** idle direct chunks */
+    private static final StripedPool chunkPool =
+        new StripedPool(2 * Runtime.getRuntime().availableProcessors()) {
+            protected Object create() {
+                return ByteBuffer.allocateDirect(CHUNK_SIZE * 2).asCharBuffer();
+            }
+        };
+
+    /** the number of direct chunks held by recorders */
+    private static final AtomicInteger directChunks = new AtomicInteger();
+
+    /** gives the direct chunks of unreachable recorders back */
+    private static final Cleaner cleaner = Cleaner.create();
     
-    private static final Integer Z = new Integer(0);
-
-    private static final Integer STATE_START_DOCUMENT = new Integer(1);
-    private static final Integer STATE_END_DOCUMENT = new Integer(2);
-    private static final Integer STATE_START_PREFIX_MAPPING = new Integer(3);
-    private static final Integer STATE_END_PREFIX_MAPPING = new Integer(4);
-    private static final Integer STATE_START_ELEMENT = new Integer(5);
-    private static final Integer STATE_END_ELEMENT = new Integer(6);
-    private static final Integer STATE_CHARACTERS = new Integer(7);
-    private static final Integer STATE_IGNORABLE_WHITESPACE = new Integer(8);
-    private static final Integer STATE_PROCESSING_INSTRUCTION = new Integer(9);
-    private static final Integer STATE_SKIPPED_ENTITY = new Integer(10);
+    private static final int STATE_START_DOCUMENT = 1;
+    private static final int STATE_END_DOCUMENT = 2;
+    private static final int STATE_START_PREFIX_MAPPING = 3;
+    private static final int STATE_END_PREFIX_MAPPING = 4;
+    private static final int STATE_START_ELEMENT = 5;
+    private static final int STATE_END_ELEMENT = 6;
+    private static final int STATE_CHARACTERS = 7;
+    private static final int STATE_IGNORABLE_WHITESPACE = 8;
+    private static final int STATE_PROCESSING_INSTRUCTION = 9;
+    private static final int STATE_SKIPPED_ENTITY = 10;
     
     // This is a "custom" event which tells DeserializationContexts
     // that the current element is moving down the stack...
-    private static final Integer STATE_NEWELEMENT = new Integer(11);
+    private static final int STATE_NEWELEMENT = 11;
 
     // Lexical handler events...
-    private static final Integer STATE_START_DTD = new Integer(12);
-    private static final Integer STATE_END_DTD = new Integer(13);
-    private static final Integer STATE_START_ENTITY = new Integer(14);
-    private static final Integer STATE_END_ENTITY = new Integer(15);
-    private static final Integer STATE_START_CDATA = new Integer(16);
-    private static final Integer STATE_END_CDATA = new Integer(17);
-    private static final Integer STATE_COMMENT = new Integer(18);
-    
-    objArrayVector events = new objArrayVector();
-    
+    private static final int STATE_START_DTD = 12;
+    private static final int STATE_END_DTD = 13;
+    private static final int STATE_START_ENTITY = 14;
+    private static final int STATE_END_ENTITY = 15;
+    private static final int STATE_START_CDATA = 16;
+    private static final int STATE_END_CDATA = 17;
+    private static final int STATE_COMMENT = 18;
+
+    private static final int RECORD_SIZE = 5;
+    /** operand value standing for a null string */
+    private static final int NULL = -1;
+
+    /** event type and operands, RECORD_SIZE ints per event */
+    private int[] events;
+    private int eventsSize;
+
+    /** character data of all the events */
+    private char[] chars;
+    /** chars recorded, on and off the heap */
+    private int charsSize;
+    /** chars kept in <code>chars</code>; the others are in offHeap */
+    private int heapSize;
+
+    /** chars kept on the heap before moving to offHeap, 0 for no limit */
+    private final int offHeapThreshold;
+    /** CharBuffers of CHUNK_SIZE chars, direct unless over the limit */
+    private ArrayList offHeap;
+
+    /** interned strings, looked up through an open addressing table */
+    private String[] strings;
+    private int stringsSize;
+    private int[] stringTable;
+
+    /** attributes and elements */
+    private Object[] objects;
+    private int objectsSize;
+
+    public SAX2EventRecorder() {
+        this(defaultOffHeapThreshold);
+    }
+
+    /**
+     * @param offHeapThreshold the number of chars of character data kept
+     *                         on the heap, 0 to keep all of it there
+     */
+    public SAX2EventRecorder(int offHeapThreshold) {
+        this.offHeapThreshold = Math.max(0, offHeapThreshold);
+        clear();
+    }
+
+    /**
+     * @return the off-heap threshold of new recorders, in chars
+     */
+    public static int getDefaultOffHeapThreshold() {
+        return defaultOffHeapThreshold;
+    }
+
+    /**
+     * Set the off-heap threshold of the recorders created from now on,
+     * overriding the "axis.recorder.offHeapThreshold" property.
+     *
+     * @param chars the number of chars kept on the heap, 0 for no limit
+     */
+    public static void setDefaultOffHeapThreshold(int chars) {
+        defaultOffHeapThreshold = Math.max(0, chars);
+    }
+
+    /**
+     * @return the number of chars all the recorders may keep in direct
+     *         buffers
+     */
+    public static int getOffHeapLimit() {
+        return offHeapLimit;
+    }
+
+    /**
+     * Set the number of chars all the recorders may keep in direct buffers,
+     * overriding the "axis.recorder.offHeapLimit" property.  Past it,
+     * character data beyond the off-heap threshold goes to heap buffers.
+     */
+    public static void setOffHeapLimit(int chars) {
+        offHeapLimit = Math.max(0, chars);
+    }
+
+    /**
+     * @return the number of chars held in direct buffers by recorders
+     */
+    public static long getOffHeapInUse() {
+        return (long) directChunks.get() * CHUNK_SIZE;
+    }
+
+    /**
+     * Forget the recorded events.  When text is kept off the heap, the
+     * character data stays: text nodes may still read it.
+     */
     public void clear() {
-        events = new objArrayVector();
+        events = new int[50 * RECORD_SIZE];  // default to 50 records
+        eventsSize = 0;
+        if (offHeapThreshold == 0 || chars == null) {
+            chars = new char[256];
+            charsSize = 0;
+            heapSize = 0;
+            offHeap = null;
+        }
+        strings = new String[32];
+        stringsSize = 0;
+        stringTable = new int[64];
+        Arrays.fill(stringTable, NULL);
+        objects = new Object[16];
+        objectsSize = 0;
     }
     public int getLength()
     {
-        return events.getLength();
+        return eventsSize / RECORD_SIZE;
     }
     
     public int startDocument() {
-        return events.add(STATE_START_DOCUMENT, Z,Z,Z,Z);
+        return add(STATE_START_DOCUMENT, 0, 0, 0, 0);
     }
     public int endDocument() {
-        return events.add(STATE_END_DOCUMENT, Z,Z,Z,Z);
+        return add(STATE_END_DOCUMENT, 0, 0, 0, 0);
     }
     public int startPrefixMapping(String p1, String p2) {
-        return events.add(STATE_START_PREFIX_MAPPING, p1, p2, Z,Z);
+        return add(STATE_START_PREFIX_MAPPING, intern(p1), intern(p2), 0, 0);
     }
     public int endPrefixMapping(String p1) {
-        return events.add(STATE_END_PREFIX_MAPPING, p1,Z,Z,Z);
+        return add(STATE_END_PREFIX_MAPPING, intern(p1), 0, 0, 0);
     }
     public int startElement(String p1, String p2, String p3, org.xml.sax.Attributes p4) {
-        return events.add(STATE_START_ELEMENT, p1, p2, p3, p4);
+        return add(STATE_START_ELEMENT, intern(p1), intern(p2), intern(p3),
+                   addObject(p4));
     }
     public int endElement(String p1, String p2, String p3) {
-        return events.add(STATE_END_ELEMENT, p1, p2, p3, Z);
+        return add(STATE_END_ELEMENT, intern(p1), intern(p2), intern(p3), 0);
     }
     public int characters(char[] p1, int p2, int p3) {
-        return events.add(STATE_CHARACTERS, 
-                          (Object)clone(p1, p2, p3), 
-                          Z, Z, Z);
+        return add(STATE_CHARACTERS, addChars(p1, p2, p3), p3, 0, 0);
     }
     public int ignorableWhitespace(char[] p1, int p2, int p3) {
-        return events.add(STATE_IGNORABLE_WHITESPACE,
-                          (Object)clone(p1, p2, p3),
-                          Z, Z, Z);
+        return add(STATE_IGNORABLE_WHITESPACE, addChars(p1, p2, p3), p3, 0, 0);
     }
     public int processingInstruction(String p1, String p2) {
-        return events.add(STATE_PROCESSING_INSTRUCTION, p1, p2, Z,Z);
+        return add(STATE_PROCESSING_INSTRUCTION, intern(p1), intern(p2), 0, 0);
     }
     public int skippedEntity(String p1) {
-        return events.add(STATE_SKIPPED_ENTITY, p1, Z,Z,Z);
+        return add(STATE_SKIPPED_ENTITY, intern(p1), 0, 0, 0);
     }
     
     public void startDTD(java.lang.String name,
                      java.lang.String publicId,
                      java.lang.String systemId) {
-        events.add(STATE_START_DTD, name, publicId, systemId, Z);
+        add(STATE_START_DTD, intern(name), intern(publicId), intern(systemId), 0);
     }
     public void endDTD() {
-        events.add(STATE_END_DTD, Z, Z, Z, Z);
+        add(STATE_END_DTD, 0, 0, 0, 0);
     }
     public void startEntity(java.lang.String name) {
-        events.add(STATE_START_ENTITY, name, Z, Z, Z);
+        add(STATE_START_ENTITY, intern(name), 0, 0, 0);
     }
     public void endEntity(java.lang.String name) {
-        events.add(STATE_END_ENTITY, name, Z, Z, Z);
+        add(STATE_END_ENTITY, intern(name), 0, 0, 0);
     }
     public void startCDATA() {
-        events.add(STATE_START_CDATA, Z, Z, Z, Z);
+        add(STATE_START_CDATA, 0, 0, 0, 0);
     }
     public void endCDATA() {
-        events.add(STATE_END_CDATA, Z, Z, Z, Z);
+        add(STATE_END_CDATA, 0, 0, 0, 0);
     }
     public void comment(char[] ch,
                     int start,
                     int length) {
-        events.add(STATE_COMMENT, 
-                   (Object)clone(ch, start, length), 
-                   Z, Z, Z);
+        add(STATE_COMMENT, addChars(ch, start, length), length, 0, 0);
     }
     
     public int newElement(MessageElement elem) {
-        return events.add(STATE_NEWELEMENT, elem, Z,Z,Z);
+        return add(STATE_NEWELEMENT, addObject(elem), 0, 0, 0);
     }
     
     public void replay(ContentHandler handler) throws SAXException {
-        if (events.getLength() > 0) {
-            replay(0, events.getLength() - 1, handler);
+        if (getLength() > 0) {
+            replay(0, getLength() - 1, handler);
         }
     }
     
@@ -142,7 +311,7 @@ public class SAX2EventRecorder {
             return;
         }
         
-        if (stop + 1 > events.getLength() ||
+        if (stop + 1 > getLength() ||
             stop < start) {
             return; // should throw an error here
         }        
@@ -152,116 +321,398 @@ public class SAX2EventRecorder {
             lexicalHandler = (LexicalHandler) handler;
         }
         
-        for (int n = start; n <= stop; n++) {
-            Object event = events.get(n,0);
-            if (event == STATE_START_ELEMENT) {
-                handler.startElement((String)events.get(n,1), 
-                                     (String)events.get(n,2),
-                                     (String)events.get(n,3),
-                                     (org.xml.sax.Attributes)events.get(n,4));
+        // The handler may record into this recorder while we replay.
+        // Recorded data is never changed, so these arrays stay valid
+        // even if growing replaces them.
+        final int[] events = this.events;
+        final char[] chars = this.chars;
+        final int heapSize = this.heapSize;
+        final String[] strings = this.strings;
+        final Object[] objects = this.objects;
+        // off-heap character data is copied here before being handed out
+        char[] buf = null;
+
+        for (int n = start * RECORD_SIZE, end = stop * RECORD_SIZE;
+                n <= end; n += RECORD_SIZE) {
+            int p1 = events[n + 1];
+            int p2 = events[n + 2];
+            int p3 = events[n + 3];
+            switch (events[n]) {
+            case STATE_START_ELEMENT:
+                handler.startElement(string(strings, p1), 
+                                     string(strings, p2),
+                                     string(strings, p3),
+                                     (org.xml.sax.Attributes)objects[events[n + 4]]);
+                break;
                 
-            } else if (event == STATE_END_ELEMENT) {
-                handler.endElement((String)events.get(n,1), 
-                                   (String)events.get(n,2),
-                                   (String)events.get(n,3));
+            case STATE_END_ELEMENT:
+                handler.endElement(string(strings, p1), 
+                                   string(strings, p2),
+                                   string(strings, p3));
+                break;
                 
-            } else if (event == STATE_CHARACTERS) {
-                char[] data = (char[])events.get(n,1);
-                handler.characters(data, 0, data.length);
+            case STATE_CHARACTERS:
+                if (p1 + p2 <= heapSize) {
+                    handler.characters(chars, p1, p2);
+                } else {
+                    buf = getChars(p1, p2, buf);
+                    handler.characters(buf, 0, p2);
+                }
+                break;
                 
-            } else if (event == STATE_IGNORABLE_WHITESPACE) {
-                char[] data = (char[])events.get(n,1);
-                handler.ignorableWhitespace(data, 0, data.length);
+            case STATE_IGNORABLE_WHITESPACE:
+                if (p1 + p2 <= heapSize) {
+                    handler.ignorableWhitespace(chars, p1, p2);
+                } else {
+                    buf = getChars(p1, p2, buf);
+                    handler.ignorableWhitespace(buf, 0, p2);
+                }
+                break;
                 
-            } else if (event == STATE_PROCESSING_INSTRUCTION) {
-                handler.processingInstruction((String)events.get(n,1),
-                                              (String)events.get(n,2));
+            case STATE_PROCESSING_INSTRUCTION:
+                handler.processingInstruction(string(strings, p1),
+                                              string(strings, p2));
+                break;
                 
-            } else if (event == STATE_SKIPPED_ENTITY) {
-                handler.skippedEntity((String)events.get(n,1));
+            case STATE_SKIPPED_ENTITY:
+                handler.skippedEntity(string(strings, p1));
+                break;
                 
-            } else if (event == STATE_START_DOCUMENT) {
+            case STATE_START_DOCUMENT:
                 handler.startDocument();
+                break;
                 
-            } else if (event == STATE_END_DOCUMENT) {
+            case STATE_END_DOCUMENT:
                 handler.endDocument();
+                break;
                 
-            } else if (event == STATE_START_PREFIX_MAPPING) {
-                handler.startPrefixMapping((String)events.get(n, 1),
-                                           (String)events.get(n, 2));
+            case STATE_START_PREFIX_MAPPING:
+                handler.startPrefixMapping(string(strings, p1),
+                                           string(strings, p2));
+                break;
                 
-            } else if (event == STATE_END_PREFIX_MAPPING) {
-                handler.endPrefixMapping((String)events.get(n, 1));
+            case STATE_END_PREFIX_MAPPING:
+                handler.endPrefixMapping(string(strings, p1));
+                break;
                 
-            } else if (event == STATE_START_DTD && lexicalHandler != null) {
-                lexicalHandler.startDTD((String)events.get(n,1), 
-                                   (String)events.get(n,2),
-                                   (String)events.get(n,3));
-            } else if (event == STATE_END_DTD && lexicalHandler != null) {
-                lexicalHandler.endDTD();
+            case STATE_START_DTD:
+                if (lexicalHandler != null) {
+                    lexicalHandler.startDTD(string(strings, p1), 
+                                            string(strings, p2),
+                                            string(strings, p3));
+                }
+                break;
+
+            case STATE_END_DTD:
+                if (lexicalHandler != null) {
+                    lexicalHandler.endDTD();
+                }
+                break;
             
-            } else if (event == STATE_START_ENTITY && lexicalHandler != null) {
-                lexicalHandler.startEntity((String)events.get(n,1));
+            case STATE_START_ENTITY:
+                if (lexicalHandler != null) {
+                    lexicalHandler.startEntity(string(strings, p1));
+                }
+                break;
             
-            } else if (event == STATE_END_ENTITY && lexicalHandler != null) {
-                lexicalHandler.endEntity((String)events.get(n,1));
+            case STATE_END_ENTITY:
+                if (lexicalHandler != null) {
+                    lexicalHandler.endEntity(string(strings, p1));
+                }
+                break;
             
-            } else if (event == STATE_START_CDATA && lexicalHandler != null) {
-                lexicalHandler.startCDATA();
+            case STATE_START_CDATA:
+                if (lexicalHandler != null) {
+                    lexicalHandler.startCDATA();
+                }
+                break;
             
-            } else if (event == STATE_END_CDATA && lexicalHandler != null) {
-                lexicalHandler.endCDATA();
+            case STATE_END_CDATA:
+                if (lexicalHandler != null) {
+                    lexicalHandler.endCDATA();
+                }
+                break;
             
-            } else if (event == STATE_COMMENT && lexicalHandler != null) {
-                char[] data = (char[])events.get(n,1);
-                lexicalHandler.comment(data, 0, data.length);
+            case STATE_COMMENT:
+                if (lexicalHandler == null) {
+                    // nothing to do
+                } else if (p1 + p2 <= heapSize) {
+                    lexicalHandler.comment(chars, p1, p2);
+                } else {
+                    buf = getChars(p1, p2, buf);
+                    lexicalHandler.comment(buf, 0, p2);
+                }
+                break;
             
-            } else if (event == STATE_NEWELEMENT) {
+            case STATE_NEWELEMENT:
                 if (handler instanceof DeserializationContext) {
                     DeserializationContext context =
                               (DeserializationContext)handler;
-                    context.setCurElement(
-                              (MessageElement)(events.get(n,1)));
+                    context.setCurElement((MessageElement)objects[p1]);
                 }
+                break;
             }
         }
     }
 
-    private static char[] clone(char[] in, int off, int len) {
-        char[] out = new char[len];
-        System.arraycopy(in, off, out, 0, len);
-        return out;
+    private int add(int type, int p1, int p2, int p3, int p4) {
+        if (eventsSize + RECORD_SIZE > events.length) {
+            events = grow(events, eventsSize + RECORD_SIZE);
+        }
+        int pos = eventsSize / RECORD_SIZE;
+        events[eventsSize++] = type;
+        events[eventsSize++] = p1;
+        events[eventsSize++] = p2;
+        events[eventsSize++] = p3;
+        events[eventsSize++] = p4;
+        return pos;
     }
-    
-/////////////////////////////////////////////
-    class objArrayVector {
-        private int RECORD_SIZE = 5;
-        private int currentSize = 0;
-        private Object[] objarray = new Object[50 * RECORD_SIZE];  // default to 50 5 field records
-        
-        public int add(Object p1, Object p2, Object p3, Object p4, Object p5) {
-            if (currentSize == objarray.length) {
-                Object[] newarray = new Object[currentSize * 2];
-                System.arraycopy(objarray, 0, newarray, 0, currentSize);
-                objarray = newarray;
+
+    /**
+     * Append character data to the shared buffer, or off the heap once
+     * the threshold has been reached.
+     *
+     * @return the offset of the data in the buffer
+     */
+    private int addChars(char[] in, int off, int len) {
+        int pos = charsSize;
+        if (offHeap == null &&
+                (offHeapThreshold == 0 || heapSize + len <= offHeapThreshold)) {
+            if (heapSize + len > chars.length) {
+                int size = Math.max(chars.length * 2, heapSize + len);
+                if (offHeapThreshold > 0) {
+                    size = Math.min(size, offHeapThreshold);
+                }
+                char[] newarray = new char[size];
+                System.arraycopy(chars, 0, newarray, 0, heapSize);
+                chars = newarray;
+            }
+            System.arraycopy(in, off, chars, heapSize, len);
+            heapSize += len;
+        } else {
+            if (offHeap == null) {
+                offHeap = new ArrayList();
+                cleaner.register(this, new ChunkReleaser(offHeap));
+            }
+            int at = charsSize - heapSize;
+            for (int end = off + len; off < end; ) {
+                int chunk = at / CHUNK_SIZE;
+                if (chunk == offHeap.size()) {
+                    offHeap.add(newChunk());
+                }
+                CharBuffer buf = ((CharBuffer) offHeap.get(chunk)).duplicate();
+                buf.position(at % CHUNK_SIZE);
+                int n = Math.min(end - off, buf.remaining());
+                buf.put(in, off, n);
+                at += n;
+                off += n;
             }
-            int pos = currentSize / RECORD_SIZE;
-            objarray[currentSize++] = p1;
-            objarray[currentSize++] = p2;
-            objarray[currentSize++] = p3;
-            objarray[currentSize++] = p4;
-            objarray[currentSize++] = p5;
-            return pos;
         }
+        charsSize += len;
+        return pos;
+    }
 
-        public Object get(int pos, int fld) {
-            return objarray[(pos * RECORD_SIZE) + fld];
+    /**
+     * @return a direct chunk from the pool, or a heap one if the recorders
+     *         hold offHeapLimit chars already
+     */
+    private static CharBuffer newChunk() {
+        if ((long) (directChunks.get() + 1) * CHUNK_SIZE <= offHeapLimit) {
+            directChunks.incrementAndGet();
+            return (CharBuffer) chunkPool.borrow();
         }
-    
-        public int getLength() {
-            return (currentSize / RECORD_SIZE);
+        return CharBuffer.allocate(CHUNK_SIZE);
+    }
+
+    /**
+     * Returns the direct chunks of a recorder to the pool once the recorder,
+     * and with it every text node reading from it, is unreachable.
+     */
+    private static class ChunkReleaser implements Runnable {
+        private final ArrayList chunks;
+
+        ChunkReleaser(ArrayList chunks) {
+            this.chunks = chunks;
+        }
+
+        public void run() {
+            for (int i = 0; i < chunks.size(); i++) {
+                CharBuffer chunk = (CharBuffer) chunks.get(i);
+                if (chunk.isDirect()) {
+                    directChunks.decrementAndGet();
+                    chunkPool.release(chunk);
+                }
+            }
+            chunks.clear();
         }
     }
-/////////////////////////////////////////////
-            
+
+    /**
+     * Copy recorded character data.
+     *
+     * @param off the offset of the data
+     * @param len the number of chars
+     * @param buf where to copy the data, if it is long enough
+     * @return the array the data was copied to, from index 0
+     */
+    private char[] getChars(int off, int len, char[] buf) {
+        if (buf == null || buf.length < len) {
+            buf = new char[Math.max(len, 256)];
+        }
+        getChars(off, len, buf, 0);
+        return buf;
+    }
+
+    /**
+     * Copy recorded character data into an array.
+     */
+    public void getChars(int off, int len, char[] dst, int dstOff) {
+        if (off < heapSize) {
+            int n = Math.min(len, heapSize - off);
+            System.arraycopy(chars, off, dst, dstOff, n);
+            off += n;
+            dstOff += n;
+            len -= n;
+        }
+        int at = off - heapSize;
+        while (len > 0) {
+            CharBuffer buf =
+                ((CharBuffer) offHeap.get(at / CHUNK_SIZE)).duplicate();
+            buf.position(at % CHUNK_SIZE);
+            int n = Math.min(len, buf.remaining());
+            buf.get(dst, dstOff, n);
+            at += n;
+            dstOff += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * @return a recorded char
+     */
+    public char charAt(int off) {
+        if (off < heapSize) {
+            return chars[off];
+        }
+        int at = off - heapSize;
+        return ((CharBuffer) offHeap.get(at / CHUNK_SIZE)).get(at % CHUNK_SIZE);
+    }
+
+    /**
+     * @return recorded character data as a string
+     */
+    public String getString(int off, int len) {
+        if (off + len <= heapSize) {
+            return new String(chars, off, len);
+        }
+        char[] buf = new char[len];
+        getChars(off, len, buf, 0);
+        return new String(buf);
+    }
+
+    /**
+     * @param index the index of an event
+     * @param length a number of chars
+     * @return the offset of the character data of the event if it is a
+     *         characters event of that length, else -1
+     */
+    public int getCharactersOffset(int index, int length) {
+        int n = index * RECORD_SIZE;
+        if (index < 0 || n >= eventsSize ||
+                events[n] != STATE_CHARACTERS || events[n + 2] != length) {
+            return -1;
+        }
+        return events[n + 1];
+    }
+
+    /**
+     * @return the number of chars of character data recorded so far; the
+     *         data of the next event starts at this offset
+     */
+    public int getCharsLength() {
+        return charsSize;
+    }
+
+    /**
+     * @return the number of chars of character data kept off the heap
+     */
+    public int getOffHeapLength() {
+        return charsSize - heapSize;
+    }
+
+    /**
+     * @return the number of chars kept on the heap before moving off it,
+     *         0 if everything is kept on the heap
+     */
+    public int getOffHeapThreshold() {
+        return offHeapThreshold;
+    }
+
+    private int addObject(Object o) {
+        if (objectsSize == objects.length) {
+            Object[] newarray = new Object[objectsSize * 2];
+            System.arraycopy(objects, 0, newarray, 0, objectsSize);
+            objects = newarray;
+        }
+        objects[objectsSize] = o;
+        return objectsSize++;
+    }
+
+    /**
+     * Intern a string in this recorder.
+     *
+     * @return the index of the string, or NULL for null
+     */
+    private int intern(String s) {
+        if (s == null) {
+            return NULL;
+        }
+        int mask = stringTable.length - 1;
+        int slot = s.hashCode() & mask;
+        int index;
+        while ((index = stringTable[slot]) != NULL) {
+            String candidate = strings[index];
+            if (candidate == s || candidate.equals(s)) {
+                return index;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (stringsSize == strings.length) {
+            String[] newarray = new String[stringsSize * 2];
+            System.arraycopy(strings, 0, newarray, 0, stringsSize);
+            strings = newarray;
+        }
+        index = stringsSize++;
+        strings[index] = s;
+        stringTable[slot] = index;
+        // keep the table at most half full
+        if (stringsSize * 2 > stringTable.length) {
+            rehash(stringTable.length * 2);
+        }
+        return index;
+    }
+
+    private void rehash(int size) {
+        int[] table = new int[size];
+        Arrays.fill(table, NULL);
+        int mask = size - 1;
+        for (int i = 0; i < stringsSize; i++) {
+            int slot = strings[i].hashCode() & mask;
+            while (table[slot] != NULL) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i;
+        }
+        stringTable = table;
+    }
+
+    private static String string(String[] strings, int index) {
+        return index == NULL ? null : strings[index];
+    }
+
+    private static int[] grow(int[] in, int minSize) {
+        int[] out = new int[Math.max(in.length * 2, minSize)];
+        System.arraycopy(in, 0, out, 0, in.length);
+        return out;
+    }
 }
@@ -41,6 +41,18 @@ public class SOAPHandler extends DefaultHandler
     private int myIndex = 0;
 
     private CharArrayWriter val;
+
+    /**
+     * The recorder holding our element's text, when it keeps text off the
+     * heap.  The text is then left in the recorder rather than copied,
+     * from <code>textStart</code> to <code>textEnd</code>; textEvent is
+     * the index of the last characters event taken.
+     */
+    private SAX2EventRecorder recorder;
+    private DeserializationContext context;
+    private int textStart = -1;
+    private int textEnd;
+    private int textEvent = -1;
     
     public SOAPHandler() {
     }
@@ -90,6 +102,11 @@ public class SOAPHandler extends DefaultHandler
                 } catch (AxisFault axisFault) {
                     throw new SAXException(axisFault);
                 }
+                SAX2EventRecorder rec = context.getRecorder();
+                if (rec != null && rec.getOffHeapThreshold() > 0) {
+                    recorder = rec;
+                    this.context = context;
+                }
             }
             context.pushNewElement(myElement);
         }
@@ -131,6 +148,9 @@ public class SOAPHandler extends DefaultHandler
     }
 
     private void addTextNode() throws SAXException {
+        if (textStart >= 0) {
+            addRecordedTextNode();
+        }
         if (myElement != null) {
             if (val != null && val.size() > 0) {
                 String s = StringUtils.strip(val.toString());
@@ -160,9 +180,63 @@ public class SOAPHandler extends DefaultHandler
     {
     }
 
+    /**
+     * Add the text left in the recorder as a text node, stripped like
+     * other text nodes.
+     */
+    private void addRecordedTextNode() throws SAXException {
+        int start = textStart;
+        int end = textEnd;
+        textStart = -1;
+        while (start < end && Character.isWhitespace(recorder.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(recorder.charAt(end - 1))) {
+            end--;
+        }
+        if (myElement != null && end > start) {
+            try {
+                Text text = new Text(new RecordedText(recorder, start,
+                                                      end - start));
+                text.setParentElement(myElement);
+            } catch (SOAPException e) {
+                throw new SAXException(e);
+            }
+        }
+    }
+
     public void characters(char[] chars, int start, int end) 
         throws SAXException 
     {
+        if (recorder != null) {
+            if (!context.isDoneParsing() && context.getRecorder() == recorder
+                    && (val == null || val.size() == 0)) {
+                // the context has just recorded the chars as its last event
+                int event = recorder.getLength() - 1;
+                int pos = event > textEvent ?
+                        recorder.getCharactersOffset(event, end) : -1;
+                if (pos >= 0 && textStart < 0) {
+                    textStart = pos;
+                    textEnd = pos;
+                }
+                if (pos >= 0 && pos == textEnd) {
+                    textEnd += end;
+                    textEvent = event;
+                    return;
+                }
+            }
+            // not contiguous: copy what was recorded so far
+            if (textStart >= 0) {
+                if (val == null) {
+                    val = new CharArrayWriter();
+                }
+                char[] recorded = new char[textEnd - textStart];
+                recorder.getChars(textStart, recorded.length, recorded, 0);
+                val.write(recorded, 0, recorded.length);
+                textStart = -1;
+            }
+            recorder = null;
+        }
         if (val == null) {
             val = new CharArrayWriter();
         }
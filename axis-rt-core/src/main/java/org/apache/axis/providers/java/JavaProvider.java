@@ -30,6 +30,7 @@ import org.apache.axis.handlers.soap.SOAPService;
 import org.apache.axis.message.SOAPEnvelope;
 import org.apache.axis.providers.BasicProvider;
 import org.apache.axis.session.Session;
+import org.apache.axis.stats.InvocationRecord;
 import org.apache.axis.utils.ClassUtils;
 import org.apache.axis.utils.Messages;
 import org.apache.axis.utils.XMLUtils;
@@ -45,6 +46,8 @@ import javax.wsdl.OperationType;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.StringTokenizer;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Base class for Java dispatching.  Fetches various fields out of envelope,
@@ -69,6 +72,47 @@ public abstract class JavaProvider extends BasicProvider
     public static final String OPTION_ALLOWEDMETHODS = "allowedMethods";
     public static final String OPTION_SCOPE = "scope";
 
+    /** The maximum number of service objects of a "Pooled" service. */
+    public static final String OPTION_POOL_MAX_ACTIVE = "poolMaxActive";
+    /** The maximum number of idle service objects of a "Pooled" service. */
+    public static final String OPTION_POOL_MAX_IDLE = "poolMaxIdle";
+    /** The number of service objects a "Pooled" service creates up front. */
+    public static final String OPTION_POOL_MIN_IDLE = "poolMinIdle";
+    /**
+     * How long, in milliseconds, a request to a "Pooled" service waits for
+     * a service object when all are in use; 0 waits indefinitely.
+     */
+    public static final String OPTION_POOL_BORROW_TIMEOUT = "poolBorrowTimeout";
+
+    /**
+     * MessageContext property holding the pool a "Pooled" service object
+     * was borrowed from, so that it goes back to the same pool even if the
+     * service is redeployed meanwhile.
+     */
+    private static final String SERVICE_OBJECT_POOL =
+        "JavaProvider.serviceObjectPool";
+
+    private static final int DEFAULT_POOL_MAX_ACTIVE =
+        2 * Runtime.getRuntime().availableProcessors();
+    private static final long DEFAULT_POOL_BORROW_TIMEOUT = 30000;
+
+    /**
+     * Guard the lookup of service objects in sessions, striped by session
+     * lock object.  These are ReentrantLocks rather than monitors so that
+     * virtual threads don't pin their carrier threads.
+     */
+    private static final ReentrantLock[] sessionLocks = new ReentrantLock[64];
+    static {
+        for (int i = 0; i < sessionLocks.length; i++) {
+            sessionLocks[i] = new ReentrantLock();
+        }
+    }
+
+    private static ReentrantLock getSessionLock(Session session) {
+        int h = System.identityHashCode(session.getLockObject());
+        return sessionLocks[((h * 0x9E3779B9) >>> 26) % sessionLocks.length];
+    }
+
     /**
      * Get the service object whose method actually provides the service.
      * May look up in session table.
@@ -81,7 +125,8 @@ public abstract class JavaProvider extends BasicProvider
     {
         String serviceName = msgContext.getService().getName();
 
-        // scope can be "Request", "Session", "Application", "Factory"
+        // scope can be "Request", "Session", "Application", "Factory",
+        // "Pooled"
         Scope scope = Scope.getScope((String)service.getOption(OPTION_SCOPE), Scope.DEFAULT);
 
         scopeHolder.value = scope.getValue();
@@ -118,6 +163,28 @@ public abstract class JavaProvider extends BasicProvider
                 throw new AxisFault("NoSuchObject", null, null, null);
             }
             return ret;
+        } else if (scope == Scope.POOLED) {
+            if (service instanceof SOAPService) {
+                ServiceObjectPool pool = getServiceObjectPool(
+                        (SOAPService)service, clsName, msgContext);
+                Object obj;
+                try {
+                    obj = pool.borrow(msgContext);
+                } catch (AxisFault fault) {
+                    if (!pool.isClosed()) {
+                        throw fault;
+                    }
+                    // closed by a redeployment meanwhile: use the new pool
+                    pool = getServiceObjectPool((SOAPService)service,
+                                                clsName, msgContext);
+                    obj = pool.borrow(msgContext);
+                }
+                msgContext.setProperty(SERVICE_OBJECT_POOL, pool);
+                return obj;
+            }
+            // no place to keep the pool, treat as request scope
+            scopeHolder.value = Scope.DEFAULT.getValue();
+            return getNewServiceObject(msgContext, clsName);
         }
 
         // NOTREACHED
@@ -139,21 +206,94 @@ public abstract class JavaProvider extends BasicProvider
         }
     }
 
+    /**
+     * Get the pool of service objects of a "Pooled" service, creating it
+     * on first use from the pool options of the service.
+     */
+    private ServiceObjectPool getServiceObjectPool(SOAPService service,
+                                                   final String clsName,
+                                                   MessageContext msgContext)
+            throws Exception {
+        ServiceObjectPool pool = service.getServiceObjectPool();
+        if (pool != null && !pool.isClosed()) {
+            return pool;
+        }
+        ReentrantLock lock = service.getServiceObjectLock();
+        lock.lock();
+        try {
+            pool = service.getServiceObjectPool();
+            if (pool != null && !pool.isClosed()) {
+                return pool;
+            }
+            String name = service.getName();
+            int maxActive = getIntOption(service, OPTION_POOL_MAX_ACTIVE,
+                                         DEFAULT_POOL_MAX_ACTIVE);
+            int maxIdle = getIntOption(service, OPTION_POOL_MAX_IDLE,
+                                       maxActive);
+            int minIdle = getIntOption(service, OPTION_POOL_MIN_IDLE, 0);
+            long timeout = getIntOption(service, OPTION_POOL_BORROW_TIMEOUT,
+                                        (int)DEFAULT_POOL_BORROW_TIMEOUT);
+            pool = new ServiceObjectPool(name, new ServiceObjectPool.Factory() {
+                public Object create(MessageContext msgContext)
+                        throws Exception {
+                    return getNewServiceObject(msgContext, clsName);
+                }
+
+                public void destroy(Object obj) {
+                    if (obj instanceof ServiceLifecycle) {
+                        ((ServiceLifecycle)obj).destroy();
+                    }
+                }
+            }, Math.max(maxActive, 1), maxIdle, minIdle, timeout);
+            pool.prefill(msgContext);
+            service.setServiceObjectPool(pool);
+            return pool;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int getIntOption(Handler service, String option, int dephault) {
+        Object value = service.getOption(option);
+        if (value == null) {
+            return dephault;
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            log.warn(Messages.getMessage("badPoolOption00", option,
+                                         service.getName(), value.toString()));
+            return dephault;
+        }
+    }
+
     /**
      * Simple utility class for dealing with synchronization issues.
      */
     class LockObject implements Serializable {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition done = lock.newCondition();
         private boolean completed = false;
 
-        synchronized void waitUntilComplete() throws InterruptedException {
-            while (!completed) {
-                wait();
+        void waitUntilComplete() throws InterruptedException {
+            lock.lock();
+            try {
+                while (!completed) {
+                    done.await();
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
-        synchronized void complete() {
-            completed = true;
-            notifyAll();
+        void complete() {
+            lock.lock();
+            try {
+                completed = true;
+                done.signalAll();
+            } finally {
+                lock.unlock();
+            }
         }
     }
 
@@ -171,7 +311,9 @@ public abstract class JavaProvider extends BasicProvider
         boolean makeNewObject = false;
 
         // This is a little tricky.
-        synchronized (session.getLockObject()) {
+        ReentrantLock sessionLock = getSessionLock(session);
+        sessionLock.lock();
+        try {
             // store service objects in session, indexed by class name
             obj = session.get(serviceName);
 
@@ -183,6 +325,8 @@ public abstract class JavaProvider extends BasicProvider
                 makeNewObject = true;
                 session.set(serviceName, obj);
             }
+        } finally {
+            sessionLock.unlock();
         }
 
         // OK, we DEFINITELY have something in obj at this point.  Either
@@ -318,7 +462,22 @@ public abstract class JavaProvider extends BasicProvider
             Message        reqMsg  = msgContext.getRequestMessage();
             SOAPEnvelope   reqEnv  = reqMsg.getSOAPEnvelope();
 
-            processMessage(msgContext, reqEnv, resEnv, serviceObject);
+            InvocationRecord record = msgContext.getInvocationRecord();
+            if (record == null) {
+                processMessage(msgContext, reqEnv, resEnv, serviceObject);
+            } else {
+                // in case dispatch resolved it before the service began
+                record.setOperation(msgContext.getOperation());
+                long start = System.nanoTime();
+                long parseTime = record.getParseTime();
+                try {
+                    processMessage(msgContext, reqEnv, resEnv, serviceObject);
+                } finally {
+                    record.setOperation(msgContext.getOperation());
+                    record.addProviderTime(System.nanoTime() - start -
+                            (record.getParseTime() - parseTime));
+                }
+            }
         } catch( SAXException exp ) {
             entLog.debug( Messages.getMessage("toAxisFault00"), exp);
             Exception real = exp.getException();
@@ -336,6 +495,15 @@ public abstract class JavaProvider extends BasicProvider
             }
             throw fault;
         } finally {
+            // Give a pooled service object back to its pool.
+            if (serviceObject != null &&
+                scope.value == Scope.POOLED.getValue())
+            {
+                ServiceObjectPool pool = (ServiceObjectPool)
+                        msgContext.getProperty(SERVICE_OBJECT_POOL);
+                msgContext.removeProperty(SERVICE_OBJECT_POOL);
+                pool.release(serviceObject);
+            }
             // If this is a request scoped service object which implements
             // ServiceLifecycle, let it know that it's being destroyed now.
             if (serviceObject != null  &&
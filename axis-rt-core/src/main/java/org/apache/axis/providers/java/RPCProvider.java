@@ -31,6 +31,7 @@ import org.apache.axis.message.RPCParam;
 import org.apache.axis.message.SOAPBodyElement;
 import org.apache.axis.message.SOAPEnvelope;
 import org.apache.axis.soap.SOAPConstants;
+import org.apache.axis.stats.InvocationRecord;
 import org.apache.axis.utils.JavaUtils;
 import org.apache.axis.utils.Messages;
 import org.apache.commons.logging.Log;
@@ -77,12 +78,18 @@ public class RPCProvider extends JavaProvider {
         RPCElement body = getBody(reqEnv, msgContext);
 
         Vector args = null;
+        InvocationRecord record = msgContext.getInvocationRecord();
+        long start = record == null ? 0 : System.nanoTime();
         try {
             args = body.getParams();
         } catch (SAXException e) {
             if(e.getException() != null)
                 throw e.getException();
             throw e;
+        } finally {
+            if (record != null) {
+                record.addParseTime(System.nanoTime() - start, 0);
+            }
         }
         int numArgs = args.size();
         OperationDesc operation = getOperationDesc(msgContext, body);
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.providers.java;
+
+import org.apache.axis.AxisFault;
+import org.apache.axis.MessageContext;
+import org.apache.axis.components.logger.LogFactory;
+import org.apache.axis.utils.Messages;
+import org.apache.commons.logging.Log;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded pool of service objects, used for services deployed with the
+ * "Pooled" scope.  Each service object is used by one request at a time,
+ * but is not created anew for every request.
+ * <p>
+ * At most <code>maxActive</code> objects exist at any time; a request
+ * arriving when all of them are in use waits up to
+ * <code>borrowTimeout</code> milliseconds for one to be returned.  At most
+ * <code>maxIdle</code> objects are kept when they are not in use, the
+ * others are destroyed.  <code>minIdle</code> objects are created up front
+ * by {@link #prefill(MessageContext)}.
+ * <p>
+ * Once the pool has been closed, e.g. because the service has been
+ * redeployed, objects still in use are destroyed when returned, and no
+ * object can be borrowed any more.
+ * <p>
+ * The pool is guarded by a {@link ReentrantLock} rather than its monitor,
+ * so that a virtual thread waiting for an object doesn't pin its carrier
+ * thread.
+ */
+public class ServiceObjectPool {
+    protected static Log log =
+        LogFactory.getLog(ServiceObjectPool.class.getName());
+
+    /**
+     * Creates and destroys the pooled objects.
+     */
+    public interface Factory {
+        /**
+         * @return a new, initialized, service object
+         */
+        Object create(MessageContext msgContext) throws Exception;
+
+        /**
+         * Let a service object know that it is no longer used.
+         */
+        void destroy(Object obj);
+    }
+
+    private final String name;
+    private final Factory factory;
+    private final int maxActive;
+    private final int maxIdle;
+    private final int minIdle;
+    private final long borrowTimeout;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    /** signalled when an object is returned or may be created */
+    private final Condition available = lock.newCondition();
+
+    /** idle objects, most recently used first */
+    private final LinkedList idle = new LinkedList();
+    /** objects in existence or being created, in use or idle */
+    private int total = 0;
+    private int active = 0;
+    private boolean closed = false;
+
+    private long createCount = 0;
+    private long timeoutCount = 0;
+
+    /**
+     * @param name the name of the service, for messages
+     * @param factory creates and destroys the pooled objects
+     * @param maxActive the maximum number of objects, at least 1
+     * @param maxIdle the maximum number of idle objects kept
+     * @param minIdle the number of objects created by prefill()
+     * @param borrowTimeout how long to wait for an object when all are in
+     *                      use, in milliseconds, 0 to wait indefinitely
+     */
+    public ServiceObjectPool(String name, Factory factory, int maxActive,
+                             int maxIdle, int minIdle, long borrowTimeout) {
+        if (maxActive < 1) {
+            throw new IllegalArgumentException(
+                    Messages.getMessage("badPoolSize00"));
+        }
+        this.name = name;
+        this.factory = factory;
+        this.maxActive = maxActive;
+        this.maxIdle = Math.max(0, Math.min(maxIdle, maxActive));
+        this.minIdle = Math.max(0, Math.min(minIdle, this.maxIdle));
+        this.borrowTimeout = Math.max(0, borrowTimeout);
+    }
+
+    /**
+     * Create objects until there are <code>minIdle</code> of them.
+     */
+    public void prefill(MessageContext msgContext) throws Exception {
+        while (true) {
+            lock.lock();
+            try {
+                if (closed || total >= minIdle) {
+                    return;
+                }
+                total++;
+            } finally {
+                lock.unlock();
+            }
+            Object obj = create(msgContext);
+            lock.lock();
+            try {
+                idle.addLast(obj);
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Take an object out of the pool, creating one if none is idle and
+     * fewer than <code>maxActive</code> exist.
+     *
+     * @throws AxisFault if no object became available in time, or the
+     *                   pool is closed
+     */
+    public Object borrow(MessageContext msgContext) throws Exception {
+        lock.lock();
+        try {
+            long deadline = System.currentTimeMillis() + borrowTimeout;
+            while (true) {
+                if (closed) {
+                    throw new AxisFault("Server.Unavailable",
+                            Messages.getMessage("poolClosed00", name),
+                            null, null);
+                }
+                if (!idle.isEmpty()) {
+                    active++;
+                    return idle.removeFirst();
+                }
+                if (total < maxActive) {
+                    break;
+                }
+                if (borrowTimeout > 0) {
+                    long wait = deadline - System.currentTimeMillis();
+                    if (wait <= 0) {
+                        timeoutCount++;
+                        throw new AxisFault("Server.Busy",
+                                Messages.getMessage("poolTimeout00", name,
+                                                    "" + borrowTimeout),
+                                null, null);
+                    }
+                    available.await(wait, TimeUnit.MILLISECONDS);
+                } else {
+                    available.await();
+                }
+            }
+            total++;
+        } finally {
+            lock.unlock();
+        }
+        Object obj = create(msgContext);
+        lock.lock();
+        try {
+            active++;
+        } finally {
+            lock.unlock();
+        }
+        return obj;
+    }
+
+    private Object create(MessageContext msgContext) throws Exception {
+        try {
+            Object obj = factory.create(msgContext);
+            lock.lock();
+            try {
+                createCount++;
+            } finally {
+                lock.unlock();
+            }
+            return obj;
+        } catch (Exception e) {
+            lock.lock();
+            try {
+                total--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Return an object taken out of the pool with
+     * {@link #borrow(MessageContext)}.
+     */
+    public void release(Object obj) {
+        lock.lock();
+        try {
+            active--;
+            if (!closed && idle.size() < maxIdle) {
+                idle.addFirst(obj);
+                available.signal();
+                return;
+            }
+            total--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+        destroy(obj);
+    }
+
+    /**
+     * Destroy the idle objects, and the others as they are returned.
+     */
+    public void close() {
+        Object[] objs;
+        lock.lock();
+        try {
+            closed = true;
+            objs = idle.toArray();
+            idle.clear();
+            total -= objs.length;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (int i = 0; i < objs.length; i++) {
+            destroy(objs[i]);
+        }
+    }
+
+    private void destroy(Object obj) {
+        try {
+            factory.destroy(obj);
+        } catch (RuntimeException e) {
+            log.warn(Messages.getMessage("exception00"), e);
+        }
+    }
+
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of objects in use
+     */
+    public int getActiveCount() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of idle objects
+     */
+    public int getIdleCount() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of objects created so far
+     */
+    public long getCreateCount() {
+        lock.lock();
+        try {
+            return createCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of requests which gave up waiting for an object
+     */
+    public long getTimeoutCount() {
+        lock.lock();
+        try {
+            return timeoutCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxActive() {
+        return maxActive;
+    }
+
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public long getBorrowTimeout() {
+        return borrowTimeout;
+    }
+}
@@ -20,6 +20,8 @@ import org.apache.axis.Constants;
 import org.apache.axis.encoding.TypeMappingImpl;
 import org.apache.axis.encoding.ser.CalendarDeserializerFactory;
 import org.apache.axis.encoding.ser.CalendarSerializerFactory;
+import org.apache.axis.encoding.ser.JavaTimeDeserializerFactory;
+import org.apache.axis.encoding.ser.JavaTimeSerializerFactory;
 
 import javax.xml.namespace.QName;
 
@@ -69,6 +71,23 @@ public class SchemaVersion2001 implements SchemaVersion {
      */
     public void registerSchemaSpecificTypes(TypeMappingImpl tm) {
         
+        // The java.time types go first, so that a dateTime still
+        // deserializes to a Calendar unless one of them is asked for.
+        tm.register(java.time.Instant.class,
+                    Constants.XSD_DATETIME,
+                   new JavaTimeSerializerFactory(java.time.Instant.class,
+                                             Constants.XSD_DATETIME),
+                   new JavaTimeDeserializerFactory(java.time.Instant.class,
+                                               Constants.XSD_DATETIME)
+                   );
+        tm.register(java.time.OffsetDateTime.class,
+                    Constants.XSD_DATETIME,
+                   new JavaTimeSerializerFactory(java.time.OffsetDateTime.class,
+                                             Constants.XSD_DATETIME),
+                   new JavaTimeDeserializerFactory(java.time.OffsetDateTime.class,
+                                               Constants.XSD_DATETIME)
+                   );
+
         // This mapping will convert a Java 'Date' type to a dateTime
         tm.register(java.util.Date.class,
                     Constants.XSD_DATETIME,
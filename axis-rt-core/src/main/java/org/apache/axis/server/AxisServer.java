@@ -27,6 +27,8 @@ import org.apache.axis.MessageContext;
 import org.apache.axis.SimpleTargetedChain;
 import org.apache.axis.message.SOAPEnvelope;
 import org.apache.axis.soap.SOAPConstants;
+import org.apache.axis.stats.InvocationRecord;
+import org.apache.axis.stats.ServiceStats;
 import org.apache.axis.client.AxisClient;
 import org.apache.axis.components.logger.LogFactory;
 import org.apache.axis.configuration.EngineConfigurationFactoryFinder;
@@ -147,6 +149,10 @@ public class AxisServer extends AxisEngine
         String  hName = null ;
         Handler h     = null ;
 
+        if (ServiceStats.isEnabled() && msgContext.getInvocationRecord() == null) {
+            msgContext.setInvocationRecord(new InvocationRecord());
+        }
+
         // save previous context
         MessageContext previousContext = getCurrentMessageContext();
 
@@ -0,0 +1,395 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.session;
+
+import org.apache.axis.components.logger.LogFactory;
+import org.apache.axis.utils.Messages;
+import org.apache.commons.logging.Log;
+
+import javax.xml.rpc.server.ServiceLifecycle;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A registry of {@link SimpleSession}s, keyed by session ID, built for
+ * large numbers of concurrent sessions.
+ * <p>
+ * Sessions are spread over independently locked shards, each of which
+ * keeps its sessions in least recently used order.  When a maximum number
+ * of sessions is set, adding a session to a full shard evicts the least
+ * recently used session of that shard.
+ * <p>
+ * Expiry is driven by a timer wheel advanced by a shared background
+ * thread, so requests never pay for it.  A session is put in the wheel
+ * slot of its expiry time; when the slot comes up, a session which has
+ * been used in the meantime is simply moved to the slot of its new expiry
+ * time.  Sessions which have expired but have not been reaped yet are
+ * never handed out.
+ * <p>
+ * {@link ServiceLifecycle} objects stored in expired or evicted sessions
+ * are destroyed.
+ */
+public class SessionRegistry {
+    protected static Log log =
+        LogFactory.getLog(SessionRegistry.class.getName());
+
+    private static final int DEFAULT_SHARDS = 64;
+    private static final int WHEEL_SIZE = 512;
+
+    private static ScheduledExecutorService reaperExecutor;
+
+    private final LinkedHashMap[] shards;
+    private final int maxSessions;
+    private final int maxPerShard;
+    private final AtomicInteger size = new AtomicInteger();
+
+    /** timer wheel slots, each a list of Entry guarded by itself */
+    private final List[] wheel;
+    private final long tick;
+    /** the last tick processed; only changed by reap() */
+    private volatile long lastTick;
+
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+
+    private ScheduledFuture reaper;
+
+    /**
+     * Create a registry.
+     *
+     * @param maxSessions the maximum number of sessions, 0 for no limit
+     * @param tick the resolution of expiry, in milliseconds
+     */
+    public SessionRegistry(int maxSessions, long tick) {
+        this(maxSessions, tick, DEFAULT_SHARDS);
+    }
+
+    /**
+     * Create a registry.
+     *
+     * @param maxSessions the maximum number of sessions, 0 for no limit
+     * @param tick the resolution of expiry, in milliseconds
+     * @param shardCount the number of independently locked shards
+     */
+    public SessionRegistry(int maxSessions, long tick, int shardCount) {
+        shardCount = Math.max(shardCount, 1);
+        this.maxSessions = maxSessions;
+        this.maxPerShard = maxSessions <= 0 ? 0 :
+                (maxSessions + shardCount - 1) / shardCount;
+        this.tick = Math.max(tick, 1);
+        shards = new LinkedHashMap[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new LinkedHashMap(16, 0.75f, true);
+        }
+        wheel = new List[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ArrayList();
+        }
+        lastTick = System.currentTimeMillis() / this.tick;
+    }
+
+    private LinkedHashMap shardFor(Long id) {
+        long h = id.longValue() * 0x9E3779B97F4A7C15L;
+        return shards[(int) ((h >>> 32) % shards.length)];
+    }
+
+    /**
+     * Start reaping expired sessions in the background.
+     */
+    public synchronized void start() {
+        if (reaper == null) {
+            reaper = Reaper.schedule(this, tick);
+        }
+    }
+
+    /**
+     * Stop reaping expired sessions in the background.
+     */
+    public synchronized void stop() {
+        if (reaper != null) {
+            reaper.cancel(false);
+            reaper = null;
+        }
+    }
+
+    /**
+     * Get a session, unless it has expired.
+     *
+     * @return the session, or null
+     */
+    public SimpleSession get(Long id) {
+        LinkedHashMap shard = shardFor(id);
+        Entry entry;
+        synchronized (shard) {
+            entry = (Entry) shard.get(id);
+        }
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry.session, System.currentTimeMillis())) {
+            expire(entry);
+            return null;
+        }
+        return entry.session;
+    }
+
+    /**
+     * Register a session.  If the registry is full, the least recently used
+     * session of the same shard is evicted.
+     */
+    public void put(Long id, SimpleSession session) {
+        LinkedHashMap shard = shardFor(id);
+        Entry entry = new Entry(id, session);
+        Entry victim = null;
+        synchronized (shard) {
+            Entry old = (Entry) shard.put(id, entry);
+            if (old != null) {
+                old.removed = true;
+            } else {
+                size.incrementAndGet();
+            }
+            if (maxPerShard > 0 && shard.size() > maxPerShard) {
+                Iterator i = shard.values().iterator();
+                victim = (Entry) i.next();
+                i.remove();
+                victim.removed = true;
+                size.decrementAndGet();
+            }
+        }
+        if (victim != null) {
+            evictedCount.incrementAndGet();
+            if (log.isDebugEnabled()) {
+                log.debug(Messages.getMessage("sessionEvicted00",
+                        victim.id.toString(), "" + maxSessions));
+            }
+            destroy(victim.session);
+        }
+        schedule(entry, deadline(session));
+    }
+
+    /**
+     * Remove a session without destroying it.
+     *
+     * @return the session removed, or null
+     */
+    public SimpleSession remove(Long id) {
+        LinkedHashMap shard = shardFor(id);
+        synchronized (shard) {
+            Entry entry = (Entry) shard.remove(id);
+            if (entry == null) {
+                return null;
+            }
+            entry.removed = true;
+            size.decrementAndGet();
+            return entry.session;
+        }
+    }
+
+    /**
+     * Remove a session unless that has been done already, and destroy it.
+     */
+    private void expire(Entry entry) {
+        LinkedHashMap shard = shardFor(entry.id);
+        synchronized (shard) {
+            if (entry.removed) {
+                return;
+            }
+            shard.remove(entry.id);
+            entry.removed = true;
+            size.decrementAndGet();
+        }
+        expiredCount.incrementAndGet();
+        if (log.isDebugEnabled()) {
+            log.debug(Messages.getMessage("timeout00", entry.id.toString()));
+        }
+        destroy(entry.session);
+    }
+
+    private static boolean isExpired(SimpleSession session, long now) {
+        return (now - session.getLastAccessTime()) >
+               (session.getTimeout() * 1000L);
+    }
+
+    private static long deadline(SimpleSession session) {
+        return session.getLastAccessTime() + session.getTimeout() * 1000L;
+    }
+
+    private void schedule(Entry entry, long deadline) {
+        long t = Math.max(deadline / tick + 1, lastTick + 1);
+        List slot = wheel[(int) (t % WHEEL_SIZE)];
+        synchronized (slot) {
+            slot.add(entry);
+        }
+    }
+
+    /**
+     * Expire the sessions which timed out by the given time.  This is
+     * normally called by the background reaper.
+     *
+     * @param now the current time, in milliseconds
+     */
+    public synchronized void reap(long now) {
+        long currentTick = now / tick;
+        long t = Math.max(lastTick + 1, currentTick - WHEEL_SIZE + 1);
+        for (; t <= currentTick; t++) {
+            List slot = wheel[(int) (t % WHEEL_SIZE)];
+            Entry[] entries;
+            synchronized (slot) {
+                entries = (Entry[]) slot.toArray(new Entry[slot.size()]);
+                slot.clear();
+            }
+            lastTick = t;
+            for (int i = 0; i < entries.length; i++) {
+                Entry entry = entries[i];
+                if (entry.removed) {
+                    continue;
+                }
+                if (isExpired(entry.session, now)) {
+                    expire(entry);
+                } else {
+                    schedule(entry, deadline(entry.session));
+                }
+            }
+        }
+        if (lastTick < currentTick) {
+            lastTick = currentTick;
+        }
+    }
+
+    /**
+     * Destroy the ServiceLifecycle objects stored in a session.
+     */
+    protected void destroy(SimpleSession session) {
+        Enumeration keys = session.getKeys();
+        while (keys != null && keys.hasMoreElements()) {
+            String keystr = (String) keys.nextElement();
+            Object obj = session.get(keystr);
+            if (obj != null && obj instanceof ServiceLifecycle) {
+                try {
+                    ((ServiceLifecycle) obj).destroy();
+                } catch (RuntimeException e) {
+                    log.warn(Messages.getMessage("exception00"), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of registered sessions
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * @return the maximum number of sessions, 0 if there is no limit
+     */
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    /**
+     * @return the number of sessions which timed out
+     */
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /**
+     * @return the number of sessions evicted because the registry was full
+     */
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+
+    private static class Entry {
+        final Long id;
+        final SimpleSession session;
+        /** set, under the lock of the shard, once out of the registry */
+        volatile boolean removed = false;
+
+        Entry(Long id, SimpleSession session) {
+            this.id = id;
+            this.session = session;
+        }
+    }
+
+    /**
+     * Background task advancing the timer wheel of a registry.  It only
+     * holds a weak reference to the registry, and cancels itself once the
+     * registry has been garbage collected.
+     */
+    private static class Reaper implements Runnable {
+        private final WeakReference registry;
+        private ScheduledFuture future;
+
+        private Reaper(SessionRegistry registry) {
+            this.registry = new WeakReference(registry);
+        }
+
+        static ScheduledFuture schedule(SessionRegistry registry, long tick) {
+            Reaper reaper = new Reaper(registry);
+            synchronized (reaper) {
+                reaper.future = getReaperExecutor().scheduleWithFixedDelay(
+                        reaper, tick, tick, TimeUnit.MILLISECONDS);
+                return reaper.future;
+            }
+        }
+
+        public void run() {
+            SessionRegistry r = (SessionRegistry) registry.get();
+            if (r == null) {
+                synchronized (this) {
+                    future.cancel(false);
+                }
+                return;
+            }
+            try {
+                r.reap(System.currentTimeMillis());
+            } catch (RuntimeException e) {
+                log.error(Messages.getMessage("exception00"), e);
+            }
+        }
+    }
+
+    private static synchronized ScheduledExecutorService getReaperExecutor() {
+        if (reaperExecutor == null) {
+            ScheduledThreadPoolExecutor executor =
+                new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "axis-session-reaper");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+            executor.setRemoveOnCancelPolicy(true);
+            reaperExecutor = executor;
+        }
+        return reaperExecutor;
+    }
+}
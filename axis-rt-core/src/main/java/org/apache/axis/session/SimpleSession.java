@@ -17,22 +17,24 @@
 package org.apache.axis.session;
 
 import java.util.Enumeration;
-import java.util.Hashtable;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A trivial session implementation.
+ * <p>
+ * The properties are kept in a small ConcurrentHashMap, created on first
+ * use, so reading them takes no lock.
  *
  * @author Glen Daniels (gdaniels@apache.org)
  */
 public class SimpleSession implements Session
 {
-    private Hashtable rep = null;
+    private volatile ConcurrentHashMap rep = null;
     
     /** Inactivity timeout (in seconds).
-     * Not used yet.
      */
-    private int timeout = -1;
-    private long lastTouched;
+    private volatile int timeout = -1;
+    private volatile long lastTouched;
     
     /**
      * Default constructor - set lastTouched to now
@@ -48,10 +50,11 @@ public class SimpleSession implements Session
      */
     public Object get(String key)
     {
-        if (rep == null)
+        ConcurrentHashMap map = rep;
+        if (map == null)
             return null;
         lastTouched = System.currentTimeMillis();
-        return rep.get(key);
+        return map.get(key);
     }
     
     /** Set a property in the session
@@ -61,12 +64,9 @@ public class SimpleSession implements Session
      */
     public void set(String key, Object value)
     {
-        synchronized (this) {
-            if (rep == null)
-                rep = new Hashtable();
-        }
+        ConcurrentHashMap map = getMap();
         lastTouched = System.currentTimeMillis();
-        rep.put(key, value);
+        map.put(key, value);
     }
     
     /** Remove a property from the session
@@ -75,8 +75,9 @@ public class SimpleSession implements Session
      */
     public void remove(String key)
     {
-        if (rep != null)
-            rep.remove(key);
+        ConcurrentHashMap map = rep;
+        if (map != null)
+            map.remove(key);
         lastTouched = System.currentTimeMillis();
     }
 
@@ -84,11 +85,19 @@ public class SimpleSession implements Session
      * Get an enumeration of the keys in this session
      */
     public Enumeration getKeys() {
-        if (rep != null)
-            return rep.keys();
+        ConcurrentHashMap map = rep;
+        if (map != null)
+            return map.keys();
         return null;
     }
 
+    private synchronized ConcurrentHashMap getMap() {
+        if (rep == null) {
+            rep = new ConcurrentHashMap(4);
+        }
+        return rep;
+    }
+
     /** Set the session's time-to-live.
      *
      * This is implementation-specific, but basically should be the #
@@ -134,10 +143,7 @@ public class SimpleSession implements Session
      * which use database connections, etc. it might be an object wrapping
      * a table ID or somesuch.
      */
-    public synchronized Object getLockObject() {
-        if (rep == null) {
-            rep = new Hashtable();
-        }
-        return rep;
+    public Object getLockObject() {
+        return getMap();
     }
 }
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.stats;
+
+import org.apache.axis.description.OperationDesc;
+
+/**
+ * The measurements taken during one server side invocation, kept in its
+ * MessageContext until they can be added to the statistics of the service
+ * and of the operation invoked.
+ * <p>
+ * The request may be parsed before the service is known, so parse times
+ * are accumulated here first.  The response is written after the service
+ * has returned, so its size and serialization time go straight to the
+ * statistics.
+ */
+public class InvocationRecord {
+    private ServiceStats service;
+    private InvocationStats operation;
+
+    private long start;
+    private long parseTime = 0;
+    private long parseTimeAtStart = 0;
+    private long providerTime = 0;
+    private long requestBytes = 0;
+    private boolean parsed = false;
+    private boolean provided = false;
+
+    /**
+     * Start timing the invocation of a service.
+     *
+     * @return false if a service invocation has been started already
+     */
+    public boolean begin(ServiceStats service) {
+        if (this.service != null) {
+            return false;
+        }
+        this.service = service;
+        service.begin();
+        parseTimeAtStart = parseTime;
+        start = System.nanoTime();
+        return true;
+    }
+
+    /**
+     * Note which operation is being invoked, as soon as dispatch resolves
+     * it: it is in flight from then until {@link #end(boolean)}.  Only the
+     * first operation counts.
+     */
+    public void setOperation(OperationDesc desc) {
+        if (service != null && operation == null && desc != null) {
+            operation = service.getOperationStats(desc);
+            operation.begin();
+        }
+    }
+
+    /**
+     * Add the time spent parsing (part of) the request.
+     *
+     * @param nanos the time spent, in nanoseconds
+     * @param bytes the number of bytes parsed
+     */
+    public void addParseTime(long nanos, long bytes) {
+        parseTime += nanos;
+        requestBytes += bytes;
+        parsed = true;
+    }
+
+    /**
+     * @return the time spent parsing so far, in nanoseconds
+     */
+    public long getParseTime() {
+        return parseTime;
+    }
+
+    /**
+     * Add the time spent in the provider, not counting parsing.
+     */
+    public void addProviderTime(long nanos) {
+        providerTime += Math.max(nanos, 0);
+        provided = true;
+    }
+
+    /**
+     * Record the measurements of the service invocation started with
+     * {@link #begin(ServiceStats)}.
+     *
+     * @param fault true if the invocation failed
+     */
+    public void end(boolean fault) {
+        long total = System.nanoTime() - start;
+        long handlers = total - (parseTime - parseTimeAtStart) - providerTime;
+        record(service, fault, total, Math.max(handlers, 0));
+        if (operation != null) {
+            record(operation, fault, total, Math.max(handlers, 0));
+        }
+    }
+
+    private void record(InvocationStats stats, boolean fault,
+                        long total, long handlers) {
+        if (parsed) {
+            stats.recordPhase(InvocationStats.PARSE, parseTime);
+            stats.recordRequestSize(requestBytes);
+        }
+        if (provided) {
+            stats.recordPhase(InvocationStats.PROVIDER, providerTime);
+        }
+        stats.recordPhase(InvocationStats.HANDLERS, handlers);
+        stats.recordPhase(InvocationStats.TOTAL, total);
+        stats.end(fault);
+    }
+
+    /**
+     * Record the size of the response, and how long writing it took.
+     * Nothing is recorded if no service has been invoked.
+     */
+    public void recordResponse(long bytes, long nanos) {
+        if (service != null) {
+            service.recordResponse(bytes, nanos);
+            if (operation != null) {
+                operation.recordResponse(bytes, nanos);
+            }
+        }
+    }
+
+    /**
+     * @return true once a service invocation has been started
+     */
+    public boolean hasService() {
+        return service != null;
+    }
+}
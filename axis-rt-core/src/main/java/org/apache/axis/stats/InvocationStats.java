@@ -0,0 +1,207 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.stats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Invocation statistics of a service or of one of its operations: how
+ * often it was invoked, how often it failed, how many calls are in
+ * progress, how long each phase of the calls took and how large the
+ * messages were.
+ * <p>
+ * All counters are striped, so recording costs little even when many
+ * threads invoke the same service.
+ */
+public class InvocationStats {
+    /** time spent parsing the request */
+    public static final int PARSE = 0;
+    /** time spent in the handler chains, not counting the other phases */
+    public static final int HANDLERS = 1;
+    /** time spent in the provider, e.g. calling the service object */
+    public static final int PROVIDER = 2;
+    /** time spent writing the response */
+    public static final int SERIALIZE = 3;
+    /** time from the start of the request chain to the end of the
+        response chain */
+    public static final int TOTAL = 4;
+
+    private static final String[] PHASE_NAMES =
+        { "parse", "handlers", "provider", "serialize", "total" };
+
+    private final String name;
+
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder faults = new LongAdder();
+    private final LongAdder inFlight = new LongAdder();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+    private final LongAdder responses = new LongAdder();
+    private final LatencyHistogram[] phases =
+        new LatencyHistogram[PHASE_NAMES.length];
+
+    public InvocationStats(String name) {
+        this.name = name;
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * @return the name of the service or operation
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Note the start of a call.
+     */
+    public void begin() {
+        inFlight.increment();
+    }
+
+    /**
+     * Note the end of a call started with {@link #begin()}.
+     *
+     * @param fault true if the call failed
+     */
+    public void end(boolean fault) {
+        inFlight.decrement();
+        invocations.increment();
+        if (fault) {
+            faults.increment();
+        }
+    }
+
+    /**
+     * Record how long a phase of a call took.
+     *
+     * @param phase one of PARSE, HANDLERS, PROVIDER, SERIALIZE or TOTAL
+     * @param nanos the duration, in nanoseconds
+     */
+    public void recordPhase(int phase, long nanos) {
+        phases[phase].record(nanos);
+    }
+
+    /**
+     * Record the size of a request.
+     */
+    public void recordRequestSize(long bytes) {
+        requestBytes.add(bytes);
+    }
+
+    /**
+     * Record the size of a response, and how long writing it took.
+     */
+    public void recordResponse(long bytes, long nanos) {
+        responses.increment();
+        responseBytes.add(bytes);
+        phases[SERIALIZE].record(nanos);
+    }
+
+    /**
+     * @return the number of calls which have completed
+     */
+    public long getInvocationCount() {
+        return invocations.sum();
+    }
+
+    /**
+     * @return the number of calls which failed
+     */
+    public long getFaultCount() {
+        return faults.sum();
+    }
+
+    /**
+     * @return the number of calls in progress
+     */
+    public long getInFlightCount() {
+        return inFlight.sum();
+    }
+
+    /**
+     * @return the total size of the requests parsed, in bytes
+     */
+    public long getRequestBytes() {
+        return requestBytes.sum();
+    }
+
+    /**
+     * @return the total size of the responses written, in bytes
+     */
+    public long getResponseBytes() {
+        return responseBytes.sum();
+    }
+
+    /**
+     * @return the number of responses written
+     */
+    public long getResponseCount() {
+        return responses.sum();
+    }
+
+    /**
+     * @param phase one of PARSE, HANDLERS, PROVIDER, SERIALIZE or TOTAL
+     * @return the durations recorded for the phase
+     */
+    public LatencyHistogram getPhase(int phase) {
+        return phases[phase];
+    }
+
+    /**
+     * @return the number of phases, TOTAL included
+     */
+    public static int getPhaseCount() {
+        return PHASE_NAMES.length;
+    }
+
+    /**
+     * @return the name of a phase, e.g. "provider"
+     */
+    public static String getPhaseName(int phase) {
+        return PHASE_NAMES[phase];
+    }
+
+    /**
+     * @param name the name of a phase, e.g. "provider"
+     * @return the phase, or -1 if there is no such phase
+     */
+    public static int getPhase(String name) {
+        for (int i = 0; i < PHASE_NAMES.length; i++) {
+            if (PHASE_NAMES[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Forget everything recorded so far, except for the calls in progress.
+     */
+    public void reset() {
+        invocations.reset();
+        faults.reset();
+        requestBytes.reset();
+        responseBytes.reset();
+        responses.reset();
+        for (int i = 0; i < phases.length; i++) {
+            phases[i].reset();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.stats;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * A histogram of durations, in buckets whose bounds are powers of two
+ * microseconds.  Every bucket is a striped counter, so threads recording
+ * durations at the same time don't contend with each other.
+ */
+public class LatencyHistogram {
+    /** the number of buckets; the last one takes everything above 2^30 us */
+    public static final int BUCKETS = 32;
+
+    /** durations are put in buckets by their number of 1024 ns units */
+    private static final int UNIT_SHIFT = 10;
+
+    private static final LongBinaryOperator MAX = new LongBinaryOperator() {
+        public long applyAsLong(long left, long right) {
+            return Math.max(left, right);
+        }
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(MAX, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record a duration.
+     *
+     * @param nanos the duration, in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        int bucket = 64 - Long.numberOfLeadingZeros(nanos >>> UNIT_SHIFT);
+        buckets[Math.min(bucket, BUCKETS - 1)].increment();
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    /**
+     * @return the number of durations recorded
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += buckets[i].sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return the sum of the durations recorded, in nanoseconds
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * @return the mean duration, in nanoseconds
+     */
+    public long getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : getTotal() / count;
+    }
+
+    /**
+     * @return the longest duration recorded, in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return the number of durations in each bucket
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * @return the upper bound of a bucket, in nanoseconds
+     */
+    public static long getBucketBound(int bucket) {
+        return 1L << (bucket + UNIT_SHIFT);
+    }
+
+    /**
+     * Estimate a percentile by the upper bound of the bucket it falls in,
+     * but never more than the longest duration recorded.
+     *
+     * @param percent the percentile, e.g. 99
+     * @return the estimate, in nanoseconds, 0 if nothing has been recorded
+     */
+    public long getPercentile(double percent) {
+        long[] counts = getBucketCounts();
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * percent / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(getBucketBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Forget all the durations recorded.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i].reset();
+        }
+        total.reset();
+        max.reset();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.stats;
+
+import org.apache.axis.AxisProperties;
+import org.apache.axis.description.OperationDesc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The invocation statistics of a service, and of each of its operations.
+ * Operations are told apart by name, so overloaded operations share their
+ * statistics.
+ */
+public class ServiceStats extends InvocationStats {
+    /** the key for the Axis Property that enables invocation statistics */
+    public static final String ENABLED_PROPERTY_KEY = "axis.stats.enabled";
+
+    private static final boolean enabled = Boolean.valueOf(
+            AxisProperties.getProperty(ENABLED_PROPERTY_KEY, "true"))
+            .booleanValue();
+
+    private static volatile StatsListener listener;
+
+    private final ConcurrentHashMap operations = new ConcurrentHashMap();
+
+    protected ServiceStats(String name) {
+        super(name);
+    }
+
+    /**
+     * Create the statistics of a service, and tell the listener.
+     *
+     * @param name the name of the service
+     */
+    public static ServiceStats create(String name) {
+        ServiceStats stats = new ServiceStats(name);
+        StatsListener l = listener;
+        if (l != null) {
+            l.serviceAdded(stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Set the listener told about new service and operation statistics.
+     */
+    public static void setListener(StatsListener l) {
+        listener = l;
+    }
+
+    /**
+     * @return true unless statistics have been disabled with the
+     *         axis.stats.enabled property
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the statistics of an operation, created if need be
+     */
+    public InvocationStats getOperationStats(OperationDesc operation) {
+        return getOperationStats(operation.getName());
+    }
+
+    /**
+     * @return the statistics of an operation, created if need be
+     */
+    public InvocationStats getOperationStats(String operationName) {
+        InvocationStats stats =
+                (InvocationStats) operations.get(operationName);
+        if (stats == null) {
+            stats = new InvocationStats(operationName);
+            InvocationStats existing = (InvocationStats)
+                    operations.putIfAbsent(operationName, stats);
+            if (existing != null) {
+                stats = existing;
+            } else {
+                StatsListener l = listener;
+                if (l != null) {
+                    l.operationAdded(this, stats);
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * @return the names of the operations with statistics, sorted
+     */
+    public String[] getOperationNames() {
+        List names = new ArrayList(operations.keySet());
+        Collections.sort(names);
+        return (String[]) names.toArray(new String[names.size()]);
+    }
+
+    /**
+     * Forget everything recorded so far, for the operations too.
+     */
+    public void reset() {
+        super.reset();
+        for (Iterator i = operations.values().iterator(); i.hasNext();) {
+            ((InvocationStats) i.next()).reset();
+        }
+    }
+}
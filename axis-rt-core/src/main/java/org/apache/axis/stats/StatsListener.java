@@ -0,0 +1,36 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.stats;
+
+/**
+ * Told when statistics start being kept for a service or an operation,
+ * e.g. to publish them.
+ *
+ * @see ServiceStats#setListener(StatsListener)
+ */
+public interface StatsListener {
+    /**
+     * Statistics are now kept for a service, typically because it has been
+     * invoked for the first time since it was deployed.
+     */
+    void serviceAdded(ServiceStats service);
+
+    /**
+     * Statistics are now kept for an operation of a service.
+     */
+    void operationAdded(ServiceStats service, InvocationStats operation);
+}
@@ -25,6 +25,7 @@ import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.Iterator;
+import java.util.concurrent.Semaphore;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -104,6 +105,26 @@ public class AxisServlet extends AxisServletBase {
     public static final String INIT_PROPERTY_SERVICES_PATH =
             "axis.servicesPath";
 
+    /**
+     * Set when the servlet container dispatches requests on virtual
+     * threads, as the standalone server does, to bound the number of
+     * requests run through the engine at the same time.  The engine still
+     * runs on the container's thread, which keeps its naming, security and
+     * transaction contexts.
+     */
+    public static final String INIT_PROPERTY_VIRTUAL_THREADS =
+            "axis.virtualThreads";
+
+    /**
+     * The maximum number of requests run through the engine at the same
+     * time when {@link #INIT_PROPERTY_VIRTUAL_THREADS} is set; further
+     * requests wait for their turn.
+     */
+    public static final String INIT_PROPERTY_MAX_CONCURRENT_INVOCATIONS =
+            "axis.maxConcurrentInvocations";
+
+    public static final int DEFAULT_MAX_CONCURRENT_INVOCATIONS = 1000;
+
     // These have default values.
     private String transportName;
 
@@ -139,6 +160,12 @@ public class AxisServlet extends AxisServletBase {
     protected String getJWSClassDir() {return jwsClassDir;
     }
 
+    /**
+     * Bounds the requests run through the engine when
+     * {@link #INIT_PROPERTY_VIRTUAL_THREADS} is set, null otherwise.
+     */
+    private Semaphore invocations = null;
+
 
     /**
      * create a new servlet instance
@@ -179,6 +206,22 @@ public class AxisServlet extends AxisServletBase {
         servicesPath = getOption(context, INIT_PROPERTY_SERVICES_PATH,
                                  "/services/");
 
+        if (JavaUtils.isTrueExplicitly(getOption(context,
+                INIT_PROPERTY_VIRTUAL_THREADS, null))) {
+            int max = DEFAULT_MAX_CONCURRENT_INVOCATIONS;
+            String value = getOption(context,
+                    INIT_PROPERTY_MAX_CONCURRENT_INVOCATIONS, null);
+            if (value != null) {
+                try {
+                    max = Integer.parseInt(value.trim());
+                } catch (NumberFormatException e) {
+                    log.warn(Messages.getMessage("badIntegerOption00",
+                            INIT_PROPERTY_MAX_CONCURRENT_INVOCATIONS, value));
+                }
+            }
+            invocations = new Semaphore(Math.max(max, 1));
+        }
+
         /**
          * There are DEFINATE problems here if
          * getHomeDir and/or getDefaultJWSClassDir return null
@@ -575,6 +618,29 @@ public class AxisServlet extends AxisServletBase {
     }
 
 
+    /**
+     * Run a request through the engine on the calling thread, waiting for
+     * its turn if {@link #INIT_PROPERTY_VIRTUAL_THREADS} is set.
+     */
+    private void invoke(AxisEngine engine, MessageContext msgContext)
+            throws AxisFault {
+        if (invocations == null) {
+            engine.invoke(msgContext);
+            return;
+        }
+        try {
+            invocations.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw AxisFault.makeFault(e);
+        }
+        try {
+            engine.invoke(msgContext);
+        } finally {
+            invocations.release();
+        }
+    }
+
     /**
      * Process a POST to the servlet by handing it off to the Axis Engine.
      * Here is where SOAP messages are received
@@ -698,7 +764,7 @@ public class AxisServlet extends AxisServletBase {
                     log.debug("Invoking Axis Engine.");
                     //here we run the message by the engine
                 }
-                engine.invoke(msgContext);
+                invoke(engine, msgContext);
                 if (isDebug) {
                     log.debug("Return from Axis Engine.");
                 }
@@ -55,7 +55,7 @@ public class ChunkedInputStream extends java.io.FilterInputStream {
                 }
             }
             int rc = in.read();
-            if (rc > 0) {
+            if (rc > -1) {
                 chunkSize--;
             }
             return rc;
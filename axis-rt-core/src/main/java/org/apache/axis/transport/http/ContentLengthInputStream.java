@@ -0,0 +1,104 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.axis.transport.http;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * Limits reading to the Content-Length of an HTTP message body, so that
+ * the underlying connection can be used for the next message.  Closing
+ * this stream does not close the underlying stream.
+ */
+public class ContentLengthInputStream extends java.io.FilterInputStream {
+
+    protected long remaining;
+    protected volatile boolean closed = false;
+
+    public ContentLengthInputStream (InputStream is, long contentLength) {
+        super(is);
+        this.remaining = contentLength;
+    }
+
+    public synchronized int read()
+        throws IOException {
+        if (closed || remaining <= 0) {
+            return -1;
+        }
+        int rc = in.read();
+        if (rc == -1) {
+            throw new IOException("HTTP stream closed before the end of the message body.");
+        }
+        remaining--;
+        return rc;
+    }
+
+    public int read(byte[] b)
+        throws IOException {
+        return read(b, 0, b.length);
+    }
+
+    public synchronized int read(byte[] b,
+                                 int off,
+                                 int len)
+        throws IOException {
+        if (closed || remaining <= 0) {
+            return -1;
+        }
+        int rc = in.read(b, off, (int) Math.min(len, remaining));
+        if (rc == -1) {
+            throw new IOException("HTTP stream closed before the end of the message body.");
+        }
+        remaining -= rc;
+        return rc;
+    }
+
+    public synchronized long skip(long n)
+        throws IOException {
+        if (closed) {
+            return 0;
+        }
+        long skipped = in.skip(Math.min(n, remaining));
+        remaining -= skipped;
+        return skipped;
+    }
+
+    public synchronized int available()
+        throws IOException {
+        if (closed) {
+            return 0;
+        }
+        return (int) Math.min(in.available(), remaining);
+    }
+
+    public void close() throws IOException {
+        closed = true;
+    }
+
+    public void mark(int readlimit) {
+    }
+
+    public void reset()
+        throws IOException {
+        throw new IOException("Don't support marked streams");
+    }
+
+    public boolean markSupported() {
+        return false;
+    }
+}
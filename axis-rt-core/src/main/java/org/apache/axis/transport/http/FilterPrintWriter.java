@@ -34,6 +34,7 @@ import java.io.PrintWriter;
 public class FilterPrintWriter extends PrintWriter {
 
     private PrintWriter _writer = null;
+    private OutputStream _stream = null;
     private HttpServletResponse _response = null;
     private static OutputStream _sink = new NullOutputStream();
 
@@ -53,6 +54,23 @@ public class FilterPrintWriter extends PrintWriter {
         return _writer;
     }
 
+    /**
+     * Get the response output stream, for content which is already
+     * encoded.  Once this has been called, flush() and close() apply to
+     * the stream, and nothing may be written to this writer.
+     *
+     * @throws IllegalStateException if characters have already been written
+     */
+    public OutputStream getOutputStream() throws IOException {
+        if (_stream == null) {
+            if (_writer != null) {
+                throw new IllegalStateException();
+            }
+            _stream = _response.getOutputStream();
+        }
+        return _stream;
+    }
+
     public void write(int i) {
         getPrintWriter().write(i);
     }
@@ -74,14 +92,33 @@ public class FilterPrintWriter extends PrintWriter {
     }
 
     public void flush() {
+        if (_stream != null) {
+            try {
+                _stream.flush();
+            } catch (IOException e) {
+                setError();
+            }
+            return;
+        }
         getPrintWriter().flush();
     }
 
     public void close() {
+        if (_stream != null) {
+            try {
+                _stream.close();
+            } catch (IOException e) {
+                setError();
+            }
+            return;
+        }
         getPrintWriter().close();
     }
 
     public boolean checkError() {
+        if (_stream != null) {
+            return super.checkError();
+        }
         return getPrintWriter().checkError();
     }
 
@@ -0,0 +1,577 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.axis.transport.http;
+
+import org.apache.axis.AxisProperties;
+import org.apache.axis.components.logger.LogFactory;
+import org.apache.axis.components.net.DefaultSocketFactory;
+import org.apache.axis.components.net.SocketFactory;
+import org.apache.axis.components.net.TransportClientProperties;
+import org.apache.axis.components.net.TransportClientPropertiesFactory;
+import org.apache.axis.encoding.Base64;
+import org.apache.axis.utils.Messages;
+import org.apache.commons.logging.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of persistent (HTTP/1.1 keep-alive) connections used by
+ * {@link HTTPSender}.  Connections are grouped by route, i.e. by
+ * protocol, host and port, and by the proxy and socket factory settings
+ * they were opened with, and the number of connections allocated
+ * per route and in total is bounded.  Idle connections are evicted once
+ * they have been idle for longer than the idle timeout, and connections
+ * that have been idle for a while are checked for staleness before they
+ * are handed out again.
+ * <p>
+ * When no connection can be allocated within the pool timeout, the
+ * sender falls back to a non persistent connection, so the limits never
+ * block a call for longer than the configured timeout.
+ * <p>
+ * The defaults may be overridden with the following Axis properties:
+ * <ul>
+ * <li><tt>axis.http.sender.pool.enabled</tt> (default <tt>true</tt>)</li>
+ * <li><tt>axis.http.sender.pool.maximum.connections.per.route</tt> (default 10)</li>
+ * <li><tt>axis.http.sender.pool.maximum.total.connections</tt> (default 50)</li>
+ * <li><tt>axis.http.sender.pool.timeout</tt> in ms (default 0, don't wait)</li>
+ * <li><tt>axis.http.sender.pool.idle.timeout</tt> in ms (default 30000)</li>
+ * <li><tt>axis.http.sender.pool.validate.after.inactivity</tt> in ms (default 2000)</li>
+ * </ul>
+ */
+public class HTTPConnectionPool {
+
+    protected static Log log =
+            LogFactory.getLog(HTTPConnectionPool.class.getName());
+
+    /** the key for the Axis Property that enables the connection pool */
+    public static final String POOL_ENABLED_PROPERTY_KEY =
+        "axis.http.sender.pool.enabled";
+
+    /** the key for the Axis Property that controls the maximum connections
+        per route allowed in the pool */
+    public static final String MAXIMUM_CONNECTIONS_PER_ROUTE_PROPERTY_KEY =
+        "axis.http.sender.pool.maximum.connections.per.route";
+
+    /** the key for the Axis Property that controls the maximum total connections
+        allowed in the pool */
+    public static final String MAXIMUM_TOTAL_CONNECTIONS_PROPERTY_KEY =
+        "axis.http.sender.pool.maximum.total.connections";
+
+    /** the key for the Axis Property that sets how long (in ms) a call waits
+        for a pooled connection before falling back to a non persistent one */
+    public static final String POOL_TIMEOUT_PROPERTY_KEY =
+        "axis.http.sender.pool.timeout";
+
+    /** the key for the Axis Property that sets how long (in ms) a connection
+        may stay idle in the pool before it is closed */
+    public static final String IDLE_TIMEOUT_PROPERTY_KEY =
+        "axis.http.sender.pool.idle.timeout";
+
+    /** the key for the Axis Property that sets after how long (in ms) of
+        inactivity an idle connection is checked for staleness */
+    public static final String VALIDATE_AFTER_INACTIVITY_PROPERTY_KEY =
+        "axis.http.sender.pool.validate.after.inactivity";
+
+    private static HTTPConnectionPool instance;
+    private static boolean initialized = false;
+
+    private final int maxPerRoute;
+    private final int maxTotal;
+    private final long poolTimeout;
+    private final long idleTimeout;
+    private final long validateAfterInactivity;
+
+    /** route -> RouteState */
+    private final Map routes = new HashMap();
+    private int totalAllocated = 0;
+    private long lastSweep = System.currentTimeMillis();
+    private boolean shutdown = false;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong waitTime = new AtomicLong();
+    private final AtomicLong staleClosed = new AtomicLong();
+    private final AtomicLong idleClosed = new AtomicLong();
+
+    /**
+     * Create a pool.
+     *
+     * @param maxPerRoute maximum number of connections per route
+     * @param maxTotal maximum number of connections for all routes
+     * @param poolTimeout how long (in ms) to wait for a connection, 0 means don't wait
+     * @param idleTimeout how long (in ms) a connection may stay idle, 0 means forever
+     * @param validateAfterInactivity idle time (in ms) after which a connection
+     *        is checked for staleness before reuse, a negative value disables the check
+     */
+    public HTTPConnectionPool(int maxPerRoute, int maxTotal, long poolTimeout,
+                              long idleTimeout, long validateAfterInactivity) {
+        if (maxPerRoute < 1 || maxTotal < 1) {
+            throw new IllegalArgumentException(
+                    Messages.getMessage("badPoolSize00"));
+        }
+        this.maxPerRoute = maxPerRoute;
+        this.maxTotal = maxTotal;
+        this.poolTimeout = poolTimeout;
+        this.idleTimeout = idleTimeout;
+        this.validateAfterInactivity = validateAfterInactivity;
+    }
+
+    /**
+     * Get the pool shared by all HTTPSender instances, configured from
+     * the Axis properties.
+     *
+     * @return the pool, or null if connection pooling is disabled
+     */
+    public static synchronized HTTPConnectionPool getInstance() {
+        if (!initialized) {
+            initialized = true;
+            if (Boolean.valueOf(AxisProperties.getProperty(
+                    POOL_ENABLED_PROPERTY_KEY, "true")).booleanValue()) {
+                instance = new HTTPConnectionPool(
+                        getIntegerProperty(MAXIMUM_CONNECTIONS_PER_ROUTE_PROPERTY_KEY, "10"),
+                        getIntegerProperty(MAXIMUM_TOTAL_CONNECTIONS_PROPERTY_KEY, "50"),
+                        getIntegerProperty(POOL_TIMEOUT_PROPERTY_KEY, "0"),
+                        getIntegerProperty(IDLE_TIMEOUT_PROPERTY_KEY, "30000"),
+                        getIntegerProperty(VALIDATE_AFTER_INACTIVITY_PROPERTY_KEY, "2000"));
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Replace the shared pool.  The previous pool is left as is, call
+     * {@link #shutdown()} to close its connections.
+     *
+     * @param pool the new pool, or null to disable connection pooling
+     */
+    public static synchronized void setInstance(HTTPConnectionPool pool) {
+        instance = pool;
+        initialized = true;
+    }
+
+    private static int getIntegerProperty(String property, String dephault) {
+        return Integer.parseInt(AxisProperties.getProperty(property, dephault));
+    }
+
+    /**
+     * Build the key identifying the route of a connection.
+     */
+    public static String getRoute(String protocol, String host, int port) {
+        return protocol.toLowerCase() + "://" + host.toLowerCase() + ":" + port;
+    }
+
+    /**
+     * Build the key identifying the route of a connection opened by the
+     * given socket factory.  Connections opened through another proxy, as
+     * another proxy user, or by another factory or with other options, as
+     * for a different client certificate, don't share a route.  The connect
+     * timeout doesn't matter once the connection is open.  The proxy
+     * credentials only appear in the key as a digest.
+     *
+     * @param factory the socket factory opening connections
+     * @param options the options of the factory, or null
+     */
+    public static String getRoute(String protocol, String host, int port,
+                                  SocketFactory factory, Hashtable options) {
+        StringBuffer route = new StringBuffer(getRoute(protocol, host, port));
+        TransportClientProperties tcp =
+            TransportClientPropertiesFactory.create(protocol.toLowerCase());
+        if (tcp != null && tcp.getProxyHost().length() != 0) {
+            route.append(" proxy=").append(tcp.getProxyUser())
+                 .append(':').append(digest(tcp.getProxyUser() + ":" +
+                                            tcp.getProxyPassword()))
+                 .append('@').append(tcp.getProxyHost())
+                 .append(':').append(tcp.getProxyPort())
+                 .append(" nonProxyHosts=").append(tcp.getNonProxyHosts());
+        }
+        route.append(" factory=").append(factory.getClass().getName())
+             .append('@')
+             .append(Integer.toHexString(System.identityHashCode(factory)));
+        if (options != null && !options.isEmpty()) {
+            TreeMap sorted = new TreeMap();
+            for (Iterator it = options.entrySet().iterator(); it.hasNext();) {
+                Map.Entry entry = (Map.Entry) it.next();
+                String key = String.valueOf(entry.getKey());
+                if (!key.equals(DefaultSocketFactory.CONNECT_TIMEOUT)) {
+                    sorted.put(key, String.valueOf(entry.getValue()));
+                }
+            }
+            route.append(" options=").append(sorted);
+        }
+        return route.toString();
+    }
+
+    /**
+     * @return the SHA-256 digest of the given text, in base64
+     */
+    private static String digest(String text) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return Base64.encode(md.digest(text.getBytes("UTF-8")));
+        } catch (Exception e) {
+            // SHA-256 and UTF-8 are always available
+            throw new IllegalStateException(e.toString());
+        }
+    }
+
+    /**
+     * Allocate a connection for the given route to the holder.  On return
+     * the holder either carries an idle connection taken from the pool, or
+     * carries no socket but a pool permit, in which case the caller opens a
+     * new connection which is returned to the pool on release.  A holder
+     * asking for a fresh connection never gets an idle one.
+     *
+     * @return false if no connection could be allocated within the pool
+     *         timeout; the caller should then use a non persistent connection.
+     */
+    public boolean lease(SocketHolder holder, String route)
+            throws InterruptedException {
+        Connection conn;
+        synchronized (this) {
+            if (shutdown) {
+                return false;
+            }
+            RouteState state = getRouteState(route);
+            long deadline = 0;
+            long start = 0;
+            while (true) {
+                if (!holder.isFreshConnection()) {
+                    conn = takeIdle(state);
+                    if (conn != null) {
+                        break;
+                    }
+                } else if (state.allocated >= maxPerRoute
+                           && !state.idle.isEmpty()) {
+                    // make room for the new connection
+                    Connection oldest = (Connection) state.idle.removeLast();
+                    free(state);
+                    closeQuietly(oldest.socket);
+                }
+                conn = null;
+                if (state.allocated < maxPerRoute) {
+                    if (totalAllocated >= maxTotal) {
+                        closeOldestIdle();
+                    }
+                    if (totalAllocated < maxTotal) {
+                        state.allocated++;
+                        totalAllocated++;
+                        break;
+                    }
+                }
+                long now = System.currentTimeMillis();
+                if (start == 0) {
+                    if (poolTimeout <= 0) {
+                        overflows.incrementAndGet();
+                        return false;
+                    }
+                    start = now;
+                    deadline = now + poolTimeout;
+                    waits.incrementAndGet();
+                }
+                if (now >= deadline || shutdown) {
+                    waitTime.addAndGet(now - start);
+                    overflows.incrementAndGet();
+                    return false;
+                }
+                wait(deadline - now);
+            }
+            if (start != 0) {
+                waitTime.addAndGet(System.currentTimeMillis() - start);
+            }
+        }
+
+        holder.setPool(this, route);
+        if (conn == null) {
+            misses.incrementAndGet();
+            return true;
+        }
+        if (validateAfterInactivity >= 0
+                && System.currentTimeMillis() - conn.idleSince > validateAfterInactivity
+                && isStale(conn)) {
+            staleClosed.incrementAndGet();
+            closeQuietly(conn.socket);
+            // keep the permit and let the caller open a fresh connection
+            misses.incrementAndGet();
+            return true;
+        }
+        hits.incrementAndGet();
+        holder.setConnection(conn.socket, conn.input,
+                             conn.proxyHeaders, conn.useFullURL);
+        return true;
+    }
+
+    /**
+     * Return a connection to the pool after the response has been fully read.
+     */
+    void release(String route, Socket socket, InputStream input,
+                 String proxyHeaders, boolean useFullURL) {
+        synchronized (this) {
+            RouteState state = getRouteState(route);
+            if (!shutdown && !socket.isClosed()) {
+                Connection conn = new Connection(socket, input,
+                                                 proxyHeaders, useFullURL);
+                state.idle.addFirst(conn);
+                sweepIdle();
+                notifyAll();
+                return;
+            }
+            free(state);
+        }
+        closeQuietly(socket);
+    }
+
+    /**
+     * Give back the permit of a connection that was closed rather than
+     * returned to the pool.
+     */
+    synchronized void free(String route) {
+        free(getRouteState(route));
+    }
+
+    /**
+     * Close the connections that have been idle for longer than the
+     * given time.
+     *
+     * @param idleTime idle time in ms
+     */
+    public void closeIdleConnections(long idleTime) {
+        LinkedList expired = new LinkedList();
+        synchronized (this) {
+            long limit = System.currentTimeMillis() - idleTime;
+            for (Iterator it = routes.values().iterator(); it.hasNext();) {
+                RouteState state = (RouteState) it.next();
+                while (!state.idle.isEmpty()
+                        && ((Connection) state.idle.getLast()).idleSince <= limit) {
+                    expired.add(state.idle.removeLast());
+                    free(state);
+                }
+            }
+        }
+        for (Iterator it = expired.iterator(); it.hasNext();) {
+            idleClosed.incrementAndGet();
+            closeQuietly(((Connection) it.next()).socket);
+        }
+    }
+
+    /**
+     * Close all idle connections and stop pooling; connections in use
+     * are closed when they are released.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+            notifyAll();
+        }
+        closeIdleConnections(-1);
+    }
+
+    /** @return the number of calls served by a pooled connection */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /** @return the number of calls that had to open a new pooled connection */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /** @return the number of calls that fell back to a non persistent connection */
+    public long getOverflowCount() {
+        return overflows.get();
+    }
+
+    /** @return the number of calls that had to wait for a connection */
+    public long getWaitCount() {
+        return waits.get();
+    }
+
+    /** @return the total time (in ms) calls spent waiting for a connection */
+    public long getTotalWaitTime() {
+        return waitTime.get();
+    }
+
+    /** @return the number of pooled connections found to be stale */
+    public long getStaleCount() {
+        return staleClosed.get();
+    }
+
+    /** @return the number of pooled connections closed after being idle too long */
+    public long getIdleEvictionCount() {
+        return idleClosed.get();
+    }
+
+    /** @return the number of connections currently allocated, idle or not */
+    public synchronized int getAllocatedConnections() {
+        return totalAllocated;
+    }
+
+    /** @return the number of idle connections currently in the pool */
+    public synchronized int getIdleConnections() {
+        int count = 0;
+        for (Iterator it = routes.values().iterator(); it.hasNext();) {
+            count += ((RouteState) it.next()).idle.size();
+        }
+        return count;
+    }
+
+    private RouteState getRouteState(String route) {
+        RouteState state = (RouteState) routes.get(route);
+        if (state == null) {
+            state = new RouteState();
+            routes.put(route, state);
+        }
+        return state;
+    }
+
+    private void free(RouteState state) {
+        state.allocated--;
+        totalAllocated--;
+        notifyAll();
+    }
+
+    /**
+     * Take the most recently used idle connection of a route, closing the
+     * ones that have been idle for too long.  Called with the lock held.
+     */
+    private Connection takeIdle(RouteState state) {
+        long now = System.currentTimeMillis();
+        while (!state.idle.isEmpty()) {
+            Connection conn = (Connection) state.idle.removeFirst();
+            if (idleTimeout > 0 && now - conn.idleSince > idleTimeout) {
+                free(state);
+                idleClosed.incrementAndGet();
+                closeQuietly(conn.socket);
+                continue;
+            }
+            return conn;
+        }
+        return null;
+    }
+
+    /**
+     * Close the least recently used idle connection of any route to make
+     * room for a new connection.  Called with the lock held.
+     */
+    private void closeOldestIdle() {
+        RouteState oldest = null;
+        for (Iterator it = routes.values().iterator(); it.hasNext();) {
+            RouteState state = (RouteState) it.next();
+            if (!state.idle.isEmpty() && (oldest == null
+                    || ((Connection) state.idle.getLast()).idleSince
+                       < ((Connection) oldest.idle.getLast()).idleSince)) {
+                oldest = state;
+            }
+        }
+        if (oldest != null) {
+            Connection conn = (Connection) oldest.idle.removeLast();
+            free(oldest);
+            closeQuietly(conn.socket);
+        }
+    }
+
+    /**
+     * Periodically close the connections of all routes that have been idle
+     * for too long.  Called with the lock held.
+     */
+    private void sweepIdle() {
+        long now = System.currentTimeMillis();
+        if (idleTimeout <= 0 || now - lastSweep < Math.min(idleTimeout, 1000)) {
+            return;
+        }
+        lastSweep = now;
+        for (Iterator it = routes.values().iterator(); it.hasNext();) {
+            RouteState state = (RouteState) it.next();
+            while (!state.idle.isEmpty()
+                    && now - ((Connection) state.idle.getLast()).idleSince > idleTimeout) {
+                Connection conn = (Connection) state.idle.removeLast();
+                free(state);
+                idleClosed.incrementAndGet();
+                closeQuietly(conn.socket);
+            }
+            if (state.allocated == 0) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Check whether the server closed an idle connection (or sent unexpected
+     * data on it) by attempting a read with a very short timeout.
+     */
+    private static boolean isStale(Connection conn) {
+        try {
+            if (conn.input.available() > 0) {
+                return true;
+            }
+            int timeout = conn.socket.getSoTimeout();
+            try {
+                conn.socket.setSoTimeout(1);
+                conn.input.read();
+                return true;
+            } catch (SocketTimeoutException e) {
+                return false;
+            } finally {
+                conn.socket.setSoTimeout(timeout);
+            }
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.debug(Messages.getMessage("exception00"), e);
+        }
+    }
+
+    private static class RouteState {
+        /** idle connections, most recently used first */
+        final LinkedList idle = new LinkedList();
+        /** number of connections allocated to this route, idle or not */
+        int allocated = 0;
+    }
+
+    private static class Connection {
+        final Socket socket;
+        final InputStream input;
+        final String proxyHeaders;
+        final boolean useFullURL;
+        final long idleSince = System.currentTimeMillis();
+
+        Connection(Socket socket, InputStream input,
+                   String proxyHeaders, boolean useFullURL) {
+            this.socket = socket;
+            this.input = input;
+            this.proxyHeaders = proxyHeaders;
+            this.useFullURL = useFullURL;
+        }
+    }
+}
@@ -34,6 +34,7 @@ public class HTTPConstants {
     public static final String HEADER_PROTOCOL_V10 = "1.0".intern();
     public static final String HEADER_PROTOCOL_V11 = "1.1".intern();
     public static final String HEADER_POST = "POST";
+    public static final String HEADER_GET = "GET";
     public static final String HEADER_HOST = "Host";
     public static final String HEADER_CONTENT_DESCRIPTION = "Content-Description";
     public static final String HEADER_CONTENT_TYPE = "Content-Type";
@@ -83,6 +84,14 @@ public class HTTPConstants {
     public static final String HEADER_COOKIE2 = "Cookie2";
     public static final String HEADER_SET_COOKIE = "Set-Cookie";
     public static final String HEADER_SET_COOKIE2 = "Set-Cookie2";
+
+    /**
+     * Conditional request headers
+     */
+    public static final String HEADER_ETAG = "ETag";
+    public static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    public static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    public static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
     
     /** Integer
      */
@@ -118,6 +127,14 @@ public class HTTPConstants {
      * context property to true to have the request body gzip compressed.
      */
     public static final String MC_GZIP_REQUEST = "transport.http.gzipRequest";
+
+    /**
+     * Set this message context property to true if the request may safely
+     * be sent twice.  The sender then retries it once on a new connection
+     * when a pooled connection turns out to have been closed by the server.
+     * SOAP 1.2 GET requests are always retried.
+     */
+    public static final String MC_HTTP_IDEMPOTENT = "transport.http.idempotent";
  
     /**
      * @deprecated Should use javax.xml.rpc.Call.SOAPACTION_URI_PROPERTY instead.
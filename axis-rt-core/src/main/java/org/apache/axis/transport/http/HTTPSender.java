@@ -35,13 +35,13 @@ import org.apache.commons.logging.Log;
 import javax.xml.soap.MimeHeader;
 import javax.xml.soap.MimeHeaders;
 import javax.xml.soap.SOAPException;
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.net.SocketException;
 import java.net.URL;
 import java.util.Enumeration;
 import java.util.Hashtable;
@@ -105,6 +105,9 @@ public class HTTPSender extends BasicHandler {
     private static final String HEADER_TRANSFER_ENCODING_LC = 
         HTTPConstants.HEADER_TRANSFER_ENCODING.toLowerCase();
 
+    private static final String HEADER_CONNECTION_LC =
+        HTTPConstants.HEADER_CONNECTION.toLowerCase();
+
     /**
      * the url; used for error reporting
      */
@@ -127,26 +130,41 @@ public class HTTPSender extends BasicHandler {
         SocketHolder socketHolder = new SocketHolder(null);
 
         try {
-            BooleanHolder useFullURL = new BooleanHolder(false);
-            StringBuffer otherHeaders = new StringBuffer();
             targetURL = new URL(msgContext.getStrProp(MessageContext.TRANS_URL));
             String host = targetURL.getHost();
             int port = targetURL.getPort();
-            
-            // Send the SOAP request to the server
-            InputStream inp = writeToSocket(socketHolder, msgContext, targetURL,
-                        otherHeaders, host, port, msgContext.getTimeout(), useFullURL);
+            Object statusCode =
+                msgContext.getProperty(HTTPConstants.MC_HTTP_STATUS_CODE);
 
-            // Read the response back from the server
             Hashtable headers = new Hashtable();
-            inp = readHeadersFromSocket(socketHolder, msgContext, inp, headers);
+            InputStream inp;
+            try {
+                inp = send(socketHolder, msgContext, host, port, headers);
+            } catch (IOException e) {
+                // A pooled connection may have been closed by the server
+                // while idle; if no response was received, an idempotent
+                // request can safely be sent again on a new connection.
+                if (e instanceof AxisFault || !socketHolder.isReused()
+                        || msgContext.getProperty(HTTPConstants.MC_HTTP_STATUS_CODE)
+                           != statusCode
+                        || !isIdempotent(msgContext)) {
+                    throw e;
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug(Messages.getMessage("retryConnection00", host,
+                                                  "" + port), e);
+                }
+                socketHolder.close();
+                socketHolder = new SocketHolder(null);
+                socketHolder.setFreshConnection(true);
+                headers.clear();
+                inp = send(socketHolder, msgContext, host, port, headers);
+            }
             readFromSocket(socketHolder, msgContext, inp, headers);
         } catch (Exception e) {
             log.debug(e);
             try {
-	            if (socketHolder.getSocket() != null ) {
-	            	socketHolder.getSocket().close();
-	            }
+                socketHolder.close();
             } catch (IOException ie) {
             	// we shouldn't get here.
             }
@@ -159,7 +177,41 @@ public class HTTPSender extends BasicHandler {
     }
 
     /**
-     * Creates a socket connection to the SOAP server
+     * Send the request and read the headers of the response.
+     *
+     * @return the stream to read the body of the response from
+     */
+    private InputStream send(SocketHolder sockHolder,
+                             MessageContext msgContext,
+                             String host, int port,
+                             Hashtable headers)
+            throws Exception {
+        BooleanHolder useFullURL = new BooleanHolder(false);
+        StringBuffer otherHeaders = new StringBuffer();
+
+        // Send the SOAP request to the server
+        InputStream inp = writeToSocket(sockHolder, msgContext, targetURL,
+                otherHeaders, host, port, msgContext.getTimeout(), useFullURL);
+
+        // Read the response back from the server
+        return readHeadersFromSocket(sockHolder, msgContext, inp, headers);
+    }
+
+    /**
+     * @return true if the request may be sent again after a failure
+     */
+    private static boolean isIdempotent(MessageContext msgContext) {
+        if (msgContext.isPropertyTrue(HTTPConstants.MC_HTTP_IDEMPOTENT)) {
+            return true;
+        }
+        return msgContext.getSOAPConstants() == SOAPConstants.SOAP12_CONSTANTS
+            && HTTPConstants.HEADER_GET.equals(
+                   msgContext.getStrProp(SOAP12Constants.PROP_WEBMETHOD));
+    }
+
+    /**
+     * Creates a socket connection to the SOAP server, or reuses one from the
+     * connection pool if the holder asks for a persistent connection.
      *
      * @param protocol "http" for standard, "https" for ssl.
      * @param host host name
@@ -187,11 +239,37 @@ public class HTTPSender extends BasicHandler {
         if (factory == null) {
             throw new IOException(Messages.getMessage("noSocketFactory", protocol));
         }
-        Socket sock = factory.create(host, port, otherHeaders, useFullURL);
+        HTTPConnectionPool pool = HTTPConnectionPool.getInstance();
+        if (sockHolder.isKeepAlive() && pool != null) {
+            pool.lease(sockHolder, HTTPConnectionPool.getRoute(protocol,
+                                       host, port, factory, options));
+            if (sockHolder.getSocket() != null) {
+                if (log.isDebugEnabled()) {
+                    log.debug(Messages.getMessage("reuseConnection00", host,
+                                                  "" + port));
+                }
+                otherHeaders.append(sockHolder.getProxyHeaders());
+                useFullURL.value = sockHolder.isUseFullURL();
+                sockHolder.getSocket().setSoTimeout(timeout > 0 ? timeout : 0);
+                return;
+            }
+        }
+        int mark = otherHeaders.length();
+        Socket sock;
+        try {
+            sock = factory.create(host, port, otherHeaders, useFullURL);
+        } catch (Exception e) {
+            sockHolder.close();
+            throw e;
+        }
         if(timeout > 0) {
             sock.setSoTimeout(timeout);
         }
         sockHolder.setSocket(sock);
+        if (sockHolder.isPooled()) {
+            sockHolder.setConnectionDetails(otherHeaders.substring(mark),
+                                            useFullURL.value);
+        }
     }
 
     /**
@@ -321,10 +399,10 @@ public class HTTPSender extends BasicHandler {
             }
         }
 
-        if (!http10) {
-            //Force close for now.
-            //TODO HTTP/1.1
-            httpConnection = HTTPConstants.HEADER_CONNECTION_CLOSE;
+        if (!http10 && httpConnection == null) {
+            //HTTP 1.1 connections are persistent unless asked otherwise,
+            //the socket comes from (and goes back to) the connection pool.
+            sockHolder.setKeepAlive(true);
         }
 
         header2.append(" ");
@@ -393,15 +471,19 @@ public class HTTPSender extends BasicHandler {
             }
         }
 
+        getSocket(sockHolder, msgContext, targetURL.getProtocol(),
+                  host, port, timeout, otherHeaders, useFullURL);
+
+        if (!http10 && !sockHolder.isPooled()) {
+            //No pooled connection available, don't keep this one open.
+            httpConnection = HTTPConstants.HEADER_CONNECTION_CLOSE;
+        }
         if (null != httpConnection) {
             header2.append(HTTPConstants.HEADER_CONNECTION);
             header2.append(": ");
             header2.append(httpConnection);
             header2.append("\r\n");
         }
-
-        getSocket(sockHolder, msgContext, targetURL.getProtocol(),
-                  host, port, timeout, otherHeaders, useFullURL);
         
         if (null != otherHeaders) {
             //Add other headers to the end.
@@ -563,7 +645,7 @@ public class HTTPSender extends BasicHandler {
         String name, value;
         int returnCode = 0;
         if(null == inp) {
-            inp = new BufferedInputStream(sockHolder.getSocket().getInputStream());
+            inp = sockHolder.getInputStream();
         }
 
         if (headers == null) {
@@ -582,6 +664,11 @@ public class HTTPSender extends BasicHandler {
                 b = (byte) inp.read();
             }
             if (b == -1) {
+                if (returnCode == 0 && sockHolder.isReused()) {
+                    // the server closed the pooled connection
+                    throw new SocketException(
+                            Messages.getMessage("connectionClosed00"));
+                }
                 break;
             }
             readTooMuch = false;
@@ -637,6 +724,10 @@ public class HTTPSender extends BasicHandler {
                         tmp = tmp.substring(0, end);
                     }
                     returnCode = Integer.parseInt(tmp);
+                    if (!name.startsWith(HTTPConstants.HEADER_PROTOCOL_11)) {
+                        //Only HTTP 1.1 responses keep the connection open.
+                        sockHolder.setReusable(false);
+                    }
                     msgContext.setProperty(HTTPConstants.MC_HTTP_STATUS_CODE,
                             new Integer(returnCode));
                     msgContext.setProperty(HTTPConstants.MC_HTTP_STATUS_MESSAGE,
@@ -700,9 +791,21 @@ public class HTTPSender extends BasicHandler {
         location = (null == location)
                 ? null
                 : location.trim();
-                
+
+        if (returnCode != 100) {
+            inp = getBodyStream(socketHolder, returnCode, inp, headers);
+        } else if (msgContext.getSOAPConstants() ==
+                SOAPConstants.SOAP12_CONSTANTS) {
+            // read as the response below, without a body length.
+            socketHolder.setReusable(false);
+        }
+
         if ((returnCode > 199) && (returnCode < 300)) {
             if (returnCode == 202) {
+                if (socketHolder.isPooled()) {
+                    // no response is expected, we're done with the connection.
+                    new SocketInputStream(inp, socketHolder).close();
+                }
                 return inp;
             }
             // SOAP return is OK - so fall through
@@ -718,7 +821,7 @@ public class HTTPSender extends BasicHandler {
             // Temporary Redirect (HTTP: 302/307)            
             // close old connection
                 inp.close();
-                socketHolder.getSocket().close();    
+                socketHolder.close();
             // remove former result and set new target url
                 msgContext.removeProperty(HTTPConstants.MC_HTTP_STATUS_CODE);
                 msgContext.setProperty(MessageContext.TRANS_URL, location);
@@ -747,6 +850,10 @@ public class HTTPSender extends BasicHandler {
                     "" + returnCode, buf.toString()));
             fault.addFaultDetail(Constants.QNAME_FAULTDETAIL_HTTPERRORCODE,
                     Integer.toString(returnCode));
+            if (socketHolder.isPooled()) {
+                // the whole body has been read, the connection can be reused.
+                new SocketInputStream(inp, socketHolder).close();
+            }
             throw fault;
         }
 
@@ -764,18 +871,7 @@ public class HTTPSender extends BasicHandler {
                 ? null
                 : contentLength.trim();
 
-        String transferEncoding =
-            (String) headers.get(HEADER_TRANSFER_ENCODING_LC);
-
-        if (null != transferEncoding) {
-            transferEncoding = transferEncoding.trim().toLowerCase();
-            if (transferEncoding.equals(
-                   HTTPConstants.HEADER_TRANSFER_ENCODING_CHUNKED)) {
-                inp = new ChunkedInputStream(inp);
-            }
-        }
-
-        outMsg = new Message( new SocketInputStream(inp, socketHolder.getSocket()), false,
+        outMsg = new Message( new SocketInputStream(inp, socketHolder), false,
                               contentType, contentLocation);
         // Transfer HTTP headers of HTTP message to MIME headers of SOAP message
         MimeHeaders mimeHeaders = outMsg.getMimeHeaders();
@@ -798,6 +894,56 @@ public class HTTPSender extends BasicHandler {
         return inp;
     }
 
+    /**
+     * Get the stream the response body is read from.  The body of a
+     * response received over a persistent connection has to be delimited
+     * by its length (or chunking), otherwise the connection can't be reused.
+     *
+     * @param socketHolder the connection
+     * @param returnCode the HTTP status code
+     * @param inp the connection input stream
+     * @param headers the response headers
+     */
+    private InputStream getBodyStream(SocketHolder socketHolder,
+                                      int returnCode,
+                                      InputStream inp,
+                                      Hashtable headers) {
+        String connection = (String) headers.get(HEADER_CONNECTION_LC);
+        if (connection != null && connection.trim().equalsIgnoreCase(
+                HTTPConstants.HEADER_CONNECTION_CLOSE)) {
+            socketHolder.setReusable(false);
+        }
+
+        String transferEncoding =
+            (String) headers.get(HEADER_TRANSFER_ENCODING_LC);
+
+        if (null != transferEncoding) {
+            transferEncoding = transferEncoding.trim().toLowerCase();
+            if (transferEncoding.equals(
+                   HTTPConstants.HEADER_TRANSFER_ENCODING_CHUNKED)) {
+                return new ChunkedInputStream(inp);
+            }
+        }
+
+        if (socketHolder.isPooled()) {
+            String contentLength = (String) headers.get(HEADER_CONTENT_LENGTH_LC);
+            if (contentLength != null) {
+                try {
+                    return new ContentLengthInputStream(inp,
+                            Long.parseLong(contentLength.trim()));
+                } catch (NumberFormatException e) {
+                    socketHolder.setReusable(false);
+                }
+            } else if (returnCode == 204 || returnCode == 304) {
+                return new ContentLengthInputStream(inp, 0);
+            } else {
+                // the body ends when the server closes the connection.
+                socketHolder.setReusable(false);
+            }
+        }
+        return inp;
+    }
+
     /**
      * little helper function for cookies. fills up the message context with
      * a string or an array of strings (if there are more than one Set-Cookie)
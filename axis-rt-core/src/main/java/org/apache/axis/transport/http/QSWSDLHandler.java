@@ -20,7 +20,10 @@ import org.apache.axis.AxisFault;
 import org.apache.axis.Constants;
 import org.apache.axis.MessageContext;
 import org.apache.axis.ConfigurationException;
+import org.apache.axis.Handler;
 import org.apache.axis.description.ServiceDesc;
+import org.apache.axis.handlers.soap.CachedWSDL;
+import org.apache.axis.handlers.soap.SOAPService;
 import org.apache.axis.server.AxisServer;
 import org.apache.axis.utils.Messages;
 import org.apache.axis.utils.XMLUtils;
@@ -29,17 +32,25 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.w3c.dom.Element;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.net.HttpURLConnection;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.StringTokenizer;
 
 /**
  * The QSWSDLHandler class is a handler which provides an AXIS service's WSDL
  * document when the query string "wsdl" (ignoring case) is encountered in an
  * AXIS servlet invocation.
+ * <p>
+ * The serialized document is cached by the service, per endpoint URL, and
+ * served with an ETag and a Last-Modified date so that clients polling the
+ * WSDL can use conditional requests.
  *
  * @author Curtiss Howard (code mostly from AxisServlet class)
  * @author Doug Davis (dug@us.ibm.com)
@@ -65,20 +76,25 @@ public class QSWSDLHandler extends AbstractQueryStringHandler {
         HttpServletResponse response = (HttpServletResponse)
                 msgContext.getProperty(HTTPConstants.MC_HTTP_SERVLETRESPONSE);
         try {
+            msgContext.setProperty(CachedWSDL.USE_CACHE, Boolean.TRUE);
             engine.generateWSDL(msgContext);
-            Document wsdlDoc = (Document) msgContext.getProperty("WSDL");
-            if (wsdlDoc != null) {
-                try {
-                    updateSoapAddressLocationURLs(wsdlDoc, msgContext);
-                } catch (RuntimeException re) {
-                    log.warn(
-                            "Failed to update soap:address location URL(s) in WSDL.",
-                            re);
+            CachedWSDL wsdl = (CachedWSDL) msgContext.getProperty(
+                    CachedWSDL.CACHED_WSDL);
+            if (wsdl == null) {
+                Document wsdlDoc = (Document) msgContext.getProperty("WSDL");
+                if (wsdlDoc != null) {
+                    try {
+                        updateSoapAddressLocationURLs(wsdlDoc, msgContext);
+                    } catch (RuntimeException re) {
+                        log.warn(
+                                "Failed to update soap:address location URL(s) in WSDL.",
+                                re);
+                    }
+                    wsdl = cacheWSDL(wsdlDoc, msgContext);
                 }
-                response.setContentType(
-                        "text/xml; charset=" +
-                        XMLUtils.getEncoding().toLowerCase());
-                reportWSDL(wsdlDoc, writer);
+            }
+            if (wsdl != null) {
+                reportWSDL(wsdl, msgContext, response, writer);
             } else {
                 if (log.isDebugEnabled()) {
                     log.debug("processWsdlRequest: failed to create WSDL");
@@ -112,6 +128,106 @@ public class QSWSDLHandler extends AbstractQueryStringHandler {
         XMLUtils.PrettyDocumentToWriter(doc, writer);
     }
 
+    /**
+     * Serialize the WSDL and store it in the cache of the service, under the
+     * key the service chose for this request.
+     *
+     * @param doc the WSDL, with its addresses updated
+     * @param msgContext the current message context
+     * @return the serialized WSDL
+     * @throws AxisFault if the document can't be encoded
+     */
+    protected CachedWSDL cacheWSDL(Document doc, MessageContext msgContext)
+            throws AxisFault {
+        StringWriter buffer = new StringWriter();
+        PrintWriter out = new PrintWriter(buffer);
+        reportWSDL(doc, out);
+        out.flush();
+
+        CachedWSDL wsdl;
+        try {
+            wsdl = new CachedWSDL(buffer.toString(), XMLUtils.getEncoding());
+        } catch (IOException e) {
+            throw AxisFault.makeFault(e);
+        }
+        String key = msgContext.getStrProp(CachedWSDL.CACHE_KEY);
+        Handler service = msgContext.getService();
+        if (key != null && service instanceof SOAPService) {
+            ((SOAPService) service).cacheWSDL(key, wsdl);
+        }
+        return wsdl;
+    }
+
+    /**
+     * Report serialized WSDL, or just that it has not changed if the
+     * request is conditional and the client's copy is current.
+     *
+     * @param wsdl the serialized WSDL
+     * @param msgContext the current message context
+     * @param response the servlet response
+     * @param writer the response writer
+     * @throws AxisFault if the WSDL can't be written
+     */
+    public void reportWSDL(CachedWSDL wsdl, MessageContext msgContext,
+                           HttpServletResponse response, PrintWriter writer)
+            throws AxisFault {
+        HttpServletRequest request = (HttpServletRequest)
+                msgContext.getProperty(HTTPConstants.MC_HTTP_SERVLETREQUEST);
+        response.setHeader(HTTPConstants.HEADER_ETAG, wsdl.getETag());
+        response.setDateHeader(HTTPConstants.HEADER_LAST_MODIFIED,
+                               wsdl.getLastModified());
+        if (isNotModified(wsdl, request)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setContentType("text/xml; charset=" +
+                                wsdl.getEncoding().toLowerCase());
+        try {
+            if (writer instanceof FilterPrintWriter) {
+                byte[] content = wsdl.getContent();
+                response.setContentLength(content.length);
+                ((FilterPrintWriter) writer).getOutputStream().write(content);
+            } else {
+                writer.write(wsdl.getContentAsString());
+            }
+        } catch (IOException e) {
+            throw AxisFault.makeFault(e);
+        }
+    }
+
+    /**
+     * Whether the client's copy of the WSDL, as described by the
+     * conditional headers of its request, is current.
+     */
+    protected boolean isNotModified(CachedWSDL wsdl,
+                                    HttpServletRequest request) {
+        if (request == null) {
+            return false;
+        }
+        String ifNoneMatch = request.getHeader(HTTPConstants.HEADER_IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            StringTokenizer tokens = new StringTokenizer(ifNoneMatch, ",");
+            while (tokens.hasMoreTokens()) {
+                String tag = tokens.nextToken().trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(wsdl.getETag())) {
+                    return true;
+                }
+            }
+            // If-Modified-Since is ignored when If-None-Match is present
+            return false;
+        }
+        try {
+            long since = request.getDateHeader(
+                    HTTPConstants.HEADER_IF_MODIFIED_SINCE);
+            return since != -1 && wsdl.getLastModified() <= since;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
     /**
      * Report that we have no WSDL.
      *
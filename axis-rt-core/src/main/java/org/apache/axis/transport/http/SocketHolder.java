@@ -15,16 +15,40 @@
  */
 package org.apache.axis.transport.http;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.Socket;
 
 /**
  * hold a Socket.
+ * <p>
+ * When the socket was obtained through the {@link HTTPConnectionPool} the
+ * holder also carries the pool permit, which is given back by
+ * {@link #release()} or {@link #close()}.
+ *
  * @author Davanum Srinivas (dims@yahoo.com)
  */
 public class SocketHolder {
     /** Field value           */
     private Socket value = null;
 
+    /** buffered input of the socket, kept for the life of the connection */
+    private InputStream input = null;
+
+    /** the pool the connection belongs to, if any */
+    private HTTPConnectionPool pool = null;
+    private String route = null;
+
+    /** headers added by the socket factory when the connection was opened */
+    private String proxyHeaders = "";
+    private boolean useFullURL = false;
+
+    private boolean keepAlive = false;
+    private boolean fresh = false;
+    private boolean reused = false;
+    private boolean reusable = true;
+
     public SocketHolder(Socket value) {
         this.value = value;
     }
@@ -35,5 +59,132 @@ public class SocketHolder {
 
     public void setSocket(Socket value) {
         this.value = value;
+        this.input = null;
+    }
+
+    /**
+     * Get the buffered input stream of the socket.  The same stream is
+     * returned for all the requests sent over a persistent connection, so
+     * that no read-ahead data is lost between them.
+     */
+    public InputStream getInputStream() throws IOException {
+        if (input == null) {
+            input = new BufferedInputStream(value.getInputStream());
+        }
+        return input;
+    }
+
+    /**
+     * @return true if a persistent connection was requested
+     */
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    /**
+     * @return true if a new connection was requested, rather than an idle
+     *         one from the pool
+     */
+    public boolean isFreshConnection() {
+        return fresh;
+    }
+
+    public void setFreshConnection(boolean fresh) {
+        this.fresh = fresh;
+    }
+
+    /**
+     * @return true if the connection is managed by a connection pool
+     */
+    public boolean isPooled() {
+        return pool != null;
+    }
+
+    /**
+     * @return true if the connection was taken from the pool rather than
+     *         opened for this request
+     */
+    public boolean isReused() {
+        return reused;
+    }
+
+    /**
+     * Mark whether the connection may be returned to the pool once the
+     * response has been read.
+     */
+    public void setReusable(boolean reusable) {
+        this.reusable = reusable;
+    }
+
+    public boolean isReusable() {
+        return reusable;
+    }
+
+    public String getProxyHeaders() {
+        return proxyHeaders;
+    }
+
+    public boolean isUseFullURL() {
+        return useFullURL;
+    }
+
+    /**
+     * Record the connection details set up by the socket factory, which
+     * have to be replayed when the connection is reused.
+     */
+    public void setConnectionDetails(String proxyHeaders, boolean useFullURL) {
+        this.proxyHeaders = proxyHeaders;
+        this.useFullURL = useFullURL;
+    }
+
+    void setPool(HTTPConnectionPool pool, String route) {
+        this.pool = pool;
+        this.route = route;
+    }
+
+    void setConnection(Socket socket, InputStream input,
+                       String proxyHeaders, boolean useFullURL) {
+        this.value = socket;
+        this.input = input;
+        this.proxyHeaders = proxyHeaders;
+        this.useFullURL = useFullURL;
+        this.reused = true;
+    }
+
+    /**
+     * Done with the connection: return it to the pool if it is pooled and
+     * still reusable, close it otherwise.
+     */
+    public void release() throws IOException {
+        if (pool != null && reusable && value != null) {
+            HTTPConnectionPool p = pool;
+            pool = null;
+            p.release(route, value, getInputStream(), proxyHeaders, useFullURL);
+            value = null;
+            input = null;
+        } else {
+            close();
+        }
+    }
+
+    /**
+     * Close the connection, giving back its pool permit if it has one.
+     */
+    public void close() throws IOException {
+        Socket socket = value;
+        value = null;
+        input = null;
+        if (pool != null) {
+            HTTPConnectionPool p = pool;
+            pool = null;
+            p.free(route);
+        }
+        if (socket != null) {
+            socket.close();
+        }
     }
 }
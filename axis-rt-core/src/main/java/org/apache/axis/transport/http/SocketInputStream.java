@@ -33,6 +33,7 @@ import java.io.InputStream;
 public class SocketInputStream extends java.io.FilterInputStream {
     protected volatile boolean closed = false;
     java.net.Socket socket= null;
+    SocketHolder holder= null;
 
     private SocketInputStream() {
         super(null);
@@ -44,11 +45,93 @@ public class SocketInputStream extends java.io.FilterInputStream {
         this.socket= socket;
     }
 
+    /**
+     * Wrap the body of a response read over a (possibly pooled) connection.
+     * On close the rest of the body is consumed and the connection is
+     * handed back to the pool when it can be reused.
+     */
+    public SocketInputStream(InputStream is, SocketHolder holder) {
+        super(is);
+        this.holder= holder;
+        this.socket= holder.getSocket();
+    }
+
+    /**
+     * The connection of a response is released once its body has been
+     * read, or has failed to be, even if the stream is never closed.
+     */
+    public int read() throws IOException {
+        if (closed) {
+            return -1;
+        }
+        try {
+            int b = in.read();
+            if (b == -1) {
+                done();
+            }
+            return b;
+        } catch (IOException e) {
+            failed();
+            throw e;
+        }
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            return -1;
+        }
+        try {
+            int n = in.read(b, off, len);
+            if (n == -1) {
+                done();
+            }
+            return n;
+        } catch (IOException e) {
+            failed();
+            throw e;
+        }
+    }
+
+    private void done() throws IOException {
+        if (holder != null) {
+            close();
+        }
+    }
+
+    private void failed() {
+        if (holder != null) {
+            holder.setReusable(false);
+            try {
+                close();
+            } catch (IOException e) {
+                // the read error is reported
+            }
+        }
+    }
+
     public void close() throws IOException {
        synchronized(this){
        if(closed) return;
        closed= true;
        }
+       if(holder != null) {
+           try {
+               if(holder.isPooled() && holder.isReusable()) {
+                   // the connection can only be reused once the whole
+                   // body has been read off it.
+                   byte[] buf= new byte[1024];
+                   while(in.read(buf, 0, buf.length) != -1);
+               }
+               in.close();
+           } catch(IOException e) {
+               holder.setReusable(false);
+           }
+           in= null;
+           socket= null;
+           holder.release();
+           holder= null;
+           return;
+       }
        in.close();
        in= null;
        socket.close();
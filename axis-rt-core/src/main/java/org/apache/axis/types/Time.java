@@ -15,9 +15,8 @@
  */
 package org.apache.axis.types;
 
-import org.apache.axis.utils.Messages;
+import org.apache.axis.utils.DateTimeCodec;
 
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.TimeZone;
@@ -29,19 +28,6 @@ public class Time implements java.io.Serializable {
     private Calendar _value;
 
 
-    /**
-     * a shared java.text.SimpleDateFormat instance used for parsing the basic
-     * component of the timestamp
-     */
-    private static SimpleDateFormat zulu =
-       new SimpleDateFormat("HH:mm:ss.SSS'Z'");
-
-    // We should always format dates in the GMT timezone
-    static {
-        zulu.setTimeZone(TimeZone.getTimeZone("GMT"));
-    }
-
-
     /**
      * Initialize with a Calender, year month and date are ignored
      */
@@ -88,138 +74,18 @@ public class Time implements java.io.Serializable {
      */
     private Calendar makeValue(String source) throws NumberFormatException {
         Calendar calendar = Calendar.getInstance();
-        Date date;
-
-        validateSource(source);
-
-        // convert what we have validated so far
-        date = ParseHoursMinutesSeconds(source);
-
-        int pos = 8;    // The "." in hh:mm:ss.sss
-
-        // parse optional milliseconds
-        if ( source != null ) {
-            if (pos < source.length() && source.charAt(pos)=='.') {
-                int milliseconds = 0;
-                int start = ++pos;
-                while (pos<source.length() &&
-                       Character.isDigit(source.charAt(pos))) {
-                    pos++;
-                }
-
-
-                String decimal=source.substring(start,pos);
-                if (decimal.length()==3) {
-                    milliseconds=Integer.parseInt(decimal);
-                } else if (decimal.length() < 3) {
-                    milliseconds=Integer.parseInt((decimal+"000")
-                                                  .substring(0,3));
-                } else {
-                    milliseconds=Integer.parseInt(decimal.substring(0,3));
-                    if (decimal.charAt(3)>='5') {
-                        ++milliseconds;
-                    }
-                }
-
-                // add milliseconds to the current date
-                date.setTime(date.getTime()+milliseconds);
-            }
-
-            // parse optional timezone
-            if (pos+5 < source.length() &&
-                (source.charAt(pos)=='+' || (source.charAt(pos)=='-'))) {
-                    if (!Character.isDigit(source.charAt(pos+1)) ||
-                        !Character.isDigit(source.charAt(pos+2)) ||
-                        source.charAt(pos+3) != ':'              ||
-                        !Character.isDigit(source.charAt(pos+4)) ||
-                        !Character.isDigit(source.charAt(pos+5)))
-                    {
-                        throw new NumberFormatException(
-                                Messages.getMessage("badTimezone00"));
-                    }
-
-                    int hours = (source.charAt(pos+1)-'0')*10
-                        +source.charAt(pos+2)-'0';
-                    int mins  = (source.charAt(pos+4)-'0')*10
-                        +source.charAt(pos+5)-'0';
-                    int milliseconds = (hours*60+mins)*60*1000;
-
-                    // subtract milliseconds from current date to obtain GMT
-                    if (source.charAt(pos)=='+') {
-                        milliseconds=-milliseconds;
-                    }
-                    date.setTime(date.getTime()+milliseconds);
-                    pos+=6;
-            }
-
-            if (pos < source.length() && source.charAt(pos)=='Z') {
-                pos++;
-                calendar.setTimeZone(TimeZone.getTimeZone("GMT"));
-            }
+        char[] chars = source.toCharArray();
 
-            if (pos < source.length()) {
-                throw new NumberFormatException(
-                        Messages.getMessage("badChars00"));
-            }
+        calendar.setTimeInMillis(
+                DateTimeCodec.parseTime(chars, 0, chars.length));
+        if (source.endsWith("Z")) {
+            calendar.setTimeZone(TimeZone.getTimeZone("GMT"));
         }
-
-        calendar.setTime(date);
         calendar.set(0,0,0);    // ignore year, month, date
 
         return calendar;
     }
 
-    private int getTimezoneNumberValue(char c) {
-        int n=c-'0';
-        if(n<0 || n>9) {
-            //oops, out of range
-            throw new NumberFormatException(
-                    Messages.getMessage("badTimezone00"));
-        }
-        return n;
-    }
-
-    /**
-     * parse the hours, minutes and seconds of a string, by handing it off to
-     * the java runtime.
-     * The relevant code will return null if a null string is passed in, so this
-     * code may return a null date in response
-     * @param source
-     * @return
-     * @throws NumberFormatException in the event of trouble
-     */
-    private static Date ParseHoursMinutesSeconds(String source) {
-        Date date;
-        try {
-            synchronized (zulu) {
-                String fulltime = source == null ? null :
-                                                    (source.substring(0,8)+".000Z");
-                date = zulu.parse(fulltime);
-            }
-        } catch (Exception e) {
-            throw new NumberFormatException(e.toString());
-        }
-        return date;
-    }
-
-    /**
-     * validate the source
-     * @param source
-     */
-    private void validateSource(String source) {
-        // validate fixed portion of format
-        if ( source != null ) {
-            if (source.charAt(2) != ':' || source.charAt(5) != ':') {
-                throw new NumberFormatException(
-                        Messages.getMessage("badTime00"));
-            }
-            if (source.length() < 8) {
-                throw new NumberFormatException(
-                        Messages.getMessage("badTime00"));
-            }
-        }
-    }
-
     /**
      * stringify method returns the time as it would be in GMT, only accurate to the
      * second...millis probably get lost.
@@ -229,9 +95,9 @@ public class Time implements java.io.Serializable {
         if(_value==null) {
             return "unassigned Time";
         }
-        synchronized (zulu) {
-            return zulu.format(_value.getTime());
-        }
+        char[] buf = new char[DateTimeCodec.MAX_LENGTH];
+        int length = DateTimeCodec.formatTime(_value.getTimeInMillis(), buf, 0);
+        return new String(buf, 0, length);
 
     }
 
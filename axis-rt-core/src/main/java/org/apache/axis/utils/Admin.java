@@ -117,6 +117,9 @@ public class Admin
         }
         engine.refreshGlobalOptions();
 
+        // the deployment may have brought new classes, or taken some away
+        engine.getClassCache().clear();
+
         engine.saveConfiguration();
 
         doc = XMLUtils.newDocument();
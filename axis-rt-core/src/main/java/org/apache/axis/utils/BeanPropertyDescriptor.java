@@ -15,13 +15,15 @@
  */
 package org.apache.axis.utils;
 
+import org.apache.axis.components.beans.AccessorGenerator;
+import org.apache.axis.components.beans.AccessorGeneratorFactory;
+import org.apache.axis.components.beans.PropertyAccessor;
 import org.apache.axis.components.logger.LogFactory;
 import org.apache.commons.logging.Log;
 
 import java.beans.IndexedPropertyDescriptor;
 import java.beans.PropertyDescriptor;
 import java.lang.reflect.Array;
-import java.lang.reflect.Method;
 import java.lang.reflect.InvocationTargetException;
 
 
@@ -38,6 +40,10 @@ import java.lang.reflect.InvocationTargetException;
  * concerned, mostly involving the fact that we manage the arrays here
  * rather than relying on the value type class to do it itself.
  *
+ * The property is read and written through a PropertyAccessor created on
+ * first use by the configured AccessorGenerator, so descriptors cached by
+ * a TypeDesc or a serializer factory also cache their accessors.
+ *
  * @author Rich Scheuerle <scheu@us.ibm.com>
  * @author Glen Daniels (gdaniels@apache.org)
  **/
@@ -50,6 +56,10 @@ public class BeanPropertyDescriptor
 
     protected static final Object[] noArgs = new Object[] {};
 
+    private static AccessorGenerator accessorGenerator;
+
+    private volatile PropertyAccessor accessor;
+
     /**
      * Constructor (takes a PropertyDescriptor)
      *
@@ -115,6 +125,32 @@ public class BeanPropertyDescriptor
                                    .isArray());
     }
 
+    private static synchronized AccessorGenerator getAccessorGenerator() {
+        if (accessorGenerator == null) {
+            accessorGenerator = AccessorGeneratorFactory.getAccessorGenerator();
+        }
+        return accessorGenerator;
+    }
+
+    /**
+     * Get the accessor of this property, creating it on first use.
+     */
+    protected PropertyAccessor getAccessor() {
+        PropertyAccessor result = accessor;
+        if (result == null) {
+            result = createAccessor(getAccessorGenerator());
+            accessor = result;
+        }
+        return result;
+    }
+
+    /**
+     * Create the accessor of this property.
+     */
+    protected PropertyAccessor createAccessor(AccessorGenerator generator) {
+        return generator.createAccessor(myPD);
+    }
+
     /**
      * Get the property value
      * @param obj is the object
@@ -122,12 +158,7 @@ public class BeanPropertyDescriptor
      */
     public Object get(Object obj) 
         throws InvocationTargetException, IllegalAccessException {
-        Method readMethod = myPD.getReadMethod();
-        if (readMethod != null) {
-            return readMethod.invoke(obj, noArgs);
-        } else {
-            throw new IllegalAccessException(Messages.getMessage("badGetter00"));
-        }
+        return getAccessor().get(obj);
     }
 
     /**
@@ -137,12 +168,7 @@ public class BeanPropertyDescriptor
      */
     public void set(Object obj, Object newValue) 
         throws InvocationTargetException, IllegalAccessException {
-        Method writeMethod = myPD.getWriteMethod();
-        if (writeMethod != null) {
-            writeMethod.invoke(obj, new Object[] {newValue});
-        } else {
-            throw new IllegalAccessException(Messages.getMessage("badSetter00"));
-        }
+        getAccessor().set(obj, newValue);
     }    
 
     /** 
@@ -156,10 +182,7 @@ public class BeanPropertyDescriptor
         if (!isIndexed()) {
             return Array.get(get(obj), i);
         } else {
-            IndexedPropertyDescriptor id = (IndexedPropertyDescriptor)myPD;
-            return id.getIndexedReadMethod().invoke(obj,
-                                                    new Object[] {
-                                                        new Integer(i)});
+            return getAccessor().get(obj, i);
         }
     }
 
@@ -175,9 +198,7 @@ public class BeanPropertyDescriptor
         if (isIndexed()) {
             IndexedPropertyDescriptor id = (IndexedPropertyDescriptor)myPD;
             growArrayToSize(obj, id.getIndexedPropertyType(), i);
-            id.getIndexedWriteMethod().invoke(obj,
-                                              new Object[] {
-                                                  new Integer(i), newValue});
+            getAccessor().set(obj, i, newValue);
         } else {
             // Not calling 'growArrayToSize' to avoid an extra call to the
             // property's setter. The setter will be called at the end anyway.
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.utils;
+
+import org.apache.axis.components.logger.LogFactory;
+import org.apache.commons.logging.Log;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An executor running at most a fixed number of tasks at a time, with a
+ * bounded number of tasks waiting for their turn.  When that bound is
+ * reached, {@link #execute(Runnable)} blocks the submitting thread until
+ * a running task completes, which throttles producers instead of letting
+ * the backlog grow without limit.
+ * <p>
+ * Tasks run either on a pool of daemon platform threads, or, when asked
+ * for and supported by the JVM (Java 21 and later), each on its own
+ * virtual thread.
+ */
+public class BoundedExecutor implements Executor {
+    protected static Log log =
+        LogFactory.getLog(BoundedExecutor.class.getName());
+
+    /** Thread.isVirtual(), or null before Java 21 */
+    private static final Method IS_VIRTUAL = getIsVirtualMethod();
+
+    private final ExecutorService delegate;
+    /** bounds the running and waiting tasks; acquired by the submitter */
+    private final Semaphore pending;
+    /** bounds the running tasks when using virtual threads */
+    private final Semaphore running;
+    private final int capacity;
+    private final boolean virtual;
+
+    /**
+     * Create an executor.
+     *
+     * @param name prefix of the names of the threads
+     * @param maxThreads maximum number of tasks running at the same time
+     * @param queueSize maximum number of tasks waiting to run
+     * @param useVirtualThreads run each task on a virtual thread if possible
+     */
+    public BoundedExecutor(final String name, int maxThreads, int queueSize,
+                           boolean useVirtualThreads) {
+        if (maxThreads < 1 || queueSize < 0) {
+            throw new IllegalArgumentException(
+                    Messages.getMessage("badExecutorSize00"));
+        }
+        ExecutorService vt = useVirtualThreads ? newVirtualThreadExecutor() : null;
+        if (vt != null) {
+            delegate = vt;
+            running = new Semaphore(maxThreads);
+            virtual = true;
+        } else {
+            final AtomicInteger count = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                    maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue(),
+                    new ThreadFactory() {
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            delegate = pool;
+            running = null;
+            virtual = false;
+        }
+        capacity = maxThreads + queueSize;
+        pending = new Semaphore(capacity);
+    }
+
+    /**
+     * Whether virtual threads are available in this JVM.
+     */
+    public static boolean isVirtualThreadSupported() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor", new Class[0]);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static Method getIsVirtualMethod() {
+        try {
+            return Thread.class.getMethod("isVirtual", new Class[0]);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the given thread is a virtual thread
+     */
+    public static boolean isVirtualThread(Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return ((Boolean) IS_VIRTUAL.invoke(thread, new Object[0])).booleanValue();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return an executor running each task on a new virtual thread, or
+     *         null if virtual threads are not supported
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod(
+                    "newVirtualThreadPerTaskExecutor", new Class[0])
+                    .invoke(null, new Object[0]);
+        } catch (Exception e) {
+            log.warn(Messages.getMessage("noVirtualThreads00"));
+            return null;
+        }
+    }
+
+    /**
+     * Run the task, waiting for room if the executor is saturated.
+     *
+     * @throws RejectedExecutionException if the executor has been shut down
+     *         or the submitting thread is interrupted while waiting
+     */
+    public void execute(final Runnable task) {
+        try {
+            pending.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        }
+        submit(task);
+    }
+
+    /**
+     * Run the task if there is room for it, without ever waiting; for
+     * callers, such as I/O threads, which must not block.
+     *
+     * @return false if the executor is saturated and the task wasn't
+     *         accepted
+     * @throws RejectedExecutionException if the executor has been shut down
+     */
+    public boolean tryExecute(final Runnable task) {
+        if (!pending.tryAcquire()) {
+            return false;
+        }
+        submit(task);
+        return true;
+    }
+
+    /**
+     * Run the task within the limits of this executor and wait for its
+     * result.  A virtual thread calling this runs the task itself once
+     * there is room for it, since handing it over to another virtual
+     * thread would gain nothing.  Otherwise the task runs with the
+     * context class loader of the calling thread.
+     *
+     * @return the result of the task
+     * @throws Exception whatever the task throws
+     * @throws RejectedExecutionException if the executor has been shut down
+     *         or the calling thread is interrupted while waiting
+     */
+    public Object call(final Callable task) throws Exception {
+        if (virtual && isVirtualThread(Thread.currentThread())) {
+            try {
+                pending.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException(e);
+            }
+            try {
+                running.acquireUninterruptibly();
+                try {
+                    return task.call();
+                } finally {
+                    running.release();
+                }
+            } finally {
+                pending.release();
+            }
+        }
+
+        final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        FutureTask future = new FutureTask(new Callable() {
+            public Object call() throws Exception {
+                Thread thread = Thread.currentThread();
+                ClassLoader previous = thread.getContextClassLoader();
+                thread.setContextClassLoader(loader);
+                try {
+                    return task.call();
+                } finally {
+                    thread.setContextClassLoader(previous);
+                }
+            }
+        });
+        execute(future);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private void submit(final Runnable task) {
+        try {
+            delegate.execute(new Runnable() {
+                public void run() {
+                    try {
+                        if (running != null) {
+                            running.acquireUninterruptibly();
+                        }
+                        try {
+                            task.run();
+                        } finally {
+                            if (running != null) {
+                                running.release();
+                            }
+                        }
+                    } finally {
+                        pending.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return true if tasks run on virtual threads
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * @return the number of tasks running or waiting to run
+     */
+    public int getPendingCount() {
+        return capacity - pending.availablePermits();
+    }
+
+    /**
+     * Stop accepting tasks; tasks already submitted still run.
+     */
+    public void shutdown() {
+        delegate.shutdown();
+    }
+}
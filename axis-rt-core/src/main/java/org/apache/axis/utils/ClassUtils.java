@@ -15,25 +15,64 @@
  */
 package org.apache.axis.utils;
 
+import org.apache.axis.AxisProperties;
+
 import java.io.InputStream;
 import java.io.File;
+import java.lang.ref.WeakReference;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Utility methods for Class Loading.
+ * <p>
+ * What each class loader made of each class name, the class or the fact
+ * that it could not find it, is cached, so that looking the same names up
+ * again neither asks the loaders nor throws and catches exceptions.  The
+ * cache is keyed weakly by class loader, so that it does not keep the
+ * loaders of undeployed applications alive, and is emptied by
+ * {@link #clearCache()}, which {@link org.apache.axis.utils.cache.ClassCache#clear()}
+ * calls when services are deployed, and whenever the default class loader
+ * changes.  Classes created after a name was looked up in vain, e.g. by a
+ * compiler, are not seen until then; the <code>axis.ClassUtils.cache</code>
+ * property turns the cache off.
  *
  * @author Davanum Srinvas (dims@yahoo.com)
  * @author Matthew Pocock (matthew_pocock@yahoo.co.uk)
  */
 public final class ClassUtils {
+    /** the key for the Axis Property that turns the cache on or off */
+    public static final String CACHE_PROPERTY_KEY = "axis.ClassUtils.cache";
+
     /** default class loader */
     private static ClassLoader defaultClassLoader
             = ClassUtils.class.getClassLoader();
 
+    private static volatile boolean cacheEnabled = Boolean.valueOf(
+            AxisProperties.getProperty(CACHE_PROPERTY_KEY, "true"))
+            .booleanValue();
+
+    /** ClassLoader -> (class name -> WeakReference to Class, or NOT_FOUND) */
+    private static final Map loaders = new WeakHashMap();
+
+    /** the entries of the loader used last, found without locking */
+    private static volatile LoaderEntries lastLoader = null;
+
+    /** bumped by clearCache(), so that lastLoader can't outlive it */
+    private static volatile int generation = 0;
+
+    private static final Object NOT_FOUND = new Object();
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
     /**
      * Set the default ClassLoader. If loader is null, the default loader is
      * not changed.
@@ -41,8 +80,10 @@ public final class ClassUtils {
      * @param loader  the new default ClassLoader
      */
     public static void setDefaultClassLoader(ClassLoader loader) {
-      if (loader != null)
+      if (loader != null) {
           defaultClassLoader = loader;
+          clearCache();
+      }
     }
 
     public static ClassLoader getDefaultClassLoader() {
@@ -75,6 +116,13 @@ public final class ClassUtils {
             String _className, boolean init, ClassLoader _loader)
             throws ClassNotFoundException {
         
+        Object cached = getCached(_loader, _className);
+        if (cached instanceof Class) {
+            return (Class) cached;
+        } else if (cached == NOT_FOUND) {
+            return loadClass(_className);
+        }
+
         // Create final vars for doPrivileged block
         final String className = _className;
         final ClassLoader loader = _loader;
@@ -93,8 +141,10 @@ public final class ClassUtils {
                     });
             // If the class was located, return it.  Otherwise throw exception
             if (ret instanceof Class) {
+                putCached(loader, className, ret);
                 return (Class) ret;
             } else if (ret instanceof ClassNotFoundException) {
+                putCached(loader, className, NOT_FOUND);
                 throw (ClassNotFoundException) ret;
             } else {
                 throw new ClassNotFoundException(_className);
@@ -108,52 +158,181 @@ public final class ClassUtils {
      * Loads the class from the context class loader and then falls back to
      * getDefaultClassLoader().forName
      *
-     * @param _className Class name
+     * @param className Class name
      * @return java class
      * @throws ClassNotFoundException if the class is not found
      */
-    private static Class loadClass(String _className)
+    private static Class loadClass(String className)
             throws ClassNotFoundException {
-        // Create final vars for doPrivileged block
-        final String className = _className;
+        // Try the context class loader
+        Object ret = load(Thread.currentThread().getContextClassLoader(),
+                          className, true);
+        if (ret == NOT_FOUND) {
+            // Try the classloader that loaded this class.
+            ret = load(ClassUtils.class.getClassLoader(), className, true);
+        }
+        if (ret == NOT_FOUND) {
+            // Try the default class loader.
+            try {
+                ret = load(defaultClassLoader, className, false);
+            } catch (Throwable e) {
+                // Still not found
+            }
+        }
+
+        // If the class was located, return it.  Otherwise throw exception
+        if (ret instanceof Class) {
+            return (Class) ret;
+        }
+        throw new ClassNotFoundException(className);
+    }
+
+    /**
+     * Look a class up in one class loader, through the cache.  Errors other
+     * than ClassNotFoundException are thrown, and not cached.
+     *
+     * @return the Class, or NOT_FOUND
+     */
+    private static Object load(final ClassLoader loader,
+                               final String className,
+                               final boolean init) {
+        Object cached = getCached(loader, className);
+        if (cached != null) {
+            return cached;
+        }
 
         // Get the class within a doPrivleged block
-        Object ret = 
+        Object ret =
             AccessController.doPrivileged(
                     new PrivilegedAction() {
                         public Object run() {
                             try {
-                                // Try the context class loader
-                                ClassLoader classLoader =
-                                    Thread.currentThread().getContextClassLoader();
-                                return Class.forName(className, true, classLoader);
-                            } catch (ClassNotFoundException cnfe2) {
-                                try {
-                                    // Try the classloader that loaded this class.
-                                    ClassLoader classLoader =
-                                        ClassUtils.class.getClassLoader();
-                                    return Class.forName(className, true, classLoader);
-                                } catch (ClassNotFoundException cnfe3) {
-                                    // Try the default class loader.
-                                    try {
-                                        return defaultClassLoader.loadClass(
-                                                className);
-                                    } catch (Throwable e) {
-                                        // Still not found, return exception
-                                        return e;
-                                    }
-                                }
-                            } 
+                                return Class.forName(className, init, loader);
+                            } catch (ClassNotFoundException cnfe) {
+                                return NOT_FOUND;
+                            }
                         }
                     });
+        putCached(loader, className, ret);
+        return ret;
+    }
 
-        // If the class was located, return it.  Otherwise throw exception
-        if (ret instanceof Class) {
-            return (Class) ret;
-        } else if (ret instanceof ClassNotFoundException) {
-            throw (ClassNotFoundException) ret;
+    /**
+     * Get the cached outcome of looking a class up in a class loader.
+     *
+     * @return the Class, NOT_FOUND, or null if there is nothing cached
+     */
+    private static Object getCached(ClassLoader loader, String className) {
+        if (!cacheEnabled) {
+            return null;
+        }
+        Map classes = getClasses(loader, false);
+        Object cached = classes == null ? null : classes.get(className);
+        if (cached instanceof WeakReference) {
+            cached = ((WeakReference) cached).get();
+        }
+        if (cached == null) {
+            misses.incrementAndGet();
         } else {
-            throw new ClassNotFoundException(_className);
+            hits.incrementAndGet();
+        }
+        return cached;
+    }
+
+    private static void putCached(ClassLoader loader, String className,
+                                  Object value) {
+        if (cacheEnabled) {
+            // Classes only weakly, since a class of the loader itself would
+            // keep it alive as a key.
+            getClasses(loader, true).put(className, value == NOT_FOUND ?
+                    value : new WeakReference(value));
+        }
+    }
+
+    /**
+     * Get the cache entries of a class loader.
+     */
+    private static Map getClasses(ClassLoader loader, boolean create) {
+        LoaderEntries last = lastLoader;
+        if (last != null && last.generation == generation &&
+                last.loader.get() == loader &&
+                (loader != null || last.isBootstrap)) {
+            return last.classes;
+        }
+        synchronized (loaders) {
+            Map classes = (Map) loaders.get(loader);
+            if (classes == null) {
+                if (!create) {
+                    return null;
+                }
+                classes = new ConcurrentHashMap();
+                loaders.put(loader, classes);
+            }
+            lastLoader = new LoaderEntries(loader, classes, generation);
+            return classes;
+        }
+    }
+
+    /**
+     * Forget every class and every miss cached.  Called when an engine is
+     * redeployed, see {@link org.apache.axis.utils.cache.ClassCache#clear()}.
+     */
+    public static void clearCache() {
+        synchronized (loaders) {
+            loaders.clear();
+            lastLoader = null;
+            generation++;
+        }
+    }
+
+    /**
+     * Turn the cache on or off, overriding the axis.ClassUtils.cache
+     * property.  Turning it off also empties it.
+     */
+    public static void setCacheEnabled(boolean enable) {
+        cacheEnabled = enable;
+        if (!enable) {
+            clearCache();
+        }
+    }
+
+    /**
+     * @return true if class lookups are cached
+     */
+    public static boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    /**
+     * @return the number of lookups in a class loader answered by the
+     *         cache, with a class or with a miss
+     */
+    public static long getCacheHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups in a class loader which had to ask it
+     */
+    public static long getCacheMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * The cache entries of the class loader used last.  A null loader, the
+     * bootstrap loader, can't be told from a cleared reference otherwise.
+     */
+    private static final class LoaderEntries {
+        final WeakReference loader;
+        final boolean isBootstrap;
+        final Map classes;
+        final int generation;
+
+        LoaderEntries(ClassLoader loader, Map classes, int generation) {
+            this.loader = new WeakReference(loader);
+            this.isBootstrap = loader == null;
+            this.classes = classes;
+            this.generation = generation;
         }
     }
 
@@ -0,0 +1,573 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.utils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * Parses and formats the xsd:dateTime, xsd:date and xsd:time lexical forms
+ * straight from and into char arrays, without SimpleDateFormat.  All the
+ * methods are static and hold no locks, so they may be called from any
+ * number of threads at once.
+ * <p>
+ * The methods working with milliseconds keep the rules the date serializers
+ * always had with SimpleDateFormat: fields out of range roll over into the
+ * next one, fractions of seconds are rounded to milliseconds, and instants
+ * before the Gregorian cutover of 1582 use the Julian calendar, like
+ * {@link GregorianCalendar}.  Dates after the cutover are computed with
+ * plain arithmetic; the rare earlier ones are handed to a GregorianCalendar.
+ * <p>
+ * The methods working with java.time types follow ISO 8601 instead: fields
+ * must be in range, the proleptic Gregorian calendar is used throughout and
+ * fractions of seconds are kept to the nanosecond.
+ *
+ * @see <a href="http://www.w3.org/TR/xmlschema-2/#dateTime">XML Schema 3.2.7</a>
+ */
+public final class DateTimeCodec {
+    /** the longest text any of the format methods writes */
+    public static final int MAX_LENGTH = 48;
+
+    private static final TimeZone GMT = TimeZone.getTimeZone("GMT");
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static final long SECONDS_PER_DAY = 24L * 60 * 60;
+
+    /**
+     * Instants from here on are safely in the Gregorian calendar, whatever
+     * the time zone: the cutover, 1582-10-15T00:00:00Z, plus two days.
+     */
+    private static final long GREGORIAN_MILLIS = -12219292800000L + 2 * MILLIS_PER_DAY;
+
+    /** the number of days from 0000-03-01 to 1970-01-01 */
+    private static final long DAYS_0000_TO_1970 = 719468;
+
+    private DateTimeCodec() {
+    }
+
+    // ------------------------------------------------------------------
+    // parsing into milliseconds
+
+    /**
+     * Parse an xsd:dateTime, <code>[+-]yyyy-MM-ddTHH:mm:ss[.S*][Z|(+|-)HH:mm]</code>.
+     * A leading minus sign is skipped: the caller deals with dates before
+     * the Christian era.  A dateTime without a time zone is taken to be in
+     * GMT.
+     *
+     * @return the milliseconds since 1970-01-01T00:00:00Z
+     * @throws NumberFormatException if the text is not a dateTime
+     */
+    public static long parseDateTime(char[] chars, int start, int length) {
+        int end = start + length;
+        int pos = skipSign(chars, start, end);
+        if (end - pos < 19) {
+            throw new NumberFormatException(Messages.getMessage("badDateTime00"));
+        }
+        checkDate(chars, pos);
+        if (chars[pos + 10] != 'T') {
+            throw new NumberFormatException(Messages.getMessage("badDate00"));
+        }
+        checkTime(chars, pos + 11);
+
+        int year = digits(chars, pos, 4, "badDate00");
+        int month = digits(chars, pos + 5, 2, "badDate00");
+        int day = digits(chars, pos + 8, 2, "badDate00");
+        long millis = timeOfDay(chars, pos + 11);
+        long time = epochDay(year, month, day) * MILLIS_PER_DAY + millis;
+        if (time < GREGORIAN_MILLIS) {
+            time = julian(year, month, day, GMT) + millis;
+        }
+        return time + fractionAndZone(chars, pos + 19, end);
+    }
+
+    /**
+     * Parse an xsd:date, <code>[+-]yyyy-MM-dd</code>.  As before, anything
+     * after the day, such as a time zone, is ignored, and a leading minus
+     * sign is skipped.
+     *
+     * @param zone the time zone the date is midnight in
+     * @return the milliseconds since 1970-01-01T00:00:00Z
+     * @throws NumberFormatException if the text is not a date
+     */
+    public static long parseDate(char[] chars, int start, int length,
+                                 TimeZone zone) {
+        int end = start + length;
+        int pos = skipSign(chars, start, end);
+        if (end - pos < 10) {
+            throw new NumberFormatException(Messages.getMessage("badDate00"));
+        }
+        checkDate(chars, pos);
+        int year = digits(chars, pos, 4, "badDate00");
+        int month = digits(chars, pos + 5, 2, "badDate00");
+        int day = digits(chars, pos + 8, 2, "badDate00");
+
+        long local = epochDay(year, month, day) * MILLIS_PER_DAY;
+        if (local >= GREGORIAN_MILLIS) {
+            // the offset in force at local midnight, unless midnight falls
+            // in a transition, which the calendar sorts out below
+            int offset = zone.getOffset(local - zone.getRawOffset());
+            long time = local - offset;
+            if (zone.getOffset(time) == offset) {
+                return time;
+            }
+        }
+        return julian(year, month, day, zone);
+    }
+
+    /**
+     * Parse an xsd:time, <code>HH:mm:ss[.S*][Z|(+|-)HH:mm]</code>.  A time
+     * without a time zone is taken to be in GMT.
+     *
+     * @return the milliseconds since 1970-01-01T00:00:00Z, which may be
+     *         outside the first day once the time zone is applied
+     * @throws NumberFormatException if the text is not a time
+     */
+    public static long parseTime(char[] chars, int start, int length) {
+        int end = start + length;
+        if (length < 8) {
+            throw new NumberFormatException(Messages.getMessage("badTime00"));
+        }
+        checkTime(chars, start);
+        return timeOfDay(chars, start) + fractionAndZone(chars, start + 8, end);
+    }
+
+    // ------------------------------------------------------------------
+    // formatting milliseconds
+
+    /**
+     * Format an instant as an xsd:dateTime in GMT,
+     * <code>yyyy-MM-ddTHH:mm:ss.SSSZ</code>, with a leading minus sign for
+     * the years before the Christian era.
+     *
+     * @return the position after the last character written
+     */
+    public static int formatDateTime(long time, char[] buf, int pos) {
+        pos = formatDate(time, GMT, buf, pos);
+        buf[pos++] = 'T';
+        return formatTime(time, buf, pos);
+    }
+
+    /**
+     * Format the day an instant falls on in a time zone as an xsd:date,
+     * <code>yyyy-MM-dd</code>, with a leading minus sign for the years
+     * before the Christian era.
+     *
+     * @return the position after the last character written
+     */
+    public static int formatDate(long time, TimeZone zone, char[] buf, int pos) {
+        long local = time + zone.getOffset(time);
+        if (local >= GREGORIAN_MILLIS) {
+            return formatEpochDay(Math.floorDiv(local, MILLIS_PER_DAY), buf, pos);
+        }
+        Calendar calendar = new GregorianCalendar(zone);
+        calendar.setTimeInMillis(time);
+        if (calendar.get(Calendar.ERA) == GregorianCalendar.BC) {
+            buf[pos++] = '-';
+        }
+        pos = formatYear(calendar.get(Calendar.YEAR), buf, pos);
+        buf[pos++] = '-';
+        pos = format2(calendar.get(Calendar.MONTH) + 1, buf, pos);
+        buf[pos++] = '-';
+        return format2(calendar.get(Calendar.DAY_OF_MONTH), buf, pos);
+    }
+
+    /**
+     * Format the time of day of an instant as an xsd:time in GMT,
+     * <code>HH:mm:ss.SSSZ</code>.
+     *
+     * @return the position after the last character written
+     */
+    public static int formatTime(long time, char[] buf, int pos) {
+        int millis = (int) Math.floorMod(time, MILLIS_PER_DAY);
+        pos = formatTimeOfDay(millis / 1000, buf, pos);
+        buf[pos++] = '.';
+        pos = format3(millis % 1000, buf, pos);
+        buf[pos++] = 'Z';
+        return pos;
+    }
+
+    // ------------------------------------------------------------------
+    // java.time
+
+    /**
+     * Parse an xsd:dateTime into an OffsetDateTime.  A dateTime without a
+     * time zone is taken to be in UTC; a leading minus sign gives a year
+     * before year zero, and 24:00:00 is the start of the next day.
+     *
+     * @throws NumberFormatException if the text is not a dateTime
+     */
+    public static OffsetDateTime parseOffsetDateTime(char[] chars, int start,
+                                                     int length) {
+        int end = start + length;
+        int pos = skipSign(chars, start, end);
+        if (end - pos < 19) {
+            throw new NumberFormatException(Messages.getMessage("badDateTime00"));
+        }
+        checkDate(chars, pos);
+        if (chars[pos + 10] != 'T') {
+            throw new NumberFormatException(Messages.getMessage("badDate00"));
+        }
+        checkTime(chars, pos + 11);
+        int year = digits(chars, pos, 4, "badDate00");
+        if (pos > start && chars[start] == '-') {
+            year = -year;
+        }
+        int month = digits(chars, pos + 5, 2, "badDate00");
+        int day = digits(chars, pos + 8, 2, "badDate00");
+        int hour = digits(chars, pos + 11, 2, "badTime00");
+        int minute = digits(chars, pos + 14, 2, "badTime00");
+        int second = digits(chars, pos + 17, 2, "badTime00");
+
+        pos += 19;
+        int nanos = 0;
+        if (pos < end && chars[pos] == '.') {
+            int fraction = ++pos;
+            pos = skipDigits(chars, pos, end);
+            nanos = nanos(chars, fraction, pos);
+        }
+        int offset = 0;
+        if (pos < end && chars[pos] != 'Z') {
+            offset = offsetSeconds(chars, pos, end);
+            pos += 6;
+        } else if (pos < end) {
+            pos++;
+        }
+        if (pos < end) {
+            throw new NumberFormatException(Messages.getMessage("badChars00"));
+        }
+
+        boolean endOfDay = hour == 24 && minute == 0 && second == 0 && nanos == 0;
+        try {
+            OffsetDateTime value = OffsetDateTime.of(
+                    year, month, day, endOfDay ? 0 : hour, minute, second,
+                    nanos, ZoneOffset.ofTotalSeconds(offset));
+            return endOfDay ? value.plusDays(1) : value;
+        } catch (RuntimeException e) {
+            throw new NumberFormatException(e.getMessage());
+        }
+    }
+
+    /**
+     * Parse an xsd:date into a LocalDate.  A time zone after the day is
+     * checked, then ignored.
+     *
+     * @throws NumberFormatException if the text is not a date
+     */
+    public static LocalDate parseLocalDate(char[] chars, int start, int length) {
+        int end = start + length;
+        int pos = skipSign(chars, start, end);
+        if (end - pos < 10) {
+            throw new NumberFormatException(Messages.getMessage("badDate00"));
+        }
+        checkDate(chars, pos);
+        int year = digits(chars, pos, 4, "badDate00");
+        if (pos > start && chars[start] == '-') {
+            year = -year;
+        }
+        int month = digits(chars, pos + 5, 2, "badDate00");
+        int day = digits(chars, pos + 8, 2, "badDate00");
+
+        pos += 10;
+        if (pos < end && chars[pos] == 'Z') {
+            pos++;
+        } else if (pos < end) {
+            offsetSeconds(chars, pos, end);
+            pos += 6;
+        }
+        if (pos < end) {
+            throw new NumberFormatException(Messages.getMessage("badChars00"));
+        }
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (RuntimeException e) {
+            throw new NumberFormatException(e.getMessage());
+        }
+    }
+
+    /**
+     * Format an Instant as an xsd:dateTime in UTC.
+     *
+     * @return the position after the last character written
+     */
+    public static int formatDateTime(Instant value, char[] buf, int pos) {
+        long seconds = value.getEpochSecond();
+        pos = formatEpochDay(Math.floorDiv(seconds, SECONDS_PER_DAY), buf, pos);
+        buf[pos++] = 'T';
+        pos = formatTimeOfDay((int) Math.floorMod(seconds, SECONDS_PER_DAY), buf, pos);
+        pos = formatNanos(value.getNano(), buf, pos);
+        buf[pos++] = 'Z';
+        return pos;
+    }
+
+    /**
+     * Format an OffsetDateTime as an xsd:dateTime with its offset.  The
+     * rare offsets with seconds, which the lexical form cannot carry, are
+     * written in UTC instead.
+     *
+     * @return the position after the last character written
+     */
+    public static int formatDateTime(OffsetDateTime value, char[] buf, int pos) {
+        int offset = value.getOffset().getTotalSeconds();
+        if (offset % 60 != 0) {
+            return formatDateTime(value.toInstant(), buf, pos);
+        }
+        pos = formatEpochDay(value.toLocalDate().toEpochDay(), buf, pos);
+        buf[pos++] = 'T';
+        pos = formatTimeOfDay(value.toLocalTime().toSecondOfDay(), buf, pos);
+        pos = formatNanos(value.getNano(), buf, pos);
+        if (offset == 0) {
+            buf[pos++] = 'Z';
+            return pos;
+        }
+        if (offset < 0) {
+            buf[pos++] = '-';
+            offset = -offset;
+        } else {
+            buf[pos++] = '+';
+        }
+        pos = format2(offset / 3600, buf, pos);
+        buf[pos++] = ':';
+        return format2(offset / 60 % 60, buf, pos);
+    }
+
+    /**
+     * Format a LocalDate as an xsd:date.
+     *
+     * @return the position after the last character written
+     */
+    public static int formatDate(LocalDate value, char[] buf, int pos) {
+        return formatEpochDay(value.toEpochDay(), buf, pos);
+    }
+
+    // ------------------------------------------------------------------
+    // helpers
+
+    private static int skipSign(char[] chars, int pos, int end) {
+        if (pos < end && (chars[pos] == '+' || chars[pos] == '-')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipDigits(char[] chars, int pos, int end) {
+        while (pos < end && chars[pos] >= '0' && chars[pos] <= '9') {
+            pos++;
+        }
+        return pos;
+    }
+
+    /** check the separators of yyyy-MM-dd */
+    private static void checkDate(char[] chars, int pos) {
+        if (chars[pos + 4] != '-' || chars[pos + 7] != '-') {
+            throw new NumberFormatException(Messages.getMessage("badDate00"));
+        }
+    }
+
+    /** check the separators of HH:mm:ss */
+    private static void checkTime(char[] chars, int pos) {
+        if (chars[pos + 2] != ':' || chars[pos + 5] != ':') {
+            throw new NumberFormatException(Messages.getMessage("badTime00"));
+        }
+    }
+
+    /** parse a fixed number of decimal digits */
+    private static int digits(char[] chars, int pos, int count, String key) {
+        int value = 0;
+        for (int end = pos + count; pos < end; pos++) {
+            int digit = chars[pos] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException(Messages.getMessage(key));
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /** the milliseconds of HH:mm:ss, letting the fields roll over */
+    private static long timeOfDay(char[] chars, int pos) {
+        int hour = digits(chars, pos, 2, "badTime00");
+        int minute = digits(chars, pos + 3, 2, "badTime00");
+        int second = digits(chars, pos + 6, 2, "badTime00");
+        return ((hour * 60L + minute) * 60 + second) * 1000;
+    }
+
+    /**
+     * The milliseconds to add for the optional fraction and time zone that
+     * follow the seconds, which must end the text.
+     */
+    private static long fractionAndZone(char[] chars, int pos, int end) {
+        long millis = 0;
+        if (pos < end && chars[pos] == '.') {
+            int fraction = ++pos;
+            pos = skipDigits(chars, pos, end);
+            millis = millis(chars, fraction, pos);
+        }
+        if (pos + 5 < end && (chars[pos] == '+' || chars[pos] == '-')) {
+            // subtract the offset to obtain GMT
+            millis -= offsetSeconds(chars, pos, end) * 1000L;
+            pos += 6;
+        }
+        if (pos < end && chars[pos] == 'Z') {
+            pos++;
+        }
+        if (pos < end) {
+            throw new NumberFormatException(Messages.getMessage("badChars00"));
+        }
+        return millis;
+    }
+
+    /** milliseconds from the digits of a fraction, rounded on the fourth */
+    private static int millis(char[] chars, int start, int end) {
+        int millis = 0;
+        for (int i = 0; i < 3; i++) {
+            millis *= 10;
+            if (start + i < end) {
+                millis += chars[start + i] - '0';
+            }
+        }
+        if (end - start > 3 && chars[start + 3] >= '5') {
+            millis++;
+        }
+        return millis;
+    }
+
+    /** nanoseconds from the digits of a fraction, truncated after the ninth */
+    private static int nanos(char[] chars, int start, int end) {
+        int nanos = 0;
+        for (int i = 0; i < 9; i++) {
+            nanos *= 10;
+            if (start + i < end) {
+                nanos += chars[start + i] - '0';
+            }
+        }
+        return nanos;
+    }
+
+    /** the seconds of a (+|-)HH:mm offset */
+    private static int offsetSeconds(char[] chars, int pos, int end) {
+        char sign = chars[pos];
+        if (end - pos < 6 || (sign != '+' && sign != '-') ||
+                chars[pos + 3] != ':') {
+            throw new NumberFormatException(Messages.getMessage("badTimezone00"));
+        }
+        int hours = digits(chars, pos + 1, 2, "badTimezone00");
+        int minutes = digits(chars, pos + 4, 2, "badTimezone00");
+        int seconds = (hours * 60 + minutes) * 60;
+        return sign == '-' ? -seconds : seconds;
+    }
+
+    /**
+     * The days from 1970-01-01 to a day of the proleptic Gregorian
+     * calendar.  The month and day may be out of range, and roll over.
+     */
+    private static long epochDay(long year, int month, int day) {
+        year += Math.floorDiv(month - 1, 12);
+        month = Math.floorMod(month - 1, 12) + 1;
+        // count the years from March, so that the leap day comes last
+        if (month <= 2) {
+            year--;
+        }
+        long era = Math.floorDiv(year, 400);
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    /** the milliseconds of midnight of a day, the way GregorianCalendar sees it */
+    private static long julian(int year, int month, int day, TimeZone zone) {
+        Calendar calendar = new GregorianCalendar(zone);
+        calendar.clear();
+        calendar.set(year, month - 1, day);
+        return calendar.getTimeInMillis();
+    }
+
+    /** write the proleptic Gregorian day since 1970-01-01 as yyyy-MM-dd */
+    private static int formatEpochDay(long epochDay, char[] buf, int pos) {
+        long days = epochDay + DAYS_0000_TO_1970;
+        long era = Math.floorDiv(days, 146097);
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524
+                          - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shifted = (int) ((5 * dayOfYear + 2) / 153);
+        int day = (int) (dayOfYear - (153 * shifted + 2) / 5 + 1);
+        int month = shifted < 10 ? shifted + 3 : shifted - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        if (year < 0) {
+            buf[pos++] = '-';
+            year = -year;
+        }
+        pos = formatYear(year, buf, pos);
+        buf[pos++] = '-';
+        pos = format2(month, buf, pos);
+        buf[pos++] = '-';
+        return format2(day, buf, pos);
+    }
+
+    /** write a year with at least four digits */
+    private static int formatYear(long year, char[] buf, int pos) {
+        if (year > 9999) {
+            String digits = Long.toString(year);
+            digits.getChars(0, digits.length(), buf, pos);
+            return pos + digits.length();
+        }
+        int value = (int) year;
+        buf[pos] = (char) ('0' + value / 1000);
+        buf[pos + 1] = (char) ('0' + value / 100 % 10);
+        return format2(value % 100, buf, pos + 2);
+    }
+
+    /** write HH:mm:ss */
+    private static int formatTimeOfDay(int seconds, char[] buf, int pos) {
+        pos = format2(seconds / 3600, buf, pos);
+        buf[pos++] = ':';
+        pos = format2(seconds / 60 % 60, buf, pos);
+        buf[pos++] = ':';
+        return format2(seconds % 60, buf, pos);
+    }
+
+    /** write a fraction of 3, 6 or 9 digits, as the nanoseconds need */
+    private static int formatNanos(int nanos, char[] buf, int pos) {
+        buf[pos++] = '.';
+        pos = format3(nanos / 1000000, buf, pos);
+        if (nanos % 1000000 != 0) {
+            pos = format3(nanos / 1000 % 1000, buf, pos);
+            if (nanos % 1000 != 0) {
+                pos = format3(nanos % 1000, buf, pos);
+            }
+        }
+        return pos;
+    }
+
+    private static int format2(int value, char[] buf, int pos) {
+        buf[pos] = (char) ('0' + value / 10);
+        buf[pos + 1] = (char) ('0' + value % 10);
+        return pos + 2;
+    }
+
+    private static int format3(int value, char[] buf, int pos) {
+        buf[pos] = (char) ('0' + value / 100);
+        return format2(value % 100, buf, pos + 1);
+    }
+}
@@ -16,6 +16,9 @@
 
 package org.apache.axis.utils;
 
+import org.apache.axis.components.beans.AccessorGenerator;
+import org.apache.axis.components.beans.PropertyAccessor;
+
 import java.beans.PropertyDescriptor;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
@@ -80,23 +83,10 @@ public class FieldPropertyDescriptor extends BeanPropertyDescriptor {
     }
 
     /**
-     * Get the property value
-     * @param obj is the object
-     * @return the entire propery value
-     */
-    public Object get(Object obj)
-            throws InvocationTargetException, IllegalAccessException {
-        return field.get(obj);
-    }
-
-    /**
-     * Set the property value
-     * @param obj is the object
-     * @param newValue is the new value
+     * Create an accessor reading and writing the field.
      */
-    public void set(Object obj, Object newValue)
-            throws InvocationTargetException, IllegalAccessException {
-        field.set(obj, newValue);
+    protected PropertyAccessor createAccessor(AccessorGenerator generator) {
+        return generator.createAccessor(field);
     }
 
     /**
@@ -111,7 +101,7 @@ public class FieldPropertyDescriptor extends BeanPropertyDescriptor {
             throw new IllegalAccessException("Not an indexed property");
         }
 
-        Object array = field.get(obj);
+        Object array = get(obj);
         return Array.get(array, i);
     }
 
@@ -15,10 +15,20 @@
  */
 package org.apache.axis.utils ;
 
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 // fixme: Is there a reason to use Hashtable rather than Map here?
 /**
@@ -26,10 +36,17 @@ import java.util.HashSet;
  * entries to be "locked" so that their values cannot be
  * overwritten or removed.
  *
- * Note, only the put() and remove() methods have been
- * overridden.  The clear() method still removes all
+ * Note, only put(), remove() and the other methods changing a
+ * given key, such as putIfAbsent() or merge(), check the locks.
+ * The clear() method and the collection views still remove
  * entries whether they've been locked or not.
  *
+ * For lookups which shouldn't take the monitors of the whole parent chain,
+ * {@link #getSnapshot()} returns an immutable, flattened copy of this
+ * table and its parents, which is rebuilt only after one of them has
+ * changed, including through the collection views (keySet(),
+ * entrySet(), values()).
+ *
  * @author James Snell (jasnell@us.ibm.com)
  */
 public class LockableHashtable extends Hashtable {
@@ -46,6 +63,12 @@ public class LockableHashtable extends Hashtable {
     /** Place to look for properties which we don't find locally. */
     private Hashtable parent = null;
 
+    /** Incremented whenever this table or its parent is changed. */
+    private volatile int version = 0;
+
+    /** The last snapshot taken, possibly out of date. */
+    private volatile Snapshot snapshot = null;
+
     public LockableHashtable() {
         super();
     }
@@ -68,6 +91,7 @@ public class LockableHashtable extends Hashtable {
     public synchronized void setParent(Hashtable parent)
     {
         this.parent = parent;
+        version++;
     }
 
     /**
@@ -122,6 +146,7 @@ public class LockableHashtable extends Hashtable {
             }
             lockedEntries.add(p1);
         }
+        version++;
         return super.put(p1, p2);
     }
 
@@ -139,9 +164,135 @@ public class LockableHashtable extends Hashtable {
         if (lockedEntries != null && lockedEntries.contains(p1)) {
             return null;
         }
+        version++;
         return super.remove(p1);
     }
 
+    /**
+     * Removes an entry holding the given value, unless it is locked.
+     */
+    public synchronized boolean remove(Object key, Object value) {
+        Object old = super.get(key);
+        if (old == null || !old.equals(value) || isKeyLocked(key)) {
+            return false;
+        }
+        version++;
+        super.remove(key);
+        return true;
+    }
+
+    /**
+     * Removes all the entries, locked or not.
+     */
+    public synchronized void clear() {
+        version++;
+        super.clear();
+    }
+
+    public synchronized Object putIfAbsent(Object key, Object value) {
+        Object old = super.get(key);
+        if (old == null) {
+            put(key, value);
+        }
+        return old;
+    }
+
+    public synchronized boolean replace(Object key, Object oldValue,
+                                        Object newValue) {
+        Object old = super.get(key);
+        if (old == null || !old.equals(oldValue) || isKeyLocked(key)) {
+            return false;
+        }
+        put(key, newValue);
+        return true;
+    }
+
+    public synchronized Object replace(Object key, Object value) {
+        if (!super.containsKey(key) || isKeyLocked(key)) {
+            return null;
+        }
+        return put(key, value);
+    }
+
+    public synchronized Object computeIfAbsent(Object key,
+                                               Function mappingFunction) {
+        Object old = super.get(key);
+        if (old != null) {
+            return old;
+        }
+        Object value = mappingFunction.apply(key);
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    public synchronized Object computeIfPresent(Object key,
+                                                BiFunction remappingFunction) {
+        Object old = super.get(key);
+        if (old == null || isKeyLocked(key)) {
+            return old;
+        }
+        return store(key, old, remappingFunction.apply(key, old));
+    }
+
+    public synchronized Object compute(Object key,
+                                       BiFunction remappingFunction) {
+        Object old = super.get(key);
+        if (isKeyLocked(key)) {
+            return old;
+        }
+        return store(key, old, remappingFunction.apply(key, old));
+    }
+
+    public synchronized Object merge(Object key, Object value,
+                                     BiFunction remappingFunction) {
+        Object old = super.get(key);
+        if (isKeyLocked(key)) {
+            return old;
+        }
+        return store(key, old,
+                old == null ? value : remappingFunction.apply(old, value));
+    }
+
+    /**
+     * Replaces the values of the entries which aren't locked.
+     */
+    public synchronized void replaceAll(BiFunction function) {
+        version++;
+        for (Iterator i = super.entrySet().iterator(); i.hasNext(); ) {
+            Map.Entry entry = (Map.Entry) i.next();
+            if (!isKeyLocked(entry.getKey())) {
+                entry.setValue(function.apply(entry.getKey(),
+                                              entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Put or, for a null value, remove a computed value.
+     */
+    private Object store(Object key, Object old, Object value) {
+        if (value != null) {
+            put(key, value);
+        } else if (old != null) {
+            remove(key);
+        }
+        return value;
+    }
+
+    public Set keySet() {
+        return new ViewSet(super.keySet(), false);
+    }
+
+    public Set entrySet() {
+        return new ViewSet(super.entrySet(), true);
+    }
+
+    public Collection values() {
+        return new View(super.values(), false);
+    }
+
     /**
      * Returns true if a given key is in our locked list
      */
@@ -149,4 +300,205 @@ public class LockableHashtable extends Hashtable {
     {
         return lockedEntries != null && lockedEntries.contains(key);
     }
+
+    /**
+     * Get an immutable copy of the entries of this table and its parent
+     * chain, as seen by {@link #get(Object)}.  The copy is cached until
+     * this table or one of its parents changes.
+     */
+    public Snapshot getSnapshot() {
+        Snapshot s = snapshot;
+        if (s == null || !s.isCurrent()) {
+            s = new Snapshot(this);
+            snapshot = s;
+        }
+        return s;
+    }
+
+    /**
+     * A collection view of this table which counts the changes made
+     * through it.
+     */
+    private class View extends AbstractCollection {
+        final Collection view;
+        private final boolean entries;
+
+        View(Collection view, boolean entries) {
+            this.view = view;
+            this.entries = entries;
+        }
+
+        public int size() {
+            return view.size();
+        }
+
+        public boolean contains(Object o) {
+            return view.contains(o);
+        }
+
+        public Iterator iterator() {
+            final Iterator i = view.iterator();
+            return new Iterator() {
+                public boolean hasNext() {
+                    return i.hasNext();
+                }
+
+                public Object next() {
+                    Object next = i.next();
+                    return entries ? new ViewEntry((Map.Entry) next) : next;
+                }
+
+                public void remove() {
+                    synchronized (LockableHashtable.this) {
+                        i.remove();
+                        version++;
+                    }
+                }
+            };
+        }
+
+        public boolean remove(Object o) {
+            synchronized (LockableHashtable.this) {
+                boolean removed = view.remove(o);
+                if (removed) {
+                    version++;
+                }
+                return removed;
+            }
+        }
+
+        public void clear() {
+            LockableHashtable.this.clear();
+        }
+
+        public String toString() {
+            return view.toString();
+        }
+    }
+
+    private class ViewSet extends View implements Set {
+        ViewSet(Set view, boolean entries) {
+            super(view, entries);
+        }
+
+        public boolean equals(Object o) {
+            return o == this || view.equals(o);
+        }
+
+        public int hashCode() {
+            return view.hashCode();
+        }
+    }
+
+    /**
+     * An entry of the entrySet() view, counting the changes of its value.
+     */
+    private class ViewEntry implements Map.Entry {
+        private final Map.Entry entry;
+
+        ViewEntry(Map.Entry entry) {
+            this.entry = entry;
+        }
+
+        public Object getKey() {
+            return entry.getKey();
+        }
+
+        public Object getValue() {
+            return entry.getValue();
+        }
+
+        public Object setValue(Object value) {
+            synchronized (LockableHashtable.this) {
+                version++;
+                return entry.setValue(value);
+            }
+        }
+
+        public boolean equals(Object o) {
+            return entry.equals(o);
+        }
+
+        public int hashCode() {
+            return entry.hashCode();
+        }
+
+        public String toString() {
+            return entry.toString();
+        }
+    }
+
+    /**
+     * An immutable, flattened view of a LockableHashtable and its parents.
+     * Parents which aren't LockableHashtables can't be copied safely, so
+     * lookups which miss the copy are passed on to the first such parent.
+     */
+    public static final class Snapshot {
+        private final Map values;
+        private final LockableHashtable[] layers;
+        private final int[] versions;
+        private final Hashtable tail;
+
+        Snapshot(LockableHashtable table) {
+            List tables = new ArrayList();
+            List tableVersions = new ArrayList();
+            List contents = new ArrayList();
+            Hashtable next = table;
+            while (next instanceof LockableHashtable) {
+                LockableHashtable layer = (LockableHashtable) next;
+                synchronized (layer) {
+                    tables.add(layer);
+                    tableVersions.add(Integer.valueOf(layer.version));
+                    contents.add(new HashMap(layer));
+                    next = layer.parent;
+                }
+            }
+            tail = next;
+
+            // closer layers override their parents
+            HashMap merged = new HashMap();
+            for (int i = contents.size() - 1; i >= 0; i--) {
+                merged.putAll((Map) contents.get(i));
+            }
+            values = Collections.unmodifiableMap(merged);
+            layers = (LockableHashtable[]) tables.toArray(
+                    new LockableHashtable[tables.size()]);
+            versions = new int[layers.length];
+            for (int i = 0; i < versions.length; i++) {
+                versions[i] = ((Integer) tableVersions.get(i)).intValue();
+            }
+        }
+
+        boolean isCurrent() {
+            for (int i = 0; i < layers.length; i++) {
+                if (layers[i].version != versions[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Get a value, or null if none of the tables has one.
+         */
+        public Object get(Object key) {
+            Object ret = values.get(key);
+            if (ret == null && tail != null) {
+                ret = tail.get(key);
+            }
+            return ret;
+        }
+
+        /**
+         * @return the keys of all the tables
+         */
+        public Set keySet() {
+            if (tail == null) {
+                return values.keySet();
+            }
+            HashSet set = new HashSet(values.keySet());
+            set.addAll(tail.keySet());
+            return set;
+        }
+    }
 }
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock-free pool of reusable objects, such as parsers.
+ * <p>
+ * Idle objects are kept in a fixed number of slots, each on its own cache
+ * line.  A thread starts looking for an idle object, or for a free slot when
+ * returning one, at a slot chosen from its id, so that threads tend to use
+ * different slots and to get back the object they used last.  Borrowing
+ * never waits: when no idle object is found a new one is created, and an
+ * object returned to a full pool is dropped.
+ */
+public abstract class StripedPool {
+    /** slots are this far apart so that they don't share cache lines */
+    private static final int PAD = 16;
+
+    private final AtomicReferenceArray slots;
+    private final int size;
+
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong creations = new AtomicLong();
+    private final AtomicLong discards = new AtomicLong();
+    private final AtomicLong borrowTime = new AtomicLong();
+
+    /**
+     * @param size maximum number of idle objects kept, 0 disables pooling
+     */
+    public StripedPool(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException(
+                    Messages.getMessage("badPoolSize00"));
+        }
+        this.size = size;
+        this.slots = new AtomicReferenceArray(Math.max(size, 1) * PAD);
+    }
+
+    /**
+     * Create a new object when the pool has none idle.
+     *
+     * @return the new object, or null if it can't be created
+     */
+    protected abstract Object create();
+
+    /**
+     * Take an idle object from the pool, or create one.
+     *
+     * @return an object, or null if none could be created
+     */
+    public Object borrow() {
+        long start = System.nanoTime();
+        borrows.incrementAndGet();
+        int home = home();
+        for (int i = 0; i < size; i++) {
+            int slot = ((home + i) % size) * PAD;
+            Object o = slots.get(slot);
+            if (o != null && slots.compareAndSet(slot, o, null)) {
+                hits.incrementAndGet();
+                borrowTime.addAndGet(System.nanoTime() - start);
+                return o;
+            }
+        }
+        Object o = create();
+        if (o != null) {
+            creations.incrementAndGet();
+        }
+        borrowTime.addAndGet(System.nanoTime() - start);
+        return o;
+    }
+
+    /**
+     * Return an object to the pool.
+     *
+     * @return false if the pool is full and the object was dropped
+     */
+    public boolean release(Object o) {
+        int home = home();
+        for (int i = 0; i < size; i++) {
+            int slot = ((home + i) % size) * PAD;
+            if (slots.get(slot) == null && slots.compareAndSet(slot, null, o)) {
+                return true;
+            }
+        }
+        discards.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Drop all the idle objects.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            slots.set(i * PAD, null);
+        }
+    }
+
+    private int home() {
+        if (size <= 1) {
+            return 0;
+        }
+        long id = Thread.currentThread().getId();
+        return (int) (((id * 0x9E3779B97F4A7C15L) >>> 32) % size);
+    }
+
+    /**
+     * @return the maximum number of idle objects kept
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of idle objects in the pool
+     */
+    public int getIdleCount() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (slots.get(i * PAD) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of calls to {@link #borrow()}
+     */
+    public long getBorrowCount() {
+        return borrows.get();
+    }
+
+    /**
+     * @return the number of borrowed objects which were idle in the pool
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of objects created because none was idle
+     */
+    public long getCreateCount() {
+        return creations.get();
+    }
+
+    /**
+     * @return the number of returned objects dropped because the pool was full
+     */
+    public long getDiscardCount() {
+        return discards.get();
+    }
+
+    /**
+     * @return the total time spent in {@link #borrow()}, including
+     *         creating objects, in nanoseconds
+     */
+    public long getTotalBorrowTime() {
+        return borrowTime.get();
+    }
+}
@@ -69,7 +69,6 @@ import java.net.URL;
 import java.net.URLConnection;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Stack;
 
 
 public class XMLUtils {
@@ -84,7 +83,8 @@ public class XMLUtils {
 
     private static DocumentBuilderFactory dbf = getDOMFactory();
     private static SAXParserFactory       saxFactory;
-    private static Stack                  saxParsers = new Stack();
+    private static StripedPool            saxParsers;
+    private static StripedPool            documentBuilders;
     private static DefaultHandler doNothingContentHandler = new DefaultHandler();
 
     private static String EMPTY = "";
@@ -94,20 +94,36 @@ public class XMLUtils {
 
     protected static boolean enableParserReuse = false;
 
-    private static class ThreadLocalDocumentBuilder extends ThreadLocal {
-        protected Object initialValue() {
+    static {
+        int poolSize = 2 * Runtime.getRuntime().availableProcessors();
+        String size = AxisProperties.getProperty(
+                AxisEngine.PROP_XML_PARSER_POOL_SIZE);
+        if (size != null) {
             try {
-                return getDOMFactory().newDocumentBuilder();
-            } catch (ParserConfigurationException e) {
-                log.error(Messages.getMessage("parserConfigurationException00"),
-                        e);
+                poolSize = Integer.parseInt(size);
+            } catch (NumberFormatException e) {
+                log.warn(Messages.getMessage("badPoolSize00"), e);
             }
-            return null; 
         }
-    }     
-    private static ThreadLocalDocumentBuilder documentBuilder = new ThreadLocalDocumentBuilder(); 
-    
-    static {
+        saxParsers = new StripedPool(poolSize) {
+            protected Object create() {
+                return newSAXParser();
+            }
+        };
+        documentBuilders = new StripedPool(poolSize) {
+            protected Object create() {
+                try {
+                    synchronized (dbf) {
+                        return dbf.newDocumentBuilder();
+                    }
+                } catch (ParserConfigurationException e) {
+                    log.error(Messages.getMessage("parserConfigurationException00"),
+                            e);
+                    return null;
+                }
+            }
+        };
+
         // Initialize SAX Parser factory defaults
         initSAXFactory(null, true, false);
 
@@ -238,11 +254,16 @@ public class XMLUtils {
      * @throws ParserConfigurationException
      */
     public static DocumentBuilder getDocumentBuilder() throws ParserConfigurationException {
-        return (DocumentBuilder) documentBuilder.get();
+        DocumentBuilder db = (DocumentBuilder) documentBuilders.borrow();
+        if (db == null) {
+            throw new ParserConfigurationException(
+                    Messages.getMessage("parserConfigurationException00"));
+        }
+        return db;
     }
 
     /**
-     * Releases a DocumentBuilder
+     * Releases a DocumentBuilder for reuse by getDocumentBuilder()
      * @param db
      */
     public static void releaseDocumentBuilder(DocumentBuilder db) {
@@ -258,19 +279,49 @@ public class XMLUtils {
             log.debug("Failed to set EntityResolver to null on DocumentBuilder",
                     t);
         }
+        try {
+            db.reset();
+        } catch (Throwable t) {
+            log.debug("Failed to reset DocumentBuilder", t);
+            return;
+        }
+        documentBuilders.release(db);
+    }
+
+    /**
+     * Get the pool of SAX parsers handed out by getSAXParser(), e.g. to
+     * read its statistics.
+     */
+    public static StripedPool getSAXParserPool() {
+        return saxParsers;
+    }
+
+    /**
+     * Get the pool of DocumentBuilders handed out by getDocumentBuilder(),
+     * e.g. to read its statistics.
+     */
+    public static StripedPool getDocumentBuilderPool() {
+        return documentBuilders;
     }
 
     /** Get a SAX parser instance from the JAXP factory.
      *
      * @return a SAXParser instance.
      */
-    public static synchronized SAXParser getSAXParser() {
-        if(enableParserReuse && !saxParsers.empty()) {
-            return (SAXParser )saxParsers.pop();
+    public static SAXParser getSAXParser() {
+        if(enableParserReuse) {
+            return (SAXParser) saxParsers.borrow();
         }
+        return newSAXParser();
+    }
 
+    private static SAXParser newSAXParser() {
         try {
-            SAXParser parser = saxFactory.newSAXParser();
+            SAXParser parser;
+            SAXParserFactory factory = saxFactory;
+            synchronized (factory) {
+                parser = factory.newSAXParser();
+            }
             XMLReader reader = parser.getXMLReader();
             // parser.getParser().setEntityResolver(new DefaultEntityResolver());
             // The above commented line and the following line are added
@@ -317,9 +368,7 @@ public class XMLUtils {
                     log.debug("Failed to set ErrorHandler on DocumentBuilder", t);
                 }
 
-                synchronized (XMLUtils.class ) {
-                    saxParsers.push(parser);
-                }
+                saxParsers.release(parser);
             }
             else {
                 tryReset= false;
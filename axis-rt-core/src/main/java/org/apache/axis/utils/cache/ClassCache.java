@@ -57,6 +57,16 @@ public class ClassCache {
         classCache.remove(name);
     }
 
+    /**
+     * Empty the cache, along with the classes, and the names not found,
+     * that {@link ClassUtils} has cached for every class loader.  Called
+     * when services are deployed or undeployed.
+     */
+    public synchronized void clear() {
+        classCache.clear();
+        ClassUtils.clearCache();
+    }
+
     /**
      * Query a given class' cache status.
      *
@@ -1,8 +1,14 @@
 package org.apache.axis.attachments;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
+
+import jakarta.activation.DataHandler;
 
 import junit.framework.TestCase;
 
@@ -42,4 +48,51 @@ public class TestDimeBodyPart extends TestCase {
         bp.write(new NullOutputStream(), (byte) 0);
         assertEquals(0, ds.getOpenStreamCount());
     }
+
+    public void testWriteMappedFileDataSourceInChunks() throws Exception {
+        byte[] data = new byte[10000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        MappedFileDataSource source = new MappedFileDataSource(
+                new ByteArrayInputStream(data),
+                ManagedMemoryDataSource.MIN_MEMORY_DISK_CACHED,
+                "application/octet-stream");
+        try {
+            DimeBodyPart bp = new DimeBodyPart(new DataHandler(source), "1234");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            bp.write(out, (byte) (DimeBodyPart.POSITION_FIRST
+                                  | DimeBodyPart.POSITION_LAST), 4096);
+
+            // three records: 4096, 4096 and 1808 bytes
+            DataInputStream in = new DataInputStream(
+                    new ByteArrayInputStream(out.toByteArray()));
+            ByteArrayOutputStream received = new ByteArrayOutputStream();
+            int records = 0;
+            boolean chunked;
+            do {
+                byte[] header = new byte[12];
+                in.readFully(header);
+                chunked = (header[0] & 0x1) != 0;
+                int idLength = ((header[4] & 0xff) << 8) | (header[5] & 0xff);
+                int typeLength = ((header[6] & 0xff) << 8) | (header[7] & 0xff);
+                int dataLength = ((header[8] & 0xff) << 24)
+                        | ((header[9] & 0xff) << 16)
+                        | ((header[10] & 0xff) << 8) | (header[11] & 0xff);
+                assertTrue(dataLength <= 4096);
+                in.skipBytes(idLength + DimeBodyPart.dimePadding(idLength)
+                        + typeLength + DimeBodyPart.dimePadding(typeLength));
+                byte[] chunk = new byte[dataLength];
+                in.readFully(chunk);
+                in.skipBytes(DimeBodyPart.dimePadding(dataLength));
+                received.write(chunk);
+                records++;
+            } while (chunked);
+            assertEquals(3, records);
+            assertEquals(-1, in.read());
+            assertTrue(Arrays.equals(data, received.toByteArray()));
+        } finally {
+            source.delete();
+        }
+    }
 }
@@ -0,0 +1,229 @@
+package test.attachments;
+
+import junit.framework.TestCase;
+import org.apache.axis.AxisProperties;
+import org.apache.axis.Message;
+import org.apache.axis.attachments.Attachments;
+import org.apache.axis.attachments.AttachmentPart;
+import org.apache.axis.attachments.ManagedMemoryDataSource;
+import org.apache.axis.attachments.MappedFileDataSource;
+import org.apache.axis.soap.SOAPConstants;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Test the data source caching attachments in memory-mapped files.
+ */
+public class TestMappedFileDataSource extends TestCase {
+
+    public TestMappedFileDataSource(String name) {
+        super(name);
+    }
+
+    private static byte[] content(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 31 + (i >> 8));
+        }
+        return data;
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[5000];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            out.write(buf, 0, n);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    public void testSmallContentStaysInMemory() throws Exception {
+        byte[] data = content(1000);
+        MappedFileDataSource source = new MappedFileDataSource(
+                new ByteArrayInputStream(data),
+                ManagedMemoryDataSource.MAX_MEMORY_DISK_CACHED, "text/plain");
+        assertNull(source.getDiskCacheFile());
+        assertEquals("text/plain", source.getContentType());
+        assertEquals(1000, source.getSize());
+        assertTrue(Arrays.equals(data, read(source.getInputStream())));
+
+        // getName() moves the content to a file
+        String name = source.getName();
+        assertNotNull(name);
+        assertEquals(1000, new File(name).length());
+        assertTrue(Arrays.equals(data, read(source.getInputStream())));
+        assertTrue(source.delete());
+        assertFalse(new File(name).exists());
+    }
+
+    public void testLargeContentIsMapped() throws Exception {
+        byte[] data = content(300 * 1024 + 17);
+        MappedFileDataSource source = new MappedFileDataSource(
+                new ByteArrayInputStream(data),
+                ManagedMemoryDataSource.MAX_MEMORY_DISK_CACHED, null);
+        File file = source.getDiskCacheFile();
+        assertNotNull(file);
+        assertEquals(data.length, file.length());
+        assertEquals("application/octet-stream", source.getContentType());
+
+        InputStream first = source.getInputStream();
+        InputStream second = source.getInputStream();
+        assertEquals(10, first.skip(10));
+        assertEquals(data[10] & 0xff, first.read());
+        assertEquals(data.length - 11, first.available());
+        assertTrue(Arrays.equals(data, read(second)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        source.writeTo(out);
+        assertTrue(Arrays.equals(data, out.toByteArray()));
+
+        File copy = File.createTempFile("Axis", ".test");
+        try {
+            FileOutputStream fos = new FileOutputStream(copy);
+            source.writeTo(fos);
+            fos.close();
+            assertTrue(Arrays.equals(data, read(new FileInputStream(copy))));
+        } finally {
+            copy.delete();
+        }
+
+        source.delete();
+        try {
+            first.read();
+            fail("Expected an IOException");
+        } catch (IOException e) {
+        }
+        try {
+            source.getInputStream();
+            fail("Expected an IOException");
+        } catch (IOException e) {
+        }
+    }
+
+    public void testWriteToNonBlockingChannel() throws Exception {
+        final byte[] data = content(300 * 1024 + 17);
+        MappedFileDataSource source = new MappedFileDataSource(
+                new ByteArrayInputStream(data),
+                ManagedMemoryDataSource.MAX_MEMORY_DISK_CACHED, null);
+        try {
+            final Pipe pipe = Pipe.open();
+            final ByteArrayOutputStream received = new ByteArrayOutputStream();
+            Thread reader = new Thread() {
+                public void run() {
+                    ByteBuffer buf = ByteBuffer.allocate(4096);
+                    try {
+                        while (received.size() < data.length
+                               && pipe.source().read(buf) >= 0) {
+                            received.write(buf.array(), 0, buf.position());
+                            buf.clear();
+                        }
+                    } catch (IOException e) {
+                    }
+                }
+            };
+            reader.start();
+            pipe.sink().configureBlocking(false);
+            source.writeTo(pipe.sink());
+            reader.join(10000);
+            pipe.sink().close();
+            pipe.source().close();
+            assertTrue(Arrays.equals(data, received.toByteArray()));
+        } finally {
+            source.delete();
+        }
+    }
+
+    public void testWriteTruncatedFile() throws Exception {
+        byte[] data = content(300 * 1024 + 17);
+        MappedFileDataSource source = new MappedFileDataSource(
+                new ByteArrayInputStream(data),
+                ManagedMemoryDataSource.MAX_MEMORY_DISK_CACHED, null);
+        File copy = File.createTempFile("Axis", ".test");
+        try {
+            RandomAccessFile raf =
+                    new RandomAccessFile(source.getDiskCacheFile(), "rw");
+            raf.setLength(1000);
+            raf.close();
+            FileOutputStream fos = new FileOutputStream(copy);
+            try {
+                source.writeTo(fos.getChannel());
+                fail("Expected an IOException");
+            } catch (IOException e) {
+            } finally {
+                fos.close();
+            }
+        } finally {
+            copy.delete();
+            source.delete();
+        }
+    }
+
+    public void testAttachmentPartUsesMappedFiles() throws Exception {
+        AxisProperties.setProperty(MappedFileDataSource.ENABLED_PROPERTY_KEY,
+                                   "true");
+        try {
+            byte[] data = content(64 * 1024);
+            AttachmentPart part = new AttachmentPart();
+            part.setContent(new ByteArrayInputStream(data),
+                            "application/octet-stream");
+            assertTrue(part.getDataHandler().getDataSource()
+                       instanceof MappedFileDataSource);
+            assertNotNull(part.getAttachmentFile());
+            assertTrue(Arrays.equals(data,
+                    read(part.getDataHandler().getInputStream())));
+            part.dispose();
+        } finally {
+            AxisProperties.setProperty(
+                    MappedFileDataSource.ENABLED_PROPERTY_KEY, "false");
+        }
+    }
+
+    public void testDimeRoundTrip() throws Exception {
+        AxisProperties.setProperty(MappedFileDataSource.ENABLED_PROPERTY_KEY,
+                                   "true");
+        try {
+            byte[] data = content(100 * 1024 + 3);
+            Message message = new Message("<soapenv:Envelope " +
+                    "xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+                    "<soapenv:Body/></soapenv:Envelope>");
+            AttachmentPart part = new AttachmentPart();
+            part.setContent(new ByteArrayInputStream(data),
+                            "application/octet-stream");
+            message.addAttachmentPart(part);
+            message.getAttachmentsImpl().setSendType(
+                    Attachments.SEND_TYPE_DIME);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            message.writeTo(out);
+
+            Message received = new Message(
+                    new ByteArrayInputStream(out.toByteArray()), false,
+                    message.getContentType(SOAPConstants.SOAP11_CONSTANTS),
+                    null);
+            received.getSOAPEnvelope();
+            Iterator i = received.getAttachments();
+            AttachmentPart got = (AttachmentPart) i.next();
+            assertTrue(got.getDataHandler().getDataSource()
+                       instanceof MappedFileDataSource);
+            assertTrue(Arrays.equals(data,
+                    read(got.getDataHandler().getInputStream())));
+            part.dispose();
+            got.dispose();
+        } finally {
+            AxisProperties.setProperty(
+                    MappedFileDataSource.ENABLED_PROPERTY_KEY, "false");
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package test.client;
+
+import junit.framework.TestCase;
+import org.apache.axis.EngineConfiguration;
+import org.apache.axis.client.Call;
+import org.apache.axis.client.Service;
+import org.apache.axis.client.async.AsyncCall;
+import org.apache.axis.client.async.IAsyncCallback;
+import org.apache.axis.client.async.IAsyncResult;
+import org.apache.axis.client.async.Status;
+import org.apache.axis.configuration.EngineConfigurationFactoryFinder;
+import org.apache.axis.configuration.SimpleProvider;
+import org.apache.axis.handlers.soap.SOAPService;
+import org.apache.axis.providers.java.RPCProvider;
+import org.apache.axis.server.AxisServer;
+import org.apache.axis.transport.local.LocalTransport;
+import org.apache.axis.utils.BoundedExecutor;
+
+import javax.xml.namespace.QName;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test AsyncCall running calls on an executor.
+ */
+public class TestAsyncCall extends TestCase {
+    private AxisServer server;
+
+    public String echo(String s) {
+        return s;
+    }
+
+    protected void setUp() throws Exception {
+        SOAPService service = new SOAPService(new RPCProvider());
+        service.setName("asyncTest");
+        service.setOption("className", "test.client.TestAsyncCall");
+        service.setOption("allowedMethods", "echo");
+
+        EngineConfiguration defaultConfig =
+            EngineConfigurationFactoryFinder.newFactory().getServerEngineConfig();
+        SimpleProvider config = new SimpleProvider(defaultConfig);
+        config.deployService("asyncTest", service);
+        server = new AxisServer(config);
+    }
+
+    private Call createCall() throws Exception {
+        Call call = (Call) new Service().createCall();
+        LocalTransport transport = new LocalTransport(server);
+        transport.setRemoteService("asyncTest");
+        call.setTransport(transport);
+        return call;
+    }
+
+    public void testInvokeAsync() throws Exception {
+        AsyncCall ac = new AsyncCall(createCall());
+        CompletableFuture<Object> future =
+            ac.invokeAsync(new QName("asyncTest", "echo"), new Object[] {"hello"});
+        assertEquals("hello", future.get(30, TimeUnit.SECONDS));
+    }
+
+    public void testFaultCompletesExceptionally() throws Exception {
+        AsyncCall ac = new AsyncCall(createCall());
+        CompletableFuture<Object> future =
+            ac.invokeAsync(new QName("asyncTest", "noSuchMethod"), new Object[] {"hello"});
+        try {
+            future.get(30, TimeUnit.SECONDS);
+            fail("Expected a fault");
+        } catch (ExecutionException e) {
+            assertNotNull(e.getCause());
+        }
+    }
+
+    public void testCallbackAndWaitFor() throws Exception {
+        final IAsyncResult[] notified = new IAsyncResult[1];
+        AsyncCall ac = new AsyncCall(createCall(), new IAsyncCallback() {
+            public void onCompletion(IAsyncResult event) {
+                notified[0] = event;
+            }
+        });
+        IAsyncResult result = ac.invoke(new QName("asyncTest", "echo"), new Object[] {"hi"});
+        result.waitFor(0);
+        assertEquals(Status.COMPLETED, result.getStatus());
+        assertEquals("hi", result.getResponse());
+        assertNull(result.getException());
+        assertSame(result, notified[0]);
+    }
+
+    public void testBoundedExecutorBlocksWhenSaturated() throws Exception {
+        final BoundedExecutor executor = new BoundedExecutor("test", 1, 1, false);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch ran = new CountDownLatch(3);
+        Runnable task = new Runnable() {
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                }
+                ran.countDown();
+            }
+        };
+        executor.execute(task);
+        executor.execute(task);
+        assertEquals(2, executor.getPendingCount());
+
+        final CountDownLatch submitted = new CountDownLatch(1);
+        final Runnable third = task;
+        Thread producer = new Thread() {
+            public void run() {
+                executor.execute(third);
+                submitted.countDown();
+            }
+        };
+        producer.start();
+        assertFalse("executor should apply backpressure",
+                    submitted.await(200, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(submitted.await(10, TimeUnit.SECONDS));
+        assertTrue(ran.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+}
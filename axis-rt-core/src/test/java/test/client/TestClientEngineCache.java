@@ -0,0 +1,92 @@
+package test.client;
+
+import junit.framework.TestCase;
+import org.apache.axis.AxisProperties;
+import org.apache.axis.client.ClientEngineCache;
+import org.apache.axis.client.Service;
+import org.apache.axis.configuration.EngineConfigurationFactoryDefault;
+import org.apache.axis.configuration.SimpleProvider;
+import org.apache.axis.deployment.wsdd.WSDDConstants;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * Test that Services share cached client engines when asked to.
+ */
+public class TestClientEngineCache extends TestCase {
+    private boolean wasEnabled;
+
+    protected void setUp() throws Exception {
+        wasEnabled = ClientEngineCache.isEnabled();
+        ClientEngineCache.setEnabled(true);
+        ClientEngineCache.refresh();
+    }
+
+    protected void tearDown() throws Exception {
+        ClientEngineCache.refresh();
+        ClientEngineCache.setEnabled(wasEnabled);
+    }
+
+    public void testEngineIsShared() throws Exception {
+        long misses = ClientEngineCache.getMissCount();
+        Service first = new Service();
+        Service second = new Service();
+        assertSame(first.getEngine(), second.getEngine());
+        assertSame(first.getEngine().getConfig(), second.getEngine().getConfig());
+        assertEquals(misses + 1, ClientEngineCache.getMissCount());
+
+        ClientEngineCache.refresh();
+        Service third = new Service();
+        assertNotSame(first.getEngine(), third.getEngine());
+        assertSame(third.getEngine(), new Service().getEngine());
+    }
+
+    public void testExplicitConfigurationIsNotShared() throws Exception {
+        Service cached = new Service();
+        Service explicit = new Service(new SimpleProvider());
+        assertNotSame(cached.getEngine(), explicit.getEngine());
+    }
+
+    public void testCacheIsKeyedByConfigurationFile() throws Exception {
+        String key = EngineConfigurationFactoryDefault.OPTION_CLIENT_CONFIG_FILE;
+        String old = AxisProperties.getProperty(key);
+        File file = File.createTempFile("client-config", ".wsdd");
+        Writer writer = new FileWriter(file);
+        writer.write("<deployment xmlns=\"" + WSDDConstants.URI_WSDD + "\"/>");
+        writer.close();
+        Service first = new Service();
+        try {
+            AxisProperties.setProperty(key, file.getAbsolutePath());
+            Service other = new Service();
+            assertNotSame(first.getEngine(), other.getEngine());
+            assertSame(other.getEngine(), new Service().getEngine());
+        } finally {
+            AxisProperties.setProperty(key, old);
+            file.delete();
+        }
+    }
+
+    public void testCacheIsKeyedByClassLoader() throws Exception {
+        Thread thread = Thread.currentThread();
+        ClassLoader old = thread.getContextClassLoader();
+        Service first = new Service();
+        try {
+            thread.setContextClassLoader(new URLClassLoader(new URL[0], old));
+            Service other = new Service();
+            assertNotSame(first.getEngine(), other.getEngine());
+            assertSame(other.getEngine(), new Service().getEngine());
+        } finally {
+            thread.setContextClassLoader(old);
+        }
+        assertSame(first.getEngine(), new Service().getEngine());
+    }
+
+    public void testDisabled() throws Exception {
+        ClientEngineCache.setEnabled(false);
+        assertNotSame(new Service().getEngine(), new Service().getEngine());
+    }
+}
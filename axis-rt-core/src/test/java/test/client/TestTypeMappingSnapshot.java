@@ -0,0 +1,86 @@
+package test.client;
+
+import junit.framework.TestCase;
+import org.apache.axis.Constants;
+import org.apache.axis.client.Call;
+import org.apache.axis.client.Service;
+import org.apache.axis.client.TypeMappingSnapshot;
+import org.apache.axis.configuration.SimpleProvider;
+import org.apache.axis.encoding.TypeMapping;
+import org.apache.axis.encoding.ser.BeanDeserializerFactory;
+import org.apache.axis.encoding.ser.BeanSerializerFactory;
+import org.apache.axis.encoding.ser.SimpleSerializerFactory;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Test the type mappings generated stubs share between their instances.
+ */
+public class TestTypeMappingSnapshot extends TestCase {
+
+    private static final QName BEAN_QNAME = new QName("urn:test", "Bean");
+
+    public TestTypeMappingSnapshot(String name) {
+        super(name);
+    }
+
+    private static Call newCall(Service service) throws Exception {
+        Call call = (Call) service.createCall();
+        call.setEncodingStyle(Constants.URI_SOAP11_ENC);
+        return call;
+    }
+
+    public void testRegisterWith() throws Exception {
+        TypeMappingSnapshot snapshot = new TypeMappingSnapshot(1);
+        snapshot.add(Bean.class, BEAN_QNAME,
+                     BeanSerializerFactory.class, BeanDeserializerFactory.class);
+        // grows past the capacity given
+        snapshot.add(Bean[].class, new QName("urn:test", "ArrayOfBean"),
+                     org.apache.axis.encoding.ser.ArraySerializerFactory.class,
+                     org.apache.axis.encoding.ser.ArrayDeserializerFactory.class);
+        assertEquals(2, snapshot.size());
+
+        Service service = new Service(new SimpleProvider());
+        Call call = newCall(service);
+        snapshot.registerWith(call);
+        TypeMapping tm = call.getTypeMapping();
+        assertTrue(tm.isRegistered(Bean.class, BEAN_QNAME));
+        Object sf = tm.getSerializer(Bean.class, BEAN_QNAME);
+        assertTrue(sf instanceof BeanSerializerFactory);
+
+        // every Call of every stub instance gets the same factories
+        Service other = new Service(new SimpleProvider());
+        Call otherCall = newCall(other);
+        snapshot.registerWith(otherCall);
+        assertSame(sf, otherCall.getTypeMapping().getSerializer(Bean.class, BEAN_QNAME));
+        snapshot.registerWith(newCall(service));
+        assertSame(sf, tm.getSerializer(Bean.class, BEAN_QNAME));
+    }
+
+    public void testExistingMappingWins() throws Exception {
+        Service service = new Service(new SimpleProvider());
+        Call call = newCall(service);
+        SimpleSerializerFactory existing =
+            new SimpleSerializerFactory(Bean.class, BEAN_QNAME);
+        call.registerTypeMapping(Bean.class, BEAN_QNAME, existing, null);
+
+        TypeMappingSnapshot snapshot = new TypeMappingSnapshot(1);
+        snapshot.add(Bean.class, BEAN_QNAME,
+                     BeanSerializerFactory.class, BeanDeserializerFactory.class);
+        snapshot.registerWith(call);
+        assertSame(existing,
+                   call.getTypeMapping().getSerializer(Bean.class, BEAN_QNAME));
+    }
+
+    public static class Bean {
+        private int value;
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2002-2004 The Apache Software Foundation.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.concurrency;
+
+import javax.xml.rpc.ServiceException;
+import javax.xml.rpc.server.ServiceLifecycle;
+
+/**
+ * An Axis service to test pooled scope.  It counts its instances and
+ * complains if one of them is used by two requests at the same time.
+ */
+public class PooledService implements ServiceLifecycle {
+    private static final Object lock = new Object();
+    static int created = 0;
+    static int initialized = 0;
+    static int destroyed = 0;
+
+    private boolean inUse = false;
+
+    public PooledService() {
+        synchronized (lock) {
+            created++;
+        }
+    }
+
+    static void reset() {
+        synchronized (lock) {
+            created = initialized = destroyed = 0;
+        }
+    }
+
+    public void init(Object context) throws ServiceException {
+        synchronized (lock) {
+            initialized++;
+        }
+    }
+
+    public void destroy() {
+        synchronized (lock) {
+            destroyed++;
+        }
+    }
+
+    public String hello() throws Exception {
+        synchronized (this) {
+            if (inUse) {
+                throw new Exception("PooledService used concurrently!");
+            }
+            inUse = true;
+        }
+        try {
+            Thread.sleep(1);
+            return TestService.MESSAGE;
+        } finally {
+            synchronized (this) {
+                inUse = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2002-2004 The Apache Software Foundation.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.concurrency;
+
+import junit.framework.TestCase;
+import org.apache.axis.AxisFault;
+import org.apache.axis.MessageContext;
+import org.apache.axis.client.Call;
+import org.apache.axis.client.Service;
+import org.apache.axis.configuration.BasicServerConfig;
+import org.apache.axis.handlers.soap.SOAPService;
+import org.apache.axis.providers.java.RPCProvider;
+import org.apache.axis.providers.java.ServiceObjectPool;
+import org.apache.axis.server.AxisServer;
+import org.apache.axis.transport.local.LocalTransport;
+
+/**
+ * Test the "pooled" scope option - lots of threads call the same service,
+ * and we confirm that no more service objects than allowed were created
+ * and that no service object was used by two requests at once.
+ */
+public class TestPooledScope extends TestCase {
+    private static final int MAX_ACTIVE = 3;
+
+    private BasicServerConfig config;
+    private AxisServer server;
+    private SOAPService service;
+    private String SERVICE_NAME = "PooledService";
+
+    protected void setUp() throws Exception {
+        PooledService.reset();
+        config = new BasicServerConfig();
+        server = new AxisServer(config);
+
+        service = new SOAPService(new RPCProvider());
+        service.setName(SERVICE_NAME);
+        service.setOption("className", PooledService.class.getName());
+        service.setOption("scope", "pooled");
+        service.setOption("allowedMethods", "*");
+        service.setOption("poolMaxActive", "" + MAX_ACTIVE);
+        service.setOption("poolMinIdle", "2");
+        config.deployService(SERVICE_NAME, service);
+    }
+
+    private Exception error = null;
+    synchronized void setError(Exception e) {
+        if (error == null) {
+            error = e;
+        }
+    }
+
+    public void testPooledScope() throws Exception {
+        int threads = 20;
+        final int reps = 10;
+
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread("TestThread #" + i) {
+                public void run() {
+                    LocalTransport transport = new LocalTransport(server);
+                    transport.setRemoteService(SERVICE_NAME);
+                    Call call = new Call(new Service());
+                    call.setTransport(transport);
+                    for (int j = 0; j < reps; j++) {
+                        try {
+                            Object ret = call.invoke("hello", null);
+                            if (!TestService.MESSAGE.equals(ret)) {
+                                setError(new Exception("Got " + ret));
+                                return;
+                            }
+                        } catch (AxisFault fault) {
+                            setError(fault);
+                            return;
+                        }
+                    }
+                }
+            };
+            workers[i].start();
+        }
+        for (int i = 0; i < threads; i++) {
+            workers[i].join();
+        }
+        if (error != null) {
+            throw error;
+        }
+
+        ServiceObjectPool pool = service.getServiceObjectPool();
+        assertTrue(PooledService.created >= 2);
+        assertTrue(PooledService.created <= MAX_ACTIVE);
+        assertEquals(PooledService.created, PooledService.initialized);
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(PooledService.created, pool.getIdleCount());
+
+        service.closeServiceObjectPool();
+        assertEquals(PooledService.created, PooledService.destroyed);
+        assertTrue(pool.isClosed());
+
+        // the next request gets a new pool
+        LocalTransport transport = new LocalTransport(server);
+        transport.setRemoteService(SERVICE_NAME);
+        Call call = new Call(new Service());
+        call.setTransport(transport);
+        assertEquals(TestService.MESSAGE, call.invoke("hello", null));
+        assertNotSame(pool, service.getServiceObjectPool());
+    }
+
+    public void testPoolLimits() throws Exception {
+        Factory factory = new Factory();
+        ServiceObjectPool pool =
+            new ServiceObjectPool("test", factory, 2, 1, 1, 50);
+        MessageContext msgContext = new MessageContext(server);
+        pool.prefill(msgContext);
+        assertEquals(1, pool.getIdleCount());
+
+        Object first = pool.borrow(msgContext);
+        Object second = pool.borrow(msgContext);
+        assertEquals(2, factory.created);
+        try {
+            pool.borrow(msgContext);
+            fail("Expected the pool to be exhausted");
+        } catch (AxisFault fault) {
+            assertEquals(1, pool.getTimeoutCount());
+        }
+
+        pool.release(first);
+        assertSame(first, pool.borrow(msgContext));
+        pool.release(first);
+        pool.release(second);
+        assertEquals(1, factory.destroyed);
+        assertEquals(1, pool.getIdleCount());
+
+        pool.close();
+        assertEquals(2, factory.destroyed);
+        try {
+            pool.borrow(msgContext);
+            fail("Expected the pool to be closed");
+        } catch (AxisFault fault) {
+            assertEquals(2, factory.created);
+        }
+    }
+
+    static class Factory implements ServiceObjectPool.Factory {
+        int created = 0;
+        int destroyed = 0;
+
+        public synchronized Object create(MessageContext msgContext) {
+            created++;
+            return new Object();
+        }
+
+        public synchronized void destroy(Object obj) {
+            destroyed++;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package test.encoding;
+
+import junit.framework.TestCase;
+import org.apache.axis.encoding.ser.CalendarDeserializer;
+import org.apache.axis.encoding.ser.CalendarSerializer;
+import org.apache.axis.encoding.ser.JavaTimeDeserializer;
+import org.apache.axis.encoding.ser.JavaTimeSerializer;
+import org.apache.axis.utils.DateTimeCodec;
+
+import javax.xml.namespace.QName;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Test the xsd:dateTime, xsd:date and xsd:time codec against the
+ * SimpleDateFormat patterns the date serializers used to have.
+ */
+public class TestDateTimeCodec extends TestCase {
+
+    private static final QName XSD_DATETIME =
+        new QName("http://www.w3.org/2001/XMLSchema", "dateTime");
+
+    public TestDateTimeCodec(String name) {
+        super(name);
+    }
+
+    private static SimpleDateFormat format(String pattern, TimeZone zone) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern);
+        format.setTimeZone(zone);
+        return format;
+    }
+
+    private static String formatDateTime(long time) {
+        char[] buf = new char[DateTimeCodec.MAX_LENGTH];
+        return new String(buf, 0, DateTimeCodec.formatDateTime(time, buf, 0));
+    }
+
+    private static long parseDateTime(String text) {
+        char[] chars = text.toCharArray();
+        return DateTimeCodec.parseDateTime(chars, 0, chars.length);
+    }
+
+    public void testFormatLikeSimpleDateFormat() throws Exception {
+        TimeZone gmt = TimeZone.getTimeZone("GMT");
+        TimeZone paris = TimeZone.getTimeZone("Europe/Paris");
+        SimpleDateFormat dateTime = format("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", gmt);
+        SimpleDateFormat time = format("HH:mm:ss.SSS'Z'", gmt);
+        SimpleDateFormat date = format("yyyy-MM-dd", paris);
+        char[] buf = new char[DateTimeCodec.MAX_LENGTH];
+
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            // from the year 1000 to the year 3000
+            long t = -30610224000000L + (long) (random.nextDouble() * 63113904000000L);
+            Date d = new Date(t);
+            String expected = dateTime.format(d);
+            if (t < -12219292800000L) {
+                continue;
+            }
+            assertEquals(expected, formatDateTime(t));
+            assertEquals(t, parseDateTime(expected));
+            assertEquals(time.format(d),
+                         new String(buf, 0, DateTimeCodec.formatTime(t, buf, 0)));
+            String day = date.format(d);
+            assertEquals(day, new String(buf, 0,
+                         DateTimeCodec.formatDate(t, paris, buf, 0)));
+            char[] chars = day.toCharArray();
+            assertEquals(day, date.parse(day).getTime(),
+                         DateTimeCodec.parseDate(chars, 0, chars.length, paris));
+        }
+    }
+
+    public void testJulianCalendar() throws Exception {
+        SimpleDateFormat dateTime = format("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'",
+                                           TimeZone.getTimeZone("GMT"));
+        String[] texts = { "1582-10-04T12:00:00.000Z", "1000-02-29T01:02:03.004Z",
+                           "0001-01-01T00:00:00.000Z" };
+        for (int i = 0; i < texts.length; i++) {
+            long t = dateTime.parse(texts[i]).getTime();
+            assertEquals(t, parseDateTime(texts[i]));
+            assertEquals(texts[i], formatDateTime(t));
+        }
+
+        // years before the Christian era get their sign back
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("GMT"));
+        calendar.clear();
+        calendar.set(44, Calendar.MARCH, 15, 12, 0, 0);
+        calendar.set(Calendar.ERA, GregorianCalendar.BC);
+        assertEquals("-0044-03-15T12:00:00.000Z",
+                     formatDateTime(calendar.getTimeInMillis()));
+    }
+
+    public void testParseRules() throws Exception {
+        long t = parseDateTime("2004-03-05T06:07:08Z");
+        assertEquals("2004-03-05T06:07:08.000Z", formatDateTime(t));
+        assertEquals(t + 123, parseDateTime("2004-03-05T06:07:08.123Z"));
+        assertEquals(t + 120, parseDateTime("2004-03-05T06:07:08.12"));
+        assertEquals(t + 124, parseDateTime("2004-03-05T06:07:08.12351"));
+        assertEquals(t - 90 * 60000, parseDateTime("2004-03-05T06:07:08+01:30"));
+        assertEquals(t + 5 * 3600000, parseDateTime("+2004-03-05T06:07:08-05:00"));
+        // fields out of range roll over, as they did with SimpleDateFormat
+        assertEquals(parseDateTime("2005-01-01T00:00:00Z"),
+                     parseDateTime("2004-12-31T24:00:00Z"));
+        assertEquals(parseDateTime("2005-01-01T00:00:00Z"),
+                     parseDateTime("2004-13-01T00:00:00Z"));
+
+        String[] bad = { "", "2004-03-05", "2004/03/05T06:07:08Z",
+                         "2004-03-05T06-07-08Z", "2004-03-05T06:07:08X",
+                         "20a4-03-05T06:07:08Z", "2004-03-05T06:07:08+1a:00" };
+        for (int i = 0; i < bad.length; i++) {
+            try {
+                parseDateTime(bad[i]);
+                fail(bad[i]);
+            } catch (NumberFormatException e) {
+            }
+        }
+    }
+
+    public void testCalendar() throws Exception {
+        CalendarDeserializer deser =
+            new CalendarDeserializer(Calendar.class, XSD_DATETIME);
+        Calendar calendar = (Calendar) deser.makeValue(" 2004-03-05T06:07:08.9Z\n");
+        assertEquals("GMT", calendar.getTimeZone().getID());
+        assertEquals(parseDateTime("2004-03-05T06:07:08.900Z"),
+                     calendar.getTimeInMillis());
+        assertEquals("2004-03-05T06:07:08.900Z",
+                     new CalendarSerializer().getValueAsString(calendar, null));
+
+        calendar = (Calendar) deser.makeValue("-0044-03-15T12:00:00Z");
+        assertEquals(GregorianCalendar.BC, calendar.get(Calendar.ERA));
+        assertEquals(44, calendar.get(Calendar.YEAR));
+    }
+
+    public void testJavaTime() throws Exception {
+        JavaTimeSerializer ser = new JavaTimeSerializer();
+        JavaTimeDeserializer instants =
+            new JavaTimeDeserializer(Instant.class, XSD_DATETIME);
+        JavaTimeDeserializer offsets =
+            new JavaTimeDeserializer(OffsetDateTime.class, XSD_DATETIME);
+        JavaTimeDeserializer dates = new JavaTimeDeserializer(LocalDate.class,
+            new QName("http://www.w3.org/2001/XMLSchema", "date"));
+
+        Instant instant = Instant.parse("2004-03-05T06:07:08.123456789Z");
+        assertEquals("2004-03-05T06:07:08.123456789Z",
+                     ser.getValueAsString(instant, null));
+        assertEquals(instant, instants.makeValue("2004-03-05T06:07:08.123456789Z"));
+        assertEquals(Instant.parse("2004-03-05T05:07:08Z"),
+                     instants.makeValue("2004-03-05T06:07:08+01:00"));
+
+        OffsetDateTime offset = OffsetDateTime.of(2004, 3, 5, 6, 7, 8, 120000000,
+                                                  ZoneOffset.ofHours(-5));
+        assertEquals("2004-03-05T06:07:08.120-05:00",
+                     ser.getValueAsString(offset, null));
+        assertEquals(offset, offsets.makeValue("2004-03-05T06:07:08.12-05:00"));
+        assertEquals(OffsetDateTime.of(2004, 3, 6, 0, 0, 0, 0, ZoneOffset.UTC),
+                     offsets.makeValue("2004-03-05T24:00:00"));
+
+        assertEquals("2004-02-29", ser.getValueAsString(LocalDate.of(2004, 2, 29), null));
+        assertEquals("-0044-03-15", ser.getValueAsString(LocalDate.of(-44, 3, 15), null));
+        assertEquals(LocalDate.of(2004, 2, 29), dates.makeValue("2004-02-29Z"));
+        assertEquals(LocalDate.of(-44, 3, 15), dates.makeValue("-0044-03-15"));
+        try {
+            dates.makeValue("2003-02-29");
+            fail("no leap day in 2003");
+        } catch (NumberFormatException e) {
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package test.encoding;
+
+import junit.framework.TestCase;
+import org.apache.axis.Message;
+import org.apache.axis.MessageContext;
+import org.apache.axis.encoding.ser.PrimitiveArrayBuffer;
+import org.apache.axis.message.RPCElement;
+import org.apache.axis.message.RPCParam;
+import org.apache.axis.message.SOAPEnvelope;
+import org.apache.axis.server.AxisServer;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Test the serialization and deserialization of arrays of primitives,
+ * which don't box the items.
+ */
+public class TestPrimitiveArrays extends TestCase {
+
+    private static final String HEADER =
+        "<?xml version=\"1.0\"?>\n" +
+        "<soap:Envelope " +
+          "xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\" " +
+          "xmlns:soapenc=\"http://schemas.xmlsoap.org/soap/encoding/\" " +
+          "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" " +
+          "xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\">\n" +
+          "<soap:Body>\n" +
+            "<methodResult xmlns=\"http://tempuri.org/\">\n";
+
+    private static final String FOOTER =
+            "</methodResult>\n" +
+          "</soap:Body>\n" +
+        "</soap:Envelope>\n";
+
+    public TestPrimitiveArrays(String name) {
+        super(name);
+    }
+
+    private Object deserialize(String data) throws Exception {
+        return deserializeMessage(HEADER + data + FOOTER);
+    }
+
+    private Object deserializeMessage(String text) throws Exception {
+        Message message = new Message(text);
+        message.setMessageContext(new MessageContext(new AxisServer()));
+        SOAPEnvelope envelope = message.getSOAPEnvelope();
+        RPCElement body = (RPCElement) envelope.getFirstBody();
+        RPCParam param = (RPCParam) body.getParams().get(0);
+        return param.getObjectValue();
+    }
+
+    private Object roundTrip(Object array) throws Exception {
+        RPCParam param = new RPCParam("", "result", array);
+        RPCElement body = new RPCElement("http://tempuri.org/", "methodResult",
+                                         new Object[] { param });
+        SOAPEnvelope env = new SOAPEnvelope();
+        env.addBodyElement(body);
+        return deserializeMessage(env.toString());
+    }
+
+    public void testRoundTrip() throws Exception {
+        int[] ints = { 0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE };
+        assertTrue(Arrays.equals(ints, (int[]) roundTrip(ints)));
+
+        long[] longs = { 0, 1234567890123L, Long.MIN_VALUE, Long.MAX_VALUE };
+        assertTrue(Arrays.equals(longs, (long[]) roundTrip(longs)));
+
+        short[] shorts = { 0, Short.MIN_VALUE, Short.MAX_VALUE };
+        assertTrue(Arrays.equals(shorts, (short[]) roundTrip(shorts)));
+
+        double[] doubles = { 0, -0.0, 1, 1234567, 1e7, 0.1, -3.5e-300,
+                             Double.MAX_VALUE, Double.MIN_VALUE, Double.NaN,
+                             Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+        assertTrue(Arrays.equals(doubles, (double[]) roundTrip(doubles)));
+
+        float[] floats = { 0, -0.0f, 1.5f, 1e-20f, Float.MAX_VALUE, Float.NaN,
+                           Float.NEGATIVE_INFINITY };
+        assertTrue(Arrays.equals(floats, (float[]) roundTrip(floats)));
+
+        boolean[] booleans = { true, false, true };
+        assertTrue(Arrays.equals(booleans, (boolean[]) roundTrip(booleans)));
+
+        int[] empty = new int[0];
+        assertTrue(Arrays.equals(empty, (int[]) roundTrip(empty)));
+    }
+
+    public void testSerializedForm() throws Exception {
+        RPCParam param = new RPCParam("", "result", new double[] {
+            1234567, 1e7, -0.0, Double.NaN, Double.NEGATIVE_INFINITY });
+        RPCElement body = new RPCElement("http://tempuri.org/", "methodResult",
+                                         new Object[] { param });
+        SOAPEnvelope env = new SOAPEnvelope();
+        env.addBodyElement(body);
+        String text = env.toString();
+        String[] expected = { ">1234567.0<", ">1.0E7<", ">-0.0<", ">NaN<", ">-INF<" };
+        for (int i = 0; i < expected.length; i++) {
+            assertTrue(expected[i] + " in " + text, text.indexOf(expected[i]) > 0);
+        }
+        assertTrue(text, text.indexOf("xsi:type=\"xsd:double\"") > 0);
+    }
+
+    public void testDeserialize() throws Exception {
+        Object result = deserialize(
+            "<result xsi:type=\"soapenc:Array\" soapenc:arrayType=\"xsd:double[5]\">" +
+            "<item> 1.5 </item>" +
+            "<item xsi:type=\"xsd:double\">-2e3</item>" +
+            "<item>INF</item>" +
+            "<item>12345678901234567890.5</item>" +
+            "<item>1<!-- split -->7</item>" +
+            "</result>");
+        assertTrue(Arrays.equals(new double[] { 1.5, -2000,
+                                                Double.POSITIVE_INFINITY,
+                                                12345678901234567890.5, 17 },
+                                 (double[]) result));
+
+        result = deserialize(
+            "<result xsi:type=\"soapenc:Array\" soapenc:arrayType=\"xsd:int[3]\">" +
+            "<item>+1</item><item soapenc:position=\"[2]\">3</item>" +
+            "</result>");
+        assertTrue(Arrays.equals(new int[] { 1, 0, 3 }, (int[]) result));
+
+        result = deserialize(
+            "<result xsi:type=\"soapenc:Array\" soapenc:arrayType=\"xsd:boolean[3]\">" +
+            "<item>true</item><item>0</item><item>1</item>" +
+            "</result>");
+        assertTrue(Arrays.equals(new boolean[] { true, false, true },
+                                 (boolean[]) result));
+    }
+
+    public void testBadItem() throws Exception {
+        try {
+            deserialize(
+                "<result xsi:type=\"soapenc:Array\" soapenc:arrayType=\"xsd:int[1]\">" +
+                "<item>3000000000</item></result>");
+            fail("out of range item");
+        } catch (Exception e) {
+        }
+    }
+
+    public void testReferencedItem() throws Exception {
+        // an item given by reference takes the general path
+        Object result = deserialize(
+            "<result xsi:type=\"soapenc:Array\" soapenc:arrayType=\"xsd:int[3]\">" +
+            "<item>1</item><item href=\"#id1\"/><item>3</item>" +
+            "</result>" +
+            "<multiRef id=\"id1\" xsi:type=\"xsd:int\">2</multiRef>");
+        assertTrue(Arrays.equals(new int[] { 1, 2, 3 }, (int[]) result));
+    }
+
+    public void testParse() throws Exception {
+        Random random = new Random(42);
+        PrimitiveArrayBuffer doubles =
+            PrimitiveArrayBuffer.newInstance(double.class, 1);
+        PrimitiveArrayBuffer floats =
+            PrimitiveArrayBuffer.newInstance(float.class, 1);
+        String[] sources = new String[2000];
+        for (int i = 0; i < sources.length; i++) {
+            String s;
+            switch (i % 4) {
+                case 0:
+                    s = Double.toString(random.nextDouble());
+                    break;
+                case 1:
+                    s = Double.toString(random.nextGaussian() * 1e6);
+                    break;
+                case 2:
+                    s = (random.nextInt(2000000) - 1000000) + "." + random.nextInt(1000);
+                    break;
+                default:
+                    s = random.nextInt(100000) + "e" + (random.nextInt(40) - 20);
+            }
+            sources[i] = s;
+            char[] chars = (" " + s + "\n").toCharArray();
+            assertTrue(doubles.parse(i, chars, 0, chars.length));
+            assertTrue(floats.parse(i, chars, 0, chars.length));
+        }
+        assertFalse(doubles.parse(0, " \t".toCharArray(), 0, 2));
+        assertEquals(sources.length, doubles.size());
+        double[] d = (double[]) doubles.toArray();
+        float[] f = (float[]) floats.toArray();
+        for (int i = 0; i < sources.length; i++) {
+            assertEquals(sources[i], Double.parseDouble(sources[i]), d[i], 0);
+            assertEquals(sources[i], Float.parseFloat(sources[i]), f[i], 0);
+        }
+    }
+}
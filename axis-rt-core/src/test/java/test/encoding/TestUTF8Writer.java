@@ -0,0 +1,104 @@
+package test.encoding;
+
+import junit.framework.TestCase;
+import org.apache.axis.components.encoding.UTF8Writer;
+import org.apache.axis.components.encoding.XMLEncoder;
+import org.apache.axis.components.encoding.XMLEncoderFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Test that the UTF8Writer writes the same bytes as an OutputStreamWriter.
+ */
+public class TestUTF8Writer extends TestCase {
+    private static final String[] STRINGS = {
+        "",
+        "plain ascii",
+        "<a href=\"x\">&amp;</a>",
+        "tab\tnew\nline\rreturn",
+        "del \u007F raw",
+        "caf\u00E9 \u00FCber \u0394 \u20AC \uFFFD",
+        "\uD834\uDD1E clef",
+        "lone \uD834 high and \uDD1E low",
+    };
+
+    public TestUTF8Writer(String name) {
+        super(name);
+    }
+
+    private static String longString() {
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < 5000; i++) {
+            sb.append("x<\u00E9\u20AC\uD834\uDD1E&").append(i);
+        }
+        return sb.toString();
+    }
+
+    private static byte[] write(Writer writer, ByteArrayOutputStream out,
+                                String s, boolean encoded) throws Exception {
+        if (encoded) {
+            XMLEncoderFactory.getEncoder("UTF-8").writeEncoded(writer, s);
+        } else {
+            writer.write(s);
+            writer.write(s.toCharArray(), 0, s.length());
+            for (int i = 0; i < Math.min(s.length(), 100); i++) {
+                writer.write(s.charAt(i));
+            }
+        }
+        writer.flush();
+        return out.toByteArray();
+    }
+
+    private void check(String s, boolean encoded) throws Exception {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        write(new OutputStreamWriter(expected, "UTF-8"), expected, s, encoded);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        write(new UTF8Writer(actual), actual, s, encoded);
+        assertEquals(new String(expected.toByteArray(), "UTF-8"),
+                     new String(actual.toByteArray(), "UTF-8"));
+        assertTrue(java.util.Arrays.equals(expected.toByteArray(),
+                                           actual.toByteArray()));
+    }
+
+    public void testWrite() throws Exception {
+        for (int i = 0; i < STRINGS.length; i++) {
+            check(STRINGS[i], false);
+        }
+        check(longString(), false);
+    }
+
+    public void testWriteEncoded() throws Exception {
+        for (int i = 0; i < STRINGS.length; i++) {
+            check(STRINGS[i], true);
+        }
+        check(longString(), true);
+    }
+
+    public void testEncodedMatchesEncode() throws Exception {
+        XMLEncoder encoder = XMLEncoderFactory.getEncoder("UTF-8");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        UTF8Writer writer = new UTF8Writer(out);
+        writer.writeEncoded("a&b<c>d\"e");
+        writer.flush();
+        assertEquals(encoder.encode("a&b<c>d\"e"), out.toString("UTF-8"));
+    }
+
+    public void testInvalidCharacter() throws Exception {
+        UTF8Writer writer = new UTF8Writer(new ByteArrayOutputStream());
+        try {
+            writer.writeEncoded("bad\u0001");
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testFactory() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(XMLEncoderFactory.getWriter(out, "UTF-8")
+                   instanceof UTF8Writer);
+        assertFalse(XMLEncoderFactory.getWriter(out, "UTF-16")
+                    instanceof UTF8Writer);
+    }
+}
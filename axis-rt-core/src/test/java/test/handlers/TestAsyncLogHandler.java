@@ -0,0 +1,210 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.handlers;
+
+import junit.framework.TestCase;
+import org.apache.axis.Message;
+import org.apache.axis.MessageContext;
+import org.apache.axis.handlers.AsyncLogHandler;
+import org.apache.axis.handlers.AsyncLogWriter;
+import org.apache.axis.server.AxisServer;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+
+/**
+ * Test logging messages through the AsyncLogHandler.
+ */
+public class TestAsyncLogHandler extends TestCase {
+    private static final String REQUEST =
+        "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+        "<soapenv:Body><ping/></soapenv:Body></soapenv:Envelope>";
+    private static final String RESPONSE =
+        "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+        "<soapenv:Body><pong/></soapenv:Body></soapenv:Envelope>";
+
+    private File dir;
+    private AxisServer server;
+
+    public TestAsyncLogHandler(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+        dir = File.createTempFile("asynclog", "");
+        dir.delete();
+        dir.mkdirs();
+        server = new AxisServer();
+    }
+
+    protected void tearDown() throws Exception {
+        AsyncLogHandler.closeAll();
+        File[] files = dir.listFiles();
+        for (int i = 0; files != null && i < files.length; i++) {
+            files[i].delete();
+        }
+        dir.delete();
+    }
+
+    private AsyncLogHandler newHandler(File file, String format) {
+        AsyncLogHandler handler = new AsyncLogHandler();
+        handler.setOption(AsyncLogHandler.OPTION_FILE_NAME, file.getPath());
+        if (format != null) {
+            handler.setOption(AsyncLogHandler.OPTION_FORMAT, format);
+        }
+        handler.setOption(AsyncLogHandler.OPTION_SYNC_INTERVAL, "0");
+        return handler;
+    }
+
+    private void exchange(AsyncLogHandler handler) throws Exception {
+        MessageContext msgContext = new MessageContext(server);
+        msgContext.setRequestMessage(new Message(REQUEST));
+        msgContext.setTargetService("Echo");
+        handler.invoke(msgContext);
+        msgContext.setPastPivot(true);
+        msgContext.setResponseMessage(new Message(RESPONSE));
+        handler.invoke(msgContext);
+    }
+
+    private static String read(File file) throws Exception {
+        byte[] bytes = new byte[(int) file.length()];
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            in.readFully(bytes);
+        } finally {
+            in.close();
+        }
+        return new String(bytes);
+    }
+
+    public void testText() throws Exception {
+        File file = new File(dir, "axis.log");
+        AsyncLogHandler handler = newHandler(file, null);
+        handler.init();
+        for (int i = 0; i < 3; i++) {
+            exchange(handler);
+        }
+        AsyncLogWriter writer = handler.getWriter();
+        AsyncLogHandler.closeAll();
+        assertEquals(3, writer.getWrittenCount());
+        assertEquals(0, writer.getDroppedCount());
+
+        String text = read(file);
+        int count = 0;
+        for (int i = text.indexOf("<pong/>"); i >= 0;
+             i = text.indexOf("<pong/>", i + 1)) {
+            count++;
+        }
+        assertEquals(3, count);
+        assertTrue(text.startsWith("======"));
+        assertTrue(text.indexOf("<ping/>") > 0);
+    }
+
+    public void testBinary() throws Exception {
+        File file = new File(dir, "axis.bin");
+        AsyncLogHandler handler = newHandler(file, "binary");
+        handler.init();
+        exchange(handler);
+        exchange(handler);
+        AsyncLogHandler.closeAll();
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file)));
+        try {
+            AsyncLogHandler.Record.readHeader(in);
+            for (int i = 0; i < 2; i++) {
+                AsyncLogHandler.Record r = AsyncLogHandler.Record.read(in);
+                assertNotNull(r);
+                assertEquals("Echo", r.service);
+                assertFalse(r.fault);
+                assertTrue(r.elapsed >= 0);
+                assertTrue(r.timestamp > 0);
+                assertTrue(new String(r.request).indexOf("<ping/>") > 0);
+                assertTrue(new String(r.response).indexOf("<pong/>") > 0);
+            }
+            assertNull(AsyncLogHandler.Record.read(in));
+        } finally {
+            in.close();
+        }
+    }
+
+    public void testLogAfterCloseAll() throws Exception {
+        File file = new File(dir, "reopen.log");
+        AsyncLogHandler handler = newHandler(file, null);
+        handler.init();
+        exchange(handler);
+        AsyncLogWriter first = handler.getWriter();
+        AsyncLogHandler.closeAll();
+        assertFalse(first.isRunning());
+
+        // the handler opens the file again
+        exchange(handler);
+        AsyncLogWriter second = handler.getWriter();
+        assertNotSame(first, second);
+        assertTrue(second.isRunning());
+        AsyncLogHandler.closeAll();
+        assertEquals(0, first.getDroppedCount());
+        assertEquals(1, second.getWrittenCount());
+        assertEquals(0, second.getDroppedCount());
+
+        String text = read(file);
+        assertTrue(text.indexOf("<pong/>") != text.lastIndexOf("<pong/>"));
+    }
+
+    public void testRoll() throws Exception {
+        File file = new File(dir, "roll.log");
+        AsyncLogHandler handler = newHandler(file, null);
+        handler.setOption(AsyncLogHandler.OPTION_MAX_FILE_SIZE, "100");
+        handler.setOption(AsyncLogHandler.OPTION_MAX_BACKUPS, "2");
+        handler.init();
+        for (int i = 0; i < 6; i++) {
+            exchange(handler);
+        }
+        AsyncLogWriter writer = handler.getWriter();
+        AsyncLogHandler.closeAll();
+
+        assertEquals(6, writer.getWrittenCount());
+        assertTrue(writer.getRollCount() > 0);
+        // the current file and at most two backups
+        assertTrue(file.exists());
+        assertTrue(dir.listFiles().length <= 3);
+        assertTrue(dir.listFiles().length >= 2);
+    }
+
+    public void testRollKeepsOtherFiles() throws Exception {
+        File file = new File(dir, "roll.log");
+        File other = new File(dir, "roll.log.bin");
+        other.createNewFile();
+        File old = new File(dir, "roll.log.old");
+        old.createNewFile();
+        AsyncLogHandler handler = newHandler(file, null);
+        handler.setOption(AsyncLogHandler.OPTION_MAX_FILE_SIZE, "100");
+        handler.setOption(AsyncLogHandler.OPTION_MAX_BACKUPS, "1");
+        handler.init();
+        for (int i = 0; i < 4; i++) {
+            exchange(handler);
+        }
+        AsyncLogHandler.closeAll();
+
+        assertTrue(other.exists());
+        assertTrue(old.exists());
+        // the current file, one backup and the two other files
+        assertEquals(4, dir.listFiles().length);
+    }
+}
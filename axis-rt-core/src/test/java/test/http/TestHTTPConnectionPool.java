@@ -0,0 +1,378 @@
+package test.http;
+
+import junit.framework.TestCase;
+import org.apache.axis.AxisFault;
+import org.apache.axis.AxisProperties;
+import org.apache.axis.MessageContext;
+import org.apache.axis.client.Call;
+import org.apache.axis.client.Service;
+import org.apache.axis.components.net.DefaultHTTPTransportClientProperties;
+import org.apache.axis.components.net.DefaultSocketFactory;
+import org.apache.axis.components.net.SocketFactory;
+import org.apache.axis.components.net.TransportClientProperties;
+import org.apache.axis.components.net.TransportClientPropertiesFactory;
+import org.apache.axis.message.SOAPBodyElement;
+import org.apache.axis.message.SOAPEnvelope;
+import org.apache.axis.transport.http.HTTPConnectionPool;
+import org.apache.axis.transport.http.HTTPConstants;
+import org.apache.axis.transport.http.SocketHolder;
+import org.apache.axis.transport.http.SocketInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Hashtable;
+
+/**
+ * Test that HTTPSender reuses persistent connections through the
+ * HTTPConnectionPool.
+ */
+public class TestHTTPConnectionPool extends TestCase {
+    private static final String RESPONSE =
+        "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+        "<soapenv:Body><echoResponse xmlns=\"urn:test\">hello</echoResponse></soapenv:Body>" +
+        "</soapenv:Envelope>";
+
+    private Server server;
+    private HTTPConnectionPool pool;
+
+    public TestHTTPConnectionPool(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+        server = new Server();
+        server.start();
+        pool = new HTTPConnectionPool(2, 10, 0, 30000, 0);
+        HTTPConnectionPool.setInstance(pool);
+    }
+
+    protected void tearDown() throws Exception {
+        HTTPConnectionPool.setInstance(null);
+        pool.shutdown();
+        server.shutdown();
+    }
+
+    private SOAPEnvelope call(String httpVersion) throws Exception {
+        return call(httpVersion, false);
+    }
+
+    private SOAPEnvelope call(String httpVersion, boolean idempotent)
+            throws Exception {
+        Call call = (Call) new Service().createCall();
+        call.setTargetEndpointAddress("http://localhost:" + server.getPort() + "/axis/services/echo");
+        call.setProperty(MessageContext.HTTP_TRANSPORT_VERSION, httpVersion);
+        if (idempotent) {
+            call.setProperty(HTTPConstants.MC_HTTP_IDEMPOTENT, Boolean.TRUE);
+        }
+        SOAPEnvelope env = new SOAPEnvelope();
+        env.addBodyElement(new SOAPBodyElement("urn:test", "echo"));
+        SOAPEnvelope response = call.invoke(env);
+        // reading the body releases the connection
+        assertEquals("echoResponse", response.getFirstBody().getLocalName());
+        return response;
+    }
+
+    public void testContentLengthResponsesReuseConnection() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            call(HTTPConstants.HEADER_PROTOCOL_V11);
+        }
+        assertEquals(1, server.getConnectionCount());
+        assertEquals(1, pool.getMissCount());
+        assertEquals(2, pool.getHitCount());
+        assertEquals(1, pool.getIdleConnections());
+    }
+
+    public void testChunkedResponsesReuseConnection() throws Exception {
+        server.chunked = true;
+        for (int i = 0; i < 3; i++) {
+            call(HTTPConstants.HEADER_PROTOCOL_V11);
+        }
+        assertEquals(1, server.getConnectionCount());
+        assertEquals(2, pool.getHitCount());
+    }
+
+    public void testConnectionCloseIsHonoured() throws Exception {
+        server.close = true;
+        call(HTTPConstants.HEADER_PROTOCOL_V11);
+        call(HTTPConstants.HEADER_PROTOCOL_V11);
+        assertEquals(2, server.getConnectionCount());
+        assertEquals(0, pool.getHitCount());
+        assertEquals(0, pool.getIdleConnections());
+        assertEquals(0, pool.getAllocatedConnections());
+    }
+
+    public void testHTTP10IsNotPooled() throws Exception {
+        call(HTTPConstants.HEADER_PROTOCOL_V10);
+        call(HTTPConstants.HEADER_PROTOCOL_V10);
+        assertEquals(2, server.getConnectionCount());
+        assertEquals(0, pool.getMissCount());
+        assertEquals(0, pool.getAllocatedConnections());
+    }
+
+    public void testStaleConnectionIsReplaced() throws Exception {
+        server.dropAfterResponse = true;
+        call(HTTPConstants.HEADER_PROTOCOL_V11);
+        Thread.sleep(200);
+        call(HTTPConstants.HEADER_PROTOCOL_V11);
+        assertEquals(2, server.getConnectionCount());
+        assertEquals(1, pool.getStaleCount());
+        assertEquals(0, pool.getHitCount());
+    }
+
+    private void usePoolWithoutStaleCheck() {
+        pool.shutdown();
+        pool = new HTTPConnectionPool(2, 10, 0, 30000, -1);
+        HTTPConnectionPool.setInstance(pool);
+    }
+
+    public void testIdempotentRequestIsRetried() throws Exception {
+        usePoolWithoutStaleCheck();
+        server.dropAfterResponse = true;
+        call(HTTPConstants.HEADER_PROTOCOL_V11, true);
+        Thread.sleep(200);
+        // the pooled connection was closed by the server
+        call(HTTPConstants.HEADER_PROTOCOL_V11, true);
+        assertEquals(2, server.getConnectionCount());
+        assertEquals(1, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+        assertEquals(1, pool.getAllocatedConnections());
+    }
+
+    public void testRequestIsNotRetriedUnlessIdempotent() throws Exception {
+        usePoolWithoutStaleCheck();
+        server.dropAfterResponse = true;
+        call(HTTPConstants.HEADER_PROTOCOL_V11);
+        Thread.sleep(200);
+        try {
+            call(HTTPConstants.HEADER_PROTOCOL_V11);
+            fail("Expected an AxisFault");
+        } catch (AxisFault expected) {
+        }
+        assertEquals(1, server.getConnectionCount());
+        assertEquals(0, pool.getAllocatedConnections());
+    }
+
+    public void testRouteDependsOnSocketFactory() throws Exception {
+        Hashtable options = new Hashtable();
+        options.put("keystore", "a.jks");
+        SocketFactory factory = new DefaultSocketFactory(options);
+        String route = HTTPConnectionPool.getRoute("http", "localhost", 80,
+                                                   factory, options);
+        assertTrue(route.startsWith(
+                HTTPConnectionPool.getRoute("http", "localhost", 80)));
+
+        // the connect timeout doesn't matter
+        Hashtable timeout = new Hashtable(options);
+        timeout.put(DefaultSocketFactory.CONNECT_TIMEOUT, "1000");
+        assertEquals(route, HTTPConnectionPool.getRoute("http", "localhost",
+                                                        80, factory, timeout));
+
+        Hashtable other = new Hashtable();
+        other.put("keystore", "b.jks");
+        assertFalse(route.equals(HTTPConnectionPool.getRoute("http",
+                "localhost", 80, factory, other)));
+        assertFalse(route.equals(HTTPConnectionPool.getRoute("http",
+                "localhost", 80, new DefaultSocketFactory(options), options)));
+    }
+
+    private static void setProxy(String user, String password)
+            throws Exception {
+        String[] names = { "http.proxyHost", "http.proxyPort",
+                           "http.proxyUser", "http.proxyPassword" };
+        String[] values = { user == null ? null : "proxy",
+                            user == null ? null : "3128",
+                            user, password };
+        for (int i = 0; i < names.length; i++) {
+            AxisProperties.setProperty(names[i], values[i]);
+        }
+        // forget the settings read before
+        TransportClientProperties tcp =
+                TransportClientPropertiesFactory.create("http");
+        String[] fields = { "proxyHost", "proxyPort", "proxyUser",
+                            "proxyPassword", "nonProxyHosts" };
+        for (int i = 0; i < fields.length; i++) {
+            Field field = DefaultHTTPTransportClientProperties.class
+                    .getDeclaredField(fields[i]);
+            field.setAccessible(true);
+            field.set(tcp, null);
+        }
+    }
+
+    public void testRouteHidesProxyPassword() throws Exception {
+        SocketFactory factory = new DefaultSocketFactory(null);
+        try {
+            setProxy("scott", "tiger");
+            String route = HTTPConnectionPool.getRoute("http", "localhost",
+                                                       80, factory, null);
+            assertTrue(route.indexOf("scott") > 0);
+            assertTrue(route.indexOf("proxy:3128") > 0);
+            assertEquals(-1, route.indexOf("tiger"));
+
+            setProxy("scott", "lion");
+            assertFalse(route.equals(HTTPConnectionPool.getRoute("http",
+                    "localhost", 80, factory, null)));
+        } finally {
+            setProxy(null, null);
+        }
+    }
+
+    public void testConnectionIsReleasedAtEndOfBody() throws Exception {
+        SocketHolder holder = new SocketHolder(null);
+        assertTrue(pool.lease(holder, "test"));
+        holder.setSocket(new Socket("localhost", server.getPort()));
+        InputStream in = new SocketInputStream(
+                new ByteArrayInputStream(new byte[100]), holder);
+        byte[] buf = new byte[64];
+        while (in.read(buf, 0, buf.length) != -1);
+        // back in the pool, though the stream was never closed
+        assertEquals(1, pool.getIdleConnections());
+        assertEquals(1, pool.getAllocatedConnections());
+        assertEquals(-1, in.read());
+    }
+
+    public void testConnectionIsFreedOnReadError() throws Exception {
+        SocketHolder holder = new SocketHolder(null);
+        assertTrue(pool.lease(holder, "test"));
+        holder.setSocket(new Socket());
+        InputStream in = new SocketInputStream(new InputStream() {
+            public int read() throws IOException {
+                throw new IOException("reset");
+            }
+        }, holder);
+        try {
+            in.read();
+            fail("Expected an IOException");
+        } catch (IOException expected) {
+        }
+        assertEquals(0, pool.getIdleConnections());
+        assertEquals(0, pool.getAllocatedConnections());
+    }
+
+    /**
+     * Minimal HTTP/1.1 server answering every request with the same SOAP
+     * response over persistent connections.
+     */
+    static class Server extends Thread {
+        private final ServerSocket serverSocket;
+        private int connections = 0;
+        volatile boolean chunked = false;
+        volatile boolean close = false;
+        volatile boolean dropAfterResponse = false;
+
+        Server() throws IOException {
+            serverSocket = new ServerSocket(0);
+            setDaemon(true);
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        synchronized int getConnectionCount() {
+            return connections;
+        }
+
+        void shutdown() throws IOException {
+            serverSocket.close();
+        }
+
+        public void run() {
+            try {
+                while (true) {
+                    final Socket socket = serverSocket.accept();
+                    synchronized (this) {
+                        connections++;
+                    }
+                    Thread t = new Thread() {
+                        public void run() {
+                            serve(socket);
+                        }
+                    };
+                    t.setDaemon(true);
+                    t.start();
+                }
+            } catch (IOException e) {
+                // server socket closed
+            }
+        }
+
+        private void serve(Socket socket) {
+            try {
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                OutputStream out = socket.getOutputStream();
+                while (true) {
+                    int contentLength = -1;
+                    String line = readLine(in);
+                    if (line == null) {
+                        break;
+                    }
+                    boolean http10 = line.endsWith("HTTP/1.0");
+                    while ((line = readLine(in)) != null && line.length() > 0) {
+                        if (line.toLowerCase().startsWith("content-length:")) {
+                            contentLength = Integer.parseInt(line.substring(15).trim());
+                        }
+                    }
+                    if (line == null) {
+                        break;
+                    }
+                    for (int i = 0; i < contentLength; i++) {
+                        in.read();
+                    }
+                    byte[] body = RESPONSE.getBytes("UTF-8");
+                    StringBuffer head = new StringBuffer("HTTP/1.1 200 OK\r\n");
+                    head.append("Content-Type: text/xml; charset=utf-8\r\n");
+                    if (close) {
+                        head.append("Connection: close\r\n");
+                    }
+                    if (chunked) {
+                        head.append("Transfer-Encoding: chunked\r\n\r\n");
+                        out.write(head.toString().getBytes("ISO-8859-1"));
+                        int half = body.length / 2;
+                        writeChunk(out, body, 0, half);
+                        writeChunk(out, body, half, body.length - half);
+                        out.write("0\r\n\r\n".getBytes("ISO-8859-1"));
+                    } else {
+                        head.append("Content-Length: ").append(body.length).append("\r\n\r\n");
+                        out.write(head.toString().getBytes("ISO-8859-1"));
+                        out.write(body);
+                    }
+                    out.flush();
+                    if (close || dropAfterResponse || http10) {
+                        break;
+                    }
+                }
+                socket.close();
+            } catch (IOException e) {
+                // client went away
+            }
+        }
+
+        private static void writeChunk(OutputStream out, byte[] data, int off, int len)
+                throws IOException {
+            out.write((Integer.toHexString(len) + "\r\n").getBytes("ISO-8859-1"));
+            out.write(data, off, len);
+            out.write("\r\n".getBytes("ISO-8859-1"));
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1 && b != '\n') {
+                if (b != '\r') {
+                    buf.write(b);
+                }
+            }
+            if (b == -1 && buf.size() == 0) {
+                return null;
+            }
+            return buf.toString("ISO-8859-1");
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package test.http;
+
+import junit.framework.TestCase;
+import org.apache.axis.MessageContext;
+import org.apache.axis.configuration.XMLStringProvider;
+import org.apache.axis.deployment.wsdd.WSDDConstants;
+import org.apache.axis.deployment.wsdd.WSDDDeployment;
+import org.apache.axis.deployment.wsdd.WSDDService;
+import org.apache.axis.handlers.soap.SOAPService;
+import org.apache.axis.server.AxisServer;
+import org.apache.axis.transport.http.HTTPConstants;
+import org.apache.axis.transport.http.QSWSDLHandler;
+import org.apache.commons.logging.LogFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.xml.namespace.QName;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test that QSWSDLHandler caches the generated WSDL, answers conditional
+ * requests and regenerates the WSDL after a redeployment.
+ */
+public class TestQSWSDLHandler extends TestCase {
+    private static final String SERVICE_NAME = "WSDLCacheService";
+    private static final String URL =
+        "http://localhost:8080/axis/services/" + SERVICE_NAME;
+
+    private static final String WSDD =
+        "<deployment xmlns=\"" + WSDDConstants.URI_WSDD + "\" " +
+        "xmlns:java=\"" + WSDDConstants.URI_WSDD_JAVA + "\">\n" +
+        " <service name=\"" + SERVICE_NAME + "\" provider=\"java:RPC\">\n" +
+        "  <parameter name=\"className\" value=\"" +
+        TestQSWSDLHandler.class.getName() + "\"/>\n" +
+        "  <parameter name=\"allowedMethods\" value=\"echo\"/>\n" +
+        " </service>\n" +
+        "</deployment>";
+
+    private XMLStringProvider config;
+    private AxisServer server;
+
+    public TestQSWSDLHandler(String name) {
+        super(name);
+    }
+
+    public TestQSWSDLHandler() {
+        super("TestQSWSDLHandler");
+    }
+
+    public String echo(String s) {
+        return s;
+    }
+
+    protected void setUp() throws Exception {
+        config = new XMLStringProvider(WSDD);
+        server = new AxisServer(config);
+    }
+
+    private Response get(Map requestHeaders, String url) throws Exception {
+        Response response = new Response();
+        StringWriter buffer = new StringWriter();
+        MessageContext msgContext = new MessageContext(server);
+        msgContext.setTargetService(SERVICE_NAME);
+        msgContext.setProperty(MessageContext.TRANS_URL, url);
+        msgContext.setProperty(HTTPConstants.PLUGIN_ENGINE, server);
+        msgContext.setProperty(HTTPConstants.PLUGIN_WRITER,
+                               new PrintWriter(buffer));
+        msgContext.setProperty(HTTPConstants.PLUGIN_IS_DEVELOPMENT,
+                               Boolean.FALSE);
+        msgContext.setProperty(HTTPConstants.PLUGIN_LOG,
+                               LogFactory.getLog(getClass()));
+        msgContext.setProperty(HTTPConstants.MC_HTTP_SERVLETREQUEST,
+                               request(requestHeaders));
+        msgContext.setProperty(HTTPConstants.MC_HTTP_SERVLETRESPONSE,
+                               response.proxy());
+        new QSWSDLHandler().invoke(msgContext);
+        response.body = buffer.toString();
+        response.generated = msgContext.getProperty("WSDL") != null;
+        return response;
+    }
+
+    public void testWSDLIsCached() throws Exception {
+        Response first = get(new HashMap(), URL);
+        assertTrue(first.generated);
+        assertEquals(200, first.status);
+        assertTrue(first.body.indexOf(URL) != -1);
+        assertNotNull(first.headers.get("ETag"));
+        assertNotNull(first.headers.get("Last-Modified"));
+
+        Response second = get(new HashMap(), URL);
+        assertFalse(second.generated);
+        assertEquals(first.body, second.body);
+        assertEquals(first.headers.get("ETag"), second.headers.get("ETag"));
+    }
+
+    public void testCacheIsKeyedByEndpointURL() throws Exception {
+        String other = "http://otherhost/axis/services/" + SERVICE_NAME;
+        get(new HashMap(), URL);
+        Response response = get(new HashMap(), other);
+        assertTrue(response.generated);
+        assertTrue(response.body.indexOf(other) != -1);
+    }
+
+    public void testConditionalRequest() throws Exception {
+        Response first = get(new HashMap(), URL);
+        Map headers = new HashMap();
+        headers.put("If-None-Match", first.headers.get("ETag"));
+        Response second = get(headers, URL);
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, second.status);
+        assertEquals("", second.body);
+
+        headers.put("If-None-Match", "\"stale\"");
+        Response third = get(headers, URL);
+        assertEquals(200, third.status);
+        assertEquals(first.body, third.body);
+    }
+
+    public void testRedeployInvalidatesCache() throws Exception {
+        get(new HashMap(), URL);
+        SOAPService service = server.getService(SERVICE_NAME);
+        assertNotNull(service.getCachedWSDL(URL));
+
+        WSDDDeployment deployment = config.getDeployment();
+        WSDDService wsddService =
+                deployment.getWSDDService(new QName(SERVICE_NAME));
+        deployment.deployService(wsddService);
+        assertNull(service.getCachedWSDL(URL));
+        assertTrue(get(new HashMap(), URL).generated);
+
+        deployment.undeployService(new QName(SERVICE_NAME));
+        assertNull(service.getCachedWSDL(URL));
+    }
+
+    private static HttpServletRequest request(final Map headers) {
+        return (HttpServletRequest) Proxy.newProxyInstance(
+                TestQSWSDLHandler.class.getClassLoader(),
+                new Class[] {HttpServletRequest.class},
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method,
+                                         Object[] args) {
+                        if (method.getName().equals("getHeader")) {
+                            return headers.get(args[0]);
+                        }
+                        if (method.getName().equals("getDateHeader")) {
+                            return Long.valueOf(-1);
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    /**
+     * Records what the handler does to the servlet response.
+     */
+    static class Response implements InvocationHandler {
+        int status = 200;
+        Map headers = new HashMap();
+        String body;
+        boolean generated;
+
+        HttpServletResponse proxy() {
+            return (HttpServletResponse) Proxy.newProxyInstance(
+                    TestQSWSDLHandler.class.getClassLoader(),
+                    new Class[] {HttpServletResponse.class}, this);
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.equals("setStatus")) {
+                status = ((Integer) args[0]).intValue();
+            } else if (name.equals("setHeader") || name.equals("setDateHeader")) {
+                headers.put(args[0], args[1]);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package test.message;
+
+import junit.framework.TestCase;
+import org.apache.axis.Message;
+import org.apache.axis.MessageContext;
+import org.apache.axis.message.MessageElement;
+import org.apache.axis.message.SAX2EventRecorder;
+import org.apache.axis.message.SOAPEnvelope;
+import org.apache.axis.server.AxisServer;
+import org.xml.sax.Attributes;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Test recording and replaying SAX events.
+ */
+public class TestSAX2EventRecorder extends TestCase {
+
+    public TestSAX2EventRecorder(String name) {
+        super(name);
+    }
+
+    public void testReplay() throws Exception {
+        SAX2EventRecorder recorder = new SAX2EventRecorder();
+        AttributesImpl attrs = new AttributesImpl();
+        attrs.addAttribute("", "id", "id", "CDATA", "1");
+
+        assertEquals(0, recorder.startDocument());
+        recorder.startPrefixMapping("ns", "urn:test");
+        recorder.startElement("urn:test", "a", "ns:a", attrs);
+        char[] text = "xxhelloxx".toCharArray();
+        recorder.characters(text, 2, 5);
+        text[3] = 'X';
+        recorder.comment("note".toCharArray(), 0, 4);
+        recorder.ignorableWhitespace(" \n".toCharArray(), 0, 2);
+        recorder.processingInstruction("pi", null);
+        recorder.endElement("urn:test", "a", "ns:a");
+        recorder.endPrefixMapping("ns");
+        assertEquals(9, recorder.endDocument());
+        assertEquals(10, recorder.getLength());
+
+        Log log = new Log();
+        recorder.replay(log);
+        assertEquals("startDocument;startPrefixMapping(ns,urn:test);" +
+                     "startElement(urn:test,a,ns:a,id=1);characters(hello);" +
+                     "comment(note);ignorableWhitespace( \n);" +
+                     "processingInstruction(pi,null);endElement(urn:test,a,ns:a);" +
+                     "endPrefixMapping(ns);endDocument;",
+                     log.toString());
+
+        log = new Log();
+        recorder.replay(2, 3, log);
+        assertEquals("startElement(urn:test,a,ns:a,id=1);characters(hello);",
+                     log.toString());
+
+        assertSame(attrs, log.attributes);
+    }
+
+    public void testManyEvents() throws Exception {
+        SAX2EventRecorder recorder = new SAX2EventRecorder();
+        StringBuffer expected = new StringBuffer();
+        for (int i = 0; i < 1000; i++) {
+            String name = "e" + (i % 100);
+            char[] data = ("value" + i).toCharArray();
+            recorder.startElement("", name, name, null);
+            recorder.characters(data, 0, data.length);
+            recorder.endElement("", name, name);
+            expected.append("startElement(," + name + "," + name + ",null);")
+                    .append("characters(value" + i + ");")
+                    .append("endElement(," + name + "," + name + ");");
+        }
+        Log log = new Log();
+        recorder.replay(log);
+        assertEquals(expected.toString(), log.toString());
+
+        recorder.clear();
+        assertEquals(0, recorder.getLength());
+    }
+
+    public void testNamesAreShared() throws Exception {
+        SAX2EventRecorder recorder = new SAX2EventRecorder();
+        recorder.endElement("urn:test", new String("a"), "a");
+        recorder.endElement("urn:test", new String("a"), "a");
+        final String[] names = new String[2];
+        recorder.replay(new DefaultHandler() {
+            int n = 0;
+            public void endElement(String uri, String localName, String qName) {
+                names[n++] = localName;
+            }
+        });
+        assertSame(names[0], names[1]);
+    }
+
+    public void testOffHeap() throws Exception {
+        SAX2EventRecorder heap = new SAX2EventRecorder(0);
+        SAX2EventRecorder offHeap = new SAX2EventRecorder(100);
+        StringBuffer big = new StringBuffer();
+        for (int i = 0; i < 20000; i++) {
+            big.append((char) ('a' + i % 26));
+        }
+        char[] data = big.toString().toCharArray();
+        SAX2EventRecorder[] recorders = { heap, offHeap };
+        for (int r = 0; r < recorders.length; r++) {
+            SAX2EventRecorder recorder = recorders[r];
+            recorder.startElement("", "a", "a", null);
+            for (int i = 0; i < 50; i++) {
+                recorder.characters(("text" + i).toCharArray(), 0, 4 + ("" + i).length());
+            }
+            recorder.characters(data, 0, data.length);
+            recorder.comment("note".toCharArray(), 0, 4);
+            recorder.characters(data, 5, 70000 % data.length);
+            recorder.endElement("", "a", "a");
+        }
+        assertEquals(0, heap.getOffHeapLength());
+        assertTrue(offHeap.getOffHeapLength() > data.length);
+        assertEquals(heap.getCharsLength(), offHeap.getCharsLength());
+
+        Log expected = new Log();
+        heap.replay(expected);
+        Log actual = new Log();
+        offHeap.replay(actual);
+        assertEquals(expected.toString(), actual.toString());
+
+        int n = heap.getCharsLength();
+        assertEquals(heap.getString(0, n), offHeap.getString(0, n));
+        assertEquals(heap.charAt(n - 1), offHeap.charAt(n - 1));
+    }
+
+    public void testOffHeapLimit() throws Exception {
+        char[] data = new char[100000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (char) ('a' + i % 26);
+        }
+        int old = SAX2EventRecorder.getOffHeapLimit();
+        long inUse = SAX2EventRecorder.getOffHeapInUse();
+        // room for one more direct chunk
+        SAX2EventRecorder.setOffHeapLimit((int) inUse + 32 * 1024);
+        try {
+            SAX2EventRecorder recorder = new SAX2EventRecorder(100);
+            recorder.characters(data, 0, 100);
+            assertEquals(0, recorder.getCharactersOffset(0, 100));
+            assertEquals(-1, recorder.getCharactersOffset(0, 99));
+            assertEquals(-1, recorder.getCharactersOffset(1, 100));
+            recorder.characters(data, 100, data.length - 100);
+            assertEquals(data.length - 100, recorder.getOffHeapLength());
+            assertEquals(inUse + 32 * 1024, SAX2EventRecorder.getOffHeapInUse());
+            assertEquals(new String(data), recorder.getString(0, data.length));
+
+            // text nodes may still read the characters of a cleared recorder
+            recorder.clear();
+            assertEquals(0, recorder.getLength());
+            assertEquals(new String(data, 50000, 100),
+                         recorder.getString(50000, 100));
+        } finally {
+            SAX2EventRecorder.setOffHeapLimit(old);
+        }
+    }
+
+    public void testOffHeapMessage() throws Exception {
+        StringBuffer big = new StringBuffer();
+        for (int i = 0; i < 5000; i++) {
+            big.append("value").append(i).append(' ');
+        }
+        String value = big.toString().trim();
+        String xml =
+            "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+            "<soapenv:Body><ns:echo xmlns:ns=\"urn:test\">" +
+            "<arg>  " + value + " </arg><b>x &amp; y</b>" +
+            "</ns:echo></soapenv:Body></soapenv:Envelope>";
+
+        int old = SAX2EventRecorder.getDefaultOffHeapThreshold();
+        SAX2EventRecorder.setDefaultOffHeapThreshold(1024);
+        try {
+            Message message = new Message(xml);
+            message.setMessageContext(new MessageContext(new AxisServer()));
+            SOAPEnvelope env = message.getSOAPEnvelope();
+            MessageElement echo = (MessageElement) env.getBodyElements().get(0);
+            assertTrue(echo.getRecorder().getOffHeapLength() > 0);
+
+            MessageElement arg = echo.getChildElement(
+                    new javax.xml.namespace.QName("", "arg"));
+            assertEquals(value, arg.getValue());
+            MessageElement b = echo.getChildElement(
+                    new javax.xml.namespace.QName("", "b"));
+            assertEquals("x & y", b.getValue());
+
+            assertEquals(value, arg.getAsDOM().getFirstChild().getNodeValue().trim());
+            String out = message.getSOAPPartAsString();
+            assertTrue(out.indexOf(value) > 0);
+            assertTrue(out.indexOf("x &amp; y") > 0);
+        } finally {
+            SAX2EventRecorder.setDefaultOffHeapThreshold(old);
+        }
+    }
+
+    static class Log extends DefaultHandler implements LexicalHandler {
+        private final StringBuffer buf = new StringBuffer();
+        Attributes attributes;
+
+        public void startDocument() {
+            buf.append("startDocument;");
+        }
+        public void endDocument() {
+            buf.append("endDocument;");
+        }
+        public void startPrefixMapping(String prefix, String uri) {
+            buf.append("startPrefixMapping(" + prefix + "," + uri + ");");
+        }
+        public void endPrefixMapping(String prefix) {
+            buf.append("endPrefixMapping(" + prefix + ");");
+        }
+        public void startElement(String uri, String localName, String qName,
+                                 Attributes attributes) {
+            this.attributes = attributes;
+            buf.append("startElement(" + uri + "," + localName + "," + qName + ",");
+            if (attributes == null) {
+                buf.append("null");
+            } else {
+                for (int i = 0; i < attributes.getLength(); i++) {
+                    buf.append(attributes.getQName(i) + "=" + attributes.getValue(i));
+                }
+            }
+            buf.append(");");
+        }
+        public void endElement(String uri, String localName, String qName) {
+            buf.append("endElement(" + uri + "," + localName + "," + qName + ");");
+        }
+        public void characters(char[] ch, int start, int length) {
+            buf.append("characters(" + new String(ch, start, length) + ");");
+        }
+        public void ignorableWhitespace(char[] ch, int start, int length) {
+            buf.append("ignorableWhitespace(" + new String(ch, start, length) + ");");
+        }
+        public void processingInstruction(String target, String data) {
+            buf.append("processingInstruction(" + target + "," + data + ");");
+        }
+        public void comment(char[] ch, int start, int length) {
+            buf.append("comment(" + new String(ch, start, length) + ");");
+        }
+        public void startDTD(String name, String publicId, String systemId) {
+        }
+        public void endDTD() {
+        }
+        public void startEntity(String name) {
+        }
+        public void endEntity(String name) {
+        }
+        public void startCDATA() {
+        }
+        public void endCDATA() {
+        }
+        public String toString() {
+            return buf.toString();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package test.properties;
+
+import org.apache.axis.AxisEngine;
+import org.apache.axis.MessageContext;
+import org.apache.axis.client.Call;
+import org.apache.axis.server.AxisServer;
+import org.apache.axis.utils.LockableHashtable;
+
+/**
+ * Compare looking up MessageContext properties with looking them up
+ * through a chain of LockableHashtables, as MessageContext used to do.
+ * Run with the test classpath:
+ * <pre>
+ *   java test.properties.PropertyLookupBenchmark [threads] [iterations]
+ * </pre>
+ */
+public class PropertyLookupBenchmark {
+    private static final String[] NAMES = {
+        "local.property",                   // set on the context
+        "service.option",                   // service option
+        AxisEngine.PROP_DOMULTIREFS,        // engine option
+        "missing.property",                 // nowhere
+        Call.SOAPACTION_URI_PROPERTY,       // kept in a field
+    };
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) :
+                Runtime.getRuntime().availableProcessors();
+        final int iterations = args.length > 1 ? Integer.parseInt(args[1]) :
+                2000000;
+
+        AxisServer engine = new AxisServer();
+        final LockableHashtable engineOptions = new LockableHashtable();
+        engineOptions.putAll(engine.getOptions());
+        final LockableHashtable serviceOptions = new LockableHashtable();
+        serviceOptions.setParent(engineOptions);
+        serviceOptions.put("service.option", "value");
+        engine.setOptions(engineOptions);
+
+        for (int round = 0; round < 3; round++) {
+            System.out.println("Round " + (round + 1) + ", " + threads +
+                               " threads, " + iterations + " lookups each");
+            run("  LockableHashtable chain", threads, new Runnable() {
+                public void run() {
+                    LockableHashtable bag = new LockableHashtable();
+                    bag.setParent(serviceOptions);
+                    bag.put("local.property", "value");
+                    for (int i = 0; i < iterations; i++) {
+                        bag.get(NAMES[i % NAMES.length]);
+                    }
+                }
+            });
+            final AxisServer server = engine;
+            run("  MessageContext", threads, new Runnable() {
+                public void run() {
+                    MessageContext mc = new MessageContext(server);
+                    mc.setPropertyParent(serviceOptions);
+                    mc.setProperty("local.property", "value");
+                    for (int i = 0; i < iterations; i++) {
+                        mc.getProperty(NAMES[i % NAMES.length]);
+                    }
+                }
+            });
+        }
+    }
+
+    private static void run(String label, int threads, Runnable task)
+            throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(task);
+            workers[i].start();
+        }
+        for (int i = 0; i < threads; i++) {
+            workers[i].join();
+        }
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        System.out.println(label + ": " + elapsed + " ms");
+    }
+}
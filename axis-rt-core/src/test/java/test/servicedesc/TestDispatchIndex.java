@@ -0,0 +1,182 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test.servicedesc;
+
+import junit.framework.TestCase;
+import org.apache.axis.configuration.XMLStringProvider;
+import org.apache.axis.deployment.wsdd.WSDDConstants;
+import org.apache.axis.description.JavaServiceDesc;
+import org.apache.axis.description.OperationDesc;
+import org.apache.axis.encoding.DefaultTypeMappingImpl;
+import org.apache.axis.handlers.soap.SOAPService;
+import org.apache.axis.server.AxisServer;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Test that operations are found the same way once the dispatch tables of
+ * a service description have been built, and that a service whose
+ * operations don't match its class fails to deploy.
+ */
+public class TestDispatchIndex extends TestCase {
+    private static final String NS = "urn:dispatch";
+
+    public static class Calculator {
+        public int add(int a, int b) { return a + b; }
+        public int add(int a, int b, int c) { return a + b + c; }
+        public String echo(String s) { return s; }
+        public void ping() { }
+    }
+
+    private static final String WSDD =
+        "<deployment xmlns=\"http://xml.apache.org/axis/wsdd/\" " +
+              "xmlns:java=\"" + WSDDConstants.URI_WSDD_JAVA + "\">\n" +
+        " <service name=\"Calculator\" provider=\"java:RPC\">\n" +
+        "  <parameter name=\"className\" value=\"" +
+                Calculator.class.getName() + "\"/>\n" +
+        "  <parameter name=\"allowedMethods\" value=\"*\"/>\n" +
+        "  <namespace>" + NS + "</namespace>\n" +
+        " </service>\n" +
+        " <service name=\"Broken\" provider=\"java:RPC\">\n" +
+        "  <parameter name=\"className\" value=\"" +
+                Calculator.class.getName() + "\"/>\n" +
+        "  <operation name=\"subtract\">\n" +
+        "   <parameter name=\"a\" type=\"xsd:int\" " +
+                "xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\"/>\n" +
+        "  </operation>\n" +
+        " </service>\n" +
+        "</deployment>";
+
+    public TestDispatchIndex(String name) {
+        super(name);
+    }
+
+    private JavaServiceDesc newDesc() {
+        JavaServiceDesc desc = new JavaServiceDesc();
+        desc.setTypeMapping(DefaultTypeMappingImpl.getSingletonDelegate());
+        desc.setDefaultNamespace(NS);
+        desc.loadServiceDescByIntrospection(Calculator.class);
+        return desc;
+    }
+
+    private static void assertSame(OperationDesc[] expected,
+                                   OperationDesc[] actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertNotNull(actual);
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertSame(expected[i], actual[i]);
+        }
+    }
+
+    public void testLookups() throws Exception {
+        JavaServiceDesc desc = newDesc();
+        QName[] qnames = {
+            new QName(NS, "add"), new QName(NS, "echo"),
+            new QName("urn:other", "echo"), new QName(NS, "nothing"),
+        };
+        String[] names = { "add", "echo", "ping", "nothing" };
+
+        OperationDesc[][] byQName = new OperationDesc[qnames.length][];
+        for (int i = 0; i < qnames.length; i++) {
+            byQName[i] = desc.getOperationsByQName(qnames[i]);
+        }
+        OperationDesc[][] byName = new OperationDesc[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            byName[i] = desc.getOperationsByName(names[i]);
+        }
+        OperationDesc[] byParam =
+                desc.getOperationsByParamQName(new QName("", "in0"));
+
+        assertFalse(desc.hasDispatchIndex());
+        desc.buildDispatchIndex();
+        assertTrue(desc.hasDispatchIndex());
+
+        for (int i = 0; i < qnames.length; i++) {
+            assertSame(byQName[i], desc.getOperationsByQName(qnames[i]));
+        }
+        for (int i = 0; i < names.length; i++) {
+            assertSame(byName[i], desc.getOperationsByName(names[i]));
+        }
+        assertSame(byParam,
+                   desc.getOperationsByParamQName(new QName("", "in0")));
+
+        // overloads come fewest parameters first
+        OperationDesc[] adds = desc.getOperationsByQName(new QName(NS, "add"));
+        assertEquals(2, adds.length);
+        assertEquals(2, adds[0].getNumParams());
+        assertEquals(3, adds[1].getNumParams());
+
+        // changing the operations drops the tables
+        desc.removeOperationDesc(desc.getOperationByName("echo"));
+        assertFalse(desc.hasDispatchIndex());
+        assertNull(desc.getOperationsByQName(new QName(NS, "echo")));
+    }
+
+    public void testSoapAction() throws Exception {
+        JavaServiceDesc desc = newDesc();
+        desc.getOperationByName("echo").setSoapAction("urn:echo");
+        assertEquals(1, desc.getOperationsBySoapAction("urn:echo").length);
+        desc.buildDispatchIndex();
+        OperationDesc[] ops = desc.getOperationsBySoapAction("urn:echo");
+        assertEquals(1, ops.length);
+        assertEquals("echo", ops[0].getName());
+        assertNull(desc.getOperationsBySoapAction("urn:none"));
+        assertNull(desc.getOperationsBySoapAction(""));
+    }
+
+    public void testOperationChangesDropIndex() throws Exception {
+        JavaServiceDesc desc = newDesc();
+        desc.buildDispatchIndex();
+        OperationDesc echo = desc.getOperationByName("echo");
+
+        echo.setSoapAction("urn:echo");
+        assertFalse(desc.hasDispatchIndex());
+        desc.buildDispatchIndex();
+        OperationDesc[] ops = desc.getOperationsBySoapAction("urn:echo");
+        assertEquals(1, ops.length);
+        assertSame(echo, ops[0]);
+
+        QName qname = new QName(NS, "echoString");
+        echo.setElementQName(qname);
+        assertFalse(desc.hasDispatchIndex());
+        ops = desc.getOperationsByQName(qname);
+        assertEquals(1, ops.length);
+        assertSame(echo, ops[0]);
+        desc.buildDispatchIndex();
+        ops = desc.getOperationsByQName(qname);
+        assertEquals(1, ops.length);
+        assertSame(echo, ops[0]);
+    }
+
+    public void testDeploy() throws Exception {
+        AxisServer server = new AxisServer(new XMLStringProvider(WSDD));
+        SOAPService service = server.getService("Calculator");
+        JavaServiceDesc desc =
+                (JavaServiceDesc) service.getServiceDescription();
+        assertTrue(desc.hasDispatchIndex());
+        assertSame(desc, service.getInitializedServiceDesc(null));
+
+        try {
+            server.getService("Broken");
+            fail("Deployed an operation without a method");
+        } catch (Exception e) {
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package test.session;
+
+import junit.framework.TestCase;
+import org.apache.axis.session.SessionRegistry;
+import org.apache.axis.session.SimpleSession;
+
+import javax.xml.rpc.server.ServiceLifecycle;
+
+/**
+ * Test expiry and eviction of sessions by the SessionRegistry.
+ */
+public class TestSessionRegistry extends TestCase {
+
+    public TestSessionRegistry(String name) {
+        super(name);
+    }
+
+    private static SimpleSession newSession(int timeout) {
+        SimpleSession session = new SimpleSession();
+        session.setTimeout(timeout);
+        return session;
+    }
+
+    public void testExpiry() throws Exception {
+        SessionRegistry registry = new SessionRegistry(0, 100);
+        SimpleSession session = newSession(10);
+        Lifecycle lifecycle = new Lifecycle();
+        session.set("service", lifecycle);
+        registry.put(Long.valueOf(1), session);
+        registry.put(Long.valueOf(2), newSession(10));
+        assertEquals(2, registry.size());
+
+        long now = System.currentTimeMillis();
+        registry.reap(now + 5000);
+        assertEquals(2, registry.size());
+        assertSame(session, registry.get(Long.valueOf(1)));
+
+        registry.reap(now + 20000);
+        assertEquals(0, registry.size());
+        assertEquals(2, registry.getExpiredCount());
+        assertEquals(1, lifecycle.destroyed);
+        assertNull(registry.get(Long.valueOf(1)));
+    }
+
+    public void testTouchedSessionIsKept() throws Exception {
+        SessionRegistry registry = new SessionRegistry(0, 100);
+        SimpleSession session = newSession(1);
+        registry.put(Long.valueOf(1), session);
+        Thread.sleep(600);
+        session.touch();
+        registry.reap(System.currentTimeMillis() + 500);
+        assertSame(session, registry.get(Long.valueOf(1)));
+        registry.reap(System.currentTimeMillis() + 1500);
+        assertEquals(0, registry.size());
+    }
+
+    public void testExpiredSessionIsNotHandedOut() throws Exception {
+        SessionRegistry registry = new SessionRegistry(0, 100000);
+        SimpleSession session = newSession(-1);
+        Lifecycle lifecycle = new Lifecycle();
+        session.set("service", lifecycle);
+        registry.put(Long.valueOf(1), session);
+        Thread.sleep(10);
+        assertNull(registry.get(Long.valueOf(1)));
+        assertEquals(0, registry.size());
+        assertEquals(1, lifecycle.destroyed);
+    }
+
+    public void testLeastRecentlyUsedIsEvicted() throws Exception {
+        SessionRegistry registry = new SessionRegistry(2, 100, 1);
+        Lifecycle lifecycle = new Lifecycle();
+        SimpleSession second = newSession(60);
+        second.set("service", lifecycle);
+        registry.put(Long.valueOf(1), newSession(60));
+        registry.put(Long.valueOf(2), second);
+        assertNotNull(registry.get(Long.valueOf(1)));
+        registry.put(Long.valueOf(3), newSession(60));
+
+        assertEquals(2, registry.size());
+        assertEquals(1, registry.getEvictedCount());
+        assertEquals(1, lifecycle.destroyed);
+        assertNull(registry.get(Long.valueOf(2)));
+        assertNotNull(registry.get(Long.valueOf(1)));
+        assertNotNull(registry.get(Long.valueOf(3)));
+    }
+
+    public void testMaximumIsSpreadOverShards() throws Exception {
+        SessionRegistry registry = new SessionRegistry(64, 100, 16);
+        for (long id = 0; id < 1000; id++) {
+            registry.put(Long.valueOf(id), newSession(60));
+        }
+        assertTrue(registry.size() <= 64);
+        assertEquals(1000 - registry.size(), registry.getEvictedCount());
+    }
+
+    public void testReplacedSessionIsNotReaped() throws Exception {
+        SessionRegistry registry = new SessionRegistry(0, 100);
+        registry.put(Long.valueOf(1), newSession(1));
+        SimpleSession replacement = newSession(60);
+        registry.put(Long.valueOf(1), replacement);
+        registry.reap(System.currentTimeMillis() + 5000);
+        assertSame(replacement, registry.get(Long.valueOf(1)));
+        assertEquals(1, registry.size());
+    }
+
+    static class Lifecycle implements ServiceLifecycle {
+        int destroyed = 0;
+
+        public void init(Object context) {
+        }
+
+        public void destroy() {
+            destroyed++;
+        }
+    }
+}
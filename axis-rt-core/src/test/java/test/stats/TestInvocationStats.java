@@ -0,0 +1,188 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.stats;
+
+import junit.framework.TestCase;
+import org.apache.axis.AxisFault;
+import org.apache.axis.Message;
+import org.apache.axis.MessageContext;
+import org.apache.axis.configuration.BasicServerConfig;
+import org.apache.axis.handlers.soap.SOAPService;
+import org.apache.axis.providers.java.RPCProvider;
+import org.apache.axis.server.AxisServer;
+import org.apache.axis.stats.InvocationStats;
+import org.apache.axis.stats.LatencyHistogram;
+import org.apache.axis.stats.ServiceStats;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test that invocations of a service are counted and timed, per service
+ * and per operation.
+ */
+public class TestInvocationStats extends TestCase {
+    private static final String SERVICE_NAME = "StatsService";
+
+    private static CountDownLatch entered;
+    private static CountDownLatch release;
+
+    private AxisServer server;
+    private SOAPService service;
+
+    public TestInvocationStats(String name) {
+        super(name);
+    }
+
+    public TestInvocationStats() {
+        super("TestInvocationStats");
+    }
+
+    public String echo(String s) {
+        return s;
+    }
+
+    public String boom(String s) throws Exception {
+        throw new Exception(s);
+    }
+
+    public String block(String s) throws Exception {
+        entered.countDown();
+        release.await(10, TimeUnit.SECONDS);
+        return s;
+    }
+
+    protected void setUp() throws Exception {
+        BasicServerConfig config = new BasicServerConfig();
+        server = new AxisServer(config);
+        service = new SOAPService(new RPCProvider());
+        service.setName(SERVICE_NAME);
+        service.setOption("className", TestInvocationStats.class.getName());
+        service.setOption("allowedMethods", "*");
+        config.deployService(SERVICE_NAME, service);
+    }
+
+    private static String request(String method) {
+        return "<soapenv:Envelope " +
+               "xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+               "<soapenv:Body><ns:" + method + " xmlns:ns=\"urn:stats\">" +
+               "<arg0>hello</arg0></ns:" + method + ">" +
+               "</soapenv:Body></soapenv:Envelope>";
+    }
+
+    private MessageContext invoke(String method) throws Exception {
+        MessageContext msgContext = new MessageContext(server);
+        msgContext.setTargetService(SERVICE_NAME);
+        msgContext.setRequestMessage(new Message(request(method)));
+        try {
+            server.invoke(msgContext);
+        } catch (AxisFault fault) {
+            msgContext.setResponseMessage(new Message(fault));
+        }
+        return msgContext;
+    }
+
+    public void testInvocationsAreRecorded() throws Exception {
+        if (!ServiceStats.isEnabled()) {
+            return;
+        }
+        MessageContext msgContext = invoke("echo");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        msgContext.getResponseMessage().writeTo(out);
+        invoke("echo");
+        invoke("boom");
+
+        ServiceStats stats = service.getStats();
+        assertEquals(3, stats.getInvocationCount());
+        assertEquals(1, stats.getFaultCount());
+        assertEquals(0, stats.getInFlightCount());
+        assertEquals(3 * request("echo").length(),
+                     stats.getRequestBytes());
+        assertEquals(1, stats.getResponseCount());
+        assertEquals(out.size(), stats.getResponseBytes());
+        assertEquals(3, stats.getPhase(InvocationStats.TOTAL).getCount());
+        assertEquals(3, stats.getPhase(InvocationStats.PARSE).getCount());
+        assertEquals(3, stats.getPhase(InvocationStats.PROVIDER).getCount());
+        assertEquals(1, stats.getPhase(InvocationStats.SERIALIZE).getCount());
+
+        String[] operations = stats.getOperationNames();
+        assertEquals(2, operations.length);
+        assertEquals("boom", operations[0]);
+        assertEquals("echo", operations[1]);
+        InvocationStats echo = stats.getOperationStats("echo");
+        assertEquals(2, echo.getInvocationCount());
+        assertEquals(0, echo.getFaultCount());
+        assertEquals(out.size(), echo.getResponseBytes());
+        InvocationStats boom = stats.getOperationStats("boom");
+        assertEquals(1, boom.getInvocationCount());
+        assertEquals(1, boom.getFaultCount());
+
+        stats.reset();
+        assertEquals(0, stats.getInvocationCount());
+        assertEquals(0, echo.getInvocationCount());
+    }
+
+    public void testInFlight() throws Exception {
+        if (!ServiceStats.isEnabled()) {
+            return;
+        }
+        entered = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        Thread caller = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    invoke("block");
+                } catch (Exception e) {
+                }
+            }
+        });
+        caller.start();
+        try {
+            assertTrue(entered.await(10, TimeUnit.SECONDS));
+            ServiceStats stats = service.getStats();
+            assertEquals(1, stats.getInFlightCount());
+            assertEquals(1, stats.getOperationStats("block").getInFlightCount());
+        } finally {
+            release.countDown();
+            caller.join(10000);
+        }
+        InvocationStats block = service.getStats().getOperationStats("block");
+        assertEquals(0, block.getInFlightCount());
+        assertEquals(1, block.getInvocationCount());
+    }
+
+    public void testHistogram() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(99));
+        for (int i = 0; i < 99; i++) {
+            histogram.record(500);
+        }
+        histogram.record(1000000);
+        assertEquals(100, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        assertEquals((99 * 500 + 1000000) / 100, histogram.getMean());
+        assertEquals(LatencyHistogram.getBucketBound(0),
+                     histogram.getPercentile(50));
+        assertEquals(LatencyHistogram.getBucketBound(0),
+                     histogram.getPercentile(99));
+        assertEquals(1000000, histogram.getPercentile(100));
+        long[] counts = histogram.getBucketCounts();
+        assertEquals(99, counts[0]);
+        assertEquals(1, counts[10]);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2002-2004 The Apache Software Foundation.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test.utils;
+
+import junit.framework.TestCase;
+import org.apache.axis.utils.BoundedExecutor;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test running tasks through a BoundedExecutor and waiting for them.
+ */
+public class TestBoundedExecutor extends TestCase {
+    private BoundedExecutor executor;
+
+    public TestBoundedExecutor(String name) {
+        super(name);
+    }
+
+    protected void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    public void testCall() throws Exception {
+        executor = new BoundedExecutor("test", 2, 0, false);
+        final ClassLoader loader = new URLClassLoader(new URL[0]);
+        ClassLoader previous = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(loader);
+        try {
+            Object result = executor.call(new Callable() {
+                public Object call() {
+                    return Thread.currentThread().getContextClassLoader();
+                }
+            });
+            assertSame(loader, result);
+        } finally {
+            Thread.currentThread().setContextClassLoader(previous);
+        }
+
+        try {
+            executor.call(new Callable() {
+                public Object call() throws Exception {
+                    throw new IOException("boom");
+                }
+            });
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertEquals("boom", e.getMessage());
+        }
+    }
+
+    public void testLimit() throws Exception {
+        final int limit = 3;
+        executor = new BoundedExecutor("test", limit, 0, false);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger max = new AtomicInteger();
+        final Callable task = new Callable() {
+            public Object call() throws Exception {
+                int n = running.incrementAndGet();
+                synchronized (max) {
+                    max.set(Math.max(max.get(), n));
+                }
+                Thread.sleep(20);
+                running.decrementAndGet();
+                return null;
+            }
+        };
+        Thread[] callers = new Thread[10];
+        for (int i = 0; i < callers.length; i++) {
+            callers[i] = new Thread() {
+                public void run() {
+                    try {
+                        executor.call(task);
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            callers[i].start();
+        }
+        for (int i = 0; i < callers.length; i++) {
+            callers[i].join();
+        }
+        assertTrue("ran " + max.get() + " at once", max.get() <= limit);
+    }
+}
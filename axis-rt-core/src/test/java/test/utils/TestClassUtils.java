@@ -0,0 +1,124 @@
+package test.utils;
+
+import junit.framework.TestCase;
+import org.apache.axis.utils.ClassUtils;
+import org.apache.axis.utils.cache.ClassCache;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Test the caching of class lookups in ClassUtils.
+ */
+public class TestClassUtils extends TestCase {
+
+    public TestClassUtils(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+        ClassUtils.clearCache();
+    }
+
+    public void testHitsAndMisses() throws Exception {
+        CountingLoader loader = new CountingLoader();
+        Thread thread = Thread.currentThread();
+        ClassLoader old = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        try {
+            long hits = ClassUtils.getCacheHitCount();
+            assertSame(String.class, ClassUtils.forName("java.lang.String"));
+            assertSame(String.class, ClassUtils.forName("java.lang.String"));
+            assertEquals(1, loader.count("java.lang.String"));
+            assertTrue(ClassUtils.getCacheHitCount() > hits);
+
+            for (int i = 0; i < 3; i++) {
+                try {
+                    ClassUtils.forName("no.such.Class");
+                    fail("no.such.Class");
+                } catch (ClassNotFoundException e) {
+                    assertEquals("no.such.Class", e.getMessage());
+                }
+            }
+            assertEquals(1, loader.count("no.such.Class"));
+
+            // a deployment forgets the misses
+            new ClassCache().clear();
+            try {
+                ClassUtils.forName("no.such.Class");
+                fail("no.such.Class");
+            } catch (ClassNotFoundException e) {
+            }
+            assertEquals(2, loader.count("no.such.Class"));
+        } finally {
+            thread.setContextClassLoader(old);
+        }
+    }
+
+    public void testExplicitLoader() throws Exception {
+        CountingLoader loader = new CountingLoader();
+        assertSame(TestClassUtils.class,
+                   ClassUtils.forName(TestClassUtils.class.getName(), true, loader));
+        long hits = ClassUtils.getCacheHitCount();
+        assertSame(TestClassUtils.class,
+                   ClassUtils.forName(TestClassUtils.class.getName(), true, loader));
+        assertEquals(hits + 1, ClassUtils.getCacheHitCount());
+        assertEquals(1, loader.count(TestClassUtils.class.getName()));
+    }
+
+    public void testDisabled() throws Exception {
+        CountingLoader loader = new CountingLoader();
+        ClassUtils.setCacheEnabled(false);
+        try {
+            for (int i = 0; i < 2; i++) {
+                try {
+                    ClassUtils.forName("no.such.Class", true, loader);
+                    fail("no.such.Class");
+                } catch (ClassNotFoundException e) {
+                }
+            }
+            assertEquals(2, loader.count("no.such.Class"));
+        } finally {
+            ClassUtils.setCacheEnabled(true);
+        }
+    }
+
+    public void testLoaderNotKeptAlive() throws Exception {
+        CountingLoader loader = new CountingLoader();
+        ClassUtils.forName("java.lang.String", true, loader);
+        try {
+            ClassUtils.forName("no.such.Class", true, loader);
+        } catch (ClassNotFoundException e) {
+        }
+        WeakReference ref = new WeakReference(loader);
+        loader = null;
+        for (int i = 0; i < 20 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(ref.get());
+    }
+
+    /**
+     * Counts the lookups of each name it gets.
+     */
+    static class CountingLoader extends ClassLoader {
+        private final java.util.Map counts = new java.util.HashMap();
+
+        CountingLoader() {
+            super(TestClassUtils.class.getClassLoader());
+        }
+
+        protected synchronized Class loadClass(String name, boolean resolve)
+                throws ClassNotFoundException {
+            Integer count = (Integer) counts.get(name);
+            counts.put(name, Integer.valueOf(
+                    count == null ? 1 : count.intValue() + 1));
+            return super.loadClass(name, resolve);
+        }
+
+        synchronized int count(String name) {
+            Integer count = (Integer) counts.get(name);
+            return count == null ? 0 : count.intValue();
+        }
+    }
+}
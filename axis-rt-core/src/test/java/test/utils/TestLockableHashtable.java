@@ -0,0 +1,128 @@
+package test.utils;
+
+import junit.framework.TestCase;
+import org.apache.axis.utils.LockableHashtable;
+
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Test the flattened snapshots of LockableHashtable parent chains.
+ */
+public class TestLockableHashtable extends TestCase {
+
+    public TestLockableHashtable(String name) {
+        super(name);
+    }
+
+    public void testSnapshotFollowsChanges() {
+        LockableHashtable engine = new LockableHashtable();
+        LockableHashtable service = new LockableHashtable();
+        service.setParent(engine);
+        engine.put("a", "engine");
+        engine.put("b", "engine");
+        service.put("b", "service");
+
+        LockableHashtable.Snapshot snapshot = service.getSnapshot();
+        assertEquals("engine", snapshot.get("a"));
+        assertEquals("service", snapshot.get("b"));
+        assertNull(snapshot.get("c"));
+        assertSame(snapshot, service.getSnapshot());
+
+        engine.put("c", "engine");
+        assertEquals("engine", service.getSnapshot().get("c"));
+
+        service.remove("b");
+        assertEquals("engine", service.getSnapshot().get("b"));
+
+        engine.clear();
+        assertNull(service.getSnapshot().get("a"));
+        assertEquals(0, service.getSnapshot().keySet().size());
+    }
+
+    public void testSnapshotFollowsMapMethods() {
+        LockableHashtable engine = new LockableHashtable();
+        LockableHashtable service = new LockableHashtable();
+        service.setParent(engine);
+
+        service.getSnapshot();
+        engine.putIfAbsent("a", "1");
+        assertEquals("1", service.getSnapshot().get("a"));
+        engine.replace("a", "2");
+        assertEquals("2", service.getSnapshot().get("a"));
+        engine.replace("a", "2", "3");
+        assertEquals("3", service.getSnapshot().get("a"));
+        engine.merge("a", "4", (x, y) -> "" + x + y);
+        assertEquals("34", service.getSnapshot().get("a"));
+        engine.compute("a", (k, v) -> "5");
+        assertEquals("5", service.getSnapshot().get("a"));
+        engine.computeIfPresent("a", (k, v) -> "6");
+        assertEquals("6", service.getSnapshot().get("a"));
+        engine.computeIfAbsent("b", k -> "7");
+        assertEquals("7", service.getSnapshot().get("b"));
+        engine.replaceAll((k, v) -> "8");
+        assertEquals("8", service.getSnapshot().get("a"));
+        engine.remove("a", "8");
+        assertNull(service.getSnapshot().get("a"));
+        engine.computeIfPresent("b", (k, v) -> null);
+        assertNull(service.getSnapshot().get("b"));
+
+        Hashtable more = new Hashtable();
+        more.put("c", "9");
+        engine.putAll(more);
+        assertEquals("9", service.getSnapshot().get("c"));
+    }
+
+    public void testSnapshotFollowsViews() {
+        LockableHashtable table = new LockableHashtable();
+        table.put("a", "1");
+        table.put("b", "2");
+        table.put("c", "3");
+        table.put("d", "4");
+
+        table.getSnapshot();
+        table.keySet().remove("a");
+        assertNull(table.getSnapshot().get("a"));
+
+        table.values().remove("2");
+        assertNull(table.getSnapshot().get("b"));
+
+        Map.Entry entry = (Map.Entry) table.entrySet().iterator().next();
+        Object key = entry.getKey();
+        entry.setValue("changed");
+        assertEquals("changed", table.getSnapshot().get(key));
+
+        for (Iterator i = table.keySet().iterator(); i.hasNext(); ) {
+            if (i.next().equals(key)) {
+                i.remove();
+            }
+        }
+        assertNull(table.getSnapshot().get(key));
+
+        table.entrySet().clear();
+        assertEquals(0, table.getSnapshot().keySet().size());
+    }
+
+    public void testLockedEntriesAreKept() {
+        LockableHashtable table = new LockableHashtable();
+        table.put("a", "locked", true);
+        table.put("a", "other");
+        table.remove("a");
+        table.replace("a", "other");
+        table.merge("a", "other", (x, y) -> y);
+        table.compute("a", (k, v) -> null);
+        assertFalse(table.remove("a", "locked"));
+        assertEquals("locked", table.getSnapshot().get("a"));
+    }
+
+    public void testPlainParentIsLookedUp() {
+        Hashtable engine = new Hashtable();
+        LockableHashtable service = new LockableHashtable();
+        service.setParent(engine);
+        LockableHashtable.Snapshot snapshot = service.getSnapshot();
+        engine.put("a", "engine");
+        assertEquals("engine", snapshot.get("a"));
+        assertTrue(snapshot.keySet().contains("a"));
+    }
+}
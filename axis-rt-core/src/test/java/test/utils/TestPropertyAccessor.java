@@ -0,0 +1,139 @@
+package test.utils;
+
+import junit.framework.TestCase;
+import org.apache.axis.components.beans.AccessorGenerator;
+import org.apache.axis.components.beans.MethodHandleAccessorGenerator;
+import org.apache.axis.components.beans.PropertyAccessor;
+import org.apache.axis.components.beans.ReflectionAccessorGenerator;
+import org.apache.axis.utils.BeanPropertyDescriptor;
+import org.apache.axis.utils.BeanUtils;
+
+import java.beans.IndexedPropertyDescriptor;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Test the property accessors used by the bean serializers, with both the
+ * method handle and the reflection generators.
+ */
+public class TestPropertyAccessor extends TestCase {
+
+    public TestPropertyAccessor(String name) {
+        super(name);
+    }
+
+    public static class Bean {
+        public String field;
+        private String name;
+        private int count;
+        private long total;
+        private String[] items;
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public int getCount() { return count; }
+        public void setCount(int count) { this.count = count; }
+        public long getTotal() { return total; }
+        public void setTotal(long total) { this.total = total; }
+        public String[] getItems() { return items; }
+        public void setItems(String[] items) { this.items = items; }
+        public String getItems(int i) { return items[i]; }
+        public void setItems(int i, String item) { items[i] = item; }
+        public String getBroken() { throw new IllegalStateException("broken"); }
+    }
+
+    private void checkGenerator(AccessorGenerator generator) throws Exception {
+        Bean bean = new Bean();
+
+        PropertyAccessor name = generator.createAccessor(
+                new PropertyDescriptor("name", Bean.class));
+        name.set(bean, "axis");
+        assertEquals("axis", name.get(bean));
+        name.set(bean, null);
+        assertNull(name.get(bean));
+
+        PropertyAccessor count = generator.createAccessor(
+                new PropertyDescriptor("count", Bean.class));
+        count.set(bean, Integer.valueOf(3));
+        assertEquals(Integer.valueOf(3), count.get(bean));
+        try {
+            count.set(bean, null);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+        }
+
+        // widening is left to reflection
+        PropertyAccessor total = generator.createAccessor(
+                new PropertyDescriptor("total", Bean.class));
+        total.set(bean, Integer.valueOf(7));
+        assertEquals(Long.valueOf(7), total.get(bean));
+
+        PropertyAccessor items = generator.createAccessor(
+                new IndexedPropertyDescriptor("items", Bean.class));
+        items.set(bean, new String[2]);
+        items.set(bean, 1, "b");
+        assertEquals("b", items.get(bean, 1));
+        assertEquals("b", bean.items[1]);
+        // another descriptor of the same property
+        PropertyAccessor again = generator.createAccessor(
+                new IndexedPropertyDescriptor("items", Bean.class));
+        again.set(bean, 0, "a");
+        assertEquals("a", again.get(bean, 0));
+        assertEquals("a", items.get(bean, 0));
+        try {
+            items.get(bean, 2);
+            fail("Expected InvocationTargetException");
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getTargetException()
+                       instanceof ArrayIndexOutOfBoundsException);
+        }
+
+        PropertyAccessor broken = generator.createAccessor(
+                new PropertyDescriptor("broken", Bean.class, "getBroken", null));
+        try {
+            broken.get(bean);
+            fail("Expected InvocationTargetException");
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getTargetException() instanceof IllegalStateException);
+        }
+        try {
+            broken.set(bean, "x");
+            fail("Expected IllegalAccessException");
+        } catch (IllegalAccessException e) {
+        }
+        try {
+            name.get("not a bean");
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+        }
+
+        PropertyAccessor field = generator.createAccessor(
+                Bean.class.getField("field"));
+        field.set(bean, "value");
+        assertEquals("value", bean.field);
+        assertEquals("value", field.get(bean));
+    }
+
+    public void testMethodHandleAccessors() throws Exception {
+        checkGenerator(new MethodHandleAccessorGenerator());
+    }
+
+    public void testReflectionAccessors() throws Exception {
+        checkGenerator(new ReflectionAccessorGenerator());
+    }
+
+    public void testBeanPropertyDescriptors() throws Exception {
+        BeanPropertyDescriptor[] pds = BeanUtils.getPd(Bean.class);
+        Bean bean = new Bean();
+        bean.setName("axis");
+        bean.field = "value";
+        BeanPropertyDescriptor name = BeanUtils.getSpecificPD(pds, "name");
+        BeanPropertyDescriptor field = BeanUtils.getSpecificPD(pds, "field");
+        BeanPropertyDescriptor items = BeanUtils.getSpecificPD(pds, "items");
+        assertEquals("axis", name.get(bean));
+        assertEquals("value", field.get(bean));
+        items.set(bean, 2, "c");
+        assertEquals(3, bean.getItems().length);
+        assertEquals("c", items.get(bean, 2));
+    }
+}
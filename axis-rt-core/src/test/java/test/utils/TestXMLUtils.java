@@ -2,6 +2,7 @@ package test.utils;
 
 import org.apache.axis.encoding.DeserializationContext;
 import test.AxisTestBase;
+import org.apache.axis.utils.StripedPool;
 import org.apache.axis.utils.XMLUtils;
 import org.apache.axis.message.PrefixedQName;
 import org.apache.axis.message.MessageElement;
@@ -12,6 +13,7 @@ import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
 import org.custommonkey.xmlunit.XMLUnit;
 
+import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.SAXParser;
 import javax.xml.soap.SOAPEnvelope;
 import javax.xml.soap.SOAPBodyElement;
@@ -424,6 +426,34 @@ public class TestXMLUtils extends AxisTestBase
         }
     }
 
+    public void testSAXParserReuse() throws Exception
+    {
+        StripedPool pool = XMLUtils.getSAXParserPool();
+        pool.clear();
+        SAXParser parser = XMLUtils.getSAXParser();
+        XMLUtils.releaseSAXParser(parser);
+        long hits = pool.getHitCount();
+        assertSame(parser, XMLUtils.getSAXParser());
+        assertEquals(hits + 1, pool.getHitCount());
+        assertNotSame(parser, XMLUtils.getSAXParser());
+    }
+
+    public void testDocumentBuilderReuse() throws Exception
+    {
+        StripedPool pool = XMLUtils.getDocumentBuilderPool();
+        pool.clear();
+        DocumentBuilder db = XMLUtils.getDocumentBuilder();
+        DocumentBuilder other = XMLUtils.getDocumentBuilder();
+        assertNotSame(db, other);
+        XMLUtils.releaseDocumentBuilder(other);
+        XMLUtils.releaseDocumentBuilder(db);
+        long borrows = pool.getBorrowCount();
+        DocumentBuilder again = XMLUtils.getDocumentBuilder();
+        assertTrue(again == db || again == other);
+        assertEquals(borrows + 1, pool.getBorrowCount());
+        XMLUtils.releaseDocumentBuilder(again);
+    }
+
     private void assertDoctypeDisallowed(Exception exception)
     {
         String message = exception.getMessage();
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2003,2004 The Apache Software Foundation.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.axis.management;
+
+import org.apache.axis.management.jmx.OperationMetrics;
+import org.apache.axis.management.jmx.ServiceMetrics;
+import org.apache.axis.stats.InvocationStats;
+import org.apache.axis.stats.ServiceStats;
+import org.apache.axis.stats.StatsListener;
+
+import javax.management.ObjectName;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Registers the metrics MBeans of services and operations, once per name.
+ * The MBeans look up the statistics by name, so they keep working when a
+ * service is redeployed.
+ */
+public class MetricsRegistrar implements StatsListener {
+    private static final MetricsRegistrar instance = new MetricsRegistrar();
+
+    /** the names of the MBeans registered so far */
+    private final Set registered = new HashSet();
+
+    public static MetricsRegistrar getInstance() {
+        return instance;
+    }
+
+    public void serviceAdded(ServiceStats service) {
+        registerService(service.getName());
+    }
+
+    public void operationAdded(ServiceStats service,
+                               InvocationStats operation) {
+        registerOperation(service.getName(), operation.getName());
+    }
+
+    /**
+     * Register the metrics MBean of a service, unless that has been done.
+     */
+    public void registerService(String serviceName) {
+        if (serviceName == null) {
+            return;
+        }
+        String name = "axis:type=metrics,service=" + quote(serviceName);
+        if (isNew(name)) {
+            Registrar.register(new ServiceMetrics(serviceName), name,
+                               "ServiceMetrics");
+        }
+    }
+
+    /**
+     * Register the metrics MBean of an operation, unless that has been done.
+     */
+    public void registerOperation(String serviceName, String operationName) {
+        if (serviceName == null || operationName == null) {
+            return;
+        }
+        String name = "axis:type=metrics,service=" + quote(serviceName) +
+                      ",operation=" + quote(operationName);
+        if (isNew(name)) {
+            Registrar.register(new OperationMetrics(serviceName, operationName),
+                               name, "OperationMetrics");
+        }
+    }
+
+    private synchronized boolean isNew(String name) {
+        return registered.add(name);
+    }
+
+    private static String quote(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (",=:\"*?\n".indexOf(value.charAt(i)) >= 0) {
+                return ObjectName.quote(value);
+            }
+        }
+        return value;
+    }
+}
@@ -19,6 +19,7 @@ import org.apache.axis.AxisFault;
 import org.apache.axis.ConfigurationException;
 import org.apache.axis.EngineConfiguration;
 import org.apache.axis.WSDDEngineConfiguration;
+import org.apache.axis.components.logger.LogFactory;
 import org.apache.axis.deployment.wsdd.WSDDGlobalConfiguration;
 import org.apache.axis.deployment.wsdd.WSDDHandler;
 import org.apache.axis.deployment.wsdd.WSDDService;
@@ -29,6 +30,9 @@ import org.apache.axis.management.jmx.DeploymentAdministrator;
 import org.apache.axis.management.jmx.DeploymentQuery;
 import org.apache.axis.management.jmx.ServiceAdministrator;
 import org.apache.axis.server.AxisServer;
+import org.apache.axis.stats.ServiceStats;
+import org.apache.axis.utils.Messages;
+import org.apache.commons.logging.Log;
 
 import javax.xml.namespace.QName;
 import java.util.ArrayList;
@@ -42,6 +46,8 @@ import java.util.Iterator;
  * @version 1.0
  */
 public class ServiceAdmin {
+    protected static Log log = LogFactory.getLog(ServiceAdmin.class.getName());
+
     //Singleton AxisServer for Management
             static private AxisServer axisServer = null;
 
@@ -142,6 +148,47 @@ public class ServiceAdmin {
         Registrar.register(new ServiceAdministrator(), "axis:type=server", "ServiceAdministrator");
         Registrar.register(new DeploymentAdministrator(), "axis:type=deploy", "DeploymentAdministrator");
         Registrar.register(new DeploymentQuery(), "axis:type=query", "DeploymentQuery");
+        registerMetrics();
+    }
+
+    /**
+     * Register the invocation metrics MBeans of the deployed services, and
+     * have those of services and operations invoked later registered as
+     * they are first invoked.
+     */
+    static public void registerMetrics() {
+        if (!ServiceStats.isEnabled()) {
+            return;
+        }
+        ServiceStats.setListener(MetricsRegistrar.getInstance());
+        try {
+            String[] services = listServices();
+            for (int i = 0; i < services.length; i++) {
+                MetricsRegistrar.getInstance().registerService(services[i]);
+            }
+        } catch (Exception e) {
+            log.warn(Messages.getMessage("exception00"), e);
+        }
+    }
+
+    /**
+     * Get the invocation statistics of a service.
+     *
+     * @param serviceName the name of the service
+     * @return the statistics, or null if the service isn't deployed or no
+     *         statistics are kept
+     */
+    static public ServiceStats getServiceStats(String serviceName) {
+        if (axisServer == null) {
+            return null;
+        }
+        try {
+            SOAPService service = axisServer.getConfig().getService(
+                    new QName("", serviceName));
+            return service == null ? null : service.getStats();
+        } catch (ConfigurationException e) {
+            return null;
+        }
     }
 
     static public void start() {
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2003,2004 The Apache Software Foundation.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.axis.management.jmx;
+
+import org.apache.axis.stats.InvocationStats;
+import org.apache.axis.stats.LatencyHistogram;
+
+/**
+ * Exposes invocation statistics.  The statistics are looked up on every
+ * access, so that a redeployed service is followed.
+ */
+public abstract class InvocationMetrics implements InvocationMetricsMBean {
+    private static final long NANOS_PER_MICRO = 1000;
+
+    /**
+     * @return the statistics, or null if there are none, e.g. because the
+     *         service has been undeployed
+     */
+    protected abstract InvocationStats getStats();
+
+    public long getInvocationCount() {
+        InvocationStats stats = getStats();
+        return stats == null ? 0 : stats.getInvocationCount();
+    }
+
+    public long getFaultCount() {
+        InvocationStats stats = getStats();
+        return stats == null ? 0 : stats.getFaultCount();
+    }
+
+    public long getInFlightCount() {
+        InvocationStats stats = getStats();
+        return stats == null ? 0 : stats.getInFlightCount();
+    }
+
+    public long getRequestBytes() {
+        InvocationStats stats = getStats();
+        return stats == null ? 0 : stats.getRequestBytes();
+    }
+
+    public long getResponseBytes() {
+        InvocationStats stats = getStats();
+        return stats == null ? 0 : stats.getResponseBytes();
+    }
+
+    public long getResponseCount() {
+        InvocationStats stats = getStats();
+        return stats == null ? 0 : stats.getResponseCount();
+    }
+
+    public long getTotalTimeMean() {
+        return getMean(InvocationStats.TOTAL);
+    }
+
+    public long getTotalTime99thPercentile() {
+        return getPercentile(InvocationStats.TOTAL, 99);
+    }
+
+    public long getTotalTimeMax() {
+        LatencyHistogram histogram = getHistogram(InvocationStats.TOTAL);
+        return histogram == null ? 0 : histogram.getMax() / NANOS_PER_MICRO;
+    }
+
+    public long getParseTimeMean() {
+        return getMean(InvocationStats.PARSE);
+    }
+
+    public long getParseTime99thPercentile() {
+        return getPercentile(InvocationStats.PARSE, 99);
+    }
+
+    public long getHandlersTimeMean() {
+        return getMean(InvocationStats.HANDLERS);
+    }
+
+    public long getHandlersTime99thPercentile() {
+        return getPercentile(InvocationStats.HANDLERS, 99);
+    }
+
+    public long getProviderTimeMean() {
+        return getMean(InvocationStats.PROVIDER);
+    }
+
+    public long getProviderTime99thPercentile() {
+        return getPercentile(InvocationStats.PROVIDER, 99);
+    }
+
+    public long getSerializeTimeMean() {
+        return getMean(InvocationStats.SERIALIZE);
+    }
+
+    public long getSerializeTime99thPercentile() {
+        return getPercentile(InvocationStats.SERIALIZE, 99);
+    }
+
+    public long getPercentile(String phase, double percent) {
+        return getPercentile(toPhase(phase), percent);
+    }
+
+    public long[] getHistogram(String phase) {
+        LatencyHistogram histogram = getHistogram(toPhase(phase));
+        return histogram == null ?
+                new long[LatencyHistogram.BUCKETS] :
+                histogram.getBucketCounts();
+    }
+
+    public void reset() {
+        InvocationStats stats = getStats();
+        if (stats != null) {
+            stats.reset();
+        }
+    }
+
+    private static int toPhase(String phase) {
+        int p = InvocationStats.getPhase(phase);
+        if (p < 0) {
+            throw new IllegalArgumentException(phase);
+        }
+        return p;
+    }
+
+    private LatencyHistogram getHistogram(int phase) {
+        InvocationStats stats = getStats();
+        return stats == null ? null : stats.getPhase(phase);
+    }
+
+    private long getMean(int phase) {
+        LatencyHistogram histogram = getHistogram(phase);
+        return histogram == null ? 0 : histogram.getMean() / NANOS_PER_MICRO;
+    }
+
+    private long getPercentile(int phase, double percent) {
+        LatencyHistogram histogram = getHistogram(phase);
+        return histogram == null ?
+                0 : histogram.getPercentile(percent) / NANOS_PER_MICRO;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2003,2004 The Apache Software Foundation.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.axis.management.jmx;
+
+/**
+ * The invocation statistics of a service or of an operation.  Times are
+ * in microseconds.
+ */
+public interface InvocationMetricsMBean {
+    /**
+     * @return the name of the service or operation
+     */
+    public String getName();
+
+    public long getInvocationCount();
+
+    public long getFaultCount();
+
+    public long getInFlightCount();
+
+    public long getRequestBytes();
+
+    public long getResponseBytes();
+
+    public long getResponseCount();
+
+    public long getTotalTimeMean();
+
+    public long getTotalTime99thPercentile();
+
+    public long getTotalTimeMax();
+
+    public long getParseTimeMean();
+
+    public long getParseTime99thPercentile();
+
+    public long getHandlersTimeMean();
+
+    public long getHandlersTime99thPercentile();
+
+    public long getProviderTimeMean();
+
+    public long getProviderTime99thPercentile();
+
+    public long getSerializeTimeMean();
+
+    public long getSerializeTime99thPercentile();
+
+    /**
+     * Estimate a percentile of the time spent in a phase.
+     *
+     * @param phase parse, handlers, provider, serialize or total
+     * @param percent e.g. 99.9
+     */
+    public long getPercentile(String phase, double percent);
+
+    /**
+     * Get the histogram of the time spent in a phase.  Bucket n counts the
+     * calls which took less than 2^n microseconds (counted in units of
+     * 1.024 microseconds), and more than the
+     * bucket before.
+     *
+     * @param phase parse, handlers, provider, serialize or total
+     */
+    public long[] getHistogram(String phase);
+
+    /**
+     * Forget the statistics recorded so far.
+     */
+    public void reset();
+}
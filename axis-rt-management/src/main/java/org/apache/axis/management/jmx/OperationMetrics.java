@@ -0,0 +1,47 @@
+/*
+ * Copyright 2003,2004 The Apache Software Foundation.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.axis.management.jmx;
+
+import org.apache.axis.management.ServiceAdmin;
+import org.apache.axis.stats.InvocationStats;
+import org.apache.axis.stats.ServiceStats;
+
+/**
+ * Exposes the invocation statistics of an operation of a deployed service.
+ */
+public class OperationMetrics extends InvocationMetrics
+        implements OperationMetricsMBean {
+    private final String serviceName;
+    private final String operationName;
+
+    public OperationMetrics(String serviceName, String operationName) {
+        this.serviceName = serviceName;
+        this.operationName = operationName;
+    }
+
+    public String getName() {
+        return operationName;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    protected InvocationStats getStats() {
+        ServiceStats stats = ServiceAdmin.getServiceStats(serviceName);
+        return stats == null ? null : stats.getOperationStats(operationName);
+    }
+}
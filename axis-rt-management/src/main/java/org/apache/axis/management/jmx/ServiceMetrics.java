@@ -0,0 +1,45 @@
+/*
+ * Copyright 2003,2004 The Apache Software Foundation.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.axis.management.jmx;
+
+import org.apache.axis.management.ServiceAdmin;
+import org.apache.axis.stats.InvocationStats;
+import org.apache.axis.stats.ServiceStats;
+
+/**
+ * Exposes the invocation statistics of a deployed service.
+ */
+public class ServiceMetrics extends InvocationMetrics
+        implements ServiceMetricsMBean {
+    private final String serviceName;
+
+    public ServiceMetrics(String serviceName) {
+        this.serviceName = serviceName;
+    }
+
+    public String getName() {
+        return serviceName;
+    }
+
+    protected InvocationStats getStats() {
+        return ServiceAdmin.getServiceStats(serviceName);
+    }
+
+    public String[] getOperationNames() {
+        ServiceStats stats = ServiceAdmin.getServiceStats(serviceName);
+        return stats == null ? new String[0] : stats.getOperationNames();
+    }
+}
@@ -20,19 +20,38 @@ import org.apache.axis.AxisFault;
 import org.apache.axis.Message;
 import org.apache.axis.MessageContext;
 import org.apache.axis.SOAPPart;
+import org.apache.axis.components.logger.LogFactory;
 import org.apache.axis.monitor.SOAPMonitorConstants;
 import org.apache.axis.monitor.SOAPMonitorService;
+import org.apache.axis.utils.Messages;
+import org.apache.commons.logging.Log;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This handler is used to route SOAP messages to the
  * SOAP monitor service.
  *
+ * The option SOAPMonitorHandler.sampleRate set to N publishes
+ * only one message exchange in N, and SOAPMonitorHandler.services
+ * restricts publishing to a comma separated list of services.
+ * Nothing is done at all while no monitor is listening.
+ *
  * @author Brian Price (pricebe@us.ibm.com)
  */
 
 public class SOAPMonitorHandler extends BasicHandler {
 
-  private static long next_message_id = 1;
+  protected static Log log =
+      LogFactory.getLog(SOAPMonitorHandler.class.getName());
+
+  private static final AtomicLong next_message_id = new AtomicLong(1);
+
+  private int sample_rate = 1;
+  private Set services = null;
 
   /**
    * Constructor
@@ -41,10 +60,40 @@ public class SOAPMonitorHandler extends BasicHandler {
     super();
   }
 
+  /**
+   * Read the sampling and filtering options
+   */
+  public void init() {
+    super.init();
+    Object opt = getOption(SOAPMonitorConstants.SOAP_MONITOR_SAMPLE_RATE);
+    if (opt != null) {
+      try {
+        sample_rate = Math.max(1, Integer.parseInt(opt.toString().trim()));
+      } catch (NumberFormatException e) {
+        log.warn(Messages.getMessage("badIntegerOption00",
+                 SOAPMonitorConstants.SOAP_MONITOR_SAMPLE_RATE,
+                 opt.toString()));
+      }
+    }
+    opt = getOption(SOAPMonitorConstants.SOAP_MONITOR_SERVICES);
+    if (opt != null) {
+      Set names = new HashSet();
+      StringTokenizer st = new StringTokenizer(opt.toString(), ", \t\n\r");
+      while (st.hasMoreTokens()) {
+        names.add(st.nextToken());
+      }
+      services = names.isEmpty() ? null : names;
+    }
+  }
+
   /**
    * Process and SOAP message
    */
   public void invoke(MessageContext messageContext) throws AxisFault {
+    // Don't spend anything on messages nobody will see
+    if (!SOAPMonitorService.hasListeners()) {
+      return;
+    }
     String  target = messageContext.getTargetService();
     // Check for null target
     if (target == null) {
@@ -55,12 +104,23 @@ public class SOAPMonitorHandler extends BasicHandler {
     Integer type;
     Message message;
     if (!messageContext.getPastPivot()) {
+      if (services != null && !services.contains(target)) {
+        return;
+      }
       id = assignMessageId(messageContext);
-      type = new Integer(SOAPMonitorConstants.SOAP_MONITOR_REQUEST);
+      if (id == null) {
+        // Not sampled
+        return;
+      }
+      type = Integer.valueOf(SOAPMonitorConstants.SOAP_MONITOR_REQUEST);
       message = messageContext.getRequestMessage();
     } else {
       id = getMessageId(messageContext);
-      type = new Integer(SOAPMonitorConstants.SOAP_MONITOR_RESPONSE);
+      if (id == null) {
+        // The request wasn't sampled, or was filtered out
+        return;
+      }
+      type = Integer.valueOf(SOAPMonitorConstants.SOAP_MONITOR_RESPONSE);
       message = messageContext.getResponseMessage();
     }
     // Get the SOAP portion of the message
@@ -68,22 +128,23 @@ public class SOAPMonitorHandler extends BasicHandler {
     if (message != null) {
       soap = ((SOAPPart)message.getSOAPPart()).getAsString();
     }
-    // If we have an id and a SOAP portion, then send the
+    // If we have a SOAP portion, then send the
     // message to the SOAP monitor service
-    if ((id != null) && (soap != null)) {
+    if (soap != null) {
       SOAPMonitorService.publishMessage(id,type,target,soap);
     }
   }
 
   /**
-   * Assign a new message id
+   * Assign a new message id, unless the message exchange is
+   * left out by sampling
    */
   private Long assignMessageId(MessageContext messageContext) {
-    Long id = null;
-    synchronized(SOAPMonitorConstants.SOAP_MONITOR_ID) {
-      id = new Long(next_message_id);
-      next_message_id++;
+    long n = next_message_id.getAndIncrement();
+    if (sample_rate > 1 && n % sample_rate != 0) {
+      return null;
     }
+    Long id = Long.valueOf(n);
     messageContext.setProperty(SOAPMonitorConstants.SOAP_MONITOR_ID, id);
     return id;
   }
@@ -34,6 +34,19 @@ public class SOAPMonitorConstants {
    * Servlet initialization parameter names
    */
   public static final String SOAP_MONITOR_PORT = "SOAPMonitorPort";
+  public static final String SOAP_MONITOR_QUEUE_SIZE = "SOAPMonitorQueueSize";
+
+  /**
+   * Default number of messages queued for the monitor clients
+   */
+  public static final int SOAP_MONITOR_QUEUE_SIZE_DEFAULT = 4096;
+
+  /**
+   * Handler options: publish only one message exchange in N, and only
+   * those of the given, comma separated, services
+   */
+  public static final String SOAP_MONITOR_SAMPLE_RATE = "SOAPMonitorHandler.sampleRate";
+  public static final String SOAP_MONITOR_SERVICES = "SOAPMonitorHandler.services";
 
   /**
    * Unique SOAP monitor id tag
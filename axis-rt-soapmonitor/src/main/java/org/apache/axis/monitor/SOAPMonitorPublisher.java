@@ -0,0 +1,196 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.monitor;
+
+import org.apache.axis.components.logger.LogFactory;
+import org.apache.axis.utils.Messages;
+import org.apache.commons.logging.Log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands SOAP messages over from the request threads to a single
+ * publisher thread, which sends them to the SOAP monitor clients in
+ * batches.
+ *
+ * Messages are queued in a bounded, lock-free, ring buffer.  When the
+ * ring is full, e.g. because a client is slow to read, new messages are
+ * dropped and counted rather than making the request threads wait.
+ */
+
+class SOAPMonitorPublisher implements Runnable {
+
+  protected static Log log =
+      LogFactory.getLog(SOAPMonitorPublisher.class.getName());
+
+  /**
+   * Receives the batches of messages
+   */
+  interface Sink {
+    /**
+     * Send a batch of messages, each an array holding the id, type,
+     * target and SOAP of the message.
+     */
+    void publish(Object[][] messages, int count);
+  }
+
+  /**
+   * The most messages sent in one batch
+   */
+  private static final int MAX_BATCH = 256;
+
+  private final AtomicReferenceArray ring;
+  private final int                  mask;
+  /** the next slot to be read; only advanced by the publisher thread */
+  private final AtomicLong           head = new AtomicLong();
+  /** the next slot to be claimed by a request thread */
+  private final AtomicLong           tail = new AtomicLong();
+
+  private final Sink                 sink;
+  private final Thread               thread;
+  private volatile boolean           waiting = false;
+  private volatile boolean           stopped = false;
+
+  private final AtomicLong           published = new AtomicLong();
+  private final AtomicLong           dropped = new AtomicLong();
+  private final AtomicLong           batches = new AtomicLong();
+
+  /**
+   * Constructor
+   *
+   * @param capacity the number of messages the ring holds, rounded up
+   *                 to a power of two
+   */
+  SOAPMonitorPublisher(int capacity, Sink sink) {
+    int size = 1;
+    while (size < capacity && size < (1 << 30)) {
+      size <<= 1;
+    }
+    this.ring = new AtomicReferenceArray(size);
+    this.mask = size - 1;
+    this.sink = sink;
+    this.thread = new Thread(this, "SOAPMonitorPublisher");
+    this.thread.setDaemon(true);
+  }
+
+  void start() {
+    thread.start();
+  }
+
+  void stop() {
+    stopped = true;
+    LockSupport.unpark(thread);
+  }
+
+  /**
+   * Queue a message, without ever waiting
+   *
+   * @return false if the ring was full and the message was dropped
+   */
+  boolean offer(Long id, Integer type, String target, String soap) {
+    Object[] message = new Object[] { id, type, target, soap };
+    long t;
+    do {
+      t = tail.get();
+      if (t - head.get() >= ring.length()) {
+        dropped.incrementAndGet();
+        return false;
+      }
+    } while (!tail.compareAndSet(t, t + 1));
+    ring.set((int) t & mask, message);
+    if (waiting) {
+      waiting = false;
+      LockSupport.unpark(thread);
+    }
+    return true;
+  }
+
+  /**
+   * Publisher thread
+   */
+  public void run() {
+    Object[][] batch = new Object[MAX_BATCH][];
+    while (!stopped) {
+      int count = 0;
+      long h = head.get();
+      while (count < MAX_BATCH) {
+        int slot = (int) h & mask;
+        Object[] message = (Object[]) ring.get(slot);
+        if (message == null) {
+          // Empty, or claimed but not filled in yet
+          break;
+        }
+        ring.set(slot, null);
+        batch[count++] = message;
+        h++;
+        head.set(h);
+      }
+      if (count > 0) {
+        try {
+          sink.publish(batch, count);
+        } catch (RuntimeException e) {
+          // The batch is lost, keep publishing the next ones
+          log.debug(Messages.getMessage("exception00"), e);
+        }
+        for (int i = 0; i < count; i++) {
+          batch[i] = null;
+        }
+        published.addAndGet(count);
+        batches.incrementAndGet();
+      } else {
+        waiting = true;
+        if (tail.get() == head.get()) {
+          LockSupport.parkNanos(this, 100000000L);
+        } else {
+          // A message is being filled in
+          Thread.yield();
+        }
+        waiting = false;
+      }
+    }
+  }
+
+  /**
+   * Number of messages sent to the clients
+   */
+  long getPublishedCount() {
+    return published.get();
+  }
+
+  /**
+   * Number of messages dropped because the ring was full
+   */
+  long getDroppedCount() {
+    return dropped.get();
+  }
+
+  /**
+   * Number of batches sent to the clients
+   */
+  long getBatchCount() {
+    return batches.get();
+  }
+
+  /**
+   * Number of messages waiting to be sent
+   */
+  int getQueuedCount() {
+    return (int) (tail.get() - head.get());
+  }
+}
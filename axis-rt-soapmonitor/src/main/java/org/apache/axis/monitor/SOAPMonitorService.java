@@ -54,14 +54,17 @@ import java.util.Vector;
  * The publishMethod routine is invoked by the SOAP monitor
  * handler when a SOAP message request or response is 
  * detected.  The information about the SOAP message is 
- * then forwared to all current socket connections for 
- * display by the applet.
+ * queued, and a publisher thread forwards it to all current
+ * socket connections for display by the applet.  The request
+ * threads never wait for the applets: when the queue is full
+ * messages are dropped.
  *
  * @author Brian Price (pricebe@us.ibm.com)
  * xdoclet tags are not active yet; keep web.xml in sync
  * @web.servlet name="SOAPMonitorService"  display-name="SOAPMonitorService"  load-on-startup="100"
  * @web.servlet-mapping url-pattern="/SOAPMonitor"
  * @web.servlet-init-param name="SOAPMonitorPort" value="5001"
+ * @web.servlet-init-param name="SOAPMonitorQueueSize" value="4096"
  */
 
 public class SOAPMonitorService extends HttpServlet {
@@ -71,6 +74,7 @@ public class SOAPMonitorService extends HttpServlet {
    */
   private static ServerSocket server_socket = null;
   private static Vector       connections = null;
+  private static SOAPMonitorPublisher publisher = null;
   private static final Set    ALLOWED_SERIALIZED_CLASSES;
 
   static {
@@ -106,12 +110,56 @@ public class SOAPMonitorService extends HttpServlet {
                                     Integer type, 
                                     String target,
                                     String soap) {
-    if (connections != null) {
-      Enumeration e = connections.elements();
-      while (e.hasMoreElements()) {
-        ConnectionThread ct = (ConnectionThread) e.nextElement();
-        ct.publishMessage(id,type,target,soap);
-      }
+    SOAPMonitorPublisher p = publisher;
+    if (p != null && hasListeners()) {
+      p.offer(id,type,target,soap);
+    }
+  }
+
+  /**
+   * Are there any listeners to publish messages to?
+   */
+  public static boolean hasListeners() {
+    Vector c = connections;
+    return c != null && !c.isEmpty();
+  }
+
+  /**
+   * Number of messages sent to the listeners
+   */
+  public static long getPublishedCount() {
+    SOAPMonitorPublisher p = publisher;
+    return p == null ? 0 : p.getPublishedCount();
+  }
+
+  /**
+   * Number of messages dropped because the listeners did not keep up
+   */
+  public static long getDroppedCount() {
+    SOAPMonitorPublisher p = publisher;
+    return p == null ? 0 : p.getDroppedCount();
+  }
+
+  /**
+   * Number of messages waiting to be sent to the listeners
+   */
+  public static int getQueuedCount() {
+    SOAPMonitorPublisher p = publisher;
+    return p == null ? 0 : p.getQueuedCount();
+  }
+
+  /**
+   * Send a batch of messages to all the listeners, flushing each
+   * connection once per batch.  Only called by the publisher thread.
+   */
+  static void publishBatch(Object[][] messages, int count) {
+    Vector c = connections;
+    if (c == null) {
+      return;
+    }
+    Object[] cts = c.toArray();
+    for (int i = 0; i < cts.length; i++) {
+      ((ConnectionThread) cts[i]).publishMessages(messages, count);
     }
   }
 
@@ -123,9 +171,25 @@ public class SOAPMonitorService extends HttpServlet {
       // Create vector to hold connection information
       connections = new Vector();
     }
+    ServletConfig config = super.getServletConfig();
+    if (publisher == null) {
+      int size = SOAPMonitorConstants.SOAP_MONITOR_QUEUE_SIZE_DEFAULT;
+      String value = config.getInitParameter(SOAPMonitorConstants.SOAP_MONITOR_QUEUE_SIZE);
+      if (value != null) {
+        try {
+          size = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {}
+      }
+      publisher = new SOAPMonitorPublisher(Math.max(size, 1),
+          new SOAPMonitorPublisher.Sink() {
+            public void publish(Object[][] messages, int count) {
+              publishBatch(messages, count);
+            }
+          });
+      publisher.start();
+    }
     if (server_socket == null) {
       // Get the server socket port from the init params
-      ServletConfig config = super.getServletConfig();
       String port = config.getInitParameter(SOAPMonitorConstants.SOAP_MONITOR_PORT);
       if (port == null) {
         // No port defined, so let the system assign a port
@@ -163,6 +227,11 @@ public class SOAPMonitorService extends HttpServlet {
       } catch (Exception x) {}
       server_socket = null;
     }
+    // End the publisher thread
+    if (publisher != null) {
+      publisher.stop();
+      publisher = null;
+    }
   }
 
   /**
@@ -290,32 +359,39 @@ public class SOAPMonitorService extends HttpServlet {
     }
 
     /**
-     * Publish SOAP message information
+     * Publish a batch of SOAP message information, each message
+     * an array holding its id, type, target and SOAP
      */
-    public synchronized void publishMessage(Long id, 
-                               Integer message_type, 
-                               String target, 
-                               String soap) {
+    public synchronized void publishMessages(Object[][] messages,
+                                             int count) {
       // If we have a valid output stream, then
       // send the data to the applet
       if (out != null) {
         try {
-          switch (message_type.intValue()) {
-            case SOAPMonitorConstants.SOAP_MONITOR_REQUEST:
-              out.writeObject(message_type);
-              out.writeObject(id);
-              out.writeObject(target);
-              out.writeObject(soap);
-              out.flush();
-              break;
-            case SOAPMonitorConstants.SOAP_MONITOR_RESPONSE:
-              out.writeObject(message_type);
-              out.writeObject(id);
-              out.writeObject(soap);
-              out.flush();
-              break;
+          for (int i = 0; i < count; i++) {
+            Object[] message = messages[i];
+            Integer message_type = (Integer) message[1];
+            switch (message_type.intValue()) {
+              case SOAPMonitorConstants.SOAP_MONITOR_REQUEST:
+                out.writeObject(message_type);
+                out.writeObject(message[0]);
+                out.writeObject(message[2]);
+                out.writeObject(message[3]);
+                break;
+              case SOAPMonitorConstants.SOAP_MONITOR_RESPONSE:
+                out.writeObject(message_type);
+                out.writeObject(message[0]);
+                out.writeObject(message[3]);
+                break;
+            }
           }
-        } catch (Exception e) {}
+          out.flush();
+          // Don't let the stream hold on to every message sent
+          out.reset();
+        } catch (Exception e) {
+          // Give up on this applet
+          close();
+        }
       }
     }
   }
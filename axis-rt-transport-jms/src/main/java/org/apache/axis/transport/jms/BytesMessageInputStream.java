@@ -0,0 +1,86 @@
+/*
+ * Copyright 2001, 2002,2004 The Apache Software Foundation.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.transport.jms;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.MessageEOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * BytesMessageInputStream reads the body of a BytesMessage in place, so
+ *   that the SOAP message can be parsed without first copying the body into
+ *   a byte array.
+ */
+class BytesMessageInputStream extends InputStream
+{
+    private BytesMessage message;
+    /** where readBytes() goes when the caller's buffer has an offset */
+    private byte[] scratch;
+
+    BytesMessageInputStream(BytesMessage message)
+    {
+        this.message = message;
+    }
+
+    public int read() throws IOException
+    {
+        try
+        {
+            return message.readUnsignedByte();
+        }
+        catch(MessageEOFException e)
+        {
+            return -1;
+        }
+        catch(JMSException e)
+        {
+            throw toIOException(e);
+        }
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if(len == 0)
+            return 0;
+        try
+        {
+            // BytesMessage only reads to the start of an array
+            if(off == 0)
+                return message.readBytes(b, len);
+            len = Math.min(len, 8 * 1024);
+            if(scratch == null || scratch.length < len)
+                scratch = new byte[len];
+            int bytesRead = message.readBytes(scratch, len);
+            if(bytesRead > 0)
+                System.arraycopy(scratch, 0, b, off, bytesRead);
+            return bytesRead;
+        }
+        catch(JMSException e)
+        {
+            throw toIOException(e);
+        }
+    }
+
+    static IOException toIOException(JMSException e)
+    {
+        IOException ioe = new IOException(e.getMessage());
+        ioe.initCause(e);
+        return ioe;
+    }
+}
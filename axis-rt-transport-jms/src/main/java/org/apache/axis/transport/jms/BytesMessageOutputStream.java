@@ -0,0 +1,61 @@
+/*
+ * Copyright 2001, 2002,2004 The Apache Software Foundation.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.axis.transport.jms;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * BytesMessageOutputStream writes straight into the body of a BytesMessage,
+ *   so that a SOAP message can be serialized into it without going through
+ *   a byte array first.
+ */
+class BytesMessageOutputStream extends OutputStream
+{
+    private BytesMessage message;
+
+    BytesMessageOutputStream(BytesMessage message)
+    {
+        this.message = message;
+    }
+
+    public void write(int b) throws IOException
+    {
+        try
+        {
+            message.writeByte((byte)b);
+        }
+        catch(JMSException e)
+        {
+            throw BytesMessageInputStream.toIOException(e);
+        }
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        try
+        {
+            message.writeBytes(b, off, len);
+        }
+        catch(JMSException e)
+        {
+            throw BytesMessageInputStream.toIOException(e);
+        }
+    }
+}
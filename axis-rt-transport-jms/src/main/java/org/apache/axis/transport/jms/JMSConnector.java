@@ -478,20 +478,20 @@ public abstract class JMSConnector
                     throw new InvokeTimeoutException("Unable to complete call in time allotted");
                 }
 
-                SendSession sendSession = null;
+                SendSession sendSession = getSessionFromPool(m_poolTimeout);
+                if(sendSession == null)
+                {
+                    //give the reconnect thread a chance to fill the pool
+                    Thread.yield();
+                    continue;
+                }
+                byte[] response = null;
                 try
                 {
-                    sendSession = getSessionFromPool(m_poolTimeout);
-                    byte[] response =  sendSession.call(endpoint,
-                                                        message,
-                                                        timeoutTime - System.currentTimeMillis(),
-                                                        properties);
-                    returnSessionToPool(sendSession);
-                    if(response == null)
-                    {
-                        throw new InvokeTimeoutException("Unable to complete call in time allotted");
-                    }
-                    return response;
+                    response =  sendSession.call(endpoint,
+                                                 message,
+                                                 timeoutTime - System.currentTimeMillis(),
+                                                 properties);
                 }
                 catch(JMSException jmse)
                 {
@@ -509,20 +509,28 @@ public abstract class JMSConnector
                     Thread.yield();
                     continue;
                 }
-                catch(NullPointerException npe)
+                catch(Exception e)
+                {
+                    returnSessionToPool(sendSession);
+                    throw e;
+                }
+                returnSessionToPool(sendSession);
+                if(response == null)
                 {
-                    Thread.yield();
-                    continue;
+                    throw new InvokeTimeoutException("Unable to complete call in time allotted");
                 }
+                return response;
             }
         }
 
         /** @todo add in handling for security exceptions
-         *  @todo add support for timeouts */
-        void send(JMSEndpoint endpoint, byte[] message, HashMap properties)
+         *  @todo add support for timeouts
+         *  @param message the body, a byte[] or an Axis Message */
+        void send(JMSEndpoint endpoint, Object message, HashMap properties)
             throws Exception
         {
             long timeoutTime = System.currentTimeMillis() + m_timeoutTime;
+            BytesMessage jmsMessage = null;
             while(true)
             {
                 if(System.currentTimeMillis() > timeoutTime)
@@ -530,11 +538,19 @@ public abstract class JMSConnector
                     throw new InvokeTimeoutException("Cannot complete send in time allotted");
                 }
 
-                SendSession sendSession = null;
+                SendSession sendSession = getSessionFromPool(m_poolTimeout);
+                if(sendSession == null)
+                {
+                    //give the reconnect thread a chance to fill the pool
+                    Thread.yield();
+                    continue;
+                }
                 try
                 {
-                    sendSession = getSessionFromPool(m_poolTimeout);
-                    sendSession.send(endpoint, message, properties);
+                    //the body is written once, only the send is retried
+                    if(jmsMessage == null)
+                        jmsMessage = sendSession.createMessage(message);
+                    sendSession.send(endpoint, jmsMessage, properties);
                     returnSessionToPool(sendSession);
                 }
                 catch(JMSException jmse)
@@ -552,11 +568,12 @@ public abstract class JMSConnector
                     Thread.yield();
                     continue;
                 }
-                catch(NullPointerException npe)
+                catch(Exception e)
                 {
-                    //give the reconnect thread a chance to fill the pool
-                    Thread.yield();
-                    continue;
+                    //not a JMS failure, such as the body not serializing:
+                    //the session is still good
+                    returnSessionToPool(sendSession);
+                    throw e;
                 }
                 break;
             }
@@ -644,11 +661,34 @@ public abstract class JMSConnector
                                          long timeToLive)
                 throws JMSException;
 
-            void send(JMSEndpoint endpoint, byte[] message, HashMap properties)
+            /**
+             * @param message the body, a byte[] or an Axis Message
+             */
+            BytesMessage createMessage(Object message)
                 throws Exception
             {
                 BytesMessage jmsMessage = m_session.createBytesMessage();
-                jmsMessage.writeBytes(message);
+                if(message instanceof byte[])
+                {
+                    jmsMessage.writeBytes((byte[])message);
+                }
+                else
+                {
+                    // serialize the Axis message right into the body
+                    ((org.apache.axis.Message)message).writeTo(
+                        new BytesMessageOutputStream(jmsMessage));
+                }
+                return jmsMessage;
+            }
+
+            /**
+             * Send a message, which may have been created by another
+             * session of this connection.
+             */
+            void send(JMSEndpoint endpoint, BytesMessage jmsMessage,
+                      HashMap properties)
+                throws Exception
+            {
                 int deliveryMode = extractDeliveryMode(properties);
                 int priority = extractPriority(properties);
                 long timeToLive = extractTimeToLive(properties);
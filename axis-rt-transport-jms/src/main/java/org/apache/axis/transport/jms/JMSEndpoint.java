@@ -97,6 +97,18 @@ public abstract class JMSEndpoint
         m_connector.getSendConnection().send(this, message, properties);
     }
 
+    /**
+     * Send an Axis message w/o waiting for a response, serializing it
+     * straight into the body of the JMS message.
+     *
+     * @param message
+     * @throws JMSException
+     */
+    public void send(org.apache.axis.Message message)throws Exception
+    {
+        m_connector.getSendConnection().send(this, message, null);
+    }
+
     /**
      * Register a MessageListener.
      *
@@ -16,10 +16,12 @@
 
 package org.apache.axis.transport.jms;
 
+import org.apache.axis.AxisProperties;
 import org.apache.axis.components.jms.JMSVendorAdapter;
 import org.apache.axis.components.jms.JMSVendorAdapterFactory;
 import org.apache.axis.components.logger.LogFactory;
 import org.apache.axis.server.AxisServer;
+import org.apache.axis.utils.BoundedExecutor;
 import org.apache.axis.utils.Messages;
 import org.apache.axis.utils.Options;
 import org.apache.commons.logging.Log;
@@ -31,6 +33,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Properties;
+import java.util.concurrent.RejectedExecutionException;
 
 
 /**
@@ -38,9 +41,16 @@ import java.util.Properties;
  *   basic purpose is listen asynchronously for messages and to pass them off
  *   to SimpleJMSWorker for processing.
  *
- * Note: This is a simple JMS listener that does not pool worker threads and
- *   is not otherwise tuned for performance. As such, its intended use is not
- *   for production code, but for demos, debugging, and performance profiling.
+ * When multi-threaded, the workers run on a bounded pool of threads, sized
+ *   by the axis.jms.listener.threads and axis.jms.listener.queue.size
+ *   properties. Once all the threads are busy and the queue is full, the
+ *   delivery of further messages waits for a worker to complete, so that a
+ *   burst of messages is left on the destination rather than turned into
+ *   threads.
+ *
+ * Note: This is a simple JMS listener that is not otherwise tuned for
+ *   performance. As such, its intended use is not for production code, but
+ *   for demos, debugging, and performance profiling.
  *
  * @author Jaime Meritt  (jmeritt@sonicsoftware.com)
  * @author Richard Chung (rchung@sonicsoftware.com)
@@ -51,9 +61,26 @@ public class SimpleJMSListener implements MessageListener
     protected static Log log =
             LogFactory.getLog(SimpleJMSListener.class.getName());
 
+    /**
+     * The property naming the maximum number of messages processed at the
+     * same time.
+     */
+    public static final String THREADS_PROPERTY_KEY =
+        "axis.jms.listener.threads";
+
+    /**
+     * The property naming the maximum number of messages received and
+     * waiting for a thread.
+     */
+    public static final String QUEUE_SIZE_PROPERTY_KEY =
+        "axis.jms.listener.queue.size";
+
     // Do we use (multiple) threads to process incoming messages?
     private static boolean doThreads;
 
+    // the threads processing the messages, if multi-threaded
+    private BoundedExecutor workers;
+
     private JMSConnector connector;
     private JMSEndpoint endpoint;
     private AxisServer server;
@@ -82,6 +109,13 @@ public class SimpleJMSListener implements MessageListener
 
         // create the appropriate endpoint for the indicated destination
         endpoint = connector.createEndpoint(destination);
+
+        if (doThreads) {
+            workers = new BoundedExecutor("SimpleJMSWorker",
+                Integer.parseInt(AxisProperties.getProperty(THREADS_PROPERTY_KEY, "10")),
+                Integer.parseInt(AxisProperties.getProperty(QUEUE_SIZE_PROPERTY_KEY, "10")),
+                false);
+        }
     }
 
     // Axis server (shared between instances)
@@ -109,12 +143,16 @@ public class SimpleJMSListener implements MessageListener
             SimpleJMSWorker worker = new SimpleJMSWorker(this, (BytesMessage)message);
 
             // do we allow multi-threaded workers?
-            if (doThreads) {
-                Thread t = new Thread(worker);
-                t.start();
-            } else {
-                worker.run();
+            if (workers != null) {
+                try {
+                    // waits, holding up delivery, while the pool is full
+                    workers.execute(worker);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    // shutting down: don't drop a message already received
+                }
             }
+            worker.run();
         }
         catch(ClassCastException cce)
         {
@@ -137,6 +175,8 @@ public class SimpleJMSListener implements MessageListener
         endpoint.unregisterListener(this);
         connector.stop();
         connector.shutdown();
+        if (workers != null)
+            workers.shutdown();
     }
 
     public static final HashMap createConnectorMap(Options options)
@@ -194,6 +234,9 @@ public class SimpleJMSListener implements MessageListener
         System.out.println();
         System.out.println("       -s single-threaded listener");
         System.out.println("          [absence of option => multithreaded]");
+        System.out.println();
+        System.out.println("       -D" + THREADS_PROPERTY_KEY + "=<n>    worker threads [10]");
+        System.out.println("       -D" + QUEUE_SIZE_PROPERTY_KEY + "=<n> messages waiting [10]");
 
         System.exit(1);
     }
@@ -21,13 +21,10 @@ import org.apache.axis.Message;
 import org.apache.axis.MessageContext;
 import org.apache.axis.components.logger.LogFactory;
 import org.apache.axis.server.AxisServer;
-import org.apache.axis.utils.Messages;
 import org.apache.commons.logging.Log;
 
 import javax.jms.BytesMessage;
 import javax.jms.Destination;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 
 /**
@@ -58,25 +55,8 @@ public class SimpleJMSWorker implements Runnable
      */
     public void run()
     {
-        InputStream in = null;
-        try
-        {
-            // get the incoming msg content into a byte array
-            byte[] buffer = new byte[8 * 1024];
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            for(int bytesRead = message.readBytes(buffer);
-                bytesRead != -1; bytesRead = message.readBytes(buffer))
-            {
-                out.write(buffer, 0, bytesRead);
-            }
-            in = new ByteArrayInputStream(out.toByteArray());
-        }
-        catch(Exception e)
-        {
-            log.error(Messages.getMessage("exception00"), e);
-            e.printStackTrace();
-            return;
-        }
+        // read the incoming msg content in place
+        InputStream in = new BytesMessageInputStream(message);
 
         // create the msg and context and invoke the server
         AxisServer server = SimpleJMSListener.getAxisServer();
@@ -125,12 +105,11 @@ public class SimpleJMSWorker implements Runnable
         {
             // now we need to send the response
             Destination destination = message.getJMSReplyTo();
-            if(destination == null)
+            if(destination == null || msg == null)
                 return;
             JMSEndpoint replyTo = listener.getConnector().createEndpoint(destination);
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            msg.writeTo(out);
-            replyTo.send(out.toByteArray());
+            // serialized straight into the reply
+            replyTo.send(msg);
         }
         catch(Exception e)
         {
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.axis.transport.http.AxisServlet;
 import org.mortbay.jetty.Server;
 import org.mortbay.jetty.SessionManager;
 import org.mortbay.jetty.servlet.Context;
@@ -43,6 +44,8 @@ public final class StandaloneAxisServer {
     private int port;
     private File workDir;
     private int maxSessions = -1;
+    private boolean virtualThreads;
+    private int maxConcurrentInvocations = -1;
     
     private Server server;
     private QuitListener quitListener;
@@ -71,6 +74,31 @@ public final class StandaloneAxisServer {
         this.maxSessions = maxSessions;
     }
 
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Process requests on virtual threads instead of a pool of platform
+     * threads. Falls back to platform threads if the JVM doesn't support
+     * virtual threads.
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public int getMaxConcurrentInvocations() {
+        return maxConcurrentInvocations;
+    }
+
+    /**
+     * Set the maximum number of requests processed by the engine at the same
+     * time when using virtual threads.
+     */
+    public void setMaxConcurrentInvocations(int maxConcurrentInvocations) {
+        this.maxConcurrentInvocations = maxConcurrentInvocations;
+    }
+
     public void init() throws ServerException {
         StandaloneAxisServlet servlet = new StandaloneAxisServlet();
         
@@ -86,6 +114,9 @@ public final class StandaloneAxisServer {
         
         server = new Server(port);
         server.setGracefulShutdown(1000);
+        if (virtualThreads && VirtualThreadPool.isSupported()) {
+            server.setThreadPool(new VirtualThreadPool());
+        }
         Context context = new Context(server, "/axis");
         context.setBaseResource(new ResourceCollection((Resource[])resources.toArray(new Resource[resources.size()])));
         SessionManager sessionManager;
@@ -100,6 +131,13 @@ public final class StandaloneAxisServer {
         ServletHandler servletHandler = context.getServletHandler();
         ServletHolder axisServletHolder = new ServletHolder(servlet);
         axisServletHolder.setName("AxisServlet");
+        if (virtualThreads) {
+            axisServletHolder.setInitParameter(AxisServlet.INIT_PROPERTY_VIRTUAL_THREADS, "true");
+            if (maxConcurrentInvocations != -1) {
+                axisServletHolder.setInitParameter(AxisServlet.INIT_PROPERTY_MAX_CONCURRENT_INVOCATIONS,
+                        String.valueOf(maxConcurrentInvocations));
+            }
+        }
         servletHandler.addServlet(axisServletHolder);
         {
             ServletMapping mapping = new ServletMapping();
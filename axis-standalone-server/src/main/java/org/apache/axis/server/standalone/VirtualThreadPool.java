@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.axis.server.standalone;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.axis.utils.BoundedExecutor;
+import org.mortbay.component.AbstractLifeCycle;
+import org.mortbay.thread.ThreadPool;
+
+/**
+ * Jetty {@link ThreadPool} running each job on a new virtual thread, so that
+ * requests blocked on I/O don't tie up platform threads. The number of
+ * requests processed at the same time is limited by
+ * {@link org.apache.axis.transport.http.AxisServlet}
+ * instead.
+ */
+final class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+    private final AtomicInteger threads = new AtomicInteger();
+    private ExecutorService executor;
+
+    /**
+     * Whether virtual threads are available in this JVM.
+     */
+    static boolean isSupported() {
+        return BoundedExecutor.isVirtualThreadSupported();
+    }
+
+    protected void doStart() throws Exception {
+        executor = BoundedExecutor.newVirtualThreadExecutor();
+        if (executor == null) {
+            throw new IllegalStateException("Virtual threads are not supported");
+        }
+    }
+
+    protected void doStop() throws Exception {
+        executor.shutdown();
+    }
+
+    public boolean dispatch(final Runnable job) {
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    threads.incrementAndGet();
+                    try {
+                        job.run();
+                    } finally {
+                        threads.decrementAndGet();
+                    }
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException ex) {
+            return false;
+        }
+    }
+
+    public void join() throws InterruptedException {
+        while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+            // keep waiting
+        }
+    }
+
+    public int getThreads() {
+        return threads.get();
+    }
+
+    public int getIdleThreads() {
+        return 0;
+    }
+
+    public boolean isLowOnThreads() {
+        return false;
+    }
+}
@@ -57,6 +57,17 @@ public final class Configurator {
             option.setArgName("count");
             options.addOption(option);
         }
+        
+        {
+            Option option = new Option("v", false, "process requests on virtual threads");
+            options.addOption(option);
+        }
+        
+        {
+            Option option = new Option("c", true, "the maximum number of requests processed concurrently (with -v)");
+            option.setArgName("count");
+            options.addOption(option);
+        }
     }
     
     public void printHelp(PrintWriter pw, String app) {
@@ -80,5 +91,9 @@ public final class Configurator {
         if (cmdLine.hasOption("m")) {
             server.setMaxSessions(Integer.parseInt(cmdLine.getOptionValue("m")));
         }
+        server.setVirtualThreads(cmdLine.hasOption("v"));
+        if (cmdLine.hasOption("c")) {
+            server.setMaxConcurrentInvocations(Integer.parseInt(cmdLine.getOptionValue("c")));
+        }
     }
 }
@@ -0,0 +1,874 @@
+/*
+ * Copyright 2001-2004 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.axis.utils;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A headless relay engine for tcpmon.  It forwards the connections made to
+ * a local port to a target host, and keeps statistics about each of them,
+ * without the Swing user interface.
+ * <p>
+ * All the connections are served by a single thread using non-blocking
+ * channels.  Data is moved between the two channels of a connection through
+ * a direct buffer, so it is never copied onto the Java heap; only the first
+ * <code>captureSize</code> bytes of each direction are copied, for the
+ * benefit of {@link Listener}s.  A slow link is simulated by suspending
+ * reads for a while, rather than by putting the thread to sleep.
+ * <p>
+ * To run it from the command line:
+ * <pre>
+ * java org.apache.axis.utils.TcpRelay [options] listenPort targetHost targetPort
+ * </pre>
+ * or <code>tcpmon -nogui ...</code>; see {@link #main(String[])}.
+ */
+public class TcpRelay implements Runnable {
+
+    /**
+     * Receives the events of a relay.  The methods are called by the relay
+     * thread, and must return quickly.
+     */
+    public interface Listener {
+        void connectionOpened(ConnectionStats stats);
+
+        void connectionClosed(ConnectionStats stats);
+    }
+
+    /**
+     * The statistics of a single connection.  They are updated by the relay
+     * thread, and may be read by any thread.
+     */
+    public static class ConnectionStats {
+        private final int id;
+        private final String client;
+        private final String target;
+        private final long startTime;
+        private final long startNanos;
+        private volatile long firstRequestNanos;
+        private volatile long firstResponseNanos;
+        private volatile long endNanos;
+        private volatile long requestBytes;
+        private volatile long responseBytes;
+        private volatile IOException error;
+        private final Capture request;
+        private final Capture response;
+
+        ConnectionStats(int id, String client, String target, int captureSize) {
+            this.id = id;
+            this.client = client;
+            this.target = target;
+            this.startTime = System.currentTimeMillis();
+            this.startNanos = System.nanoTime();
+            this.request = new Capture(captureSize);
+            this.response = new Capture(captureSize);
+        }
+
+        /**
+         * @return the number of the connection, starting at 1
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return the address of the client, as host:port
+         */
+        public String getClient() {
+            return client;
+        }
+
+        /**
+         * @return the address of the target, as host:port
+         */
+        public String getTarget() {
+            return target;
+        }
+
+        /**
+         * @return when the connection was accepted, in milliseconds
+         */
+        public long getStartTime() {
+            return startTime;
+        }
+
+        public long getRequestBytes() {
+            return requestBytes;
+        }
+
+        public long getResponseBytes() {
+            return responseBytes;
+        }
+
+        public boolean isClosed() {
+            return endNanos != 0;
+        }
+
+        /**
+         * @return the exception which closed the connection, or null
+         */
+        public IOException getError() {
+            return error;
+        }
+
+        /**
+         * @return the time from the first byte of the request to the first
+         *         byte of the response in milliseconds, or -1 if there has
+         *         been no response yet
+         */
+        public double getLatencyMillis() {
+            if (firstRequestNanos == 0 || firstResponseNanos == 0) {
+                return -1;
+            }
+            return (firstResponseNanos - firstRequestNanos) / 1e6;
+        }
+
+        /**
+         * @return how long the connection has been, or was, open, in
+         *         milliseconds
+         */
+        public double getDurationMillis() {
+            long end = endNanos != 0 ? endNanos : System.nanoTime();
+            return (end - startNanos) / 1e6;
+        }
+
+        /**
+         * @return the number of bytes relayed in both directions per second
+         */
+        public double getBytesPerSecond() {
+            double seconds = getDurationMillis() / 1000;
+            return seconds > 0 ? (requestBytes + responseBytes) / seconds : 0;
+        }
+
+        /**
+         * @return the first bytes sent by the client, at most
+         *         <code>captureSize</code> of them
+         */
+        public byte[] getRequestCapture() {
+            return request.getBytes();
+        }
+
+        /**
+         * @return the first bytes sent by the target, at most
+         *         <code>captureSize</code> of them
+         */
+        public byte[] getResponseCapture() {
+            return response.getBytes();
+        }
+
+        public String toString() {
+            double latency = getLatencyMillis();
+            return MessageFormat.format(tcpmon.getMessage("relayConnection00",
+                    "#{0} {1} -> {2}: request {3} bytes, response {4} bytes, " +
+                    "latency {5} ms, time {6} ms, {7} KB/s"),
+                    new Object[] {
+                        "" + id, client, target,
+                        "" + requestBytes, "" + responseBytes,
+                        latency < 0 ? "-" : format(latency),
+                        format(getDurationMillis()),
+                        format(getBytesPerSecond() / 1024) });
+        }
+    }
+
+    /**
+     * A bounded copy of the first bytes of a stream.
+     */
+    static class Capture {
+        private final byte[] buf;
+        private volatile int length = 0;
+
+        Capture(int size) {
+            buf = new byte[Math.max(size, 0)];
+        }
+
+        /**
+         * Copy as many of the bytes of a buffer, from its position up to
+         * its limit, as there is room for.  The buffer is left as it was.
+         */
+        void add(ByteBuffer bytes) {
+            int n = Math.min(buf.length - length, bytes.remaining());
+            if (n > 0) {
+                bytes.duplicate().get(buf, length, n);
+                length += n;
+            }
+        }
+
+        byte[] getBytes() {
+            byte[] bytes = new byte[length];
+            System.arraycopy(buf, 0, bytes, 0, bytes.length);
+            return bytes;
+        }
+    }
+
+    /**
+     * Moves the data read from one channel to the other.
+     */
+    private static class Pipe {
+        final ByteBuffer buf;
+        final Capture capture;
+        final boolean isRequest;
+        /** the source has been read to its end */
+        boolean eof = false;
+        /** bytes read since the last pause of the simulated slow link */
+        int currentBytes = 0;
+        /** when reading may resume, in nanoseconds, 0 if not paused */
+        long resumeAt = 0;
+
+        Pipe(int bufferSize, Capture capture, boolean isRequest) {
+            this.buf = ByteBuffer.allocateDirect(bufferSize);
+            this.capture = capture;
+            this.isRequest = isRequest;
+        }
+
+        boolean isEmpty() {
+            return buf.position() == 0;
+        }
+    }
+
+    /**
+     * One of the two channels of a connection.
+     */
+    private static class End {
+        final Connection conn;
+        final SocketChannel channel;
+        /** carries what is read from this channel */
+        final Pipe in;
+        /** carries what is written to this channel */
+        final Pipe out;
+        SelectionKey key;
+        boolean connected;
+        boolean outputShut = false;
+
+        End(Connection conn, SocketChannel channel, Pipe in, Pipe out,
+            boolean connected) {
+            this.conn = conn;
+            this.channel = channel;
+            this.in = in;
+            this.out = out;
+            this.connected = connected;
+        }
+    }
+
+    private static class Connection {
+        final ConnectionStats stats;
+        End client;
+        End server;
+        boolean closed = false;
+
+        Connection(ConnectionStats stats) {
+            this.stats = stats;
+        }
+
+        End peer(End end) {
+            return end == client ? server : client;
+        }
+    }
+
+    private final int listenPort;
+    private final String targetHost;
+    private final int targetPort;
+
+    private int bufferSize = 16 * 1024;
+    private int captureSize = 0;
+    private int delayBytes = 0;
+    private int delayTime = 0;
+
+    private final List listeners = new CopyOnWriteArrayList();
+    /** pipes whose reads are suspended by the simulated slow link */
+    private final List paused = new ArrayList();
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread thread;
+    private volatile boolean stopping = false;
+
+    private int nextId = 0;
+    private volatile int activeCount = 0;
+    private volatile int connectionCount = 0;
+    private volatile long totalRequestBytes = 0;
+    private volatile long totalResponseBytes = 0;
+
+    /**
+     * @param listenPort the local port to listen to, 0 for any free port
+     * @param targetHost the host to relay the connections to
+     * @param targetPort the port to relay the connections to
+     */
+    public TcpRelay(int listenPort, String targetHost, int targetPort) {
+        this.listenPort = listenPort;
+        this.targetHost = targetHost;
+        this.targetPort = targetPort;
+    }
+
+    /**
+     * Set the size of the buffer used for each direction of a connection.
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = Math.max(bufferSize, 512);
+    }
+
+    /**
+     * Set how many bytes of each direction of a connection are kept for
+     * the listeners, 0 for none.
+     */
+    public void setCaptureSize(int captureSize) {
+        this.captureSize = Math.max(captureSize, 0);
+    }
+
+    /**
+     * Simulate a slow link.
+     *
+     * @param delayBytes bytes per delay; set to 0 for no delay
+     * @param delayTime delay time per delay in milliseconds
+     */
+    public void setSlowLink(int delayBytes, int delayTime) {
+        this.delayBytes = Math.max(delayBytes, 0);
+        this.delayTime = Math.max(delayTime, 0);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Start listening, and relaying in a background thread.
+     */
+    public synchronized void start() throws IOException {
+        if (thread != null) {
+            return;
+        }
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().setReuseAddress(true);
+        serverChannel.socket().bind(new InetSocketAddress(listenPort));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        stopping = false;
+        thread = new Thread(this, "tcpmon-relay-" + getLocalPort());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop listening and close all the connections.
+     */
+    public void stop() {
+        Thread t;
+        synchronized (this) {
+            t = thread;
+            if (t == null) {
+                return;
+            }
+            stopping = true;
+            selector.wakeup();
+            thread = null;
+        }
+        try {
+            t.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the port actually listened to
+     */
+    public int getLocalPort() {
+        ServerSocketChannel channel = serverChannel;
+        return channel != null ? channel.socket().getLocalPort() : listenPort;
+    }
+
+    public String getTargetHost() {
+        return targetHost;
+    }
+
+    public int getTargetPort() {
+        return targetPort;
+    }
+
+    /**
+     * @return the number of connections currently open
+     */
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    /**
+     * @return the number of connections accepted so far
+     */
+    public int getConnectionCount() {
+        return connectionCount;
+    }
+
+    /**
+     * @return the number of bytes relayed from the clients to the target
+     */
+    public long getTotalRequestBytes() {
+        return totalRequestBytes;
+    }
+
+    /**
+     * @return the number of bytes relayed from the target to the clients
+     */
+    public long getTotalResponseBytes() {
+        return totalResponseBytes;
+    }
+
+    public void run() {
+        try {
+            while (!stopping) {
+                long timeout = resumePaused();
+                selector.select(timeout);
+                Iterator keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = (SelectionKey) keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        handle((End) key.attachment(), key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (ClosedSelectorException e) {
+            // stopped
+        } finally {
+            shutdown();
+        }
+    }
+
+    private void shutdown() {
+        Iterator keys = selector.keys().iterator();
+        while (keys.hasNext()) {
+            Object attachment = ((SelectionKey) keys.next()).attachment();
+            if (attachment instanceof End) {
+                close(((End) attachment).conn, null);
+            }
+        }
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            // ignore
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * Resume the reads whose delay has run out.
+     *
+     * @return how long to wait for the next one, in milliseconds, 0 if none
+     */
+    private long resumePaused() {
+        if (paused.isEmpty()) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long next = Long.MAX_VALUE;
+        for (Iterator i = paused.iterator(); i.hasNext();) {
+            End end = (End) i.next();
+            if (end.conn.closed) {
+                i.remove();
+            } else if (end.in.resumeAt - now <= 0) {
+                end.in.resumeAt = 0;
+                i.remove();
+                updateInterest(end);
+            } else {
+                next = Math.min(next, end.in.resumeAt - now);
+            }
+        }
+        if (next == Long.MAX_VALUE) {
+            return 0;
+        }
+        return Math.max(next / 1000000, 1);
+    }
+
+    private void accept() throws IOException {
+        SocketChannel clientChannel = serverChannel.accept();
+        if (clientChannel == null) {
+            return;
+        }
+        int id = ++nextId;
+        String client = address(clientChannel.socket().getInetAddress().getHostAddress(),
+                                clientChannel.socket().getPort());
+        ConnectionStats stats = new ConnectionStats(id, client,
+                address(targetHost, targetPort), captureSize);
+        Connection conn = new Connection(stats);
+        Pipe request = new Pipe(bufferSize, stats.request, true);
+        Pipe response = new Pipe(bufferSize, stats.response, false);
+        connectionCount++;
+        activeCount++;
+
+        SocketChannel serverSide = null;
+        try {
+            clientChannel.configureBlocking(false);
+            conn.client = new End(conn, clientChannel, request, response, true);
+            conn.client.key = clientChannel.register(selector, 0, conn.client);
+
+            serverSide = SocketChannel.open();
+            serverSide.configureBlocking(false);
+            boolean connected = serverSide.connect(
+                    new InetSocketAddress(targetHost, targetPort));
+            conn.server = new End(conn, serverSide, response, request, connected);
+            conn.server.key = serverSide.register(selector, 0, conn.server);
+        } catch (IOException e) {
+            if (conn.server == null && serverSide != null) {
+                closeQuietly(serverSide);
+            }
+            fire(stats, true);
+            close(conn, e);
+            return;
+        }
+        fire(stats, true);
+        updateInterest(conn.client);
+        updateInterest(conn.server);
+    }
+
+    private void handle(End end, SelectionKey key) {
+        Connection conn = end.conn;
+        try {
+            if (key.isConnectable()) {
+                end.channel.finishConnect();
+                end.connected = true;
+                updateInterest(end);
+                updateInterest(conn.peer(end));
+                return;
+            }
+            if (key.isReadable()) {
+                read(end);
+            }
+            if (!conn.closed && key.isValid() && key.isWritable()) {
+                write(end);
+            }
+        } catch (IOException e) {
+            close(conn, e);
+        }
+    }
+
+    private void read(End end) throws IOException {
+        Connection conn = end.conn;
+        Pipe pipe = end.in;
+        int start = pipe.buf.position();
+        int n = end.channel.read(pipe.buf);
+        if (n < 0) {
+            pipe.eof = true;
+        } else if (n > 0) {
+            account(conn.stats, pipe, start, n);
+        }
+        // forward straight away, most of the time this empties the buffer
+        write(conn.peer(end));
+    }
+
+    private void account(ConnectionStats stats, Pipe pipe, int start, int n) {
+        if (pipe.capture.length < pipe.capture.buf.length) {
+            ByteBuffer bytes = pipe.buf.duplicate();
+            bytes.position(start);
+            bytes.limit(start + n);
+            pipe.capture.add(bytes);
+        }
+        if (pipe.isRequest) {
+            if (stats.firstRequestNanos == 0) {
+                stats.firstRequestNanos = System.nanoTime();
+            }
+            stats.requestBytes += n;
+            totalRequestBytes += n;
+        } else {
+            if (stats.firstResponseNanos == 0) {
+                stats.firstResponseNanos = System.nanoTime();
+            }
+            stats.responseBytes += n;
+            totalResponseBytes += n;
+        }
+        if (delayBytes > 0) {
+            pipe.currentBytes += n;
+            if (pipe.currentBytes > delayBytes) {
+                long delay = (pipe.currentBytes / delayBytes) * (long) delayTime;
+                pipe.currentBytes = pipe.currentBytes % delayBytes;
+                if (delay > 0) {
+                    pipe.resumeAt = System.nanoTime() + delay * 1000000;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write what is waiting to be written to a channel, and update the
+     * interest of both channels of the connection.
+     */
+    private void write(End end) throws IOException {
+        Pipe pipe = end.out;
+        if (end.connected && !pipe.isEmpty()) {
+            pipe.buf.flip();
+            try {
+                end.channel.write(pipe.buf);
+            } finally {
+                pipe.buf.compact();
+            }
+        }
+        if (pipe.eof && pipe.isEmpty() && !end.outputShut) {
+            end.outputShut = true;
+            end.channel.socket().shutdownOutput();
+        }
+        Connection conn = end.conn;
+        if (conn.client.in.eof && conn.client.in.isEmpty() &&
+                conn.server.in.eof && conn.server.in.isEmpty()) {
+            close(conn, null);
+            return;
+        }
+        End peer = conn.peer(end);
+        if (peer.in.resumeAt != 0 && !paused.contains(peer)) {
+            paused.add(peer);
+        }
+        updateInterest(end);
+        updateInterest(peer);
+    }
+
+    private void updateInterest(End end) {
+        if (end.conn.closed || !end.key.isValid()) {
+            return;
+        }
+        int ops = 0;
+        if (!end.connected) {
+            ops = SelectionKey.OP_CONNECT;
+        } else {
+            End peer = end.conn.peer(end);
+            // read only once the previous data has been forwarded
+            if (peer.connected && !end.in.eof && end.in.isEmpty() &&
+                    end.in.resumeAt == 0) {
+                ops |= SelectionKey.OP_READ;
+            }
+            if (!end.out.isEmpty()) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+        }
+        end.key.interestOps(ops);
+    }
+
+    private void close(Connection conn, IOException error) {
+        if (conn.closed) {
+            return;
+        }
+        conn.closed = true;
+        conn.stats.error = error;
+        conn.stats.endNanos = System.nanoTime();
+        activeCount--;
+        if (conn.client != null) {
+            closeQuietly(conn.client.channel);
+        }
+        if (conn.server != null) {
+            closeQuietly(conn.server.channel);
+        }
+        fire(conn.stats, false);
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    private void fire(ConnectionStats stats, boolean opened) {
+        for (Iterator i = listeners.iterator(); i.hasNext();) {
+            Listener listener = (Listener) i.next();
+            try {
+                if (opened) {
+                    listener.connectionOpened(stats);
+                } else {
+                    listener.connectionClosed(stats);
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static String address(String host, int port) {
+        return host + ":" + port;
+    }
+
+    static String format(double value) {
+        return new java.text.DecimalFormat("0.0").format(value);
+    }
+
+    /**
+     * Prints a line for each connection closed, and a summary at regular
+     * intervals.
+     */
+    static class StatsPrinter implements Listener {
+        private final TcpRelay relay;
+        private final PrintStream out;
+        private final boolean dump;
+        private long lastTime = System.nanoTime();
+        private long lastBytes = 0;
+        private int lastConnections = 0;
+
+        StatsPrinter(TcpRelay relay, PrintStream out, boolean dump) {
+            this.relay = relay;
+            this.out = out;
+            this.dump = dump;
+        }
+
+        public void connectionOpened(ConnectionStats stats) {
+        }
+
+        public void connectionClosed(ConnectionStats stats) {
+            StringBuffer line = new StringBuffer(stats.toString());
+            if (stats.getError() != null) {
+                line.append(" (").append(stats.getError()).append(')');
+            }
+            if (dump) {
+                line.append("\n>>>\n").append(new String(stats.getRequestCapture()))
+                    .append("\n<<<\n").append(new String(stats.getResponseCapture()));
+            }
+            synchronized (out) {
+                out.println(line);
+            }
+        }
+
+        synchronized void printSummary() {
+            long now = System.nanoTime();
+            long bytes = relay.getTotalRequestBytes() + relay.getTotalResponseBytes();
+            int connections = relay.getConnectionCount();
+            double seconds = (now - lastTime) / 1e9;
+            double rate = seconds > 0 ? (bytes - lastBytes) / seconds : 0;
+            String summary = MessageFormat.format(tcpmon.getMessage("relaySummary00",
+                    "active {0}, connections {1} (+{2}), request {3} bytes, " +
+                    "response {4} bytes, {5} KB/s"),
+                    new Object[] {
+                        "" + relay.getActiveCount(), "" + connections,
+                        "" + (connections - lastConnections),
+                        "" + relay.getTotalRequestBytes(),
+                        "" + relay.getTotalResponseBytes(),
+                        format(rate / 1024) });
+            synchronized (out) {
+                out.println(summary);
+            }
+            lastTime = now;
+            lastBytes = bytes;
+            lastConnections = connections;
+        }
+    }
+
+    /**
+     * Run a relay from the command line, printing statistics to standard
+     * output.
+     * <pre>
+     * TcpRelay [-interval seconds] [-capture bytes] [-buffer bytes]
+     *          [-delay bytesPerPause milliseconds]
+     *          listenPort targetHost targetPort
+     * </pre>
+     * A line is printed for each connection when it is closed, and a summary
+     * every <code>interval</code> seconds (10 by default, 0 for none).  With
+     * <code>-capture</code>, the first bytes of each direction are printed
+     * along with the connection.
+     */
+    public static void main(String[] args) {
+        int interval = 10;
+        int capture = 0;
+        int buffer = 0;
+        int delayBytes = 0;
+        int delayTime = 0;
+        int i = 0;
+        try {
+            for (; i < args.length && args[i].startsWith("-"); i++) {
+                if ("-interval".equals(args[i])) {
+                    interval = Integer.parseInt(args[++i]);
+                } else if ("-capture".equals(args[i])) {
+                    capture = Integer.parseInt(args[++i]);
+                } else if ("-buffer".equals(args[i])) {
+                    buffer = Integer.parseInt(args[++i]);
+                } else if ("-delay".equals(args[i])) {
+                    delayBytes = Integer.parseInt(args[++i]);
+                    delayTime = Integer.parseInt(args[++i]);
+                } else {
+                    usage();
+                    return;
+                }
+            }
+            if (args.length - i != 3) {
+                usage();
+                return;
+            }
+            final TcpRelay relay = new TcpRelay(Integer.parseInt(args[i]),
+                    args[i + 1], Integer.parseInt(args[i + 2]));
+            if (buffer > 0) {
+                relay.setBufferSize(buffer);
+            }
+            relay.setCaptureSize(capture);
+            relay.setSlowLink(delayBytes, delayTime);
+            final StatsPrinter printer =
+                new StatsPrinter(relay, System.out, capture > 0);
+            relay.addListener(printer);
+            relay.start();
+            System.out.println(MessageFormat.format(tcpmon.getMessage("relay00",
+                    "Relaying port {0} to {1}:{2}"),
+                    new Object[] { "" + relay.getLocalPort(), relay.getTargetHost(),
+                                   "" + relay.getTargetPort() }));
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                public void run() {
+                    relay.stop();
+                    printer.printSummary();
+                }
+            });
+            while (true) {
+                if (interval > 0) {
+                    Thread.sleep(interval * 1000L);
+                    printer.printSummary();
+                } else {
+                    Thread.sleep(Long.MAX_VALUE);
+                }
+            }
+        } catch (NumberFormatException e) {
+            usage();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            usage();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void usage() {
+        System.err.println(tcpmon.getMessage("usage00", "Usage:")
+                + " TcpRelay [-interval seconds] [-capture bytes] [-buffer bytes]"
+                + " [-delay bytesPerPause milliseconds]"
+                + " listenPort targetHost targetPort\n");
+    }
+}
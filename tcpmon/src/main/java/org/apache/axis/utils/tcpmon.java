@@ -1886,10 +1886,18 @@ public class tcpmon extends JFrame {
         }
     }
     /**
-     * this is our main method
+     * this is our main method.  With -nogui as the first argument, the
+     * connections are relayed by a {@link TcpRelay} which prints statistics
+     * instead of showing them.
      * @param args
      */
     public static void main(String[] args) {
+        if ( args.length > 0 && "-nogui".equals(args[0]) ) {
+            String[] relayArgs = new String[args.length - 1];
+            System.arraycopy( args, 1, relayArgs, 0, relayArgs.length );
+            TcpRelay.main( relayArgs );
+            return ;
+        }
         try {
             //switch between swing L&F here
             setupLookAndFeel(true);
@@ -1906,7 +1914,9 @@ public class tcpmon extends JFrame {
             }
             else if ( args.length != 0 ) {
                 System.err.println( getMessage("usage00", "Usage:")
-                        + " tcpmon [listenPort targetHost targetPort]\n");
+                        + " tcpmon [listenPort targetHost targetPort]\n"
+                        + "       tcpmon -nogui [-interval seconds] [-capture bytes]"
+                        + " listenPort targetHost targetPort\n");
             }
             else {
                 new tcpmon(0, null, 0);